@@ -0,0 +1,72 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractDataState.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.benchmark;
+
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Ancestor for benchmarks on synthetic spectra. The data is generated once
+ * per trial, before any measurements, for each of the shapes.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+@State(Scope.Benchmark)
+public abstract class AbstractDataState {
+
+  /** the seed for generating the data. */
+  public static final long SEED = 42;
+
+  /** the shapes of the data (rows x columns). */
+  @Param({"100x128", "400x512", "1000x1024"})
+  public String shape;
+
+  /** the spectra. */
+  protected Matrix m_X;
+
+  /** the response. */
+  protected Matrix m_Y;
+
+  /**
+   * Generates the data.
+   */
+  @Setup(Level.Trial)
+  public void generateData() {
+    int[]	dims;
+    Matrix[]	data;
+
+    dims = SyntheticSpectra.parseShape(shape);
+    data = SyntheticSpectra.generate(dims[0], dims[1], SEED);
+    m_X  = data[0];
+    m_Y  = data[1];
+    setup();
+  }
+
+  /**
+   * Hook for further setup after the data has been generated.
+   */
+  protected void setup() {
+  }
+}
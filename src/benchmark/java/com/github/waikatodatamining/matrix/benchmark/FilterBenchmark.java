@@ -0,0 +1,124 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FilterBenchmark.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.benchmark;
+
+import com.github.waikatodatamining.matrix.algorithms.Center;
+import com.github.waikatodatamining.matrix.algorithms.Downsample;
+import com.github.waikatodatamining.matrix.algorithms.MultiplicativeScatterCorrection;
+import com.github.waikatodatamining.matrix.algorithms.PCA;
+import com.github.waikatodatamining.matrix.algorithms.PassThrough;
+import com.github.waikatodatamining.matrix.algorithms.RowNorm;
+import com.github.waikatodatamining.matrix.algorithms.SavitzkyGolay;
+import com.github.waikatodatamining.matrix.algorithms.SavitzkyGolay2;
+import com.github.waikatodatamining.matrix.algorithms.Standardize;
+import com.github.waikatodatamining.matrix.algorithms.ica.FastICA;
+import com.github.waikatodatamining.matrix.core.algorithm.MatrixAlgorithm;
+import com.github.waikatodatamining.matrix.core.algorithm.UnsupervisedMatrixAlgorithm;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the unsupervised algorithms (filters). Algorithms that are not
+ * configured separately (e.g., PCA) get fitted as part of the transform.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark
+  extends AbstractDataState {
+
+  /** the algorithm to benchmark. */
+  @Param({
+    "Center", "Standardize", "MultiplicativeScatterCorrection",
+    "SavitzkyGolay", "SavitzkyGolay2", "RowNorm", "Downsample",
+    "PassThrough", "PCA", "FastICA",
+  })
+  public String algorithm;
+
+  /** the configured algorithm. */
+  protected MatrixAlgorithm m_Configured;
+
+  /**
+   * Creates a new instance of the algorithm.
+   *
+   * @return		the algorithm
+   */
+  protected MatrixAlgorithm create() {
+    switch (algorithm) {
+      case "Center":
+	return new Center();
+      case "Standardize":
+	return new Standardize();
+      case "MultiplicativeScatterCorrection":
+	return new MultiplicativeScatterCorrection();
+      case "SavitzkyGolay":
+	return new SavitzkyGolay();
+      case "SavitzkyGolay2":
+	return new SavitzkyGolay2();
+      case "RowNorm":
+	return new RowNorm();
+      case "Downsample":
+	return new Downsample();
+      case "PassThrough":
+	return new PassThrough();
+      case "PCA":
+	return new PCA();
+      case "FastICA":
+	return new FastICA();
+      default:
+	throw new IllegalStateException("Unhandled algorithm: " + algorithm);
+    }
+  }
+
+  @Override
+  protected void setup() {
+    m_Configured = configure();
+  }
+
+  @Benchmark
+  public MatrixAlgorithm configure() {
+    MatrixAlgorithm	result;
+
+    result = create();
+    if (result instanceof UnsupervisedMatrixAlgorithm)
+      ((UnsupervisedMatrixAlgorithm) result).configure(m_X);
+
+    return result;
+  }
+
+  @Benchmark
+  public Matrix transform() {
+    return m_Configured.transform(m_X);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MatrixBenchmark.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.benchmark;
+
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the core {@link Matrix} operations. Decompositions are cached
+ * by a matrix, so they are computed on a copy.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixBenchmark
+  extends AbstractDataState {
+
+  /** the number of columns of the right-hand side for mul. */
+  public static final int NUM_RHS_COLUMNS = 10;
+
+  /** right-hand side for mul. */
+  protected Matrix m_RHS;
+
+  /** the cross product X^T*X, regularized to be invertible. */
+  protected Matrix m_XtX;
+
+  /** the column means, as column vector. */
+  protected Matrix m_Means;
+
+  @Override
+  protected void setup() {
+    m_RHS   = MatrixFactory.randn(m_X.numColumns(), NUM_RHS_COLUMNS, SEED);
+    m_XtX   = m_X.t().mul(m_X).add(MatrixFactory.eye(m_X.numColumns()));
+    m_Means = m_X.mean(0).t();
+  }
+
+  @Benchmark
+  public Matrix mul() {
+    return m_X.mul(m_RHS);
+  }
+
+  @Benchmark
+  public Matrix transposeMul() {
+    return m_X.t().mul(m_X);
+  }
+
+  @Benchmark
+  public Matrix mulTranspose() {
+    return m_X.mul(m_X.t());
+  }
+
+  @Benchmark
+  public Matrix transpose() {
+    return m_X.transpose();
+  }
+
+  @Benchmark
+  public Matrix broadcastScale() {
+    return m_X.scaleByRowVector(m_Means);
+  }
+
+  @Benchmark
+  public Matrix broadcastAdd() {
+    return m_X.addByVector(m_Means);
+  }
+
+  @Benchmark
+  public Matrix elementwise() {
+    return m_X.mulElementwise(m_X).sqrt();
+  }
+
+  @Benchmark
+  public Matrix meanColumns() {
+    return m_X.mean(0);
+  }
+
+  @Benchmark
+  public Matrix sumRows() {
+    return m_X.sum(1);
+  }
+
+  @Benchmark
+  public double norm2() {
+    return m_X.norm2();
+  }
+
+  @Benchmark
+  public Matrix svd() {
+    return m_X.copy().getSingularValues();
+  }
+
+  @Benchmark
+  public Matrix eigen() {
+    return m_XtX.copy().getEigenvalues();
+  }
+
+  @Benchmark
+  public Matrix inverse() {
+    return m_XtX.inverse();
+  }
+
+  @Benchmark
+  public Matrix pseudoInverse() {
+    return m_X.pseudoInverse();
+  }
+
+  @Benchmark
+  public Matrix qr() {
+    return m_X.copy().qrR();
+  }
+}
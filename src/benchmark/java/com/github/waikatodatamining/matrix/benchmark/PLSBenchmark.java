@@ -0,0 +1,135 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PLSBenchmark.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.benchmark;
+
+import com.github.waikatodatamining.matrix.algorithms.pls.AbstractPLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.CCARegression;
+import com.github.waikatodatamining.matrix.algorithms.pls.DIPLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.KernelPLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.NIPALS;
+import com.github.waikatodatamining.matrix.algorithms.pls.OPLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.PLS1;
+import com.github.waikatodatamining.matrix.algorithms.pls.PRM;
+import com.github.waikatodatamining.matrix.algorithms.pls.SIMPLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.SparsePLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.VCPLS;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks configure, transform and predict of the PLS algorithms. DIPLS
+ * gets configured unsupervised, with a perturbed copy of the spectra as
+ * target domain.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PLSBenchmark
+  extends AbstractDataState {
+
+  /** the algorithm to benchmark. */
+  @Param({
+    "PLS1", "SIMPLS", "NIPALS", "KernelPLS", "OPLS", "PRM",
+    "SparsePLS", "VCPLS", "CCARegression", "DIPLS",
+  })
+  public String algorithm;
+
+  /** the spectra of the target domain (DIPLS). */
+  protected Matrix m_XTarget;
+
+  /** the configured algorithm. */
+  protected AbstractPLS m_Configured;
+
+  /**
+   * Creates a new instance of the algorithm.
+   *
+   * @return		the algorithm
+   */
+  protected AbstractPLS create() {
+    switch (algorithm) {
+      case "PLS1":
+	return new PLS1();
+      case "SIMPLS":
+	return new SIMPLS();
+      case "NIPALS":
+	return new NIPALS();
+      case "KernelPLS":
+	return new KernelPLS();
+      case "OPLS":
+	return new OPLS();
+      case "PRM":
+	return new PRM();
+      case "SparsePLS":
+	return new SparsePLS();
+      case "VCPLS":
+	return new VCPLS();
+      case "CCARegression":
+	return new CCARegression();
+      case "DIPLS":
+	return new DIPLS();
+      default:
+	throw new IllegalStateException("Unhandled algorithm: " + algorithm);
+    }
+  }
+
+  @Override
+  protected void setup() {
+    m_XTarget    = m_X.add(MatrixFactory.randnLike(m_X, 0.0, 0.1, SEED));
+    m_Configured = configure();
+  }
+
+  @Benchmark
+  public AbstractPLS configure() {
+    AbstractPLS	result;
+
+    result = create();
+    if (result instanceof DIPLS)
+      ((DIPLS) result).configureUnsupervised(m_X, m_XTarget, m_Y);
+    else
+      result.configure(m_X, m_Y);
+
+    return result;
+  }
+
+  @Benchmark
+  public Matrix transform() {
+    return m_Configured.transform(m_X);
+  }
+
+  @Benchmark
+  public Matrix predict() {
+    return m_Configured.predict(m_X);
+  }
+}
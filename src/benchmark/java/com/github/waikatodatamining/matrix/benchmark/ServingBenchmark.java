@@ -0,0 +1,115 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ServingBenchmark.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.benchmark;
+
+import com.github.waikatodatamining.matrix.algorithms.pls.AbstractPLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.KernelPLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.SIMPLS;
+import com.github.waikatodatamining.matrix.core.algorithm.FrozenPredictor;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+import com.github.waikatodatamining.matrix.core.serving.MicroBatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the throughput of single-row requests from concurrent clients,
+ * predicted via a shared {@link MicroBatcher} vs one predict per request.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class ServingBenchmark
+  extends AbstractDataState {
+
+  /** the algorithm to benchmark. */
+  @Param({"SIMPLS", "KernelPLS"})
+  public String algorithm;
+
+  /** the frozen model. */
+  protected FrozenPredictor m_Predictor;
+
+  /** the batcher of the model. */
+  protected MicroBatcher m_Batcher;
+
+  /** the row to predict. */
+  protected double[] m_Row;
+
+  /**
+   * Creates a new instance of the algorithm.
+   *
+   * @return		the algorithm
+   */
+  protected AbstractPLS create() {
+    switch (algorithm) {
+      case "SIMPLS":
+	return new SIMPLS();
+      case "KernelPLS":
+	return new KernelPLS();
+      default:
+	throw new IllegalStateException("Unhandled algorithm: " + algorithm);
+    }
+  }
+
+  @Override
+  protected void setup() {
+    AbstractPLS	pls;
+
+    pls = create();
+    pls.configure(m_X, m_Y);
+    m_Predictor = FrozenPredictor.freeze(pls);
+    m_Batcher   = new MicroBatcher(m_Predictor, 64, 500);
+    m_Row       = m_X.getRow(0).toRawCopy1D();
+  }
+
+  /**
+   * Shuts down the batcher.
+   */
+  @TearDown(Level.Trial)
+  public void shutdown() {
+    m_Batcher.shutdown();
+  }
+
+  @Benchmark
+  public double[] batched() {
+    return m_Batcher.submit(m_Row).join();
+  }
+
+  @Benchmark
+  public double[] single() {
+    return m_Predictor.predict(MatrixFactory.fromRow(m_Row)).toRawCopy1D();
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SupervisedFilterBenchmark.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.benchmark;
+
+import com.github.waikatodatamining.matrix.algorithms.CCAFilter;
+import com.github.waikatodatamining.matrix.algorithms.glsw.EPO;
+import com.github.waikatodatamining.matrix.algorithms.glsw.GLSW;
+import com.github.waikatodatamining.matrix.algorithms.glsw.YGradientEPO;
+import com.github.waikatodatamining.matrix.algorithms.glsw.YGradientGLSW;
+import com.github.waikatodatamining.matrix.core.algorithm.SupervisedMatrixAlgorithm;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the supervised filters. GLSW and EPO get configured on the
+ * spectra and a perturbed copy (second instrument), the others on the
+ * spectra and the response.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SupervisedFilterBenchmark
+  extends AbstractDataState {
+
+  /** the algorithm to benchmark. */
+  @Param({"CCAFilter", "GLSW", "EPO", "YGradientGLSW", "YGradientEPO"})
+  public String algorithm;
+
+  /** the spectra of the second instrument. */
+  protected Matrix m_X2;
+
+  /** the configured algorithm. */
+  protected SupervisedMatrixAlgorithm m_Configured;
+
+  /**
+   * Creates a new instance of the algorithm.
+   *
+   * @return		the algorithm
+   */
+  protected SupervisedMatrixAlgorithm create() {
+    switch (algorithm) {
+      case "CCAFilter":
+	return new CCAFilter();
+      case "GLSW":
+	return new GLSW();
+      case "EPO":
+	return new EPO();
+      case "YGradientGLSW":
+	return new YGradientGLSW();
+      case "YGradientEPO":
+	return new YGradientEPO();
+      default:
+	throw new IllegalStateException("Unhandled algorithm: " + algorithm);
+    }
+  }
+
+  @Override
+  protected void setup() {
+    m_X2         = m_X.add(MatrixFactory.randnLike(m_X, 0.0, 0.1, SEED));
+    m_Configured = configure();
+  }
+
+  @Benchmark
+  public SupervisedMatrixAlgorithm configure() {
+    SupervisedMatrixAlgorithm	result;
+
+    result = create();
+    if ((result instanceof GLSW) && !(result instanceof YGradientGLSW))
+      result.configure(m_X, m_X2);
+    else
+      result.configure(m_X, m_Y);
+
+    return result;
+  }
+
+  @Benchmark
+  public Matrix transform() {
+    return m_Configured.transform(m_X);
+  }
+}
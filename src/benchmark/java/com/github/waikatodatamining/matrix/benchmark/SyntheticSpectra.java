@@ -0,0 +1,112 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SyntheticSpectra.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.benchmark;
+
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+
+/**
+ * Generates synthetic spectra for the benchmarks: each row is a mixture of
+ * Gaussian peaks (random concentrations), plus a linear baseline and noise.
+ * The response is a linear combination of the concentrations.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public final class SyntheticSpectra {
+
+  /** the number of peaks (constituents). */
+  public static final int NUM_PEAKS = 8;
+
+  /** the standard deviation of the noise. */
+  public static final double NOISE = 0.01;
+
+  private SyntheticSpectra() {
+  }
+
+  /**
+   * Parses a shape of the form "rows x columns", e.g., "100x256".
+   *
+   * @param shape	the shape
+   * @return		the number of rows and columns
+   */
+  public static int[] parseShape(String shape) {
+    String[]	parts;
+
+    parts = shape.toLowerCase().split("x");
+    if (parts.length != 2)
+      throw new IllegalArgumentException("Shape must be of the form 'rows x columns': " + shape);
+
+    return new int[]{Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())};
+  }
+
+  /**
+   * Generates the spectra and the response.
+   *
+   * @param numRows	the number of spectra
+   * @param numColumns	the number of wave numbers
+   * @param seed	the seed for the random numbers
+   * @return		the spectra and the response (single column)
+   */
+  public static Matrix[] generate(int numRows, int numColumns, long seed) {
+    Matrix	concentrations;
+    Matrix	params;
+    Matrix	peaks;
+    Matrix	baseline;
+    Matrix	X;
+    Matrix	y;
+    double	center;
+    double	width;
+    double	offset;
+    double	slope;
+    int		i;
+    int		j;
+    int		k;
+
+    // peak profiles: random center and width
+    params = MatrixFactory.rand(NUM_PEAKS, 2, seed);
+    peaks  = MatrixFactory.zeros(NUM_PEAKS, numColumns);
+    for (k = 0; k < NUM_PEAKS; k++) {
+      center = params.get(k, 0) * numColumns;
+      width  = numColumns * (0.02 + 0.08 * params.get(k, 1));
+      for (j = 0; j < numColumns; j++)
+	peaks.set(k, j, Math.exp(-0.5 * Math.pow((j - center) / width, 2)));
+    }
+
+    // random baseline per spectrum
+    params   = MatrixFactory.rand(numRows, 2, seed + 1);
+    baseline = MatrixFactory.zeros(numRows, numColumns);
+    for (i = 0; i < numRows; i++) {
+      offset = 0.1 * params.get(i, 0);
+      slope  = 0.1 * params.get(i, 1);
+      for (j = 0; j < numColumns; j++)
+	baseline.set(i, j, offset + slope * j / numColumns);
+    }
+
+    concentrations = MatrixFactory.rand(numRows, NUM_PEAKS, seed + 2);
+    X = concentrations.mul(peaks)
+      .add(baseline)
+      .add(MatrixFactory.randn(numRows, numColumns, 0.0, NOISE, seed + 3));
+    y = concentrations.mul(MatrixFactory.randn(NUM_PEAKS, 1, seed + 4))
+      .add(MatrixFactory.randn(numRows, 1, 0.0, NOISE, seed + 5));
+
+    return new Matrix[]{X, y};
+  }
+}
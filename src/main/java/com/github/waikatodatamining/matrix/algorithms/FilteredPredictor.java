@@ -0,0 +1,128 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FilteredPredictor.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.algorithms;
+
+import com.github.waikatodatamining.matrix.core.algorithm.MatrixAlgorithm;
+import com.github.waikatodatamining.matrix.core.algorithm.PredictingSupervisedMatrixAlgorithm;
+import com.github.waikatodatamining.matrix.core.algorithm.SupervisedMatrixAlgorithm;
+import com.github.waikatodatamining.matrix.core.algorithm.UnsupervisedMatrixAlgorithm;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+
+/**
+ * Pipeline of a filter and a predicting algorithm: the filter gets
+ * configured on the training data, the predictor on the filtered training
+ * data. Predictions filter the data first.
+ * <p>
+ * This allows tuning the parameters of filters in a
+ * {@link com.github.waikatodatamining.matrix.core.algorithm.ParameterSearch},
+ * e.g., the alpha of YGradientGLSW in front of a PLS:
+ * <pre>
+ * ParameterSearch&lt;FilteredPredictor&lt;YGradientGLSW, SIMPLS&gt;&gt; search = new ParameterSearch&lt;&gt;(
+ *   () -&gt; new FilteredPredictor&lt;&gt;(new YGradientGLSW(), new SIMPLS()));
+ * search.addParameter("alpha", (p, v) -&gt; p.getFilter().setAlpha(v), 1e-3, 1e-2, 1e-1);
+ * </pre>
+ * Supervised filters get configured on the data and the response, i.e.,
+ * GLSW and EPO, which are configured on the spectra of two instruments,
+ * are used in their YGradient variants. Unsupervised filters get
+ * configured on the data only, all other filters are applied as is.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ * @param <F> the type of filter
+ * @param <P> the type of predictor
+ */
+public class FilteredPredictor<F extends MatrixAlgorithm, P extends PredictingSupervisedMatrixAlgorithm>
+  extends PredictingSupervisedMatrixAlgorithm {
+
+  private static final long serialVersionUID = -4197542873652105634L;
+
+  /** the filter. */
+  protected F m_Filter;
+
+  /** the predictor. */
+  protected P m_Predictor;
+
+  /**
+   * Initializes the pipeline.
+   *
+   * @param filter	the filter to apply first
+   * @param predictor	the predictor to configure on the filtered data
+   */
+  public FilteredPredictor(F filter, P predictor) {
+    if (filter == null)
+      throw new NullPointerException("Filter cannot be null");
+    if (predictor == null)
+      throw new NullPointerException("Predictor cannot be null");
+    m_Filter    = filter;
+    m_Predictor = predictor;
+  }
+
+  /**
+   * Returns the filter.
+   *
+   * @return		the filter
+   */
+  public F getFilter() {
+    return m_Filter;
+  }
+
+  /**
+   * Returns the predictor.
+   *
+   * @return		the predictor
+   */
+  public P getPredictor() {
+    return m_Predictor;
+  }
+
+  @Override
+  protected void doReset() {
+    if (m_Filter instanceof SupervisedMatrixAlgorithm)
+      ((SupervisedMatrixAlgorithm) m_Filter).reset();
+    else if (m_Filter instanceof UnsupervisedMatrixAlgorithm)
+      ((UnsupervisedMatrixAlgorithm) m_Filter).reset();
+    m_Predictor.reset();
+  }
+
+  @Override
+  protected void doConfigure(Matrix X, Matrix y) {
+    if (m_Filter instanceof SupervisedMatrixAlgorithm)
+      ((SupervisedMatrixAlgorithm) m_Filter).configure(X, y);
+    else if (m_Filter instanceof UnsupervisedMatrixAlgorithm)
+      ((UnsupervisedMatrixAlgorithm) m_Filter).configure(X);
+    m_Predictor.configure(m_Filter.transform(X), y);
+  }
+
+  /**
+   * Returns the filtered data.
+   *
+   * @param X		the data to filter
+   * @return		the filtered data
+   */
+  @Override
+  protected Matrix doTransform(Matrix X) {
+    return m_Filter.transform(X);
+  }
+
+  @Override
+  protected Matrix doPredict(Matrix X) {
+    return m_Predictor.predict(m_Filter.transform(X));
+  }
+}
@@ -43,6 +43,9 @@ public class PCA
 
   private static final long serialVersionUID = 7150143741822676345L;
 
+  /** the relative tolerance below which eigen values of the Gram matrix are considered zero. */
+  public static final double EIGENVALUE_TOLERANCE = 1e-12;
+
   /** the variance to cover. */
   protected double m_Variance = 0.95;
 
@@ -53,6 +56,9 @@ public class PCA
    * covariance (rather than correlation) matrix. */
   protected boolean m_Center = false;
 
+  /** the strategy for obtaining the eigen vectors/values. */
+  protected Strategy m_Strategy = Strategy.AUTO;
+
   /** the loadings. */
   protected Matrix m_Loadings;
 
@@ -77,6 +83,9 @@ public class PCA
   /** Number of columns. */
   protected int m_NumCols;
 
+  /** Number of eigen values/vectors. */
+  protected int m_NumEigens;
+
   /** Number of rows. */
   protected int m_NumRows;
 
@@ -149,6 +158,24 @@ public class PCA
     return m_Center;
   }
 
+  /**
+   * Sets the strategy for obtaining the principal components.
+   *
+   * @param value	the strategy
+   */
+  public void setStrategy(Strategy value) {
+    m_Strategy = value;
+  }
+
+  /**
+   * Returns the strategy for obtaining the principal components.
+   *
+   * @return		the strategy
+   */
+  public Strategy getStrategy() {
+    return m_Strategy;
+  }
+
   /**
    * Returns the loadings.
    *
@@ -171,21 +198,118 @@ public class PCA
    * Fills the covariance matrix.
    */
   protected void fillCorrelation() {
+    double[][]	columns;
+    double[]	colI;
+    double[]	colJ;
+    double	cov;
+    int		i;
+    int		j;
+    int		n;
+
+    // operate on the raw columns rather than element-wise matrix access,
+    // keeping the summation order of the naive loop
+    columns       = m_Train.t().toRawCopy2D();
     m_Correlation = new double[m_NumCols][m_NumCols];
 
-    for (int i = 0; i < m_NumCols; i++) {
-      for (int j = i; j < m_NumCols; j++) {
-        double cov = 0;
-        for (int n = 0; n < m_Train.numRows(); n++)
-          cov += m_Train.get(n, i) * m_Train.get(n, j);
+    for (i = 0; i < m_NumCols; i++) {
+      colI = columns[i];
+      for (j = i; j < m_NumCols; j++) {
+        colJ = columns[j];
+        cov  = 0;
+        for (n = 0; n < m_NumRows; n++)
+          cov += colI[n] * colJ[n];
 
-        cov /= m_Train.numRows() - 1;
+        cov /= m_NumRows - 1;
         m_Correlation[i][j] = cov;
         m_Correlation[j][i] = cov;
       }
     }
   }
 
+  /**
+   * Determines the strategy to use for the current training data.
+   *
+   * @return		the strategy, never {@link Strategy#AUTO}
+   */
+  protected Strategy determineStrategy() {
+    if (m_Strategy != Strategy.AUTO)
+      return m_Strategy;
+
+    // the Gram matrix is smaller than the covariance matrix for wide data
+    if (m_NumCols > m_NumRows)
+      return Strategy.GRAM;
+    else
+      return Strategy.COVARIANCE;
+  }
+
+  /**
+   * Obtains the eigen vectors/values from the p x p covariance matrix.
+   */
+  protected void decomposeCovariance() {
+    Matrix 	corr;
+
+    fillCorrelation();
+
+    corr           = MatrixFactory.fromRaw(m_Correlation);
+    m_Eigenvectors = corr.getEigenvectors().toRawCopy2D();
+    m_Eigenvalues  = corr.getEigenvalues().toRawCopy1D();
+  }
+
+  /**
+   * Obtains the eigen vectors/values from the n x n Gram matrix X*X^T and
+   * maps the eigen vectors back onto the columns via v = X^T*u/sqrt(n-1 * lambda).
+   */
+  protected void decomposeGram() {
+    Matrix 	gram;
+    Matrix 	U;
+    Matrix 	V;
+    double[]	lambda;
+    double	max;
+    double	scale;
+    int		i;
+
+    gram   = m_Train.mul(m_Train.t()).div(m_NumRows - 1);
+    U      = gram.getEigenvectors();
+    lambda = gram.getEigenvalues().toRawCopy1D();
+
+    // scale each eigen vector to unit length in the column space,
+    // dropping the ones belonging to the null space
+    max = 0.0;
+    for (i = 0; i < lambda.length; i++)
+      max = Math.max(max, lambda[i]);
+    for (i = 0; i < lambda.length; i++) {
+      if (lambda[i] > max * lambda.length * EIGENVALUE_TOLERANCE)
+	scale = 1.0 / Math.sqrt((m_NumRows - 1) * lambda[i]);
+      else
+	scale = 0.0;
+      U.setColumn(i, U.getColumn(i).mul(scale));
+    }
+    V = m_Train.t().mul(U);
+
+    m_Eigenvectors = V.toRawCopy2D();
+    m_Eigenvalues  = lambda;
+  }
+
+  /**
+   * Obtains the eigen vectors/values from the singular value decomposition
+   * X = U*S*V^T, with the eigen values being s^2/(n-1).
+   */
+  protected void decomposeSVD() {
+    Matrix	V;
+    double[]	s;
+    int		numEigens;
+    int		i;
+
+    V         = m_Train.svdV();
+    s         = m_Train.getSingularValues().toRawCopy1D();
+    numEigens = Math.min(s.length, V.numColumns());
+
+    m_Eigenvectors = V.getColumns(0, numEigens).toRawCopy2D();
+    m_Eigenvalues  = new double[numEigens];
+    for (i = 0; i < numEigens; i++)
+      m_Eigenvalues[i] = s[i] * s[i] / (m_NumRows - 1);
+  }
+
   /**
    * Removes the columns according to {@link #m_KeepCols}.
    *
@@ -214,9 +338,6 @@ public class PCA
   protected void doConfigure(Matrix instances) {
     int 			i;
     int 			j;
-    double[][] 			v;
-    Matrix 			corr;
-    Matrix 			V;
     TDoubleSet 			distinct;
 
     m_Train = instances.copy();
@@ -245,18 +366,21 @@ public class PCA
     m_NumRows = m_Train.numRows();
     m_NumCols = m_Train.numColumns();
 
-    fillCorrelation();
-
     // get eigen vectors/values
-    corr = MatrixFactory.fromRaw(m_Correlation);
-    V    = corr.getEigenvectors();
-    v    = new double[m_NumCols][m_NumCols];
-    for (i = 0; i < v.length; i++) {
-      for (j = 0; j < v[0].length; j++)
-	v[i][j] = V.get(i, j);
+    m_Correlation = null;
+    switch (determineStrategy()) {
+      case GRAM:
+        decomposeGram();
+        break;
+      case SVD:
+        decomposeSVD();
+        break;
+      default:
+        decomposeCovariance();
     }
-    m_Eigenvectors = v.clone();
-    m_Eigenvalues = corr.getEigenvalues().toRawCopy1D();
+    m_NumEigens = m_Eigenvalues.length;
+    if (getDebug())
+      getLogger().info("Strategy: " + determineStrategy() + ", eigen values: " + m_NumEigens);
 
     // any eigenvalues less than 0 are not worth anything --- change to 0
     for (i = 0; i < m_Eigenvalues.length; i++) {
@@ -291,9 +415,9 @@ public class PCA
 
     doConfigure(data);
 
-    numCols = (m_MaxColumns > 0) ? m_MaxColumns : m_NumCols;
+    numCols = (m_MaxColumns > 0) ? m_MaxColumns : m_NumEigens;
     if (m_MaxColumns > 0)
-      numColsLowerBound = m_NumCols - m_MaxColumns;
+      numColsLowerBound = m_NumEigens - m_MaxColumns;
     else
       numColsLowerBound = 0;
     if (numColsLowerBound < 0)
@@ -308,13 +432,13 @@ public class PCA
 
       cumulative = 0;
       cols       = 0;
-      for (i = m_NumCols - 1; i >= numColsLowerBound; i--) {
+      for (i = m_NumEigens - 1; i >= numColsLowerBound; i--) {
         cols++;
 	val = 0.0;
 	for (j = 0; j < m_NumCols; j++)
 	  val += m_Eigenvectors[j][m_SortedEigens[i]] * data.get(n, j);
 
-	newVals[m_NumCols - i - 1] = val;
+	newVals[m_NumEigens - i - 1] = val;
 	cumulative += m_Eigenvalues[m_SortedEigens[i]];
 	if ((cumulative / m_SumOfEigenValues) >= m_Variance)
 	  break;
@@ -362,7 +486,7 @@ public class PCA
       return null;
 
     if (m_MaxColumns > 0)
-      numColsLowerBound = m_NumCols - m_MaxColumns;
+      numColsLowerBound = m_NumEigens - m_MaxColumns;
     else
       numColsLowerBound = 0;
 
@@ -373,7 +497,7 @@ public class PCA
     result     = new ArrayList<>();
     cumulative = 0.0;
     //loop through each principle component
-    for (i = m_NumCols - 1; i >= numColsLowerBound; i--) {
+    for (i = m_NumEigens - 1; i >= numColsLowerBound; i--) {
       onePC = new ArrayList<>();
 
       for (j = 0; j < m_NumCols; j++) {
@@ -442,7 +566,22 @@ public class PCA
     result.append("Variance   : " + getVariance()).append("\n");
     result.append("Max columns: " + getMaxColumns()).append("\n");
     result.append("Center     : " + getCenter()).append("\n");
+    result.append("Strategy   : " + getStrategy()).append("\n");
 
     return result.toString();
   }
+
+  /**
+   * The strategies for obtaining the principal components.
+   */
+  public enum Strategy {
+    /** COVARIANCE for tall data, GRAM for wide data. */
+    AUTO,
+    /** Eigen decomposition of the p x p covariance matrix X^T*X. */
+    COVARIANCE,
+    /** Eigen decomposition of the n x n Gram matrix X*X^T. */
+    GRAM,
+    /** Singular value decomposition of X. */
+    SVD
+  }
 }
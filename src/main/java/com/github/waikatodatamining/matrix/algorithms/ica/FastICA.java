@@ -5,6 +5,7 @@ import com.github.waikatodatamining.matrix.algorithms.ica.approxfun.LogCosH;
 import com.github.waikatodatamining.matrix.algorithms.ica.approxfun.NegEntropyApproximationFunction;
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
 import com.github.waikatodatamining.matrix.core.algorithm.MatrixAlgorithm;
+import com.github.waikatodatamining.matrix.core.algorithm.WarmStartable;
 import com.github.waikatodatamining.matrix.core.Tuple;
 import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
 
@@ -25,11 +26,15 @@ import static com.github.waikatodatamining.matrix.core.matrix.MatrixFactory.*;
  * - fun: functional form of G used to approximate the NegEntropy
  * - maxIter: Maximum number of iterations
  * - tol: Tolerance on iteration updates
+ * <p>
+ * A warm start (see {@link #setWarmStart(FastICA)}) uses the unmixing matrix
+ * of a previous run as initial weights instead of random ones.
  *
  * @author Steven Lang
  */
 public class FastICA
-  extends MatrixAlgorithm {
+  extends MatrixAlgorithm
+  implements WarmStartable<FastICA> {
 
   private static final long serialVersionUID = 3152829426276253757L;
 
@@ -66,6 +71,12 @@ public class FastICA
   /** Mixing matrix */
   protected Matrix m_Mixing;
 
+  /** Unmixing matrix in the whitened space */
+  protected Matrix m_Unmixing;
+
+  /** Initial weights (warm start) */
+  protected Matrix m_WarmStartUnmixing;
+
   /**
    * Get the number of components.
    *
@@ -217,6 +228,33 @@ public class FastICA
     return m_Mixing;
   }
 
+  /**
+   * Get the unmixing matrix (in the whitened space, if whitening is used).
+   *
+   * @return Unmixing matrix
+   */
+  public Matrix getUnmixing() {
+    return m_Unmixing;
+  }
+
+  /**
+   * Sets the model to seed the iterations from, using its unmixing matrix.
+   *
+   * @param model the previous model, null to clear the warm start
+   */
+  @Override
+  public void setWarmStart(FastICA model) {
+    if ((model == null) || (model.m_Unmixing == null))
+      m_WarmStartUnmixing = null;
+    else
+      m_WarmStartUnmixing = model.m_Unmixing.copy();
+  }
+
+  @Override
+  public boolean hasWarmStart() {
+    return m_WarmStartUnmixing != null;
+  }
+
   protected void doConfigure(Matrix X) {
   }
 
@@ -227,11 +265,14 @@ public class FastICA
    * @return Weights
    */
   public Matrix deflation(Matrix X, Matrix Winit) {
-    Matrix W = zeros(m_numComponents, m_numComponents);
+    int numComponents = Winit.numRows();
+    Matrix W = zeros(numComponents, numComponents);
 
-    for (int j = 0; j < m_numComponents; j++) {
+    for (int j = 0; j < numComponents; j++) {
       Matrix w = Winit.getRow(j).t().copy();
       w = w.div(w.powElementwise(2).sum(-1).sqrt().asDouble());
+      int iterations = 0;
+      double lim = Double.NaN;
       for (int i = 0; i < m_maxIter; i++) {
 	Tuple<Matrix, Matrix> res = m_fun.apply(w.t().mul(X).t());
 
@@ -243,13 +284,15 @@ public class FastICA
 
 
 	w1 = w1.div(w1.powElementwise(2).sum(-1).sqrt().asDouble());
-	double lim = w1.mulElementwise(w).sum(-1).abs().sub(1.0).abs().asDouble();
+	lim = w1.mulElementwise(w).sum(-1).abs().sub(1.0).abs().asDouble();
+	iterations++;
 
 	w = w1;
 	if (lim < m_tol) {
 	  break;
 	}
       }
+      notifyConvergence(j, iterations, lim, lim < m_tol);
 
       W.setRow(j, w);
     }
@@ -268,6 +311,8 @@ public class FastICA
     Matrix W = symmetricDecorrelation(Winit);
 
     int p = X.numColumns();
+    int iterations = 0;
+    double lim = Double.NaN;
 
     for (int i = 0; i < m_maxIter; i++) {
       Tuple<Matrix, Matrix> res = m_fun.apply(W.t().mul(X));
@@ -276,12 +321,14 @@ public class FastICA
 
       Matrix arg = gwtx.mul(X.t()).div(p).sub(W.scaleByColumnVector(g_wtx)); // scale by row?
       Matrix W1 = symmetricDecorrelation(arg);
-      double lim = W1.mul(W.t()).diag().abs().sub(1.0).abs().max();
+      lim = W1.mul(W.t()).diag().abs().sub(1.0).abs().max();
+      iterations++;
       W = W1;
       if (lim < m_tol) {
 	break;
       }
     }
+    notifyConvergence(-1, iterations, lim, lim < m_tol);
 
     return W;
   }
@@ -358,16 +405,17 @@ public class FastICA
     Matrix X1;
 
     int minNP = Math.min(n, p);
+    int numComponents = m_numComponents;
 
     if (!m_whiten) {
-      m_numComponents = minNP;
+      numComponents = minNP;
       getLogger().warning("Ignoring numComponents when $whiten=false");
     }
 
-    if (m_numComponents > minNP) {
+    if (numComponents > minNP) {
       getLogger().warning("numComponents is too large and will be set to " +
             minNP);
-      m_numComponents = minNP;
+      numComponents = minNP;
     }
 
     // WHiten data
@@ -380,7 +428,7 @@ public class FastICA
       d = d.getRows(0, k); // Only get non zero singular values
       Matrix dInvElements = d.applyElementwise(a -> 1.0 / a);
       Matrix tmp = U.scaleByRowVector(dInvElements).transpose();
-      m_Whitening = tmp.getRows(0, Math.min(tmp.numRows(), m_numComponents));
+      m_Whitening = tmp.getRows(0, Math.min(tmp.numRows(), numComponents));
 
       X1 = m_Whitening.mul(X);
       X1 = X1.mul(StrictMath.sqrt(p));
@@ -389,8 +437,16 @@ public class FastICA
       X1 = X;
     }
 
-    // Randomly initialize weights from normal dist
-    Matrix Winit = randn(m_numComponents, m_numComponents, 1);
+    // Initialize weights from previous run or randomly from normal dist
+    Matrix Winit;
+    if ((m_WarmStartUnmixing != null)
+      && (m_WarmStartUnmixing.numRows() == numComponents)
+      && (m_WarmStartUnmixing.numColumns() == numComponents)) {
+      Winit = m_WarmStartUnmixing;
+    }
+    else {
+      Winit = randn(numComponents, numComponents, 1);
+    }
 
     // Use deflation algorithm
     if (Algorithm.DEFLATION.equals(m_algorithm)) {
@@ -400,6 +456,8 @@ public class FastICA
       unmixing = parallel(X1, Winit);
     }
 
+    m_Unmixing = unmixing;
+
     // Compute sources and components
     if (m_whiten) {
       m_Sources = unmixing.mul(m_Whitening).mul(X).t();
@@ -22,7 +22,12 @@ package com.github.waikatodatamining.matrix.algorithms.pls;
 
 import com.github.waikatodatamining.matrix.algorithms.Center;
 import com.github.waikatodatamining.matrix.algorithms.Standardize;
+import com.github.waikatodatamining.matrix.core.Tuple;
+import com.github.waikatodatamining.matrix.core.algorithm.ComponentPathPredictor;
+import com.github.waikatodatamining.matrix.core.algorithm.IntermediateCache;
+import com.github.waikatodatamining.matrix.core.algorithm.PhaseEvent;
 import com.github.waikatodatamining.matrix.core.algorithm.PredictingSupervisedMatrixAlgorithm;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
 import com.github.waikatodatamining.matrix.core.algorithm.UnsupervisedMatrixAlgorithm;
 
@@ -32,7 +37,8 @@ import com.github.waikatodatamining.matrix.core.algorithm.UnsupervisedMatrixAlgo
  * @author FracPete (fracpete at waikato dot ac dot nz)
  */
 public abstract class AbstractPLS
-  extends PredictingSupervisedMatrixAlgorithm {
+  extends PredictingSupervisedMatrixAlgorithm
+  implements ComponentPathPredictor {
 
   private static final long serialVersionUID = -1160378471265135477L;
 
@@ -42,6 +48,9 @@ public abstract class AbstractPLS
   /** the maximum number of components to generate */
   protected int m_NumComponents = 5;
 
+  /** how to fit the model. */
+  protected FitStrategy m_FitStrategy = FitStrategy.AUTO;
+
   /** the transformation for the predictors. */
   private UnsupervisedMatrixAlgorithm m_TransPredictors;
 
@@ -59,14 +68,24 @@ public abstract class AbstractPLS
 
   @Override
   protected void doConfigure(Matrix X, Matrix y) {
+    Tuple<? extends UnsupervisedMatrixAlgorithm, Matrix>	trans;
+
     switch (m_PreprocessingType) {
       case CENTER:
-        m_TransPredictors = new Center();
-        m_TransResponse   = new Center();
-        break;
       case STANDARDIZE:
-        m_TransPredictors = new Standardize();
-        m_TransResponse   = new Standardize();
+        long start        = startPhase(PhaseEvent.Phase.PREPROCESS);
+        try {
+          trans             = preprocess(X);
+          m_TransPredictors = trans.getFirst();
+          X                 = trans.getSecond();
+          trans             = preprocess(y);
+          m_TransResponse   = trans.getFirst();
+          y                 = trans.getSecond();
+        }
+        finally {
+          endPhase(PhaseEvent.Phase.PREPROCESS);
+        }
+        notifyPhase(PhaseEvent.Phase.PREPROCESS, start, X);
         break;
       case NONE:
         m_TransPredictors = null;
@@ -76,14 +95,23 @@ public abstract class AbstractPLS
         throw new IllegalStateException("Unhandled preprocessing type; " + m_PreprocessingType);
     }
 
-    if (m_TransPredictors != null)
-      X = m_TransPredictors.configureAndTransform(X);
-    if (m_TransResponse != null)
-      y = m_TransResponse.configureAndTransform(y);
-
     doPLSConfigure(X, y);
   }
 
+  /**
+   * Configures the preprocessing on the data and applies it. The result is
+   * shared via the active {@link IntermediateCache}, if any.
+   *
+   * @param data	the data to preprocess
+   * @return		the configured preprocessing and the preprocessed data
+   */
+  protected Tuple<? extends UnsupervisedMatrixAlgorithm, Matrix> preprocess(Matrix data) {
+    if (m_PreprocessingType == PreprocessingType.CENTER)
+      return IntermediateCache.configureAndTransform("Center", Center::new, data);
+    else
+      return IntermediateCache.configureAndTransform("Standardize", Standardize::new, data);
+  }
+
   /**
    * PLS-specific configuration implementation. Override to configure
    * the PLS algorithm on the given matrices, after feature/target
@@ -94,6 +122,35 @@ public abstract class AbstractPLS
    */
   protected abstract void doPLSConfigure(Matrix X, Matrix y);
 
+  /**
+   * Configures the algorithm from the cross products. Only possible without
+   * preprocessing, as the cross products are not of the preprocessed data.
+   *
+   * @param XtX   The feature cross product X^T*X.
+   * @param Xty   The feature/target cross product X^T*y.
+   */
+  @Override
+  protected void doConfigureFromCrossProducts(Matrix XtX, Matrix Xty) {
+    if (m_PreprocessingType != PreprocessingType.NONE)
+      throw new MatrixAlgorithmsException("Configuring from cross products requires preprocessing type " + PreprocessingType.NONE + ", found: " + m_PreprocessingType);
+
+    m_TransPredictors = null;
+    m_TransResponse   = null;
+
+    doPLSConfigureFromCrossProducts(XtX, Xty);
+  }
+
+  /**
+   * PLS-specific configuration from the cross products. Override together
+   * with {@link #canConfigureFromCrossProducts()}.
+   *
+   * @param XtX   The feature cross product X^T*X.
+   * @param Xty   The feature/target cross product X^T*y.
+   */
+  protected void doPLSConfigureFromCrossProducts(Matrix XtX, Matrix Xty) {
+    throw new MatrixAlgorithmsException(getClass().getName() + " cannot be configured from cross products");
+  }
+
   @Override
   protected Matrix doTransform(Matrix X) {
     if (m_TransPredictors != null)
@@ -142,6 +199,84 @@ public abstract class AbstractPLS
    */
   protected abstract Matrix doPLSPredict(Matrix X);
 
+  /**
+   * Returns whether the algorithm can predict the whole component path,
+   * i.e., the predictions for 1 to {@link #getNumComponents()} components,
+   * from a single fit.
+   *
+   * @return		true if the path can be predicted
+   * @see		#predictPath(Matrix)
+   */
+  @Override
+  public boolean canPredictPath() {
+    return false;
+  }
+
+  /**
+   * Performs predictions on the data for each number of components, from
+   * 1 to {@link #getNumComponents()}. Element k of the result contains
+   * the predictions of a model with k+1 components.
+   *
+   * @param X		the feature matrix to predict against
+   * @return		the predictions per number of components
+   * @throws MatrixAlgorithmsException	if the path cannot be predicted
+   * @see		#canPredictPath()
+   */
+  @Override
+  public Matrix[] predictPath(Matrix X) {
+    Matrix[]	result;
+    long	start;
+    int		i;
+
+    if (X == null)
+      throw new NullPointerException("Can't predict against null feature matrix");
+    if (!canPredictPath())
+      throw new MatrixAlgorithmsException(getClass().getName() + " cannot predict the component path!");
+
+    ensureConfigured();
+
+    start = startPhase(PhaseEvent.Phase.PREDICT);
+    try {
+      if (m_TransPredictors != null)
+	X = m_TransPredictors.transform(X);
+
+      result = doPLSPredictPath(X);
+
+      if (m_TransResponse != null) {
+	for (i = 0; i < result.length; i++)
+	  result[i] = m_TransResponse.inverseTransform(result[i]);
+      }
+    }
+    finally {
+      endPhase(PhaseEvent.Phase.PREDICT);
+    }
+    notifyPhase(PhaseEvent.Phase.PREDICT, start, X);
+
+    return result;
+  }
+
+  /**
+   * PLS-specific path prediction implementation. Override to predict
+   * normalised target values for each number of components.
+   *
+   * @param X   The normalised feature matrix to predict against.
+   * @return    The normalised predictions per number of components.
+   */
+  protected Matrix[] doPLSPredictPath(Matrix X) {
+    throw new MatrixAlgorithmsException(getClass().getName() + " cannot predict the component path!");
+  }
+
+  /**
+   * Returns the cumulative regression coefficients, i.e., element k
+   * contains the coefficients of a model with k+1 components. The
+   * coefficients apply to the normalised feature matrix.
+   *
+   * @return		the coefficients per number of components, null if not available
+   */
+  public Matrix[] getCoefficientPath() {
+    return null;
+  }
+
   /**
    * Sets the type of preprocessing to perform.
    *
@@ -180,6 +315,94 @@ public abstract class AbstractPLS
     return m_NumComponents;
   }
 
+  /**
+   * Sets how to fit the model.
+   *
+   * @param value 	the strategy
+   * @see		#supportsGramFit()
+   */
+  public void setFitStrategy(FitStrategy value) {
+    m_FitStrategy = value;
+    reset();
+  }
+
+  /**
+   * Returns how to fit the model.
+   *
+   * @return 		the strategy
+   */
+  public FitStrategy getFitStrategy() {
+    return m_FitStrategy;
+  }
+
+  /**
+   * Returns whether the model can be fit on the Gram matrix X*X^T
+   * (see {@link FitStrategy#GRAM}).
+   *
+   * @return		true if supported
+   */
+  public boolean supportsGramFit() {
+    return false;
+  }
+
+  /**
+   * Determines the strategy to fit the model on the (preprocessed) data.
+   *
+   * @param X		the data
+   * @return		the strategy, never {@link FitStrategy#AUTO}
+   * @throws MatrixAlgorithmsException	if GRAM is requested but not supported
+   */
+  protected FitStrategy determineFitStrategy(Matrix X) {
+    switch (m_FitStrategy) {
+      case GRAM:
+	if (!supportsGramFit())
+	  throw new MatrixAlgorithmsException(getClass().getName() + " cannot be fit on the Gram matrix!");
+	return FitStrategy.GRAM;
+      case AUTO:
+	// the n x n Gram matrix is smaller than the data for wide data
+	if (supportsGramFit() && (X.numColumns() > X.numRows()))
+	  return FitStrategy.GRAM;
+	return FitStrategy.STANDARD;
+      default:
+	return FitStrategy.STANDARD;
+    }
+  }
+
+  /**
+   * Computes the Gram matrix X*X^T, shared via the active
+   * {@link IntermediateCache}, if any.
+   *
+   * @param X		the data
+   * @return		the Gram matrix, must not be modified
+   */
+  protected Matrix gram(Matrix X) {
+    return IntermediateCache.computeIfAbsent("PLS.XXt", () -> X.mul(X.transpose()), X);
+  }
+
+  /**
+   * Deflate a symmetric kernel matrix in place via:
+   * K <- (I - t*t^T) * K * (I - t*t^T)
+   *    = K - t*(K*t)^T - (K*t)*t^T + (t^T*K*t)*t*t^T
+   * The projection is applied as rank-1 corrections, i.e., in O(n^2) without
+   * any n x n temporaries.
+   *
+   * @param K Symmetric kernel matrix, gets modified
+   * @param t Normalized score vector
+   */
+  protected void deflateInKernelSpace(Matrix K, Matrix t) {
+    int n = K.numRows();
+    double[] tRaw = t.toRawCopy1D();
+    double[] kt = K.mul(t).toRawCopy1D();
+    double tkt = 0;
+    for (int i = 0; i < n; i++)
+      tkt += tRaw[i] * kt[i];
+
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++)
+	K.set(i, j, K.get(i, j) - tRaw[i] * kt[j] - kt[i] * tRaw[j] + tkt * tRaw[i] * tRaw[j]);
+    }
+  }
+
 
   /**
    * Returns the all the available matrices.
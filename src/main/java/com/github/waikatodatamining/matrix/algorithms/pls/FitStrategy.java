@@ -0,0 +1,36 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FitStrategy.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.algorithms.pls;
+
+/**
+ * How to fit the PLS model.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public enum FitStrategy {
+  /** GRAM for wide data (if supported), STANDARD otherwise. */
+  AUTO,
+  /** Operates on the n x p data (or the p x p cross products). */
+  STANDARD,
+  /** Operates on the n x n Gram matrix X*X^T and maps the weights back to
+   * the p columns at the end. */
+  GRAM
+}
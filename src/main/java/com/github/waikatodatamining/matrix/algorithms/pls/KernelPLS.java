@@ -1,10 +1,20 @@
 package com.github.waikatodatamining.matrix.algorithms.pls;
 
 import com.github.waikatodatamining.matrix.algorithms.Center;
+import com.github.waikatodatamining.matrix.core.Tuple;
+import com.github.waikatodatamining.matrix.core.algorithm.IntermediateCache;
+import com.github.waikatodatamining.matrix.core.algorithm.WarmStartable;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
 import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
 import com.github.waikatodatamining.matrix.algorithms.pls.kernel.AbstractKernel;
+import com.github.waikatodatamining.matrix.algorithms.pls.kernel.FeatureMap;
 import com.github.waikatodatamining.matrix.algorithms.pls.kernel.RBFKernel;
+import com.github.waikatodatamining.matrix.algorithms.pls.kernel.TiledKernelStore;
 
 /**
  * Kernel Partial Least Squares algorithm.
@@ -12,16 +22,63 @@ import com.github.waikatodatamining.matrix.algorithms.pls.kernel.RBFKernel;
  * See here:
  * <a href="http://www.jmlr.org/papers/volume2/rosipal01a/rosipal01a.pdf">Kernel Partial Least Squares Regression in Reproducing
  * Kernel Hilbert Space</a>
+ * <p>
+ * A warm start (see {@link #setWarmStart(KernelPLS)}) seeds the inner loop of
+ * each component with Y*q from the previous model's Y loadings instead of
+ * random scores. Since q only depends on the response dimensions, this also
+ * works after samples have been added.
+ * <p>
+ * With the {@link Approximation#NYSTROEM} approximation, the kernel matrix is
+ * approximated from m landmark rows via K ~ K_nm*K_mm^-1*K_mn = Phi*Phi^T and
+ * the PLS iterations run on the n x m feature matrix Phi. This reduces the
+ * memory from O(n^2) to O(n*m) and the fit from O(n^3) to O(n*m^2) per
+ * component. With all rows as landmarks, the exact model is obtained.
+ * <p>
+ * With the {@link Approximation#RANDOM_FEATURES} approximation, Phi is the
+ * explicit feature map of the kernel (see {@link AbstractKernel#createFeatureMap(int, int, long)}),
+ * e.g., random Fourier features for the {@link RBFKernel}. No training rows are
+ * kept and predictions cost O(p*D) per row instead of O(n*p).
+ * <p>
+ * For exact models on large n, the kernel matrix can be kept out of core (see
+ * {@link #setKernelStorage(File)}), in a memory-mapped {@link TiledKernelStore}.
+ * The iterations then stream over blocks of its rows and deflate implicitly,
+ * since the scores are orthonormal: (I - T*T^T)*K*(I - T*T^T).
  *
  * @author Steven Lang
  */
 public class KernelPLS
-  extends AbstractMultiResponsePLS {
+  extends AbstractMultiResponsePLS
+  implements WarmStartable<KernelPLS> {
 
   private static final long serialVersionUID = -2760078672082710402L;
 
   public static final int SEED = 0;
 
+  /** Eigenvalues of K_mm below this fraction of the largest are dropped */
+  public static final double NYSTROEM_EIGENVALUE_THRESHOLD = 1e-10;
+
+  /**
+   * How to approximate the kernel matrix.
+   */
+  public enum Approximation {
+    /** Full n x n kernel matrix. */
+    NONE,
+    /** Nystroem approximation from m landmark rows. */
+    NYSTROEM,
+    /** Explicit feature map of the kernel with D features. */
+    RANDOM_FEATURES
+  }
+
+  /**
+   * How to select the landmark rows for the Nystroem approximation.
+   */
+  public enum LandmarkSelection {
+    /** Uniformly at random, without replacement. */
+    UNIFORM,
+    /** k-means++ seeding, i.e., proportional to the squared distance to the closest landmark so far. */
+    KMEANS_PLUSPLUS
+  }
+
   /** Calibration data in feature space */
   protected Matrix m_K_orig;
 
@@ -42,6 +99,15 @@ public class KernelPLS
   /** Partial regression matrix */
   protected Matrix m_B_RHS;
 
+  /** Dual coefficients U*m_B_RHS, applied to the centralized test kernel matrix */
+  protected Matrix m_DualCoefficients;
+
+  /** Column means of the uncentered training kernel matrix, for test centering */
+  protected Matrix m_KMeans;
+
+  /** Mean of the uncentered training kernel matrix, for test centering */
+  protected double m_KMean;
+
   /** Training points */
   protected Matrix m_X;
 
@@ -60,6 +126,48 @@ public class KernelPLS
   /** Center Y transformation */
   protected Center m_CenterY = new Center();
 
+  /** The Y loadings to seed the inner loop with (warm start) */
+  protected Matrix m_WarmStartQ;
+
+  /** How to approximate the kernel matrix */
+  protected Approximation m_Approximation = Approximation.NONE;
+
+  /** Number of landmark rows for the Nystroem approximation */
+  protected int m_NumLandmarks = 100;
+
+  /** How to select the landmark rows */
+  protected LandmarkSelection m_LandmarkSelection = LandmarkSelection.KMEANS_PLUSPLUS;
+
+  /** Number of features D for the random features approximation */
+  protected int m_NumFeatures = 500;
+
+  /** Explicit feature map of the kernel, for the random features approximation */
+  protected FeatureMap m_RandomFeatures;
+
+  /** Directory for an out-of-core kernel matrix, null to keep it in memory */
+  protected File m_KernelStorage = null;
+
+  /** Number of rows/columns of the tiles of an out-of-core kernel matrix */
+  protected int m_KernelTileSize = TiledKernelStore.DEFAULT_TILE_SIZE;
+
+  /** Maximum number of bytes of a block of rows of an out-of-core kernel matrix in memory */
+  protected long m_KernelBlockBytes = TiledKernelStore.DEFAULT_BLOCK_BYTES;
+
+  /** T^T*K*U, for the regression matrix */
+  protected Matrix m_TtKU;
+
+  /** Landmark rows (centered), for the Nystroem approximation */
+  protected Matrix m_Landmarks;
+
+  /** Maps the kernel values of the landmarks to features, i.e., K_mm^-1/2 */
+  protected Matrix m_FeatureMap;
+
+  /** Column means of the training features */
+  protected Matrix m_FeatureMeans;
+
+  /** Centered training features transposed times the Y scores, Phi^T*U */
+  protected Matrix m_FeatureU;
+
   public AbstractKernel getKernel() {
     return m_Kernel;
   }
@@ -97,6 +205,163 @@ public class KernelPLS
     }
   }
 
+  public Approximation getApproximation() {
+    return m_Approximation;
+  }
+
+  /**
+   * Sets how to approximate the kernel matrix.
+   *
+   * @param value	the approximation
+   */
+  public void setApproximation(Approximation value) {
+    m_Approximation = value;
+    reset();
+  }
+
+  public int getNumLandmarks() {
+    return m_NumLandmarks;
+  }
+
+  /**
+   * Sets the number of landmark rows m for the Nystroem approximation.
+   * All rows get used if there are fewer.
+   *
+   * @param value	the number of landmarks, at least 1
+   */
+  public void setNumLandmarks(int value) {
+    if (value < 1) {
+      getLogger().warning("Number of landmarks must be at least 1 but was " + value + ".");
+    } else {
+      m_NumLandmarks = value;
+      reset();
+    }
+  }
+
+  public int getNumFeatures() {
+    return m_NumFeatures;
+  }
+
+  /**
+   * Sets the number of features D for the random features approximation.
+   *
+   * @param value	the number of features, at least 1
+   */
+  public void setNumFeatures(int value) {
+    if (value < 1) {
+      getLogger().warning("Number of features must be at least 1 but was " + value + ".");
+    } else {
+      m_NumFeatures = value;
+      reset();
+    }
+  }
+
+  public File getKernelStorage() {
+    return m_KernelStorage;
+  }
+
+  /**
+   * Sets the directory for an out-of-core (memory-mapped) kernel matrix, for
+   * exact models that exceed the heap. Has no effect with an approximation.
+   *
+   * @param value	the directory, null to keep the kernel matrix in memory
+   */
+  public void setKernelStorage(File value) {
+    m_KernelStorage = value;
+    reset();
+  }
+
+  public int getKernelTileSize() {
+    return m_KernelTileSize;
+  }
+
+  /**
+   * Sets the number of rows/columns of the tiles an out-of-core kernel matrix
+   * gets computed in.
+   *
+   * @param value	the tile size, at least 1
+   */
+  public void setKernelTileSize(int value) {
+    if (value < 1) {
+      getLogger().warning("Kernel tile size must be at least 1 but was " + value + ".");
+    } else {
+      m_KernelTileSize = value;
+      reset();
+    }
+  }
+
+  public long getKernelBlockBytes() {
+    return m_KernelBlockBytes;
+  }
+
+  /**
+   * Sets the maximum number of bytes of a block of rows of an out-of-core
+   * kernel matrix in memory (per thread). At least one row is always read.
+   *
+   * @param value	the number of bytes, at least 1
+   */
+  public void setKernelBlockBytes(long value) {
+    if (value < 1) {
+      getLogger().warning("Kernel block bytes must be at least 1 but was " + value + ".");
+    } else {
+      m_KernelBlockBytes = value;
+      reset();
+    }
+  }
+
+  public LandmarkSelection getLandmarkSelection() {
+    return m_LandmarkSelection;
+  }
+
+  /**
+   * Sets how to select the landmark rows for the Nystroem approximation.
+   *
+   * @param value	the selection
+   */
+  public void setLandmarkSelection(LandmarkSelection value) {
+    m_LandmarkSelection = value;
+    reset();
+  }
+
+  /**
+   * Sets the model to seed the inner loop from, using its Y loadings.
+   *
+   * @param model	the configured model, null to clear the warm start
+   */
+  @Override
+  public void setWarmStart(KernelPLS model) {
+    if ((model == null) || (model.m_Q == null))
+      m_WarmStartQ = null;
+    else
+      m_WarmStartQ = model.m_Q.copy();
+  }
+
+  @Override
+  public boolean hasWarmStart() {
+    return m_WarmStartQ != null;
+  }
+
+  /**
+   * Returns the initial Y scores for the inner loop of the given component.
+   *
+   * @param Y		the (deflated) response
+   * @param component	the component index
+   * @return		the initial Y scores
+   */
+  protected Matrix initialYScores(Matrix Y, int component) {
+    Matrix	u;
+
+    if ((m_WarmStartQ != null)
+      && (m_WarmStartQ.numRows() == Y.numColumns())
+      && (component < m_WarmStartQ.numColumns())) {
+      u = Y.mul(m_WarmStartQ.getColumn(component));
+      if (u.norm2squared() > 1e-10)
+	return u.normalized();
+    }
+
+    return MatrixFactory.randn(Y.numRows(), 1, SEED + component);
+  }
+
   @Override
   protected int getMinColumnsResponse() {
     return 1;
@@ -109,23 +374,39 @@ public class KernelPLS
 
   @Override
   protected void doPLSConfigure(Matrix predictors, Matrix response) {
-    Matrix Y, I, t, u, q, w;
+    Matrix Y, t, u, q, w;
 
     getLogger();
     // Init
     int numComponents = getNumComponents();
-    m_X = predictors;
-    m_X = m_CenterX.configureAndTransform(m_X);
+    if (m_Kernel.isPrecomputed()) {
+      // the predictors only identify the samples in the kernel matrix
+      m_CenterX = null;
+      m_X = predictors;
+    }
+    else {
+      Tuple<Center, Matrix> centered = IntermediateCache.configureAndTransform("Center", Center::new, predictors);
+      m_CenterX = centered.getFirst();
+      m_X = centered.getSecond();
+    }
     Y = response;
     Y = m_CenterY.configureAndTransform(Y);
 
+    if (m_Approximation != Approximation.NONE) {
+      configureFeatures(Y);
+      return;
+    }
+    if (m_KernelStorage != null) {
+      configureOutOfCore(Y);
+      return;
+    }
+
     int numRows = m_X.numRows();
     int numClasses = Y.numColumns();
 
     q = MatrixFactory.zeros(numClasses, 1);
     t = MatrixFactory.zeros(numRows, 1);
     w = MatrixFactory.zeros(numRows, 1);
-    I = MatrixFactory.eye(numRows, numRows);
 
     m_T = MatrixFactory.zeros(numRows, numComponents);
     m_U = MatrixFactory.zeros(numRows, numComponents);
@@ -139,7 +420,7 @@ public class KernelPLS
     for (int currentComponent = 0; currentComponent < numComponents; currentComponent++) {
       int iterations = 0;
       Matrix uOld;
-      u = MatrixFactory.randn(numRows, 1, SEED + currentComponent);
+      u = initialYScores(Y, currentComponent);
       double iterationChange = m_Tol * 10;
 
       // Repeat 1) - 3) until convergence: either change of u is lower than m_Tol or maximum
@@ -160,12 +441,10 @@ public class KernelPLS
 	iterations++;
 	iterationChange = u.sub(uOld).norm2();
       }
+      notifyConvergence(currentComponent, iterations, iterationChange, iterationChange <= m_Tol);
 
       // Deflate
-      Matrix ttTrans = t.mul(t.transpose());
-      Matrix part = I.sub(ttTrans);
-
-      m_K_deflated = part.mul(m_K_deflated).mul(part);
+      deflateInKernelSpace(m_K_deflated, t);
       Y = Y.sub(t.mul(q.transpose()));
       Matrix p = m_K_deflated.transpose().mul(w).div(w.transpose().mul(w).asDouble());
 
@@ -177,61 +456,457 @@ public class KernelPLS
     }
 
     // Calculate right hand side of the regression matrix B
-    Matrix tTtimesKtimesU = m_T.transpose().mul(m_K_orig).mul(m_U);
-    Matrix inv = tTtimesKtimesU.inverse();
-    m_B_RHS = inv.mul(m_Q.transpose());
+    m_TtKU = m_T.transpose().mul(m_K_orig).mul(m_U);
+    m_B_RHS = m_TtKU.inverse().mul(m_Q.transpose());
+    m_DualCoefficients = m_U.mul(m_B_RHS);
+  }
+
+  /**
+   * Runs the PLS iterations on an out-of-core kernel matrix. Instead of
+   * deflating K in place, the products with the deflated matrix are computed
+   * via (I - T*T^T)*K*(I - T*T^T), so K only gets written when computing and
+   * centering it.
+   *
+   * @param Y the centered response
+   */
+  protected void configureOutOfCore(Matrix Y) {
+    Matrix t, u, q, uOld;
+
+    int numComponents = getNumComponents();
+    int numRows = m_X.numRows();
+    m_T = MatrixFactory.zeros(numRows, numComponents);
+    m_U = MatrixFactory.zeros(numRows, numComponents);
+    m_P = MatrixFactory.zeros(numRows, numComponents);
+    m_Q = MatrixFactory.zeros(Y.numColumns(), numComponents);
+
+    try (TiledKernelStore K = new TiledKernelStore(m_KernelStorage, numRows, m_KernelTileSize, m_KernelBlockBytes)) {
+      K.compute(m_Kernel, m_X);
+      double[] means = K.columnMeans();
+      m_KMeans = MatrixFactory.fromRow(means);
+      m_KMean = 0;
+      for (double mean : means)
+	m_KMean += mean;
+      m_KMean /= numRows;
+      K.center(means, m_KMean);
+
+      for (int currentComponent = 0; currentComponent < numComponents; currentComponent++) {
+	int iterations = 0;
+	u = initialYScores(Y, currentComponent);
+	t = MatrixFactory.zeros(numRows, 1);
+	q = MatrixFactory.zeros(Y.numColumns(), 1);
+	double iterationChange = m_Tol * 10;
+
+	while (iterationChange > m_Tol && iterations < m_MaxIter) {
+	  t = deflatedMul(K, currentComponent, u).normalized();
+	  q = Y.transpose().mul(t);
+	  uOld = u;
+	  u = Y.mul(q).normalized();
+	  iterations++;
+	  iterationChange = u.sub(uOld).norm2();
+	}
+	notifyConvergence(currentComponent, iterations, iterationChange, iterationChange <= m_Tol);
+
+	// Deflate
+	m_T.setColumn(currentComponent, t);
+	Y = Y.sub(t.mul(q.transpose()));
+	Matrix p = deflatedMul(K, currentComponent + 1, t);
+
+	m_U.setColumn(currentComponent, u);
+	m_Q.setColumn(currentComponent, q);
+	m_P.setColumn(currentComponent, p);
+      }
+
+      m_TtKU = m_T.transpose().mul(K.mul(m_U));
+    }
+    m_B_RHS = m_TtKU.inverse().mul(m_Q.transpose());
+    m_DualCoefficients = m_U.mul(m_B_RHS);
+  }
+
+  /**
+   * Multiplies the kernel matrix deflated by the first k (orthonormal) scores
+   * with v, i.e., (I - T_k*T_k^T)*K*(I - T_k*T_k^T)*v.
+   *
+   * @param K the centered kernel matrix
+   * @param k the number of scores to deflate by
+   * @param v the vector
+   * @return the product
+   */
+  protected Matrix deflatedMul(TiledKernelStore K, int k, Matrix v) {
+    if (k == 0)
+      return K.mul(v);
+
+    Matrix T = m_T.getColumns(0, k);
+    Matrix result = K.mul(v.sub(T.mul(T.transpose().mul(v))));
+    return result.sub(T.mul(T.transpose().mul(result)));
+  }
+
+  /**
+   * Runs the PLS iterations on the approximated feature matrix Phi, with
+   * K ~ Phi*Phi^T (Nystroem or explicit feature map). Deflating K with
+   * (I - t*t^T) on both sides amounts to deflating Phi with (I - t*t^T) from
+   * the left.
+   *
+   * @param Y the centered response
+   */
+  protected void configureFeatures(Matrix Y) {
+    Matrix Phi, PhiDeflated, t, u, q;
+
+    int numComponents = getNumComponents();
+    if (m_Approximation == Approximation.RANDOM_FEATURES) {
+      if (!m_Kernel.hasFeatureMap())
+	throw new MatrixAlgorithmsException(m_Kernel.getClass().getSimpleName()
+	  + " has no explicit feature map, use a different approximation!");
+      m_RandomFeatures = m_Kernel.createFeatureMap(m_X.numColumns(), m_NumFeatures, SEED);
+    }
+    else {
+      configureNystroem(m_X);
+    }
+    Phi = features(m_X);
+    m_FeatureMeans = Phi.mean(0);
+    Phi = centerFeatures(Phi);
+    // training data is only required for the approximation
+    m_X = null;
+
+    int numRows = Phi.numRows();
+    m_T = MatrixFactory.zeros(numRows, numComponents);
+    m_U = MatrixFactory.zeros(numRows, numComponents);
+    m_P = MatrixFactory.zeros(numRows, numComponents);
+    m_Q = MatrixFactory.zeros(Y.numColumns(), numComponents);
+
+    PhiDeflated = Phi;
+    for (int currentComponent = 0; currentComponent < numComponents; currentComponent++) {
+      int iterations = 0;
+      Matrix uOld;
+      u = initialYScores(Y, currentComponent);
+      t = MatrixFactory.zeros(numRows, 1);
+      q = MatrixFactory.zeros(Y.numColumns(), 1);
+      double iterationChange = m_Tol * 10;
+
+      while (iterationChange > m_Tol && iterations < m_MaxIter) {
+	t = PhiDeflated.mul(PhiDeflated.transpose().mul(u)).normalized();
+	q = Y.transpose().mul(t);
+	uOld = u;
+	u = Y.mul(q).normalized();
+	iterations++;
+	iterationChange = u.sub(uOld).norm2();
+      }
+      notifyConvergence(currentComponent, iterations, iterationChange, iterationChange <= m_Tol);
+
+      // Deflate
+      PhiDeflated = PhiDeflated.sub(t.mul(t.transpose().mul(PhiDeflated)));
+      Y = Y.sub(t.mul(q.transpose()));
+      Matrix p = PhiDeflated.mul(PhiDeflated.transpose().mul(t));
+
+      m_T.setColumn(currentComponent, t);
+      m_U.setColumn(currentComponent, u);
+      m_Q.setColumn(currentComponent, q);
+      m_P.setColumn(currentComponent, p);
+    }
+
+    m_FeatureU = Phi.transpose().mul(m_U);
+    m_TtKU = m_T.transpose().mul(Phi).mul(m_FeatureU);
+    m_B_RHS = m_TtKU.inverse().mul(m_Q.transpose());
+    m_DualCoefficients = m_FeatureU.mul(m_B_RHS);
+  }
+
+  /**
+   * Computes the approximated features of the (centered) rows, i.e., either
+   * Phi = K(X, landmarks)*K_mm^-1/2 or the explicit feature map.
+   *
+   * @param X the centered rows
+   * @return the (uncentered) features
+   */
+  protected Matrix features(Matrix X) {
+    if (m_RandomFeatures != null)
+      return m_RandomFeatures.apply(X);
+    return m_Kernel.applyMatrix(X, m_Landmarks).mul(m_FeatureMap);
+  }
+
+  /**
+   * Centers the features in place with the column means of the training
+   * features.
+   *
+   * @param Phi the features, gets modified
+   * @return the centered features
+   */
+  protected Matrix centerFeatures(Matrix Phi) {
+    double[] means = m_FeatureMeans.toRawCopy1D();
+
+    for (int i = 0; i < Phi.numRows(); i++) {
+      for (int j = 0; j < means.length; j++)
+	Phi.set(i, j, Phi.get(i, j) - means[j]);
+    }
+    return Phi;
+  }
+
+  /**
+   * Selects the landmarks and computes the feature map K_mm^-1/2 (restricted
+   * to the numerically non-zero eigenvalues).
+   *
+   * @param X the centered training rows
+   */
+  protected void configureNystroem(Matrix X) {
+    Matrix Kmm, V, D;
+    double max;
+    int numFeatures, j;
+
+    m_Landmarks = X.getSubMatrix(selectLandmarks(X), range(X.numColumns()));
+    Kmm = m_Kernel.applyMatrix(m_Landmarks);
+    V = Kmm.getEigenvalueDecompositionV();
+    D = Kmm.getEigenvalueDecompositionD();
+
+    max = 0;
+    for (int i = 0; i < D.numRows(); i++)
+      max = Math.max(max, D.get(i, i));
+    numFeatures = 0;
+    for (int i = 0; i < D.numRows(); i++) {
+      if (D.get(i, i) > NYSTROEM_EIGENVALUE_THRESHOLD * max)
+	numFeatures++;
+    }
+
+    m_FeatureMap = MatrixFactory.zeros(Kmm.numRows(), numFeatures);
+    j = 0;
+    for (int i = 0; i < D.numRows(); i++) {
+      if (D.get(i, i) > NYSTROEM_EIGENVALUE_THRESHOLD * max) {
+	m_FeatureMap.setColumn(j, V.getColumn(i).div(StrictMath.sqrt(D.get(i, i))));
+	j++;
+      }
+    }
+  }
+
+  /**
+   * Selects the landmark rows.
+   *
+   * @param X the centered training rows
+   * @return the row indices
+   */
+  protected int[] selectLandmarks(Matrix X) {
+    int n = X.numRows();
+    int m = Math.min(m_NumLandmarks, n);
+    Random random = new Random(SEED);
+    int[] result = new int[m];
+
+    if (m == n)
+      return range(n);
+
+    if (m_LandmarkSelection == LandmarkSelection.UNIFORM) {
+      // partial Fisher-Yates shuffle
+      int[] indices = range(n);
+      for (int i = 0; i < m; i++) {
+	int k = i + random.nextInt(n - i);
+	int tmp = indices[i];
+	indices[i] = indices[k];
+	indices[k] = tmp;
+	result[i] = indices[i];
+      }
+      return result;
+    }
+
+    // k-means++ seeding
+    double[][] rows = X.toRawCopy2D();
+    double[] minDist = new double[n];
+    Arrays.fill(minDist, Double.POSITIVE_INFINITY);
+    result[0] = random.nextInt(n);
+    for (int i = 1; i < m; i++) {
+      double[] last = rows[result[i - 1]];
+      double total = 0;
+      for (int r = 0; r < n; r++) {
+	double dist = 0;
+	for (int c = 0; c < last.length; c++) {
+	  double diff = rows[r][c] - last[c];
+	  dist += diff * diff;
+	}
+	minDist[r] = Math.min(minDist[r], dist);
+	total += minDist[r];
+      }
+      int next = -1;
+      if (total > 0) {
+	double target = random.nextDouble() * total;
+	for (int r = 0; r < n; r++) {
+	  target -= minDist[r];
+	  if ((target < 0) && (minDist[r] > 0)) {
+	    next = r;
+	    break;
+	  }
+	}
+      }
+      // all remaining rows coincide with landmarks (or rounding): take any unused one
+      if (next == -1) {
+	for (int r = 0; r < n; r++) {
+	  if (minDist[r] > 0) {
+	    next = r;
+	    break;
+	  }
+	}
+      }
+      if (next == -1)
+	return Arrays.copyOf(result, i);
+      result[i] = next;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the indices 0 to n-1.
+   *
+   * @param n the number of indices
+   * @return the indices
+   */
+  protected static int[] range(int n) {
+    int[] result = new int[n];
+    for (int i = 0; i < n; i++)
+      result[i] = i;
+    return result;
   }
 
   /**
    * Centralize a kernel matrix in the kernel space via:
    * K <- (I - 1/n * 1_n * 1_n^T) * K * (I - 1/n * 1_n * 1_n^T)
+   * That is, K_i,j - m_i - m_j + m, with the row/column means m_i and the
+   * overall mean m, computed in place in O(n^2). The means are kept for
+   * centering the test kernel matrices.
    *
-   * @param K Kernel matrix
+   * @param K Symmetric kernel matrix, gets modified
    * @return Centralised kernel matrix
    */
   protected Matrix centralizeTrainInKernelSpace(Matrix K) {
-    int n = m_X.numRows();
-    Matrix I = MatrixFactory.eye(n, n);
-    Matrix one = MatrixFactory.filled(n, 1, 1.0);
-
-    // Centralize in kernel space
-    Matrix part = I.sub(one.mul(one.transpose()).div(n));
-    return part.mul(K).mul(part);
+    int n = K.numRows();
+    m_KMeans = K.mean(0);
+    double[] means = m_KMeans.toRawCopy1D();
+    double mean = 0;
+    for (int i = 0; i < n; i++)
+      mean += means[i];
+    mean /= n;
+    m_KMean = mean;
+
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++)
+	K.set(i, j, K.get(i, j) - means[i] - means[j] + mean);
+    }
+    return K;
   }
 
   /**
-   * @param K Kernel matrix
+   * Centralize a test kernel matrix in the kernel space via:
+   * K <- (K - 1/n * 1_nTest * 1_n^T * K_train) * (I - 1/n * 1_n * 1_n^T)
+   * with the uncentered training kernel matrix K_train. The projections are
+   * applied as mean corrections with the means precomputed at training time,
+   * in place in O(nTest * n).
+   *
+   * @param K Test kernel matrix, gets modified
    * @return Centralised kernel matrix
    */
   protected Matrix centralizeTestInKernelSpace(Matrix K) {
-    int nTrain = m_X.numRows();
+    int nTrain = K.numColumns();
     int nTest = K.numRows();
-    Matrix I = MatrixFactory.eye(nTrain, nTrain);
-    Matrix onesTrainTestScaled = MatrixFactory.filled(nTest, nTrain, 1.0 / nTrain);
+    double[] trainMeans = m_KMeans.toRawCopy1D();
+    double trainMean = m_KMean;
+    double[] testMeans = K.mean(1).toRawCopy1D();
 
-    Matrix onesTrainScaled = MatrixFactory.filled(nTrain, nTrain, 1.0 / nTrain);
-    return (K.sub(onesTrainTestScaled.mul(m_K_orig))).mul(I.sub(onesTrainScaled));
+    for (int i = 0; i < nTest; i++) {
+      for (int j = 0; j < nTrain; j++)
+	K.set(i, j, K.get(i, j) - trainMeans[j] - testMeans[i] + trainMean);
+    }
+    return K;
   }
 
   @Override
   protected Matrix doPLSPredict(Matrix predictors) {
-    Matrix K_t = doPLSTransform(predictors);
-    Matrix Y_hat = K_t.mul(m_B_RHS);
+    Matrix K_t = centralizedTestKernel(predictors);
+    Matrix Y_hat = K_t.mul(m_DualCoefficients);
     Y_hat = m_CenterY.inverseTransform(Y_hat);
     return Y_hat;
   }
 
   @Override
-  protected Matrix doPLSTransform(Matrix predictors) {
-    Matrix predictorsCentered = m_CenterX.transform(predictors);
-    Matrix K_t = m_Kernel.applyMatrix(predictorsCentered, m_X);
-    K_t = centralizeTestInKernelSpace(K_t);
+  public boolean canPredictPath() {
+    return true;
+  }
+
+  @Override
+  protected Matrix[] doPLSPredictPath(Matrix predictors) {
+    Matrix KtU = doPLSTransform(predictors);
+    Matrix[] rhs = getRegressionRHSPath();
+    Matrix[] result = new Matrix[rhs.length];
+    for (int k = 0; k < rhs.length; k++) {
+      Matrix Y_hat = KtU.getColumns(0, k + 1).mul(rhs[k]);
+      result[k] = m_CenterY.inverseTransform(Y_hat);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the right hand side of the regression matrix,
+   * (T_k^T*K*U_k)^-1*Q_k^T, for each number of components k.
+   *
+   * @return Right hand sides per number of components
+   */
+  protected Matrix[] getRegressionRHSPath() {
+    Matrix tTtimesKtimesU = m_TtKU;
+    Matrix[] result = new Matrix[m_T.numColumns()];
+    for (int k = 0; k < result.length; k++) {
+      Matrix inv = tTtimesKtimesU.getSubMatrix(0, k + 1, 0, k + 1).inverse();
+      result[k] = inv.mul(m_Q.getColumns(0, k + 1).transpose());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the dual regression coefficients U_k*(T_k^T*K*U_k)^-1*Q_k^T
+   * for each number of components k. These apply to the centralized test
+   * kernel matrix rather than to the predictors. With an approximation,
+   * they apply to the centered features instead, i.e., Phi^T*U_k*(...)^-1*Q_k^T.
+   *
+   * @return Dual coefficients per number of components, null if not configured
+   */
+  @Override
+  public Matrix[] getCoefficientPath() {
+    if (m_T == null) {
+      return null;
+    }
+
+    Matrix[] result = getRegressionRHSPath();
+    for (int k = 0; k < result.length; k++) {
+      if (m_FeatureU != null)
+	result[k] = m_FeatureU.getColumns(0, k + 1).mul(result[k]);
+      else
+	result[k] = m_U.getColumns(0, k + 1).mul(result[k]);
+    }
+    return result;
+  }
 
+  @Override
+  protected Matrix doPLSTransform(Matrix predictors) {
+    Matrix K_t = centralizedTestKernel(predictors);
+    if (m_Approximation != Approximation.NONE)
+      return K_t.mul(m_FeatureU);
     return K_t.mul(m_U);
   }
 
+  /**
+   * Computes the centralized test kernel matrix of the predictors or, with an
+   * approximation, their centered features.
+   *
+   * @param predictors the predictors
+   * @return the centralized kernel matrix (nTest x n) or features
+   */
+  protected Matrix centralizedTestKernel(Matrix predictors) {
+    Center centerX = m_CenterX;
+    Matrix predictorsCentered = (centerX == null) ? predictors : IntermediateCache.computeIfAbsent("Center.transform",
+      () -> centerX.transform(predictors), centerX, predictors);
+    if (m_Approximation != Approximation.NONE)
+      return centerFeatures(features(predictorsCentered));
+
+    Matrix K_t = m_Kernel.applyMatrix(predictorsCentered, m_X);
+    return centralizeTestInKernelSpace(K_t);
+  }
+
   @Override
   public String[] getMatrixNames() {
+    // the kernel matrix is not materialized with an approximation or out of core
+    if ((m_Approximation != Approximation.NONE) || (m_KernelStorage != null))
+      return new String[]{"T", "U", "P", "Q"};
     return new String[]{"K", "T", "U", "P", "Q"};
   }
 
@@ -267,7 +942,15 @@ public class KernelPLS
     m_P = null;
     m_Q = null;
     m_B_RHS = null;
+    m_DualCoefficients = null;
+    m_KMeans = null;
+    m_TtKU = null;
     m_X = null;
+    m_Landmarks = null;
+    m_FeatureMap = null;
+    m_RandomFeatures = null;
+    m_FeatureMeans = null;
+    m_FeatureU = null;
     m_CenterX = new Center();
     m_CenterY = new Center();
   }
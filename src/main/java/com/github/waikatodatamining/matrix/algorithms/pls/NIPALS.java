@@ -1,5 +1,6 @@
 package com.github.waikatodatamining.matrix.algorithms.pls;
 
+import com.github.waikatodatamining.matrix.core.algorithm.WarmStartable;
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
 import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
 import com.github.waikatodatamining.matrix.algorithms.Standardize;
@@ -16,10 +17,23 @@ import com.github.waikatodatamining.matrix.algorithms.Standardize;
  * - normYWeights: Flat to normalize Y weights
  * - deflationMode: Mode for Y matrix deflation. Can be either CANONICAL or
  * REGRESSION
+ * <p>
+ * A warm start (see {@link #setWarmStart(NIPALS)}) seeds the inner loop of
+ * each component with the X scores of the previous model's X weights, rather
+ * than with the first response column. With a single response the loop
+ * is exact after one pass and the warm start has no effect.
+ * <p>
+ * Many responses can be processed in blocks of columns (see
+ * {@link #setResponseBlockSize(int)}), bounding the temporaries of the
+ * products with and the deflation of Y. The least-squares weights of the
+ * CCA mode are obtained from a single QR decomposition of the data, rather
+ * than from a pseudo-inverse per component (see {@link DeflatedLeastSquares}).
+ *
  * @author Steven Lang
  */
 public class NIPALS
-  extends AbstractMultiResponsePLS {
+  extends AbstractMultiResponsePLS
+  implements WarmStartable<NIPALS> {
 
   private static final long serialVersionUID = -2760078672082710402L;
 
@@ -71,6 +85,12 @@ public class NIPALS
   /** X and Y deflation Mode */
   protected DeflationMode m_deflationMode = DeflationMode.REGRESSION;
 
+  /** The X weights to seed the inner loop with (warm start) */
+  protected Matrix m_WarmStartXWeights;
+
+  /** The number of response columns to process at once, 0 for all */
+  protected int m_ResponseBlockSize = 0;
+
   public boolean isNormYWeights() {
     return m_NormYWeights;
   }
@@ -121,21 +141,105 @@ public class NIPALS
     return m_deflationMode;
   }
 
+  public int getResponseBlockSize() {
+    return m_ResponseBlockSize;
+  }
+
+  /**
+   * Sets the number of response columns to process at once.
+   *
+   * @param responseBlockSize the number of columns, 0 for all
+   */
+  public void setResponseBlockSize(int responseBlockSize) {
+    if (responseBlockSize < 0) {
+      getLogger().warning("Response block size parameter must be at least 0 " +
+        "but was " + responseBlockSize + ".");
+    } else {
+      m_ResponseBlockSize = responseBlockSize;
+      reset();
+    }
+  }
+
   public void setDeflationMode(DeflationMode deflationMode) {
     m_deflationMode = deflationMode;
   }
 
+  /**
+   * Sets the model to seed the inner loop from, using its X weights.
+   *
+   * @param model	the configured model, null to clear the warm start
+   */
+  @Override
+  public void setWarmStart(NIPALS model) {
+    if ((model == null) || (model.m_XWeights == null))
+      m_WarmStartXWeights = null;
+    else
+      m_WarmStartXWeights = model.m_XWeights.copy();
+  }
+
+  @Override
+  public boolean hasWarmStart() {
+    return m_WarmStartXWeights != null;
+  }
+
+  /**
+   * Returns the initial Y scores for the inner loop of the given component.
+   *
+   * @param X		the (deflated) predictors
+   * @param Y		the (deflated) response
+   * @param component	the component index
+   * @return		the initial Y scores
+   */
+  protected Matrix initialYScores(Matrix X, ResponseBlocks Y, int component) {
+    Matrix	xWeight;
+    Matrix	yScore;
+
+    xWeight = warmStartXWeights(X, Y, component);
+    if (xWeight != null) {
+      yScore = X.mul(xWeight);
+      if (yScore.norm2squared() > 1e-10)
+	return yScore;
+    }
+
+    return Y.getColumn(0);
+  }
+
+  /**
+   * Returns the X weights of the warm start for the given component, if
+   * applicable.
+   *
+   * @param X		the (deflated) predictors
+   * @param Y		the (deflated) response
+   * @param component	the component index
+   * @return		the X weights, null if not applicable
+   */
+  protected Matrix warmStartXWeights(Matrix X, ResponseBlocks Y, int component) {
+    if ((m_WarmStartXWeights != null)
+      && (Y.numColumns() > 1)
+      && (m_WarmStartXWeights.numRows() == X.numColumns())
+      && (component < m_WarmStartXWeights.numColumns()))
+      return m_WarmStartXWeights.getColumn(component);
+
+    return null;
+  }
+
   @Override
   protected void doPLSConfigure(Matrix predictors, Matrix response) {
-    Matrix X, Y, xkScore, ykScore, xkLoading, ykLoading, xkWeight, ykWeight;
+    Matrix X, xkScore, ykScore, xkLoading, ykLoading, xkWeight, ykWeight;
+    ResponseBlocks Y;
+    DeflatedLeastSquares xSolver, ySolver;
 
     getLogger();
 
     // Init
     X = predictors;
     X = m_StandardizeX.configureAndTransform(X);
-    Y = response;
-    Y = m_StandardizeY.configureAndTransform(Y);
+    Y = new ResponseBlocks(m_StandardizeY.configureAndTransform(response), m_ResponseBlockSize);
+
+    if (determineFitStrategy(X) == FitStrategy.GRAM) {
+      configureGram(X, Y);
+      return;
+    }
 
     // Dimensions
     int numRows = X.numRows();
@@ -155,40 +259,56 @@ public class NIPALS
 
     ykLoading = MatrixFactory.zeros(numClasses, 1);
 
+    // Least-squares weights of the deflated data (CCA), Y only gets
+    // deflated within its column space in CANONICAL mode
+    xSolver = null;
+    ySolver = null;
+    if (getWeightCalculationMode() == WeightCalculationMode.CCA) {
+      xSolver = DeflatedLeastSquares.create(X);
+      if (getDeflationMode() == DeflationMode.CANONICAL)
+	ySolver = DeflatedLeastSquares.create(Y.toMatrix());
+    }
+
     double eps = 1e-10;
     for (int k = 0; k < numComponents; k++) {
-      if (Y.transpose().mul(Y).all(e -> e < eps)) {
+      // Y^T*Y < eps everywhere iff all squared column norms are < eps
+      if (Y.maxColumnNorm2Squared() < eps) {
         getLogger().warning("Y residual constant at iteration " + k);
         break;
       }
 
-      NipalsLoopResult res = nipalsLoop(X, Y);
+      NipalsLoopResult res = nipalsLoop(X, Y, initialYScores(X, Y, k), xSolver, ySolver);
+      notifyConvergence(k, res.iterations, res.delta, res.converged);
       xkWeight = res.xWeights;
       ykWeight = res.yWeights;
 
       // Calculate latent X and Y scores
-      xkScore = X.mul(xkWeight);
+      xkScore = res.xScores;
       ykScore = Y.mul(ykWeight).div(ykWeight.norm2squared());
 
-
-      if (xkScore.norm2squared() < eps) {
+      double tt = xkScore.norm2squared();
+      if (tt < eps) {
         getLogger().warning("X scores are null at component " + k);
 	break;
       }
 
       // Deflate X
-      xkLoading = X.t().mul(xkScore).div(xkScore.norm2squared());
+      xkLoading = X.t().mul(xkScore).div(tt);
       X = X.sub(xkScore.mul(xkLoading.t()));
+      if (xSolver != null)
+	xSolver.deflate(xkScore);
 
       // Deflate Y
       switch (getDeflationMode()) {
 	case CANONICAL:
-	  ykLoading = Y.t().mul(ykScore).div(ykScore.norm2squared());
-	  Y = Y.sub(ykScore.mul(ykLoading.t()));
+	  ykLoading = Y.tMul(ykScore).div(ykScore.norm2squared());
+	  Y.deflate(ykScore, ykLoading);
+	  if (ySolver != null)
+	    ySolver.deflate(ykScore);
 	  break;
 	case REGRESSION:
-	  ykLoading = Y.t().mul(xkScore).div(xkScore.norm2squared());
-	  Y = Y.sub(xkScore.mul(ykLoading.t()));
+	  ykLoading = Y.tMul(xkScore).div(tt);
+	  Y.deflate(xkScore, ykLoading);
 	  break;
       }
 
@@ -205,8 +325,130 @@ public class NIPALS
     }
 
     m_X = X;
+    finishConfigure(numClasses);
+  }
+
+  /**
+   * Fits the model on the n x n Gram matrix K = X*X^T of the (wide,
+   * standardized) data. With X_k = D_k*X and the projection
+   * D_k = I - sum_j t_j*t_j^T/(t_j^T*t_j) on the complement of the previous
+   * scores, the X weights are w = X_k^T*c = X^T*(D_k*c) for the n
+   * coefficients c of the inner loop, and the scores are K_k*c, with
+   * K_k = D_k*K*D_k (see {@link #nipalsLoopGram(Matrix, ResponseBlocks, Matrix)}).
+   * The weights and loadings get mapped to the p columns at the end, with a
+   * single product each.
+   *
+   * @param X	the standardized predictors
+   * @param Y	the standardized response
+   */
+  protected void configureGram(Matrix X, ResponseBlocks Y) {
+    Matrix K, C, xkCoef, xkScore, ykScore, ykLoading, xkWeight, ykWeight, yScoreInit, tdott;
+
+    // Dimensions
+    int numRows = X.numRows();
+    int numClasses = Y.numColumns();
+    int numComponents = getNumComponents();
+
+    // Init matrices
+    K = gram(X).copy();
+    C = MatrixFactory.zeros(numRows, numComponents);
+    tdott = MatrixFactory.zeros(numComponents, 1);
+    m_XScores = MatrixFactory.zeros(numRows, numComponents); // T
+    m_YScores = MatrixFactory.zeros(numRows, numComponents); // U
+    m_YWeights = MatrixFactory.zeros(numClasses, numComponents); // C
+    m_YLoadings = MatrixFactory.zeros(numClasses, numComponents); // Q
+
+    ykLoading = MatrixFactory.zeros(numClasses, 1);
+
+    double eps = 1e-10;
+    for (int k = 0; k < numComponents; k++) {
+      if (Y.maxColumnNorm2Squared() < eps) {
+        getLogger().warning("Y residual constant at iteration " + k);
+        break;
+      }
+
+      // X_k*w = D_k*(X*w)
+      yScoreInit = Y.getColumn(0);
+      xkWeight = warmStartXWeights(X, Y, k);
+      if (xkWeight != null) {
+	xkScore = projectOutScores(X.mul(xkWeight), k);
+	if (xkScore.norm2squared() > 1e-10)
+	  yScoreInit = xkScore;
+      }
+
+      NipalsLoopResult res = nipalsLoopGram(K, Y, yScoreInit);
+      notifyConvergence(k, res.iterations, res.delta, res.converged);
+      xkCoef = res.xWeights;
+      ykWeight = res.yWeights;
+
+      // Calculate latent X and Y scores
+      xkScore = res.xScores;
+      ykScore = Y.mul(ykWeight).div(ykWeight.norm2squared());
+
+      double tt = xkScore.norm2squared();
+      if (tt < eps) {
+        getLogger().warning("X scores are null at component " + k);
+	break;
+      }
+
+      // Deflate K, X loadings: X_k^T*t/(t^T*t) = X^T*t/(t^T*t)
+      tdott.set(k, 0, 1.0 / tt);
+      deflateInKernelSpace(K, xkScore.div(Math.sqrt(tt)));
+
+      // Deflate Y
+      switch (getDeflationMode()) {
+	case CANONICAL:
+	  ykLoading = Y.tMul(ykScore).div(ykScore.norm2squared());
+	  Y.deflate(ykScore, ykLoading);
+	  break;
+	case REGRESSION:
+	  ykLoading = Y.tMul(xkScore).div(tt);
+	  Y.deflate(xkScore, ykLoading);
+	  break;
+      }
+
+      // Store results, the coefficients relative to X
+      C.setColumn(k, projectOutScores(xkCoef, k));
+      m_XScores.setColumn(k, xkScore);
+      m_YScores.setColumn(k, ykScore);
+      m_YWeights.setColumn(k, ykWeight);
+      m_YLoadings.setColumn(k, ykLoading);
+    }
+
+    // map back to the columns
+    m_XWeights = X.t().mul(C); // W
+    m_XLoadings = X.t().mul(m_XScores).scaleByRowVector(tdott); // P
+    m_X = X.sub(m_XScores.mul(m_XLoadings.t()));
+    finishConfigure(numClasses);
+  }
+
+  /**
+   * Applies D_k = I - sum_j t_j*t_j^T/(t_j^T*t_j), the projection on the
+   * complement of the first k X scores.
+   *
+   * @param v	the vector to project
+   * @param k	the number of scores
+   * @return	the projected vector
+   */
+  protected Matrix projectOutScores(Matrix v, int k) {
+    Matrix	t;
+
+    for (int j = 0; j < k; j++) {
+      t = m_XScores.getColumn(j);
+      v = v.sub(t.mul(t.vectorDot(v) / t.norm2squared()));
+    }
+    return v;
+  }
+
+  /**
+   * Computes the rotations and the regression coefficients from the
+   * weights and loadings.
+   *
+   * @param numClasses	the number of response columns
+   */
+  protected void finishConfigure(int numClasses) {
     m_XRotations = m_XWeights.mul((m_XLoadings.t().mul(m_XWeights)).pseudoInverse());
-    if (Y.numColumns() > 1) {
+    if (numClasses > 1) {
       m_YRotations = m_YWeights.mul((m_YLoadings.t().mul(m_YWeights)).pseudoInverse());
     }
     else {
@@ -219,18 +461,25 @@ public class NIPALS
   }
 
   /**
-   * Perform the inner NIPALS loop
+   * Perform the inner NIPALS loop, starting from the given Y scores.
    *
    * @param X Predictors Matrix
    * @param Y Response Matrix
+   * @param yScoreInit Initial Y scores
+   * @param xSolver Least-squares X weights (CCA), null for the pseudo-inverse
+   * @param ySolver Least-squares Y weights (CCA), null for the pseudo-inverse
    * @return NipalsLoopResult
    */
-  protected NipalsLoopResult nipalsLoop(Matrix X, Matrix Y) {
+  protected NipalsLoopResult nipalsLoop(Matrix X, ResponseBlocks Y, Matrix yScoreInit,
+					DeflatedLeastSquares xSolver, DeflatedLeastSquares ySolver) {
     int iterations = 0;
+    double delta;
+    boolean converged;
+    boolean single = Y.numColumns() == 1;
 
-    Matrix yScore = Y.getColumn(0); // (y scores)
+    Matrix yScore = yScoreInit; // (y scores)
     Matrix xWeight;
-    Matrix xWeightOld = MatrixFactory.zeros(X.numColumns(), 1);
+    Matrix xWeightOld = null;
     Matrix yWeight;
     Matrix xScore;
     Matrix XpInv = null;
@@ -243,22 +492,29 @@ public class NIPALS
     while (true) {
       // 1) Update X weights
       if (getWeightCalculationMode() == WeightCalculationMode.CCA){
-        if (XpInv == null){
-          // sklearn uses pinv here which ojAlgo implicitly does
-          XpInv = X.inverse();
+        if (xSolver != null) {
+          xWeight = xSolver.solve(yScore);
+        }
+        else {
+          if (XpInv == null){
+            // sklearn uses pinv here which ojAlgo implicitly does
+            XpInv = X.inverse();
+          }
+          xWeight = XpInv.mul(yScore);
         }
-        xWeight = XpInv.mul(yScore);
       } else { // PLS
         xWeight = X.t().mul(yScore).div(yScore.norm2squared());
       }
 
       // Add eps if necessary to converge to a more acceptable solution
-      if (xWeight.norm2squared() < eps) {
+      double xWeightNorm = xWeight.norm2squared();
+      if (xWeightNorm < eps) {
 	xWeight = xWeight.add(eps);
+	xWeightNorm = xWeight.norm2squared();
       }
 
       // Normalize
-      xWeight = xWeight.div(Math.sqrt(xWeight.norm2squared()) + eps);
+      xWeight = xWeight.div(Math.sqrt(xWeightNorm) + eps);
 
 
       // 2) Calculate latent X scores
@@ -266,14 +522,19 @@ public class NIPALS
 
       // 3) Update Y weights
       if (getWeightCalculationMode() == WeightCalculationMode.CCA){
-        if (YpInv == null){
-          // sklearn uses pinv here which ojAlgo implicitly does
-          YpInv = Y.inverse();
+        if (ySolver != null) {
+          yWeight = ySolver.solve(xScore);
+        }
+        else {
+          if (YpInv == null){
+            // sklearn uses pinv here which ojAlgo implicitly does
+            YpInv = Y.toMatrix().inverse();
+          }
+          yWeight = YpInv.mul(xScore);
         }
-        yWeight = YpInv.mul(xScore);
       } else { // PLS
         // WeightCalculationMode A: Regress each Y column on xscore
-        yWeight = Y.t().mul(xScore).div(xScore.norm2squared());
+        yWeight = Y.tMul(xScore).div(xScore.norm2squared());
       }
 
       // Normalize Y weights
@@ -284,13 +545,23 @@ public class NIPALS
       // 4) Calculate ykScores
       yScore = Y.mul(yWeight).div(yWeight.norm2squared() + eps);
 
-      Matrix xWeightDiff = xWeight.sub(xWeightOld);
+      // A single response is exact after one pass, the change is
+      // relative to the initial zero weights
+      if (single) {
+	delta = xWeight.norm2squared();
+	converged = true;
+	break;
+      }
+
+      delta = (xWeightOld == null) ? xWeight.norm2squared() : xWeight.sub(xWeightOld).norm2squared();
 
-      if (xWeightDiff.norm2squared() < m_Tol || Y.numColumns() == 1) {
+      if (delta < m_Tol) {
+	converged = true;
 	break;
       }
 
       if (iterations >= m_MaxIter) {
+	converged = false;
 	break;
       }
 
@@ -299,7 +570,88 @@ public class NIPALS
       iterations++;
     }
 
-    return new NipalsLoopResult(xWeight, yWeight, iterations);
+    return new NipalsLoopResult(xWeight, yWeight, xScore, iterations, delta, converged);
+  }
+
+  /**
+   * Perform the inner NIPALS loop on the deflated Gram matrix K_k = X_k*X_k^T,
+   * starting from the given Y scores. The X weights X_k^T*c are represented
+   * by their n coefficients c, with ||X_k^T*c||^2 = c^T*K_k*c. Unlike
+   * {@link #nipalsLoop(Matrix, ResponseBlocks, Matrix, DeflatedLeastSquares, DeflatedLeastSquares)},
+   * vanishing X weights don't
+   * get perturbed.
+   *
+   * @param K Deflated Gram matrix
+   * @param Y Response Matrix
+   * @param yScoreInit Initial Y scores
+   * @return NipalsLoopResult, with the coefficients as X weights
+   */
+  protected NipalsLoopResult nipalsLoopGram(Matrix K, ResponseBlocks Y, Matrix yScoreInit) {
+    int iterations = 0;
+    double delta;
+    boolean converged;
+
+    Matrix yScore = yScoreInit; // (y scores)
+    Matrix xCoef;
+    Matrix xCoefOld = MatrixFactory.zeros(K.numRows(), 1);
+    Matrix xScoreOld = MatrixFactory.zeros(K.numRows(), 1);
+    Matrix yWeight;
+    Matrix xScore;
+
+    double eps = 1e-16;
+
+    while (true) {
+      // 1) Update X weights, normalize
+      xCoef = yScore.div(yScore.norm2squared());
+      xScore = K.mul(xCoef);
+      double norm = Math.sqrt(xCoef.vectorDot(xScore)) + eps;
+      xCoef = xCoef.div(norm);
+
+      // 2) Calculate latent X scores
+      xScore = xScore.div(norm);
+
+      // 3) Update Y weights
+      yWeight = Y.tMul(xScore).div(xScore.norm2squared());
+
+      // Normalize Y weights
+      if (m_NormYWeights) {
+	yWeight = yWeight.div(Math.sqrt(yWeight.norm2squared()) + eps);
+      }
+
+      // 4) Calculate ykScores
+      yScore = Y.mul(yWeight).div(yWeight.norm2squared() + eps);
+
+      // ||w - w_old||^2 = (c - c_old)^T*K_k*(c - c_old)
+      delta = xCoef.sub(xCoefOld).vectorDot(xScore.sub(xScoreOld));
+
+      if (delta < m_Tol || Y.numColumns() == 1) {
+	converged = true;
+	break;
+      }
+
+      if (iterations >= m_MaxIter) {
+	converged = false;
+	break;
+      }
+
+      // Update stopping conditions
+      xCoefOld = xCoef;
+      xScoreOld = xScore;
+      iterations++;
+    }
+
+    return new NipalsLoopResult(xCoef, yWeight, xScore, iterations, delta, converged);
+  }
+
+  /**
+   * Returns whether the model can be fit on the Gram matrix, which requires
+   * the PLS weights (X_k^T*u).
+   *
+   * @return		true for the PLS weights
+   */
+  @Override
+  public boolean supportsGramFit() {
+    return getWeightCalculationMode() == WeightCalculationMode.PLS;
   }
 
   @Override
@@ -310,6 +662,49 @@ public class NIPALS
     return X.mul(m_Coef).addByVector(yMeans);
   }
 
+  @Override
+  public boolean canPredictPath() {
+    return true;
+  }
+
+  @Override
+  protected Matrix[] doPLSPredictPath(Matrix predictors) {
+    Matrix X = m_StandardizeX.transform(predictors);
+    Matrix yMeans = MatrixFactory.fromColumn(m_StandardizeY.getMeans());
+    Matrix[] coef = getCoefficientPath();
+    Matrix[] result = new Matrix[coef.length];
+    for (int k = 0; k < coef.length; k++) {
+      result[k] = X.mul(coef[k]).addByVector(yMeans);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the regression coefficients W_k*(P_k^T*W_k)^+*Q_k^T for each
+   * number of components k. Like {@link #getCoef()}, these apply to the
+   * standardized predictors and are scaled by the response standard
+   * deviations.
+   *
+   * @return the coefficients per number of components, null if not configured
+   */
+  @Override
+  public Matrix[] getCoefficientPath() {
+    if (m_XWeights == null) {
+      return null;
+    }
+
+    Matrix yStds = MatrixFactory.fromColumn(m_StandardizeY.getStdDevs());
+    Matrix[] result = new Matrix[m_XWeights.numColumns()];
+    for (int k = 0; k < result.length; k++) {
+      Matrix W = m_XWeights.getColumns(0, k + 1);
+      Matrix P = m_XLoadings.getColumns(0, k + 1);
+      Matrix Q = m_YLoadings.getColumns(0, k + 1);
+      Matrix rotations = W.mul((P.t().mul(W)).pseudoInverse());
+      result[k] = rotations.mul(Q.t()).scaleByRowVector(yStds);
+    }
+    return result;
+  }
+
   @Override
   protected Matrix doPLSTransform(Matrix predictors) {
     Matrix X = m_StandardizeX.transform(predictors);
@@ -382,7 +777,8 @@ public class NIPALS
   }
 
   /**
-   * NIPALS loop result: x and y weight matrices and number of iterations.
+   * NIPALS loop result: x and y weight matrices, the x scores, number of
+   * iterations and the final change of the x weights.
    */
   private class NipalsLoopResult {
 
@@ -390,12 +786,21 @@ public class NIPALS
 
     Matrix yWeights;
 
+    Matrix xScores;
+
     int iterations;
 
-    public NipalsLoopResult(Matrix xWeights, Matrix yWeights, int iterations) {
+    double delta;
+
+    boolean converged;
+
+    public NipalsLoopResult(Matrix xWeights, Matrix yWeights, Matrix xScores, int iterations, double delta, boolean converged) {
       this.xWeights = xWeights;
       this.yWeights = yWeights;
+      this.xScores = xScores;
       this.iterations = iterations;
+      this.delta = delta;
+      this.converged = converged;
     }
   }
 
@@ -403,6 +808,274 @@ public class NIPALS
     return WeightCalculationMode.PLS; // Mode A in sklearn
   }
 
+  /**
+   * The (deflated) response, stored as blocks of columns. Products with Y
+   * and its deflation only allocate temporaries of the size of a block, and
+   * products with Y^T don't transpose Y.
+   */
+  protected static class ResponseBlocks {
+
+    /** the blocks of columns */
+    protected Matrix[] m_Blocks;
+
+    /** the first column of each block */
+    protected int[] m_Offsets;
+
+    /** the total number of columns */
+    protected int m_NumColumns;
+
+    /**
+     * Splits the response into blocks.
+     *
+     * @param Y		the response
+     * @param blockSize	the number of columns per block, 0 for a single block
+     */
+    public ResponseBlocks(Matrix Y, int blockSize) {
+      int	numBlocks;
+
+      m_NumColumns = Y.numColumns();
+      if ((blockSize <= 0) || (blockSize >= m_NumColumns))
+	blockSize = m_NumColumns;
+      numBlocks = (m_NumColumns + blockSize - 1) / blockSize;
+      m_Blocks  = new Matrix[numBlocks];
+      m_Offsets = new int[numBlocks];
+      for (int b = 0; b < numBlocks; b++) {
+	m_Offsets[b] = b * blockSize;
+	m_Blocks[b]  = (numBlocks == 1) ? Y : Y.getColumns(m_Offsets[b], Math.min(m_NumColumns, m_Offsets[b] + blockSize));
+      }
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return		the number of columns
+     */
+    public int numColumns() {
+      return m_NumColumns;
+    }
+
+    /**
+     * Returns the specified column.
+     *
+     * @param column	the column
+     * @return		the column
+     */
+    public Matrix getColumn(int column) {
+      int	b;
+
+      b = column / m_Blocks[0].numColumns();
+      return m_Blocks[b].getColumn(column - m_Offsets[b]);
+    }
+
+    /**
+     * Returns the largest squared column norm.
+     *
+     * @return		the norm
+     */
+    public double maxColumnNorm2Squared() {
+      double	result;
+      double	norm;
+
+      result = 0;
+      for (Matrix block : m_Blocks) {
+	norm   = block.reduceColumnsL2().max();
+	result = Math.max(result, norm * norm);
+      }
+      return result;
+    }
+
+    /**
+     * Computes Y^T*x.
+     *
+     * @param x		the n x 1 vector
+     * @return		the m x 1 product
+     */
+    public Matrix tMul(Matrix x) {
+      double[]	result;
+      double[]	part;
+      Matrix	xt;
+
+      if (m_Blocks.length == 1)
+	return m_Blocks[0].t().mul(x);
+
+      result = new double[m_NumColumns];
+      xt     = x.t();
+      for (int b = 0; b < m_Blocks.length; b++) {
+	part = xt.mul(m_Blocks[b]).toRawCopy1D();
+	System.arraycopy(part, 0, result, m_Offsets[b], part.length);
+      }
+      return MatrixFactory.fromColumn(result);
+    }
+
+    /**
+     * Computes Y*v.
+     *
+     * @param v		the m x 1 vector
+     * @return		the n x 1 product
+     */
+    public Matrix mul(Matrix v) {
+      Matrix	result;
+
+      if (m_Blocks.length == 1)
+	return m_Blocks[0].mul(v);
+
+      result = null;
+      for (int b = 0; b < m_Blocks.length; b++) {
+	Matrix part = m_Blocks[b].mul(v.getRows(m_Offsets[b], m_Offsets[b] + m_Blocks[b].numColumns()));
+	result = (result == null) ? part : result.add(part);
+      }
+      return result;
+    }
+
+    /**
+     * Deflates the response, Y = Y - s*q^T.
+     *
+     * @param s		the n x 1 scores
+     * @param q		the m x 1 loadings
+     */
+    public void deflate(Matrix s, Matrix q) {
+      if (m_Blocks.length == 1) {
+	m_Blocks[0] = m_Blocks[0].sub(s.mul(q.t()));
+	return;
+      }
+
+      for (int b = 0; b < m_Blocks.length; b++)
+	m_Blocks[b] = m_Blocks[b].sub(s.mul(q.getRows(m_Offsets[b], m_Offsets[b] + m_Blocks[b].numColumns()).t()));
+    }
+
+    /**
+     * Returns the response as a single matrix.
+     *
+     * @return		the response
+     */
+    public Matrix toMatrix() {
+      Matrix	result;
+
+      result = m_Blocks[0];
+      for (int b = 1; b < m_Blocks.length; b++)
+	result = result.concatAlongColumns(m_Blocks[b]);
+      return result;
+    }
+  }
+
+  /**
+   * Minimum norm least-squares solutions w of A_k*w ~ b, for the successively
+   * deflated A_k = D_k*A with D_k = I - sum_j s_j*s_j^T/(s_j^T*s_j), where the
+   * scores s_j lie in the column space of A_j (as in the NIPALS deflation).
+   * Equivalent to the pseudo-inverse of A_k, but based on a single thin QR
+   * decomposition A = Q*R: with the orthonormal basis S of Q^T*s_j,
+   * R*w = (I - S*S^T)*Q^T*b + S*c, and the minimum norm solution is
+   * R^-1*(I - S*S^T)*Q^T*b projected on the complement of R^-1*S. Requires a
+   * tall A of full column rank.
+   */
+  protected static class DeflatedLeastSquares {
+
+    /** the relative threshold below which diagonal entries of R are considered zero */
+    public static final double RANK_TOLERANCE = 1e-10;
+
+    /** Q^T */
+    protected Matrix m_Qt;
+
+    /** R^-1 */
+    protected Matrix m_RInv;
+
+    /** orthonormal basis of the deflated directions, Q^T*s_j */
+    protected Matrix m_S;
+
+    /** orthonormal basis of R^-1*S */
+    protected Matrix m_B;
+
+    /**
+     * Initializes the solver from the decomposition.
+     *
+     * @param Q		the thin Q
+     * @param R		the (invertible) R
+     */
+    protected DeflatedLeastSquares(Matrix Q, Matrix R) {
+      m_Qt   = Q.t();
+      m_RInv = R.inverse();
+    }
+
+    /**
+     * Creates a solver for the matrix.
+     *
+     * @param A		the matrix
+     * @return		the solver, null if A isn't tall or of full column rank
+     */
+    public static DeflatedLeastSquares create(Matrix A) {
+      Matrix	R;
+      double	max;
+      double	min;
+
+      if (A.numRows() < A.numColumns())
+	return null;
+
+      R   = A.qrR();
+      max = 0;
+      min = Double.POSITIVE_INFINITY;
+      for (int i = 0; i < R.numColumns(); i++) {
+	max = Math.max(max, Math.abs(R.get(i, i)));
+	min = Math.min(min, Math.abs(R.get(i, i)));
+      }
+      if (min <= RANK_TOLERANCE * max)
+	return null;
+
+      return new DeflatedLeastSquares(A.qrQ(), R);
+    }
+
+    /**
+     * Projects the vector on the complement of the orthonormal basis.
+     *
+     * @param v		the vector
+     * @param basis	the basis, may be null
+     * @return		the projected vector
+     */
+    protected static Matrix projectOut(Matrix v, Matrix basis) {
+      if (basis == null)
+	return v;
+      return v.sub(basis.mul(basis.t().mul(v)));
+    }
+
+    /**
+     * Extends the orthonormal basis by the vector, after projecting out the
+     * basis.
+     *
+     * @param basis	the basis, may be null
+     * @param v		the vector
+     * @return		the extended basis
+     */
+    protected static Matrix extend(Matrix basis, Matrix v) {
+      v = projectOut(v, basis);
+      v = v.normalized();
+      return (basis == null) ? v : basis.concatAlongColumns(v);
+    }
+
+    /**
+     * Deflates the matrix by the scores, A_k+1 = (I - s*s^T/(s^T*s))*A_k.
+     *
+     * @param s		the scores, within the column space of A_k
+     */
+    public void deflate(Matrix s) {
+      Matrix	direction;
+
+      direction = projectOut(m_Qt.mul(s), m_S);
+      if (direction.norm2squared() == 0)
+	return;
+      m_S = extend(m_S, direction);
+      m_B = extend(m_B, m_RInv.mul(m_S.getColumn(m_S.numColumns() - 1)));
+    }
+
+    /**
+     * Computes the minimum norm least-squares solution of A_k*w ~ b.
+     *
+     * @param b		the right-hand side
+     * @return		the solution
+     */
+    public Matrix solve(Matrix b) {
+      return projectOut(m_RInv.mul(projectOut(m_Qt.mul(b), m_S)), m_B);
+    }
+  }
+
   /**
    * Deflation mode Enum.
    */
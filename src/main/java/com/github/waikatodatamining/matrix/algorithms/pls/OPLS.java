@@ -29,6 +29,9 @@ import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
  * <br>
  * See here:
  * <a href="https://onlinelibrary.wiley.com/doi/pdf/10.1002/cem.695">Orthogonal Projections to latent structures (O-PLS)</a>
+ * <br>
+ * The component path can't be predicted from a single fit, as the base PLS
+ * would have to be trained once per number of orthogonal components.
  *
  * @author Steven Lang
  */
@@ -73,6 +76,7 @@ public class OPLS
     m_Porth = null;
     m_Worth = null;
     m_Torth = null;
+    m_Xosc = null;
   }
 
   /**
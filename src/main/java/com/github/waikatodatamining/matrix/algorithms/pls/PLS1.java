@@ -22,7 +22,6 @@ package com.github.waikatodatamining.matrix.algorithms.pls;
 
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
 import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
-import com.github.waikatodatamining.matrix.core.matrix.MatrixHelper;
 
 /**
  * PLS1 algorithm.
@@ -49,6 +48,9 @@ public class PLS1
   /** the b-hat vector */
   protected Matrix m_b_hat;
 
+  /** the rotation matrix R, mapping the data to the scores, T = X*R */
+  protected Matrix m_R;
+
   /**
    * Resets the member variables.
    */
@@ -60,6 +62,7 @@ public class PLS1
     m_P     = null;
     m_W     = null;
     m_b_hat = null;
+    m_R     = null;
   }
 
   /**
@@ -132,7 +135,11 @@ public class PLS1
     double 	bk;
     Matrix 	b_hat;
     int 	k;
-    Matrix 	tmp;
+
+    if (determineFitStrategy(predictors) == FitStrategy.GRAM) {
+      configureGram(predictors, response);
+      return;
+    }
 
     Xk = predictors;
     y = response;
@@ -167,17 +174,116 @@ public class PLS1
       Xk = Xk.sub(tk.mul(pk.transpose()));
     }
 
+    setModel(W, P, b_hat);
+  }
+
+  /**
+   * Initializes using the n x n Gram matrix of the (wide) data. With
+   * X_k = D_k*X and the projection D_k = I - sum_j t_j*t_j^T/(t_j^T*t_j)
+   * on the complement of the previous scores:
+   * <ul>
+   *   <li>w_k ~ X_k^T*y = X^T*(D_k*y), i.e., only n coefficients</li>
+   *   <li>t_k = X_k*w_k = K_k*y/sqrt(y^T*K_k*y), with K_k = D_k*K*D_k</li>
+   *   <li>p_k = X_k^T*t_k/(t_k^T*t_k) = X^T*t_k/(t_k^T*t_k)</li>
+   * </ul>
+   * The weights and loadings get mapped to the p columns at the end, with
+   * a single product each.
+   *
+   * @param predictors the input data
+   * @param response   the dependent variable(s)
+   */
+  protected void configureGram(Matrix predictors, Matrix response) {
+    Matrix 	K;
+    Matrix 	yk;
+    Matrix 	A, ak;
+    Matrix 	T, tk;
+    Matrix 	tdott;
+    Matrix 	b_hat;
+    double 	norm;
+    double 	tt;
+    int 	k;
+
+    K     = gram(predictors).copy();
+    yk    = response;
+    A     = MatrixFactory.zeros(predictors.numRows(), getNumComponents());
+    T     = MatrixFactory.zeros(predictors.numRows(), getNumComponents());
+    tdott = MatrixFactory.zeros(getNumComponents(), 1);
+    b_hat = MatrixFactory.zeros(getNumComponents(), 1);
+
+    for (k = 0; k < getNumComponents(); k++) {
+      // 1. step: wj = X^T*ak, ak = D_k*y/||X_k^T*y||
+      tk   = K.mul(yk);
+      norm = StrictMath.sqrt(yk.vectorDot(tk));
+      ak   = yk.div(norm);
+      A.setColumn(k, ak);
+
+      // 2. step: tj = K_k*ak
+      tk = tk.div(norm);
+      T.setColumn(k, tk);
+
+      // 3. step: ^bj
+      tt = tk.vectorDot(tk);
+      b_hat.set(k, 0, tk.vectorDot(response) / tt);
+      tdott.set(k, 0, 1.0 / tt);
+
+      // 4. step: Kk+1 = D*Kk*D, D*y
+      deflateInKernelSpace(K, tk.div(StrictMath.sqrt(tt)));
+      yk = yk.sub(tk.mul(tk.vectorDot(yk) / tt));
+    }
+
+    // map back to the columns
+    setModel(
+      predictors.transpose().mul(A),
+      predictors.transpose().mul(T).scaleByRowVector(tdott),
+      b_hat);
+  }
+
+  /**
+   * Computes the regression vector and the rotation from the weights and
+   * loadings, and stores the model.
+   *
+   * @param W		the weights
+   * @param P		the loadings
+   * @param b_hat	the inner regression coefficients
+   */
+  protected void setModel(Matrix W, Matrix P, Matrix b_hat) {
+    Matrix 	tmp;
+    Matrix 	R, rk;
+    int 	k;
+
     // W*(P^T*W)^-1
     tmp = W.mul(((P.transpose()).mul(W)).inverse());
 
     // factor = W*(P^T*W)^-1 * b_hat
     m_r_hat = tmp.mul(b_hat);
 
+    // rotation of the successively deflated data, x_k+1 = x_k*(I - w_k*p_k^T):
+    // r_k = w_k - R_<k*(P_<k^T*w_k), i.e., W*(P^T*W)^-1 if P^T*W is upper
+    // triangular (weights in the row space of the deflated data)
+    R = MatrixFactory.zeros(W.numRows(), getNumComponents());
+    for (k = 0; k < getNumComponents(); k++) {
+      rk = W.getColumn(k);
+      if (k > 0)
+	rk = rk.sub(R.getColumns(0, k).mul(P.getColumns(0, k).transpose().mul(rk)));
+      R.setColumn(k, rk);
+    }
+
     // save matrices
     m_P = P;
     m_W = W;
     m_b_hat = b_hat;
+    m_R = R;
+  }
 
+  /**
+   * Returns whether the model can be fit on the Gram matrix, which requires
+   * the weights to be the (normalized) covariances X_k^T*y.
+   *
+   * @return		true
+   */
+  @Override
+  public boolean supportsGramFit() {
+    return true;
   }
 
   /**
@@ -199,32 +305,8 @@ public class PLS1
    */
   @Override
   protected Matrix doPLSTransform(Matrix predictors) {
-    Matrix 	result;
-    Matrix 	T, t;
-    Matrix 	x, X;
-    int 	i, j;
-
-    result = MatrixFactory.zeros(predictors.numRows(), getNumComponents());
-
-    for (i = 0; i < predictors.numRows(); i++) {
-      // work on each row
-      x = MatrixHelper.rowAsVector(predictors, i);
-      X = MatrixFactory.zeros(1, getNumComponents());
-      T = MatrixFactory.zeros(1, getNumComponents());
-
-      for (j = 0; j < getNumComponents(); j++) {
-	X.setColumn(j, x);
-	// 1. step: tj = xj * wj
-	t = x.mul(m_W.getColumn(j));
-	T.setColumn(j, t);
-	// 2. step: xj+1 = xj - tj*pj^T (tj is 1x1 matrix!)
-	x = x.sub(m_P.getColumn(j).transpose().mul(t.asDouble()));
-      }
-
-      result.setRow(i, T);
-    }
-
-    return result;
+    // the scores of the successively deflated data
+    return predictors.mul(m_R);
   }
 
   /**
@@ -244,29 +326,78 @@ public class PLS1
    */
   @Override
   protected Matrix doPLSPredict(Matrix predictors) {
-    Matrix 	result;
-    Matrix 	T, t;
-    Matrix 	x, X;
-    int 	i, j;
-
-    result = MatrixFactory.zeros(predictors.numRows(), 1);
-
-    for (i = 0; i < predictors.numRows(); i++) {
-      // work on each row
-      x = MatrixHelper.rowAsVector(predictors, i);
-      X = MatrixFactory.zeros(1, getNumComponents());
-      T = MatrixFactory.zeros(1, getNumComponents());
-
-      for (j = 0; j < getNumComponents(); j++) {
-	X.setColumn(j, x);
-	// 1. step: tj = xj * wj
-	t = x.mul(m_W.getColumn(j));
-	T.setColumn(j, t);
-	// 2. step: xj+1 = xj - tj*pj^T (tj is 1x1 matrix!)
-	x = x.sub(m_P.getColumn(j).transpose().mul(t.asDouble()));
-      }
-
-      result.set(i, 0, T.mul(m_b_hat).asDouble());
+    // single product with the regression vector W*(P^T*W)^-1*b_hat
+    return predictors.mul(m_r_hat);
+  }
+
+  /**
+   * Computes the scores that the predictions of the component path are
+   * built from.
+   *
+   * @param predictors	the normalised data
+   * @return		the scores
+   */
+  protected Matrix pathScores(Matrix predictors) {
+    return doPLSTransform(predictors);
+  }
+
+  /**
+   * Returns whether the algorithm can predict the whole component path.
+   *
+   * @return		true
+   */
+  @Override
+  public boolean canPredictPath() {
+    return true;
+  }
+
+  /**
+   * Performs predictions on the data for each number of components.
+   *
+   * @param predictors the input data
+   * @return the predictions per number of components
+   */
+  @Override
+  protected Matrix[] doPLSPredictPath(Matrix predictors) {
+    Matrix[]	result;
+    Matrix	T;
+    Matrix	pred;
+    int		k;
+
+    // scores of the deflated data, the predictions of k components
+    // are the sum over the first k scores times b-hat
+    T      = pathScores(predictors);
+    result = new Matrix[getNumComponents()];
+    pred   = MatrixFactory.zeros(predictors.numRows(), 1);
+    for (k = 0; k < result.length; k++) {
+      pred      = pred.add(T.getColumn(k).mul(m_b_hat.get(k, 0)));
+      result[k] = pred;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the regression vectors W_k*(P_k^T*W_k)^-1*b_hat_k for each
+   * number of components k.
+   *
+   * @return		the regression vectors, null if not configured
+   */
+  @Override
+  public Matrix[] getCoefficientPath() {
+    Matrix[]	result;
+    Matrix	W;
+    Matrix	P;
+    int		k;
+
+    if (m_W == null)
+      return null;
+
+    result = new Matrix[getNumComponents()];
+    for (k = 0; k < result.length; k++) {
+      W         = m_W.getColumns(0, k + 1);
+      P         = m_P.getColumns(0, k + 1);
+      result[k] = W.mul(P.transpose().mul(W).inverse()).mul(m_b_hat.getRows(0, k + 1));
     }
 
     return result;
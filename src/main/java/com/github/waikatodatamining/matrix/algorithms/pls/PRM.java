@@ -1,5 +1,6 @@
 package com.github.waikatodatamining.matrix.algorithms.pls;
 
+import com.github.waikatodatamining.matrix.core.algorithm.WarmStartable;
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
 import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
 
@@ -14,11 +15,17 @@ import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
  * - tol: Iterative convergence tolerance
  * - maxIter: Maximum number of iterations
  * - numSimplsCoefficients: Number of SIMPLS coefficients
+ * <p>
+ * A warm start (see {@link #setWarmStart(PRM)}) computes the initial residual
+ * weights from the residuals of the previous model's regression coefficients
+ * instead of the residuals to the median response. As the reweighting is not
+ * monotone, this does not guarantee fewer iterations.
  *
  * @author Steven Lang
  */
 public class PRM
-  extends AbstractSingleResponsePLS {
+  extends AbstractSingleResponsePLS
+  implements WarmStartable<PRM> {
 
   private static final long serialVersionUID = 4864232250283829109L;
 
@@ -52,6 +59,12 @@ public class PRM
   /** SIMPLS algorithm */
   protected SIMPLS m_Simpls;
 
+  /** Weights for transforming the predictors (in the original space) */
+  protected Matrix m_W;
+
+  /** Regression coefficients to compute the initial residual weights from (warm start) */
+  protected Matrix m_WarmStartCoefficients;
+
   /**
    * Sets the number of coefficients of W matrix to keep (rest gets zeroed).
    *
@@ -146,6 +159,25 @@ public class PRM
     }
   }
 
+  /**
+   * Sets the model to compute the initial residual weights from, using its
+   * final regression coefficients.
+   *
+   * @param model	the configured model, null to clear the warm start
+   */
+  @Override
+  public void setWarmStart(PRM model) {
+    if ((model == null) || (model.m_FinalRegressionCoefficients == null))
+      m_WarmStartCoefficients = null;
+    else
+      m_WarmStartCoefficients = model.m_FinalRegressionCoefficients.copy();
+  }
+
+  @Override
+  public boolean hasWarmStart() {
+    return m_WarmStartCoefficients != null;
+  }
+
   @Override
   protected void doReset() {
     super.doReset();
@@ -155,6 +187,7 @@ public class PRM
     m_Gamma = null;
     m_T = null;
     m_Simpls = null;
+    m_W = null;
   }
 
   @Override
@@ -252,8 +285,6 @@ public class PRM
    */
   protected void updateResidualWeights(Matrix X, Matrix y) {
     int n = X.numRows();
-    m_Wr = MatrixFactory.zeros(n, 1);
-
     Matrix residuals = MatrixFactory.zeros(n, 1);
 
     // Check if this is the first iteration
@@ -272,6 +303,17 @@ public class PRM
       residuals.set(i, 0, ri);
     }
 
+    updateResidualWeights(residuals);
+  }
+
+  /**
+   * Update the residual weights based on the given residuals.
+   *
+   * @param residuals Residuals
+   */
+  protected void updateResidualWeights(Matrix residuals) {
+    int n = residuals.numRows();
+    m_Wr = MatrixFactory.zeros(n, 1);
 
     // Get estimate of residual scale
     double sigma = medianAbsoluteDeviation(residuals);
@@ -306,6 +348,8 @@ public class PRM
     Matrix X = predictors;
     Matrix y = response;
     Matrix U = null;
+    boolean warmStart = (m_WarmStartCoefficients != null)
+      && (m_WarmStartCoefficients.numRows() == X.numColumns());
 
     // If X: n x p and p > n, use SVD to replace X with n x n matrix
     // See also: Remark 2 in paper
@@ -321,12 +365,19 @@ public class PRM
     }
 
     // 1) Compute robust starting values for residual and leverage weights
-    initWeights(X, y);
+    if (warmStart) {
+      updateResidualWeights(y.sub(predictors.mul(m_WarmStartCoefficients)));
+      updateLeverageWeights(X);
+    }
+    else {
+      initWeights(X, y);
+    }
 
     Matrix gammaOld;
     int numComponents = getNumComponents();
     m_Gamma = MatrixFactory.zeros(numComponents, 1);
     int iteration = 0;
+    double delta;
 
     // Loop until convergence of gamma
     do {
@@ -357,16 +408,20 @@ public class PRM
       iteration++;
 
       // Check for convergence
+      delta = m_Gamma.sub(gammaOld).norm2squared();
     }
-    while (m_Gamma.sub(gammaOld).norm2squared() < m_Tol && iteration < m_MaxIter);
+    while (delta >= m_Tol && iteration < m_MaxIter);
+    notifyConvergence(-1, iteration, delta, delta < m_Tol);
 
     // Get the final regression coefficients from the latest SIMPLS run
     m_FinalRegressionCoefficients = m_Simpls.getMatrix("B");
+    m_W = m_Simpls.getMatrix("W");
 
     // If X has been replaced by US, the regression coefficients need to be
-    // back-transformed into beta_hat = U*beta_p
+    // back-transformed into beta_hat = U*beta_p (likewise the weights)
     if (hasMoreColumnsThanRows){
       m_FinalRegressionCoefficients = U.mul(m_FinalRegressionCoefficients);
+      m_W = U.mul(m_W);
     }
   }
 
@@ -377,7 +432,7 @@ public class PRM
 
   @Override
   protected Matrix doPLSTransform(Matrix predictors) {
-    return predictors.mul(m_Simpls.getMatrix("W"));
+    return predictors.mul(m_W);
   }
 
   @Override
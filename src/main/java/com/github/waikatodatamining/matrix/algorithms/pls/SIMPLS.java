@@ -20,6 +20,8 @@
 
 package com.github.waikatodatamining.matrix.algorithms.pls;
 
+import com.github.waikatodatamining.matrix.core.algorithm.IntermediateCache;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
 import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
 import com.github.waikatodatamining.matrix.core.Utils;
@@ -37,6 +39,28 @@ public class SIMPLS
 
   private static final long serialVersionUID = 4899661745515419256L;
 
+  /** the maximum number of power iterations for the dominant eigenvector */
+  public static final int MAX_POWER_ITERATIONS = 500;
+
+  /** the tolerance of the power iterations */
+  public static final double POWER_TOLERANCE = 1e-12;
+
+  /**
+   * How to perform the SIMPLS iterations.
+   */
+  public enum Mode {
+    /** Explicit p x p deflation matrices and eigen decompositions. */
+    STANDARD,
+    /** Covariance-only (improved kernel algorithm): X^T*X never gets deflated,
+     * X^T*y gets orthogonalized against the accumulated basis V and the
+     * dominant direction is determined via power iteration, i.e., O(p*k)
+     * per component on top of X^T*X*w. */
+    IMPROVED_KERNEL
+  }
+
+  /** how to perform the iterations */
+  protected Mode m_Mode = Mode.STANDARD;
+
   /** the number of coefficients in W to keep (0 keep all). */
   protected int m_NumCoefficients = 0;
 
@@ -58,6 +82,7 @@ public class SIMPLS
 
     m_B = null;
     m_W = null;
+    m_Q = null;
   }
 
   /**
@@ -79,6 +104,25 @@ public class SIMPLS
     return m_NumCoefficients;
   }
 
+  /**
+   * Sets how to perform the SIMPLS iterations.
+   *
+   * @param value 	the mode
+   */
+  public void setMode(Mode value) {
+    m_Mode = value;
+    reset();
+  }
+
+  /**
+   * Returns how to perform the SIMPLS iterations.
+   *
+   * @return 		the mode
+   */
+  public Mode getMode() {
+    return m_Mode;
+  }
+
   /**
    * Returns the all the available matrices.
    *
@@ -167,22 +211,75 @@ public class SIMPLS
    * @param response   the dependent variable(s)
    */
   protected void doPLSConfigure(Matrix predictors, Matrix response) {
+    Matrix XtX;
+    Matrix Xty;
+
+    if (determineFitStrategy(predictors) == FitStrategy.GRAM) {
+      configureGram(predictors, response);
+      return;
+    }
+
+    // the cross products don't depend on the setup and can be shared
+    XtX = IntermediateCache.computeIfAbsent("SIMPLS.XtX",
+      () -> predictors.transpose().mul(predictors), predictors);
+    Xty = IntermediateCache.computeIfAbsent("SIMPLS.Xty",
+      () -> predictors.transpose().mul(response), predictors, response);
+    configureCrossProducts(XtX, Xty);
+  }
+
+  /**
+   * Returns whether the algorithm can be configured from the cross products,
+   * which is the case without preprocessing.
+   *
+   * @return		true if no preprocessing is performed
+   */
+  @Override
+  public boolean canConfigureFromCrossProducts() {
+    return getPreprocessingType() == PreprocessingType.NONE;
+  }
+
+  /**
+   * Initializes using the provided cross products.
+   *
+   * @param XtX 	the cross product of the input data
+   * @param Xty		the cross product of input data and dependent variable
+   */
+  @Override
+  protected void doPLSConfigureFromCrossProducts(Matrix XtX, Matrix Xty) {
+    if (Xty.numColumns() != 1)
+      throw new MatrixAlgorithmsException("Algorithm requires exactly one response variable, found: " + Xty.numColumns());
+
+    configureCrossProducts(XtX, Xty);
+  }
+
+  /**
+   * Performs the SIMPLS iterations, which only require the cross products.
+   *
+   * @param XtX 	the cross product of the input data (M)
+   * @param Xty		the cross product of input data and dependent variable (A)
+   */
+  protected void configureCrossProducts(Matrix XtX, Matrix Xty) {
+    if (m_Mode == Mode.IMPROVED_KERNEL) {
+      configureCrossProductsImproved(XtX, Xty);
+      return;
+    }
+
     Matrix A, A_trans;
     Matrix M;
-    Matrix X_trans;
     Matrix C, c;
     Matrix Q, q;
     Matrix W, w;
     Matrix P, p, p_trans;
     Matrix v, v_trans;
     int h;
-
-    X_trans = predictors.transpose();
-    A = X_trans.mul(response);
-    M = X_trans.mul(predictors);
-    C = MatrixFactory.eye(predictors.numColumns(), predictors.numColumns());
-    W = MatrixFactory.zeros(predictors.numColumns(), getNumComponents());
-    P = MatrixFactory.zeros(predictors.numColumns(), getNumComponents());
+    int numColumns;
+
+    numColumns = XtX.numColumns();
+    A = Xty;
+    M = XtX;
+    C = MatrixFactory.eye(numColumns, numColumns);
+    W = MatrixFactory.zeros(numColumns, getNumComponents());
+    P = MatrixFactory.zeros(numColumns, getNumComponents());
     Q = MatrixFactory.zeros(1, getNumComponents());
 
     for (h = 0; h < getNumComponents(); h++) {
@@ -226,6 +323,180 @@ public class SIMPLS
     m_Q = Q;
   }
 
+  /**
+   * Performs the SIMPLS iterations without deflation matrices. The weights
+   * w_h lie in the orthogonal complement of the previous loadings p_j
+   * (spanned by the orthonormal basis V), hence M_h*w_h = M*w_h and
+   * C_h*A = A - V*(V^T*A), i.e., neither M nor C need to be deflated or
+   * materialized.
+   *
+   * @param XtX 	the cross product of the input data (M)
+   * @param Xty		the cross product of input data and dependent variable (A)
+   */
+  protected void configureCrossProductsImproved(Matrix XtX, Matrix Xty) {
+    Matrix A, A_trans;
+    Matrix Q, q;
+    Matrix W, w;
+    Matrix V, v;
+    Matrix p;
+    double scale;
+    int h;
+    int numColumns;
+
+    numColumns = XtX.numColumns();
+    A = Xty;
+    W = MatrixFactory.zeros(numColumns, getNumComponents());
+    V = MatrixFactory.zeros(numColumns, getNumComponents());
+    Q = MatrixFactory.zeros(Xty.numColumns(), getNumComponents());
+
+    for (h = 0; h < getNumComponents(); h++) {
+      // 1. qh as dominant EigenVector of Ah'*Ah (responses x responses)
+      A_trans = A.transpose();
+      q = dominantEigenvector(A_trans.mul(A));
+
+      // 2. wh=Ah*qh, ch=wh'*M*wh, wh=wh/sqrt(ch), store wh in W as column
+      w = A.mul(q);
+      p = XtX.mul(w);
+      scale = 1.0 / StrictMath.sqrt(w.vectorDot(p));
+      w = w.mul(scale);
+      W.setColumn(h, w);
+
+      // 3. ph=M*wh (=Mh*wh), reusing the product from step 2
+      p = p.mul(scale);
+
+      // 4. qh=Ah'*wh, store qh in Q as column
+      Q.setColumn(h, A_trans.mul(w));
+
+      // 5. vh=ph-V*(V'*ph), vh=vh/||vh||, store vh in V as column
+      v = p;
+      if (h > 0)
+	v = v.sub(V.getColumns(0, h).mul(V.getColumns(0, h).transpose().mul(v)));
+      v = v.normalized();
+      V.setColumn(h, v);
+
+      // 6. Ah+1=Ah-vh*(vh'*Ah)
+      A = A.sub(v.mul(v.transpose().mul(A)));
+    }
+
+    // finish
+    if (m_NumCoefficients > 0)
+      slim(W);
+    m_W = W;
+    m_B = W.mul(Q.transpose());
+    m_Q = Q;
+  }
+
+  /**
+   * Performs the SIMPLS iterations on the n x n Gram matrix K = X*X^T of the
+   * (wide) data. All p-vectors involved lie in the row space of X, i.e.,
+   * A_h = X^T*a, w_h = X^T*a_w, p_h = M*w_h = X^T*(K*a_w) and v_h = X^T*b,
+   * so the iterations only need the n coefficients, with inner products
+   * u^T*v = a_u^T*K*a_v. Like {@link Mode#IMPROVED_KERNEL}, no deflation
+   * matrices are required. The weights get mapped to the p columns at the
+   * end with a single product.
+   *
+   * @param predictors the input data
+   * @param response   the dependent variable
+   */
+  protected void configureGram(Matrix predictors, Matrix response) {
+    Matrix K;
+    Matrix A, KA;
+    Matrix Q, q;
+    Matrix W, w;
+    Matrix V, v, Kv;
+    Matrix t;
+    double scale;
+    int h;
+    int numRows;
+
+    numRows = predictors.numRows();
+    K = gram(predictors);
+    A = response;
+    W = MatrixFactory.zeros(numRows, getNumComponents());
+    V = MatrixFactory.zeros(numRows, getNumComponents());
+    Q = MatrixFactory.zeros(response.numColumns(), getNumComponents());
+
+    for (h = 0; h < getNumComponents(); h++) {
+      // 1. qh as dominant EigenVector of Ah'*Ah = a'*K*a
+      KA = K.mul(A);
+      q = dominantEigenvector(A.transpose().mul(KA));
+
+      // 2. wh=Ah*qh, ch=wh'*M*wh=||X*wh||^2, wh=wh/sqrt(ch)
+      w = A.mul(q);
+      t = K.mul(w);
+      scale = 1.0 / StrictMath.sqrt(t.vectorDot(t));
+      w = w.mul(scale);
+      W.setColumn(h, w);
+
+      // 3. ph=M*wh=X'*(X*wh)
+      t = t.mul(scale);
+
+      // 4. qh=Ah'*wh
+      Q.setColumn(h, KA.transpose().mul(w));
+
+      // 5. vh=ph-V*(V'*ph), vh=vh/||vh||
+      v = t;
+      if (h > 0)
+	v = v.sub(V.getColumns(0, h).mul(V.getColumns(0, h).transpose().mul(K.mul(t))));
+      Kv = K.mul(v);
+      scale = 1.0 / StrictMath.sqrt(v.vectorDot(Kv));
+      v = v.mul(scale);
+      Kv = Kv.mul(scale);
+      V.setColumn(h, v);
+
+      // 6. Ah+1=Ah-vh*(vh'*Ah)
+      A = A.sub(v.mul(Kv.transpose().mul(A)));
+    }
+
+    // map the weights back to the columns
+    W = predictors.transpose().mul(W);
+
+    // finish
+    if (m_NumCoefficients > 0)
+      slim(W);
+    m_W = W;
+    m_B = W.mul(Q.transpose());
+    m_Q = Q;
+  }
+
+  /**
+   * Returns whether the model can be fit on the Gram matrix.
+   *
+   * @return		true
+   */
+  @Override
+  public boolean supportsGramFit() {
+    return true;
+  }
+
+  /**
+   * Determines the dominant eigenvector of the symmetric, positive
+   * semi-definite matrix via power iteration.
+   *
+   * @param S		the matrix
+   * @return		the normalized eigenvector
+   */
+  protected Matrix dominantEigenvector(Matrix S) {
+    Matrix	result;
+    Matrix	next;
+    int		i;
+
+    result = MatrixFactory.filled(S.numRows(), 1, 1.0).normalized();
+    for (i = 0; i < MAX_POWER_ITERATIONS; i++) {
+      next = S.mul(result);
+      if (next.norm2() == 0)
+	break;
+      next = next.normalized();
+      if (next.sub(result).norm2() < POWER_TOLERANCE) {
+	result = next;
+	break;
+      }
+      result = next;
+    }
+
+    return result;
+  }
+
   /**
    * Transforms the data.
    *
@@ -256,4 +527,63 @@ public class SIMPLS
   protected Matrix doPLSPredict(Matrix predictors) {
     return predictors.mul(m_B);
   }
+
+  /**
+   * Returns whether the algorithm can predict the whole component path.
+   *
+   * @return		true
+   */
+  @Override
+  public boolean canPredictPath() {
+    return true;
+  }
+
+  /**
+   * Performs predictions on the data for each number of components.
+   *
+   * @param predictors the input data
+   * @return the predictions per number of components
+   */
+  @Override
+  protected Matrix[] doPLSPredictPath(Matrix predictors) {
+    Matrix[]	result;
+    Matrix	T;
+    Matrix	pred;
+    int		k;
+
+    T      = predictors.mul(m_W);
+    result = new Matrix[m_W.numColumns()];
+    pred   = MatrixFactory.zeros(predictors.numRows(), m_Q.numRows());
+    for (k = 0; k < result.length; k++) {
+      pred      = pred.add(T.getColumn(k).mul(m_Q.getColumn(k).transpose()));
+      result[k] = pred;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the cumulative regression coefficients W_k*Q_k^T for each
+   * number of components k.
+   *
+   * @return		the coefficients, null if not configured
+   */
+  @Override
+  public Matrix[] getCoefficientPath() {
+    Matrix[]	result;
+    Matrix	B;
+    int		k;
+
+    if (m_W == null)
+      return null;
+
+    result = new Matrix[m_W.numColumns()];
+    B      = MatrixFactory.zeros(m_W.numRows(), m_Q.numRows());
+    for (k = 0; k < result.length; k++) {
+      B         = B.add(m_W.getColumn(k).mul(m_Q.getColumn(k).transpose()));
+      result[k] = B;
+    }
+
+    return result;
+  }
 }
@@ -20,13 +20,16 @@
 
 package com.github.waikatodatamining.matrix.algorithms.pls;
 
+import com.github.waikatodatamining.matrix.core.Tuple;
+import com.github.waikatodatamining.matrix.core.algorithm.IntermediateCache;
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
 import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
 import com.github.waikatodatamining.matrix.algorithms.Standardize;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 
 /**
@@ -61,7 +64,8 @@ public class SparsePLS
   /** Sparsity parameter. Determines sparseness. */
   protected double m_lambda = 0.5;
 
-  protected Set<Integer> m_A;
+  /** Active set, i.e., the sorted indices of the selected features. */
+  protected int[] m_A;
 
   /** Loadings. */
   protected Matrix m_W;
@@ -179,105 +183,136 @@ public class SparsePLS
 
   /**
    * Initializes using the provided data.
+   * <br>
+   * The standardized columns get extracted once. For every component, only
+   * the cross products X_A^T*X_A of features that entered the active set A
+   * get computed, the ones of the previous active set are reused. The
+   * regression coefficients on A are obtained from these cross products
+   * with {@link SIMPLS}, which equals NIPALS for a single response.
    *
    * @param predictors the input data
    * @param response   the dependent variable(s)
    */
   protected void doPLSConfigure(Matrix predictors, Matrix response) {
-    Matrix X, y, wk;
-    getLogger();
-
-    X = m_StandardizeX.configureAndTransform(predictors);
-    y = m_StandardizeY.configureAndTransform(response);
-    Matrix Xj = X.copy();
-    Matrix yj = y.copy();
-    m_A = new TreeSet<>();
+    Matrix X, Xt, y, yj, wk;
+    Matrix Bpls_A;
+    double[][] columns;
+    double[][] XtX_A;
+    double[] Xty;
+    double[] residual;
+    int[] previous;
+
+    Tuple<Standardize, Matrix> standardized;
+    standardized = IntermediateCache.configureAndTransform("Standardize", Standardize::new, predictors);
+    m_StandardizeX = standardized.getFirst();
+    X = standardized.getSecond();
+    standardized = IntermediateCache.configureAndTransform("Standardize", Standardize::new, response);
+    m_StandardizeY = standardized.getFirst();
+    y = standardized.getSecond();
+    Xt = X.transpose();
+    columns = Xt.toRawCopy2D();
+    Xty = Xt.mul(y).toRawCopy1D();
+    yj = y;
+    m_A = new int[0];
+    XtX_A = new double[0][0];
     m_Bpls = MatrixFactory.zeros(X.numColumns(), y.numColumns());
     m_W = MatrixFactory.zeros(X.numColumns(), getNumComponents());
 
     for (int k = 0; k < getNumComponents(); k++) {
-      wk = getDirectionVector(Xj, yj, k);
+      wk = getDirectionVector(Xt, yj);
       m_W.setColumn(k, wk);
 
       if (m_Debug) {
 	checkDirectionVector(wk);
       }
 
+      previous = m_A;
       collectIndices(wk);
-
-      Matrix X_A = getColumnSubmatrixOf(X);
-      m_Bpls = MatrixFactory.zeros(X.numColumns(), y.numColumns());
-      Matrix Bpls_A = getRegressionCoefficient(X_A, y, k);
+      XtX_A = updateCrossProducts(columns, previous, XtX_A);
+      Bpls_A = getRegressionCoefficient(XtX_A, Xty, k);
 
       // Fill m_Bpls values at non zero indices with estimated
       // regression coefficients
-      int idxCounter = 0;
-      for (Integer idx : m_A) {
-	m_Bpls.setRow(idx, Bpls_A.getRow(idxCounter++));
+      m_Bpls = MatrixFactory.zeros(X.numColumns(), y.numColumns());
+      for (int i = 0; i < m_A.length; i++) {
+	m_Bpls.set(m_A[i], 0, Bpls_A.get(i, 0));
       }
 
-      // Deflate
-      yj = y.sub(X.mul(m_Bpls));
+      // Deflate, using the active columns only
+      residual = y.toRawCopy1D();
+      for (int i = 0; i < m_A.length; i++) {
+	double[] column = columns[m_A[i]];
+	double b = Bpls_A.get(i, 0);
+	for (int n = 0; n < residual.length; n++)
+	  residual[n] -= column[n] * b;
+      }
+      yj = MatrixFactory.fromColumn(residual);
     }
 
     if (m_Debug) {
       getLogger().info("Selected following features " +
-	"(" + m_A.size() + "/" + X.numColumns() + "): ");
-      List<String> l = m_A.stream().map(String::valueOf).collect(Collectors.toList());
+	"(" + m_A.length + "/" + X.numColumns() + "): ");
+      List<String> l = Arrays.stream(m_A).mapToObj(String::valueOf).collect(Collectors.toList());
       getLogger().info(String.join(",", l));
     }
   }
 
   /**
-   * Calculate NIPALS regression coefficients.
+   * Calculate the PLS regression coefficients on the active set.
    *
-   * @param X_A Predictors subset
-   * @param y   Current response vector
-   * @param k   PLS iteration
-   * @return Bpls (NIPALS regression coefficients)
+   * @param XtX_A Cross products of the active features
+   * @param Xty   Cross products of all features and the response
+   * @param k     PLS iteration
+   * @return Bpls (regression coefficients of the active features)
    */
-  private Matrix getRegressionCoefficient(Matrix X_A, Matrix y, int k) {
-    int numComponents = Math.min(X_A.numColumns(), k + 1);
-    NIPALS nipals = new NIPALS();
-    nipals.setMaxIter(m_MaxIter);
-    nipals.setTol(m_Tol);
-    nipals.setNumComponents(numComponents);
-    nipals.configure(X_A, y);
-    return nipals.getCoef();
+  private Matrix getRegressionCoefficient(double[][] XtX_A, double[] Xty, int k) {
+    double[] Xty_A = new double[m_A.length];
+    for (int i = 0; i < m_A.length; i++)
+      Xty_A[i] = Xty[m_A[i]];
+
+    SIMPLS simpls = new SIMPLS();
+    simpls.setPreprocessingType(PreprocessingType.NONE);
+    simpls.setMode(SIMPLS.Mode.IMPROVED_KERNEL);
+    simpls.setNumComponents(Math.min(m_A.length, k + 1));
+    simpls.configureFromCrossProducts(MatrixFactory.fromRaw(XtX_A), MatrixFactory.fromColumn(Xty_A));
+    return simpls.getMatrix("B");
   }
 
   /**
-   * Get the column submatrix of X given by the indices in m_A
+   * Computes the cross products of the features in m_A, reusing the ones of
+   * the features that were already in the previous active set.
    *
-   * @param X Input Matrix
-   * @return Submatrix of x
+   * @param columns  Standardized feature columns
+   * @param previous Previous active set
+   * @param XtX      Cross products of the previous active set
+   * @return Cross products of the current active set
    */
-  private Matrix getColumnSubmatrixOf(Matrix X) {
-    Matrix X_A = MatrixFactory.zeros(X.numRows(), m_A.size());
-    int colCount = 0;
-    for (Integer i : m_A) {
-      Matrix col = X.getColumn(i);
-      X_A.setColumn(colCount, col);
-      colCount++;
+  private double[][] updateCrossProducts(double[][] columns, int[] previous, double[][] XtX) {
+    double[][] result = new double[m_A.length][m_A.length];
+    int[] positions = new int[m_A.length];
+
+    for (int i = 0; i < m_A.length; i++)
+      positions[i] = Arrays.binarySearch(previous, m_A[i]);
+
+    for (int i = 0; i < m_A.length; i++) {
+      for (int j = i; j < m_A.length; j++) {
+	double value;
+	if (positions[i] >= 0 && positions[j] >= 0) {
+	  value = XtX[positions[i]][positions[j]];
+	}
+	else {
+	  double[] ci = columns[m_A[i]];
+	  double[] cj = columns[m_A[j]];
+	  value = 0;
+	  for (int n = 0; n < ci.length; n++)
+	    value += ci[n] * cj[n];
+	}
+	result[i][j] = value;
+	result[j][i] = value;
+      }
     }
-    return X_A;
-  }
 
-  /**
-   * Get the row submatrix of X given by the indices in m_A
-   *
-   * @param X Input Matrix
-   * @return Submatrix of x
-   */
-  private Matrix getRowSubmatrixOf(Matrix X) {
-    Matrix X_A = MatrixFactory.zeros(m_A.size(), X.numColumns());
-    int rowCount = 0;
-    for (Integer i : m_A) {
-      Matrix row = X.getRow(i);
-      X_A.setRow(rowCount, row);
-      rowCount++;
-    }
-    return X_A;
+    return result;
   }
 
   /**
@@ -286,9 +321,12 @@ public class SparsePLS
    * @param w Direction Vector
    */
   private void collectIndices(Matrix w) {
-    m_A.clear();
-    m_A.addAll(w.whereVector(d -> Math.abs(d) > 1e-6));
-    m_A.addAll(m_Bpls.whereVector(d -> Math.abs(d) > 1e-6));
+    BitSet active = new BitSet(w.numRows());
+    for (int i : w.whereVector(d -> Math.abs(d) > 1e-6))
+      active.set(i);
+    for (int i : m_Bpls.whereVector(d -> Math.abs(d) > 1e-6))
+      active.set(i);
+    m_A = active.stream().toArray();
   }
 
   /**
@@ -306,13 +344,12 @@ public class SparsePLS
   /**
    * Compute the direction vector.
    *
-   * @param X  Predictors
+   * @param Xt Transposed predictors
    * @param yj Current deflated response
-   * @param k  Iteration
    * @return Direction vector
    */
-  private Matrix getDirectionVector(Matrix X, Matrix yj, int k) {
-    Matrix Zp = X.t().mul(yj);
+  private Matrix getDirectionVector(Matrix Xt, Matrix yj) {
+    Matrix Zp = Xt.mul(yj);
     //    Zp.divi(Zp.norm2()); // Reference paper uses l2 norm
     double znorm = Zp.abs().median(); // R package spls uses median norm
     Zp = Zp.div(znorm);
@@ -421,8 +458,8 @@ public class SparsePLS
   protected Matrix doPLSPredict(Matrix predictors) {
     Matrix X = m_StandardizeX.transform(predictors);
 
-    Matrix X_A = getColumnSubmatrixOf(X);
-    Matrix B_A = getRowSubmatrixOf(m_Bpls);
+    Matrix X_A = X.getSubMatrix(IntStream.range(0, X.numRows()).toArray(), m_A);
+    Matrix B_A = m_Bpls.getSubMatrix(m_A, IntStream.range(0, m_Bpls.numColumns()).toArray());
 
     Matrix yMeans = MatrixFactory.fromColumn(m_StandardizeY.getMeans());
     Matrix yStd = MatrixFactory.fromColumn(m_StandardizeY.getStdDevs());
@@ -45,6 +45,66 @@ public class VCPLS extends PLS1 {
     reset();
   }
 
+  /**
+   * The weights aren't the covariances X_k^T*y, hence no fit on the Gram
+   * matrix.
+   *
+   * @return		false
+   */
+  @Override
+  public boolean supportsGramFit() {
+    return false;
+  }
+
+  /**
+   * Performs predictions on the data, via the deflated scores.
+   *
+   * @param predictors the input data
+   * @return the predictions
+   */
+  @Override
+  protected Matrix doPLSPredict(Matrix predictors) {
+    return deflatedScores(predictors).mul(m_b_hat);
+  }
+
+  /**
+   * Computes the scores of the component path via the deflated scores.
+   *
+   * @param predictors	the normalised data
+   * @return		the scores
+   */
+  @Override
+  protected Matrix pathScores(Matrix predictors) {
+    return deflatedScores(predictors);
+  }
+
+  /**
+   * Computes the scores by deflating the whole batch component by component,
+   * exactly like the training data. Unlike {@link #doPLSTransform(Matrix)}
+   * this doesn't go through the rotation matrix: b-hat can become huge for
+   * the (nearly) vanishing components of VCPLS, amplifying any rounding
+   * differences of the scores (or of the regression vector).
+   *
+   * @param predictors	the normalised data
+   * @return		the scores
+   */
+  protected Matrix deflatedScores(Matrix predictors) {
+    Matrix	result;
+    Matrix	X, t;
+    int		j;
+
+    result = MatrixFactory.zeros(predictors.numRows(), getNumComponents());
+    X      = predictors;
+    for (j = 0; j < getNumComponents(); j++) {
+      // tj = Xj * wj, Xj+1 = Xj - tj*pj^T
+      t = X.mul(m_W.getColumn(j));
+      result.setColumn(j, t);
+      X = X.sub(t.mul(m_P.getColumn(j).transpose()));
+    }
+
+    return result;
+  }
+
   @Override
   protected Matrix calculateWeights(Matrix xk, Matrix y) {
     // Paper notation
@@ -1,21 +1,56 @@
 package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
 
 
+import com.github.waikatodatamining.matrix.core.exceptions.InvalidShapeException;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.core.matrix.AllocationTracker;
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
 import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
 
 import java.io.Serializable;
+import java.util.stream.IntStream;
 
 /**
  * Abstract kernel class. Implementations represent kernels that compute a dot product of two given
  * vectors in the kernel space (see {@link AbstractKernel#applyVector(Matrix, Matrix)}).
  * That is: K(x,y) = phi(x)*phi(y)
+ * <p>
+ * The kernel matrices are computed via {@link #applyMatrixInto(Matrix, Matrix, Matrix)} and
+ * {@link #applyMatrixInto(Matrix, Matrix)}, which sub-classes should override with
+ * vectorized implementations where possible.
  *
  * @author Steven Lang
  */
 public abstract class AbstractKernel implements Serializable {
     private static final long serialVersionUID = 8820493548875411535L;
 
+    /**
+     * Size of the square tiles the kernel matrices are computed in.
+     */
+    protected static final int TILE_SIZE = 64;
+
+    /**
+     * Minimum number of rows before tiles get computed in parallel.
+     */
+    protected static final int PARALLEL_THRESHOLD = 4 * TILE_SIZE;
+
+    /**
+     * Computes a single tile of a kernel matrix.
+     */
+    @FunctionalInterface
+    protected interface Tile {
+
+        /**
+         * Computes the entries of the tile.
+         *
+         * @param rowStart          First row (inclusive)
+         * @param rowEnd            Last row (exclusive)
+         * @param columnStart       First column (inclusive)
+         * @param columnEnd         Last column (exclusive)
+         */
+        void compute(int rowStart, int rowEnd, int columnStart, int columnEnd);
+    }
+
     /**
      * Compute the dot product of the mapped x and y vectors in the kernel space, that is:
      * K(x,y) = phi(x)*phi(y)
@@ -26,43 +61,186 @@ public abstract class AbstractKernel implements Serializable {
      */
     public abstract double applyVector(Matrix x, Matrix y);
 
+    /**
+     * Whether the kernel provides an explicit, finite-dimensional approximation
+     * of its feature map (see {@link #createFeatureMap(int, int, long)}).
+     *
+     * @return True if a feature map can be created
+     */
+    public boolean hasFeatureMap() {
+        return false;
+    }
+
+    /**
+     * Create an explicit, finite-dimensional feature map phi with
+     * K(x,y) ~ phi(x)*phi(y). Kernels that support this override
+     * {@link #hasFeatureMap()} as well.
+     *
+     * @param numColumns  Number of columns of the data
+     * @param numFeatures Number of features to create
+     * @param seed        Seed for randomized feature maps
+     * @return The feature map
+     */
+    public FeatureMap createFeatureMap(int numColumns, int numFeatures, long seed) {
+        throw new MatrixAlgorithmsException(getClass().getSimpleName() + " has no explicit feature map!");
+    }
+
+    /**
+     * Whether the rows of the data identify the samples of a precomputed
+     * kernel matrix rather than holding their features. Such data must not be
+     * transformed (e.g., centered) before applying the kernel.
+     *
+     * @return True if precomputed
+     */
+    public boolean isPrecomputed() {
+        return false;
+    }
+
+    /**
+     * Key describing the kernel and all its parameters exactly, for caching
+     * the kernel matrices in the {@link KernelCache}.
+     *
+     * @return The key, null if the kernel matrices must not be cached
+     */
+    public String getCacheKey() {
+        return null;
+    }
+
     /**
      * Create a matrix K that consists of entries K_i,j = K(x_i,y_j) = phi(x_i)*phi(y_j)
+     * (via the {@link KernelCache}, if enabled).
      *
      * @param X First matrix
      * @param Y Second matrix
      * @return Matrix K with K_i,j = K(x_i,y_j) = phi(x_i)*phi(y_j)
      */
     public Matrix applyMatrix(Matrix X, Matrix Y) {
-        Matrix result = MatrixFactory.zeros(X.numRows(), Y.numRows());
-        for (int i = 0; i < X.numRows(); i++) {
-            for (int j = 0; j < Y.numRows(); j++) {
-                Matrix rowI = X.getRow(i);
-                Matrix rowJ = Y.getRow(j);
-                double value = applyVector(rowI, rowJ);
-                result.set(i, j, value);
-            }
+        if (KernelCache.isEnabled() && (getCacheKey() != null)) {
+            return KernelCache.get(getCacheKey(), () -> {
+                Matrix result = MatrixFactory.zeros(X.numRows(), Y.numRows());
+                applyMatrixInto(X, Y, result);
+                return result;
+            }, X, Y).copy();
         }
+        Matrix result = MatrixFactory.zeros(X.numRows(), Y.numRows());
+        applyMatrixInto(X, Y, result);
         return result;
     }
+
     /**
      * Create a matrix K that consists of entries K_i,j = K(x_i,x_j) = phi(x_i)*phi(x_j)
+     * (via the {@link KernelCache}, if enabled).
      *
      * @param X First matrix
      * @return Matrix K with K_i,j = K(x_i,x_j) = phi(x_i)*phi(x_j)
      */
     public Matrix applyMatrix(Matrix X) {
-        int n = X.numRows();
-        Matrix result = MatrixFactory.zeros(n, n);
-        for (int i = 0; i < X.numRows(); i++) {
-            for (int j = i; j < n; j++) {
-                Matrix rowI = X.getRow(i);
-                Matrix rowJ = X.getRow(j);
-                double value = applyVector(rowI, rowJ);
-                result.set(i, j, value);
-                result.set(j, i, value);
+        if (KernelCache.isEnabled() && (getCacheKey() != null)) {
+            return KernelCache.get(getCacheKey(), () -> {
+                Matrix result = MatrixFactory.zeros(X.numRows(), X.numRows());
+                applyMatrixInto(X, result);
+                return result;
+            }, X).copy();
+        }
+        Matrix result = MatrixFactory.zeros(X.numRows(), X.numRows());
+        applyMatrixInto(X, result);
+        return result;
+    }
+
+    /**
+     * Write the entries K_i,j = K(x_i,y_j) = phi(x_i)*phi(y_j) into the given matrix.
+     * The result must be a (non-view) matrix created via {@link MatrixFactory}.
+     *
+     * @param X      First matrix
+     * @param Y      Second matrix
+     * @param result Matrix of shape X.numRows() x Y.numRows() to write K to
+     */
+    public void applyMatrixInto(Matrix X, Matrix Y, Matrix result) {
+        checkShape(X.numRows(), Y.numRows(), result);
+        Matrix[] rowsX = rows(X);
+        Matrix[] rowsY = rows(Y);
+        forEachTile(X.numRows(), Y.numRows(), false, (rowStart, rowEnd, columnStart, columnEnd) -> {
+            for (int i = rowStart; i < rowEnd; i++) {
+                for (int j = columnStart; j < columnEnd; j++) {
+                    result.set(i, j, applyVector(rowsX[i], rowsY[j]));
+                }
+            }
+        });
+    }
+
+    /**
+     * Write the entries K_i,j = K(x_i,x_j) = phi(x_i)*phi(x_j) into the given matrix.
+     * Only the upper triangle gets computed (in parallel tiles for larger matrices)
+     * and mirrored. The result must be a (non-view) matrix created via {@link MatrixFactory}.
+     *
+     * @param X      First matrix
+     * @param result Matrix of shape X.numRows() x X.numRows() to write K to
+     */
+    public void applyMatrixInto(Matrix X, Matrix result) {
+        checkShape(X.numRows(), X.numRows(), result);
+        Matrix[] rowsX = rows(X);
+        forEachTile(X.numRows(), X.numRows(), true, (rowStart, rowEnd, columnStart, columnEnd) -> {
+            for (int i = rowStart; i < rowEnd; i++) {
+                for (int j = Math.max(i, columnStart); j < columnEnd; j++) {
+                    double value = applyVector(rowsX[i], rowsX[j]);
+                    result.set(i, j, value);
+                    result.set(j, i, value);
+                }
             }
+        });
+    }
+
+    /**
+     * Extract the rows of the matrix once, rather than for every pair.
+     *
+     * @param X Matrix
+     * @return The rows
+     */
+    protected Matrix[] rows(Matrix X) {
+        Matrix[] result = new Matrix[X.numRows()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = X.getRow(i);
         }
         return result;
     }
+
+    /**
+     * Check the shape of the matrix to write the kernel matrix to.
+     *
+     * @param numRows    Expected number of rows
+     * @param numColumns Expected number of columns
+     * @param result     Matrix to check
+     */
+    protected void checkShape(int numRows, int numColumns, Matrix result) {
+        if ((result.numRows() != numRows) || (result.numColumns() != numColumns)) {
+            throw new InvalidShapeException("Kernel matrix must have shape " + numRows + "x" + numColumns
+                + " but has shape " + result.shapeString());
+        }
+    }
+
+    /**
+     * Compute a kernel matrix tile by tile, in parallel for larger matrices.
+     * Tiles write to disjoint entries, apart from the mirrored ones on the
+     * diagonal tiles of symmetric matrices, which receive identical values.
+     *
+     * @param numRows    Number of rows
+     * @param numColumns Number of columns
+     * @param upper      Whether only the tiles of the upper triangle are required
+     * @param tile       Computation of a tile
+     */
+    protected void forEachTile(int numRows, int numColumns, boolean upper, Tile tile) {
+        int tileRows = (numRows + TILE_SIZE - 1) / TILE_SIZE;
+        int tileColumns = (numColumns + TILE_SIZE - 1) / TILE_SIZE;
+        IntStream tiles = IntStream.range(0, tileRows * tileColumns)
+            .filter(t -> !upper || (t % tileColumns >= t / tileColumns));
+        if (Math.max(numRows, numColumns) >= PARALLEL_THRESHOLD) {
+            tiles = tiles.parallel();
+        }
+        tiles.forEach(AllocationTracker.propagate(t -> {
+            int rowStart = (t / tileColumns) * TILE_SIZE;
+            int columnStart = (t % tileColumns) * TILE_SIZE;
+            tile.compute(rowStart, Math.min(numRows, rowStart + TILE_SIZE),
+                columnStart, Math.min(numColumns, columnStart + TILE_SIZE));
+        }));
+    }
 }
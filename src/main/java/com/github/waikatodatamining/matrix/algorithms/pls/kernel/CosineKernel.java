@@ -0,0 +1,70 @@
+package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
+
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+
+/**
+ * Cosine Kernel.
+ * <p>
+ * K(x,y) = x^T*y/(||x||*||y||)
+ * <p>
+ * Rows with zero norm have a similarity of 0 to all rows.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class CosineKernel extends AbstractKernel {
+
+  private static final long serialVersionUID = 6018943925107632178L;
+
+  /**
+   * Compute the reciprocal l2-norms of the rows, 0 for rows with zero norm.
+   *
+   * @param X Matrix
+   * @return Reciprocal norms
+   */
+  protected double[] inverseNorms(Matrix X) {
+    double[][] rows = X.toRawCopy2D();
+    double[] result = new double[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      double sum = 0;
+      for (double value : rows[i])
+	sum += value * value;
+      result[i] = (sum > 0) ? 1.0 / StrictMath.sqrt(sum) : 0.0;
+    }
+    return result;
+  }
+
+  @Override
+  public double applyVector(Matrix x, Matrix y) {
+    double norms = x.norm2() * y.norm2();
+    return (norms > 0) ? x.vectorDot(y) / norms : 0.0;
+  }
+
+  @Override
+  public void applyMatrixInto(Matrix X, Matrix Y, Matrix result) {
+    checkShape(X.numRows(), Y.numRows(), result);
+    double[][] gram = X.mul(Y.transpose()).toRawCopy2D();
+    double[] normsX = inverseNorms(X);
+    double[] normsY = (X == Y) ? normsX : inverseNorms(Y);
+    forEachTile(X.numRows(), Y.numRows(), false, (rowStart, rowEnd, columnStart, columnEnd) -> {
+      for (int i = rowStart; i < rowEnd; i++) {
+	for (int j = columnStart; j < columnEnd; j++)
+	  result.set(i, j, gram[i][j] * normsX[i] * normsY[j]);
+      }
+    });
+  }
+
+  @Override
+  public void applyMatrixInto(Matrix X, Matrix result) {
+    applyMatrixInto(X, X, result);
+  }
+
+  @Override
+  public String getCacheKey() {
+    return "CosineKernel";
+  }
+
+  @Override
+  public String toString() {
+    return "Cosine Kernel: K(x,y)=x^T*y/(||x||*||y||)";
+  }
+}
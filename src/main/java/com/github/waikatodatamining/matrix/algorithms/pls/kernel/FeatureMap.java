@@ -0,0 +1,29 @@
+package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
+
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+
+import java.io.Serializable;
+
+/**
+ * Explicit, finite-dimensional feature map phi of a kernel, with
+ * K(x,y) ~ phi(x)*phi(y). See {@link AbstractKernel#createFeatureMap(int, int, long)}.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public interface FeatureMap extends Serializable {
+
+  /**
+   * Map the rows to the feature space.
+   *
+   * @param X Rows to map
+   * @return Matrix with the features of the i-th row in the i-th row
+   */
+  Matrix apply(Matrix X);
+
+  /**
+   * Get the number of features.
+   *
+   * @return Number of features
+   */
+  int numFeatures();
+}
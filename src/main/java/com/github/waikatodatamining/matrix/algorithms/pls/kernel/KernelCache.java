@@ -0,0 +1,266 @@
+package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
+
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Opt-in, process-wide cache of kernel evaluations, bounded by a memory
+ * budget with least-recently-used eviction.
+ * <p>
+ * Unlike the {@link com.github.waikatodatamining.matrix.core.algorithm.IntermediateCache},
+ * which compares its inputs by identity and is only active within a parameter
+ * search, entries are keyed by the shapes and 64-bit fingerprints of the data
+ * (see {@link Matrix#fingerprint()}) and a key describing the kernel and its
+ * parameters (see {@link AbstractKernel#getCacheKey()}). Repeated fits on
+ * equal data, e.g., the folds of repeated cross-validations, therefore share
+ * the kernel matrices. Intermediates that don't depend on all parameters
+ * (e.g., the pairwise distances of the {@link RBFKernel}) are cached as
+ * separate entries, so a sweep over those parameters only computes them once.
+ * Since only the fingerprints are compared, data of equal shape with colliding
+ * fingerprints would share entries, which is negligibly rare for the number
+ * of entries a cache holds.
+ * <p>
+ * The cache is disabled by default (a budget of 0 bytes). Cached matrices are
+ * shared and must never be modified. Values get computed outside of the lock,
+ * i.e., concurrent requests for a missing entry may compute it more than once.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class KernelCache {
+
+  /** the number of bytes per matrix element. */
+  protected static final long BYTES_PER_ELEMENT = 8;
+
+  /** the maximum number of bytes of the cached matrices, 0 to disable. */
+  protected static long m_MaxBytes = 0;
+
+  /** the cached matrices, in access order. */
+  protected static final LinkedHashMap<Key, Matrix> m_Entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** the number of bytes of the cached matrices. */
+  protected static long m_NumBytes = 0;
+
+  /** the number of cache hits. */
+  protected static long m_Hits = 0;
+
+  /** the number of cache misses. */
+  protected static long m_Misses = 0;
+
+  /**
+   * Sets the maximum number of bytes of the cached matrices, evicting the
+   * least recently used ones if necessary.
+   *
+   * @param value	the number of bytes, 0 to disable the cache
+   */
+  public static synchronized void setMaxBytes(long value) {
+    if (value < 0)
+      throw new MatrixAlgorithmsException("Maximum number of bytes must be at least 0 but was " + value + "!");
+    m_MaxBytes = value;
+    evict();
+  }
+
+  /**
+   * Returns the maximum number of bytes of the cached matrices.
+   *
+   * @return		the number of bytes, 0 if disabled
+   */
+  public static synchronized long getMaxBytes() {
+    return m_MaxBytes;
+  }
+
+  /**
+   * Returns whether the cache is enabled.
+   *
+   * @return		true if enabled
+   */
+  public static synchronized boolean isEnabled() {
+    return m_MaxBytes > 0;
+  }
+
+  /**
+   * Returns the cached matrix for the key and inputs, computing (and caching)
+   * it if necessary. If the cache is disabled or the key is null, the matrix
+   * simply gets computed.
+   *
+   * @param key		the kernel and parameters the matrix depends on, null if not cacheable
+   * @param compute	computes the matrix
+   * @param inputs	the data the matrix depends on (compared by fingerprint)
+   * @return		the matrix, must not be modified
+   */
+  public static Matrix get(String key, Supplier<Matrix> compute, Matrix... inputs) {
+    Key		entryKey;
+    Matrix	result;
+
+    if ((key == null) || !isEnabled())
+      return compute.get();
+
+    entryKey = new Key(key, inputs);
+    synchronized (KernelCache.class) {
+      result = m_Entries.get(entryKey);
+      if (result != null) {
+	m_Hits++;
+	return result;
+      }
+      m_Misses++;
+    }
+
+    result = compute.get();
+    put(entryKey, result);
+
+    return result;
+  }
+
+  /**
+   * Adds the matrix and evicts the least recently used ones if the memory
+   * budget is exceeded. Matrices exceeding the budget on their own are not
+   * cached.
+   *
+   * @param key		the key
+   * @param matrix	the matrix
+   */
+  protected static synchronized void put(Key key, Matrix matrix) {
+    Matrix	previous;
+    long	bytes;
+
+    bytes = bytes(matrix);
+    if (bytes > m_MaxBytes)
+      return;
+
+    previous = m_Entries.put(key, matrix);
+    if (previous != null)
+      m_NumBytes -= bytes(previous);
+    m_NumBytes += bytes;
+    evict();
+  }
+
+  /**
+   * Evicts the least recently used matrices until the memory budget is met.
+   */
+  protected static void evict() {
+    Iterator<Map.Entry<Key, Matrix>>	iter;
+
+    iter = m_Entries.entrySet().iterator();
+    while ((m_NumBytes > m_MaxBytes) && iter.hasNext()) {
+      m_NumBytes -= bytes(iter.next().getValue());
+      iter.remove();
+    }
+  }
+
+  /**
+   * Returns the number of bytes of the matrix.
+   *
+   * @param matrix	the matrix
+   * @return		the number of bytes
+   */
+  protected static long bytes(Matrix matrix) {
+    return (long) matrix.numRows() * matrix.numColumns() * BYTES_PER_ELEMENT;
+  }
+
+  /**
+   * Returns the number of cached matrices.
+   *
+   * @return		the number of matrices
+   */
+  public static synchronized int size() {
+    return m_Entries.size();
+  }
+
+  /**
+   * Returns the number of bytes of the cached matrices.
+   *
+   * @return		the number of bytes
+   */
+  public static synchronized long getNumBytes() {
+    return m_NumBytes;
+  }
+
+  /**
+   * Returns the number of requests served from the cache.
+   *
+   * @return		the number of hits
+   */
+  public static synchronized long getHits() {
+    return m_Hits;
+  }
+
+  /**
+   * Returns the number of requests that required a computation.
+   *
+   * @return		the number of misses
+   */
+  public static synchronized long getMisses() {
+    return m_Misses;
+  }
+
+  /**
+   * Removes all cached matrices and resets the counters.
+   */
+  public static synchronized void clear() {
+    m_Entries.clear();
+    m_NumBytes = 0;
+    m_Hits = 0;
+    m_Misses = 0;
+  }
+
+  /**
+   * Key consisting of the kernel key and the shapes and fingerprints of the
+   * inputs. The fingerprints are 64-bit hashes of the values, i.e., inputs of
+   * equal shape are assumed to be equal if their fingerprints match. Inputs of
+   * different shapes never share an entry.
+   */
+  protected static class Key {
+
+    /** the kernel key. */
+    protected final String m_Name;
+
+    /** the number of rows and columns of the inputs. */
+    protected final int[] m_Dimensions;
+
+    /** the fingerprints of the inputs. */
+    protected final long[] m_Fingerprints;
+
+    /** the hash code. */
+    protected final int m_Hash;
+
+    /**
+     * Initializes the key.
+     *
+     * @param name	the kernel key
+     * @param inputs	the inputs
+     */
+    protected Key(String name, Matrix[] inputs) {
+      m_Name         = name;
+      m_Dimensions   = new int[2 * inputs.length];
+      m_Fingerprints = new long[inputs.length];
+      for (int i = 0; i < inputs.length; i++) {
+	m_Dimensions[2 * i]     = inputs[i].numRows();
+	m_Dimensions[2 * i + 1] = inputs[i].numColumns();
+	m_Fingerprints[i]       = inputs[i].fingerprint();
+      }
+      m_Hash = 31 * (31 * name.hashCode() + Arrays.hashCode(m_Dimensions)) + Arrays.hashCode(m_Fingerprints);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      Key	other;
+
+      if (!(o instanceof Key))
+	return false;
+      other = (Key) o;
+      return m_Name.equals(other.m_Name)
+	&& Arrays.equals(m_Dimensions, other.m_Dimensions)
+	&& Arrays.equals(m_Fingerprints, other.m_Fingerprints);
+    }
+
+    @Override
+    public int hashCode() {
+      return m_Hash;
+    }
+  }
+}
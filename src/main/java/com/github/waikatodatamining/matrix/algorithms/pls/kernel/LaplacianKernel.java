@@ -0,0 +1,133 @@
+package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
+
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+
+import java.util.Random;
+
+/**
+ * Laplacian Kernel.
+ * <p>
+ * K(x,y) = exp(-1*gamma*||x - y||_1)
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class LaplacianKernel extends AbstractKernel {
+
+  private static final long serialVersionUID = -3468270528469015542L;
+
+  protected double m_Gamma = Double.NaN;
+
+  /**
+   * Get the gamma parameter.
+   * Defaults: 1/n_features
+   */
+  public double getGamma() {
+    return m_Gamma;
+  }
+
+  /**
+   * Set the gamma parameter.
+   *
+   * @param gamma Gamma parameter
+   */
+  public void setGamma(double gamma) {
+    this.m_Gamma = gamma;
+  }
+
+  /**
+   * Get the gamma to use for data with the given number of columns, i.e.,
+   * 1/numColumns if gamma is NaN.
+   *
+   * @param numColumns Number of columns of the data
+   * @return Effective gamma
+   */
+  protected double gamma(int numColumns) {
+    return Double.isNaN(m_Gamma) ? 1.0 / numColumns : m_Gamma;
+  }
+
+  /**
+   * Compute the l1-distance of two rows.
+   *
+   * @param x First row
+   * @param y Second row
+   * @return ||x - y||_1
+   */
+  protected double distance(double[] x, double[] y) {
+    double result = 0;
+    for (int k = 0; k < x.length; k++)
+      result += Math.abs(x[k] - y[k]);
+    return result;
+  }
+
+  @Override
+  public double applyVector(Matrix x, Matrix y) {
+    return StrictMath.exp(-1 * gamma(x.numColumns()) * distance(x.toRawCopy1D(), y.toRawCopy1D()));
+  }
+
+  @Override
+  public void applyMatrixInto(Matrix X, Matrix Y, Matrix result) {
+    checkShape(X.numRows(), Y.numRows(), result);
+    double gamma = gamma(X.numColumns());
+    double[][] rawX = X.toRawCopy2D();
+    double[][] rawY = Y.toRawCopy2D();
+    forEachTile(rawX.length, rawY.length, false, (rowStart, rowEnd, columnStart, columnEnd) -> {
+      for (int i = rowStart; i < rowEnd; i++) {
+	for (int j = columnStart; j < columnEnd; j++)
+	  result.set(i, j, StrictMath.exp(-1 * gamma * distance(rawX[i], rawY[j])));
+      }
+    });
+  }
+
+  @Override
+  public void applyMatrixInto(Matrix X, Matrix result) {
+    checkShape(X.numRows(), X.numRows(), result);
+    double gamma = gamma(X.numColumns());
+    double[][] rawX = X.toRawCopy2D();
+    forEachTile(rawX.length, rawX.length, true, (rowStart, rowEnd, columnStart, columnEnd) -> {
+      for (int i = rowStart; i < rowEnd; i++) {
+	for (int j = Math.max(i, columnStart); j < columnEnd; j++) {
+	  double value = StrictMath.exp(-1 * gamma * distance(rawX[i], rawX[j]));
+	  result.set(i, j, value);
+	  result.set(j, i, value);
+	}
+      }
+    });
+  }
+
+  @Override
+  public boolean hasFeatureMap() {
+    return true;
+  }
+
+  /**
+   * Create random Fourier features for the kernel. Its spectral density is the
+   * product of independent Cauchy distributions with scale gamma.
+   *
+   * @param numColumns  Number of columns of the data
+   * @param numFeatures Number of features to create
+   * @param seed        Seed for sampling the frequencies
+   * @return The feature map
+   */
+  @Override
+  public FeatureMap createFeatureMap(int numColumns, int numFeatures, long seed) {
+    double gamma = gamma(numColumns);
+    Random random = new Random(seed);
+    Matrix omega = MatrixFactory.zeros(numColumns, numFeatures);
+    for (int j = 0; j < numFeatures; j++) {
+      for (int i = 0; i < numColumns; i++)
+	omega.set(i, j, gamma * Math.tan(Math.PI * (random.nextDouble() - 0.5)));
+    }
+    return new RandomFourierFeatures(omega, RandomFourierFeatures.sampleOffsets(numFeatures, random));
+  }
+
+  @Override
+  public String getCacheKey() {
+    return "LaplacianKernel(gamma=" + m_Gamma + ")";
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Laplacian Kernel: K(x,y) = exp(-1*gamma*||x - y||_1), gamma=%f", m_Gamma);
+  }
+}
@@ -30,6 +30,32 @@ public class LinearKernel extends AbstractKernel {
     return this.applyMatrix(X, X);
   }
 
+  @Override
+  public void applyMatrixInto(Matrix X, Matrix Y, Matrix result) {
+    checkShape(X.numRows(), Y.numRows(), result);
+    copyInto(X.mul(Y.transpose()).toRawCopy2D(), result);
+  }
+
+  @Override
+  public void applyMatrixInto(Matrix X, Matrix result) {
+    applyMatrixInto(X, X, result);
+  }
+
+  /**
+   * Copy the Gram matrix into the result, tile by tile.
+   *
+   * @param gram   the Gram matrix
+   * @param result the matrix to copy into
+   */
+  protected void copyInto(double[][] gram, Matrix result) {
+    forEachTile(result.numRows(), result.numColumns(), false, (rowStart, rowEnd, columnStart, columnEnd) -> {
+      for (int i = rowStart; i < rowEnd; i++) {
+	for (int j = columnStart; j < columnEnd; j++)
+	  result.set(i, j, gram[i][j]);
+      }
+    });
+  }
+
   @Override
   public String toString() {
     return "Linear Kernel: K(x,y)=x^T*y";
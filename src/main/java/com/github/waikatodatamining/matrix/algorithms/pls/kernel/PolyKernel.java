@@ -76,30 +76,45 @@ public class PolyKernel extends AbstractKernel {
     }
   }
 
+  /**
+   * Get the gamma to use for data with the given number of columns, i.e.,
+   * 1/numColumns if gamma is NaN. Does not modify the kernel, so that it can
+   * be applied concurrently.
+   *
+   * @param numColumns Number of columns of the data
+   * @return Effective gamma
+   */
+  protected double gamma(int numColumns) {
+    return Double.isNaN(m_Gamma) ? 1.0 / numColumns : m_Gamma;
+  }
+
   @Override
-  public Matrix applyMatrix(Matrix X, Matrix Y) {
-    if (Double.isNaN(m_Gamma)) {
-      m_Gamma = 1.0 / X.numColumns();
-    }
-    Matrix result = X.mul(Y.transpose());
-    result = result.mul(m_Gamma);
-    result = result.add(m_Coef0);
-    result = result.powElementwise(m_Degree);
-    return result;
+  public void applyMatrixInto(Matrix X, Matrix Y, Matrix result) {
+    checkShape(X.numRows(), Y.numRows(), result);
+    double gamma = gamma(X.numColumns());
+    double[][] gram = X.mul(Y.transpose()).toRawCopy2D();
+    forEachTile(X.numRows(), Y.numRows(), false, (rowStart, rowEnd, columnStart, columnEnd) -> {
+      for (int i = rowStart; i < rowEnd; i++) {
+	for (int j = columnStart; j < columnEnd; j++)
+	  result.set(i, j, Math.pow(gamma * gram[i][j] + m_Coef0, m_Degree));
+      }
+    });
   }
 
   @Override
-  public Matrix applyMatrix(Matrix X) {
-    return this.applyMatrix(X, X);
+  public void applyMatrixInto(Matrix X, Matrix result) {
+    applyMatrixInto(X, X, result);
   }
 
   @Override
   public double applyVector(Matrix x, Matrix y) {
     double linearTerm = x.vectorDot(y);
-    if (Double.isNaN(m_Gamma)) {
-      m_Gamma = 1.0 / x.numColumns();
-    }
-    return StrictMath.pow(m_Gamma * linearTerm + m_Coef0, m_Degree);
+    return StrictMath.pow(gamma(x.numColumns()) * linearTerm + m_Coef0, m_Degree);
+  }
+
+  @Override
+  public String getCacheKey() {
+    return "PolyKernel(gamma=" + m_Gamma + ",degree=" + m_Degree + ",coef0=" + m_Coef0 + ")";
   }
 
   @Override
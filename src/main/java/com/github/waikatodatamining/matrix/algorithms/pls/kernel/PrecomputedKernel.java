@@ -0,0 +1,132 @@
+package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
+
+import com.github.waikatodatamining.matrix.core.exceptions.InvalidShapeException;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+
+/**
+ * Kernel that looks up the entries of an externally computed kernel (Gram)
+ * matrix G, e.g., one calculated out of process.
+ * <p>
+ * The data consists of a single column with the (integer) index of each
+ * sample in G, i.e., K(x,y) = G_x,y (see {@link #indices(int, int)}). G
+ * covers all samples the kernel gets applied to, training as well as test
+ * samples. Since the data only identifies samples, it must not be transformed
+ * (see {@link #isPrecomputed()}).
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class PrecomputedKernel extends AbstractKernel {
+
+  private static final long serialVersionUID = 3254871039657216934L;
+
+  /** The precomputed kernel matrix */
+  protected Matrix m_Gram;
+
+  /**
+   * Initializes the kernel without kernel matrix (see {@link #setGram(Matrix)}).
+   */
+  public PrecomputedKernel() {
+    this(null);
+  }
+
+  /**
+   * Initializes the kernel.
+   *
+   * @param gram The precomputed kernel matrix
+   */
+  public PrecomputedKernel(Matrix gram) {
+    m_Gram = gram;
+  }
+
+  /**
+   * Get the precomputed kernel matrix.
+   *
+   * @return Kernel matrix
+   */
+  public Matrix getGram() {
+    return m_Gram;
+  }
+
+  /**
+   * Set the precomputed kernel matrix.
+   *
+   * @param gram Kernel matrix
+   */
+  public void setGram(Matrix gram) {
+    this.m_Gram = gram;
+  }
+
+  /**
+   * Create the data for the samples with the given indices in the kernel
+   * matrix.
+   *
+   * @param start First index (inclusive)
+   * @param end   Last index (exclusive)
+   * @return Column vector with the indices
+   */
+  public static Matrix indices(int start, int end) {
+    Matrix result = MatrixFactory.zeros(end - start, 1);
+    for (int i = start; i < end; i++)
+      result.set(i - start, 0, i);
+    return result;
+  }
+
+  /**
+   * Get the indices in the kernel matrix identified by the data.
+   *
+   * @param X          Data (single column of indices)
+   * @param numIndices Number of indices along the dimension of the kernel matrix
+   * @return Indices
+   */
+  protected int[] indicesOf(Matrix X, int numIndices) {
+    if (m_Gram == null)
+      throw new MatrixAlgorithmsException("No precomputed kernel matrix set!");
+    if (X.numColumns() != 1)
+      throw new InvalidShapeException("Precomputed kernel requires a single column of indices but got " + X.shapeString());
+
+    double[] values = X.toRawCopy1D();
+    int[] result = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      result[i] = (int) values[i];
+      if ((result[i] != values[i]) || (result[i] < 0) || (result[i] >= numIndices))
+	throw new MatrixAlgorithmsException("Invalid index into precomputed kernel matrix "
+	  + m_Gram.shapeString() + ": " + values[i]);
+    }
+    return result;
+  }
+
+  @Override
+  public double applyVector(Matrix x, Matrix y) {
+    return m_Gram.get(indicesOf(x, m_Gram.numRows())[0], indicesOf(y, m_Gram.numColumns())[0]);
+  }
+
+  @Override
+  public void applyMatrixInto(Matrix X, Matrix Y, Matrix result) {
+    checkShape(X.numRows(), Y.numRows(), result);
+    int[] rows = indicesOf(X, m_Gram.numRows());
+    int[] columns = indicesOf(Y, m_Gram.numColumns());
+    forEachTile(rows.length, columns.length, false, (rowStart, rowEnd, columnStart, columnEnd) -> {
+      for (int i = rowStart; i < rowEnd; i++) {
+	for (int j = columnStart; j < columnEnd; j++)
+	  result.set(i, j, m_Gram.get(rows[i], columns[j]));
+      }
+    });
+  }
+
+  @Override
+  public void applyMatrixInto(Matrix X, Matrix result) {
+    applyMatrixInto(X, X, result);
+  }
+
+  @Override
+  public boolean isPrecomputed() {
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "Precomputed Kernel: K(x,y)=G_x,y, G=" + ((m_Gram == null) ? "none" : m_Gram.shapeString());
+  }
+}
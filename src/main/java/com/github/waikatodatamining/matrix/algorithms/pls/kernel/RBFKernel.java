@@ -1,6 +1,10 @@
 package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
 
+import com.github.waikatodatamining.matrix.core.algorithm.IntermediateCache;
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+
+import java.util.Random;
 
 /**
  * Radial Basis Function Kernel.
@@ -15,6 +19,17 @@ public class RBFKernel extends AbstractKernel {
 
     private static final long serialVersionUID = -5801833711201856600L;
 
+    /**
+     * Squared distances below this fraction of the summed squared norms are
+     * computed directly, since the Gram expansion loses their precision.
+     */
+    protected static final double EXACT_THRESHOLD = 1e-4;
+
+    /**
+     * Key of the pairwise distances in the {@link KernelCache}, shared by all gammas.
+     */
+    protected static final String DISTANCES_CACHE_KEY = "RBFKernel.distances";
+
     /**
      * Gamma parameter
      */
@@ -39,13 +54,205 @@ public class RBFKernel extends AbstractKernel {
         this.m_Gamma = gamma;
     }
 
+    /**
+     * Get the gamma to use for data with the given number of columns, i.e.,
+     * 1/numColumns if gamma is NaN. Does not modify the kernel, so that it can
+     * be applied concurrently.
+     *
+     * @param numColumns Number of columns of the data
+     * @return Effective gamma
+     */
+    protected double gamma(int numColumns) {
+        return Double.isNaN(m_Gamma) ? 1.0 / numColumns : m_Gamma;
+    }
+
     @Override
     public double applyVector(Matrix x, Matrix y) {
         double norm2 = x.sub(y).norm2();
-        if (Double.isNaN(m_Gamma)) {
-            m_Gamma = 1.0 / x.numColumns();
+        return StrictMath.exp(-1 * gamma(x.numColumns()) * norm2);
+    }
+
+    @Override
+    public String getCacheKey() {
+        return "RBFKernel(gamma=" + m_Gamma + ")";
+    }
+
+    /**
+     * Compute the pairwise distances ||x_i - y_j||. The distances don't depend
+     * on gamma and are therefore shared via the active {@link IntermediateCache}
+     * and the {@link KernelCache}.
+     *
+     * @param X First matrix
+     * @param Y Second matrix
+     * @return Matrix D with D_i,j = ||x_i - y_j||
+     */
+    protected Matrix distances(Matrix X, Matrix Y) {
+        return IntermediateCache.computeIfAbsent("RBFKernel.distances",
+            () -> KernelCache.get(DISTANCES_CACHE_KEY, () -> {
+                Matrix result = MatrixFactory.zeros(X.numRows(), Y.numRows());
+                distancesInto(X, Y, X.mul(Y.transpose()).toRawCopy2D(), false, result);
+                return result;
+            }, X, Y), X, Y);
+    }
+
+    /**
+     * Compute the pairwise distances ||x_i - x_j||. The distances don't depend
+     * on gamma and are therefore shared via the active {@link IntermediateCache}
+     * and the {@link KernelCache}.
+     *
+     * @param X First matrix
+     * @return Matrix D with D_i,j = ||x_i - x_j||
+     */
+    protected Matrix distances(Matrix X) {
+        return IntermediateCache.computeIfAbsent("RBFKernel.distances",
+            () -> KernelCache.get(DISTANCES_CACHE_KEY, () -> {
+                int n = X.numRows();
+                Matrix result = MatrixFactory.zeros(n, n);
+                distancesInto(X, X, X.mul(X.transpose()).toRawCopy2D(), true, result);
+                return result;
+            }, X), X);
+    }
+
+    /**
+     * Compute the pairwise distances from the Gram matrix G = X*Y^T via
+     * ||x - y||^2 = ||x||^2 + ||y||^2 - 2*x^T*y. Where this expansion cancels
+     * (i.e., for distances that are tiny compared to the norms), the distance
+     * gets computed directly instead.
+     *
+     * @param X         First matrix
+     * @param Y         Second matrix
+     * @param gram      Gram matrix X*Y^T
+     * @param symmetric Whether X and Y are the same matrix
+     * @param result    Matrix to write the distances to
+     */
+    protected void distancesInto(Matrix X, Matrix Y, double[][] gram, boolean symmetric, Matrix result) {
+        double[][] rawX = X.toRawCopy2D();
+        double[][] rawY = symmetric ? rawX : Y.toRawCopy2D();
+        double[] normsX = squaredNorms(rawX);
+        double[] normsY = symmetric ? normsX : squaredNorms(rawY);
+        forEachTile(rawX.length, rawY.length, symmetric, (rowStart, rowEnd, columnStart, columnEnd) -> {
+            for (int i = rowStart; i < rowEnd; i++) {
+                for (int j = symmetric ? Math.max(i, columnStart) : columnStart; j < columnEnd; j++) {
+                    double norms = normsX[i] + normsY[j];
+                    double squared = norms - 2 * gram[i][j];
+                    if (squared <= EXACT_THRESHOLD * norms) {
+                        squared = squaredDistance(rawX[i], rawY[j]);
+                    }
+                    double value = StrictMath.sqrt(Math.max(0, squared));
+                    result.set(i, j, value);
+                    if (symmetric) {
+                        result.set(j, i, value);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Compute the squared l2-norms of the rows.
+     *
+     * @param rows Rows
+     * @return Squared norm per row
+     */
+    protected double[] squaredNorms(double[][] rows) {
+        double[] result = new double[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            double sum = 0;
+            for (double value : rows[i]) {
+                sum += value * value;
+            }
+            result[i] = sum;
+        }
+        return result;
+    }
+
+    /**
+     * Compute the squared distance of two rows directly.
+     *
+     * @param x First row
+     * @param y Second row
+     * @return ||x - y||^2
+     */
+    protected double squaredDistance(double[] x, double[] y) {
+        double result = 0;
+        for (int k = 0; k < x.length; k++) {
+            double diff = x[k] - y[k];
+            result += diff * diff;
+        }
+        return result;
+    }
+
+    /**
+     * Apply the kernel to the given pairwise distances.
+     *
+     * @param distances Pairwise distances
+     * @param numColumns Number of columns of the data (for the default gamma)
+     * @return Kernel matrix
+     */
+    protected Matrix applyDistances(Matrix distances, int numColumns) {
+        Matrix result = MatrixFactory.zeros(distances.numRows(), distances.numColumns());
+        applyDistancesInto(distances, numColumns, result);
+        return result;
+    }
+
+    /**
+     * Apply the kernel to the given pairwise distances, writing the kernel
+     * matrix into the given matrix.
+     *
+     * @param distances Pairwise distances
+     * @param numColumns Number of columns of the data (for the default gamma)
+     * @param result Matrix to write the kernel matrix to
+     */
+    protected void applyDistancesInto(Matrix distances, int numColumns, Matrix result) {
+        double gamma = gamma(numColumns);
+        checkShape(distances.numRows(), distances.numColumns(), result);
+        forEachTile(distances.numRows(), distances.numColumns(), false, (rowStart, rowEnd, columnStart, columnEnd) -> {
+            for (int i = rowStart; i < rowEnd; i++) {
+                for (int j = columnStart; j < columnEnd; j++) {
+                    result.set(i, j, StrictMath.exp(-1 * gamma * distances.get(i, j)));
+                }
+            }
+        });
+    }
+
+    @Override
+    public void applyMatrixInto(Matrix X, Matrix Y, Matrix result) {
+        applyDistancesInto(distances(X, Y), X.numColumns(), result);
+    }
+
+    @Override
+    public void applyMatrixInto(Matrix X, Matrix result) {
+        applyDistancesInto(distances(X), X.numColumns(), result);
+    }
+
+    @Override
+    public boolean hasFeatureMap() {
+        return true;
+    }
+
+    /**
+     * Create random Fourier features for the kernel. Since the kernel uses the
+     * (unsquared) distance, exp(-gamma*||x - y||), its spectral density is the
+     * multivariate Cauchy distribution with scale gamma, which gets sampled as
+     * gamma*z/|g|, with z ~ N(0, I) and g ~ N(0, 1).
+     *
+     * @param numColumns  Number of columns of the data
+     * @param numFeatures Number of features to create
+     * @param seed        Seed for sampling the frequencies
+     * @return The feature map
+     */
+    @Override
+    public FeatureMap createFeatureMap(int numColumns, int numFeatures, long seed) {
+        double gamma = gamma(numColumns);
+        Random random = new Random(seed);
+        Matrix omega = MatrixFactory.zeros(numColumns, numFeatures);
+        for (int j = 0; j < numFeatures; j++) {
+            double scale = gamma / Math.abs(random.nextGaussian());
+            for (int i = 0; i < numColumns; i++) {
+                omega.set(i, j, scale * random.nextGaussian());
+            }
         }
-        return StrictMath.exp(-1 * m_Gamma * norm2);
+        return new RandomFourierFeatures(omega, RandomFourierFeatures.sampleOffsets(numFeatures, random));
     }
 
     @Override
@@ -0,0 +1,70 @@
+package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
+
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+
+import java.util.Random;
+
+/**
+ * Random Fourier features (Rahimi and Recht) for shift-invariant kernels:
+ * phi(x) = sqrt(2/D) * cos(Omega^T*x + b), with the columns of Omega sampled
+ * from the spectral density of the kernel and b uniformly from [0, 2*pi).
+ * <p>
+ * See here:
+ * <a href="https://people.eecs.berkeley.edu/~brecht/papers/07.rah.rec.nips.pdf">Random Features for Large-Scale Kernel Machines</a>
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class RandomFourierFeatures implements FeatureMap {
+
+  private static final long serialVersionUID = 2917562075613829811L;
+
+  /** Frequencies, p x D */
+  protected final Matrix m_Omega;
+
+  /** Phase offsets */
+  protected final double[] m_Offsets;
+
+  /**
+   * Initializes the feature map.
+   *
+   * @param omega   Frequencies (one column per feature)
+   * @param offsets Phase offsets (one per feature)
+   */
+  public RandomFourierFeatures(Matrix omega, double[] offsets) {
+    m_Omega = omega;
+    m_Offsets = offsets;
+  }
+
+  /**
+   * Sample the phase offsets uniformly from [0, 2*pi).
+   *
+   * @param numFeatures Number of features
+   * @param random      Random number generator
+   * @return Offsets
+   */
+  public static double[] sampleOffsets(int numFeatures, Random random) {
+    double[] result = new double[numFeatures];
+    for (int j = 0; j < numFeatures; j++) {
+      result[j] = 2 * Math.PI * random.nextDouble();
+    }
+    return result;
+  }
+
+  @Override
+  public Matrix apply(Matrix X) {
+    double[][] Z = X.mul(m_Omega).toRawCopy2D();
+    double scale = StrictMath.sqrt(2.0 / m_Offsets.length);
+    for (double[] row : Z) {
+      for (int j = 0; j < row.length; j++) {
+        row[j] = scale * StrictMath.cos(row[j] + m_Offsets[j]);
+      }
+    }
+    return MatrixFactory.fromRaw(Z);
+  }
+
+  @Override
+  public int numFeatures() {
+    return m_Offsets.length;
+  }
+}
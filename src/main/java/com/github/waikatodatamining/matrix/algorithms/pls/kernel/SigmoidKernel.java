@@ -0,0 +1,100 @@
+package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
+
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+
+/**
+ * Sigmoid Kernel.
+ * <p>
+ * K(x,y) = tanh(gamma*x^T*y + coef_0)
+ * <p>
+ * Note that the kernel is not positive semi-definite for all parameters.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class SigmoidKernel extends AbstractKernel {
+
+  private static final long serialVersionUID = -1289658937408126549L;
+
+  protected double m_Coef0 = 0.0;
+
+  protected double m_Gamma = Double.NaN;
+
+  /**
+   * Get the gamma parameter.
+   * Defaults: 1/n_features
+   */
+  public double getGamma() {
+    return m_Gamma;
+  }
+
+  /**
+   * Set the gamma parameter.
+   *
+   * @param gamma Gamma parameter
+   */
+  public void setGamma(double gamma) {
+    this.m_Gamma = gamma;
+  }
+
+  /**
+   * Get the independent coefficient parameter.
+   *
+   * @return Independent coefficient
+   */
+  public double getCoef0() {
+    return m_Coef0;
+  }
+
+  /**
+   * Set the independent coefficient parameter.
+   *
+   * @param coef0 Independent coefficient
+   */
+  public void setCoef0(double coef0) {
+    this.m_Coef0 = coef0;
+  }
+
+  /**
+   * Get the gamma to use for data with the given number of columns, i.e.,
+   * 1/numColumns if gamma is NaN.
+   *
+   * @param numColumns Number of columns of the data
+   * @return Effective gamma
+   */
+  protected double gamma(int numColumns) {
+    return Double.isNaN(m_Gamma) ? 1.0 / numColumns : m_Gamma;
+  }
+
+  @Override
+  public double applyVector(Matrix x, Matrix y) {
+    return StrictMath.tanh(gamma(x.numColumns()) * x.vectorDot(y) + m_Coef0);
+  }
+
+  @Override
+  public void applyMatrixInto(Matrix X, Matrix Y, Matrix result) {
+    checkShape(X.numRows(), Y.numRows(), result);
+    double gamma = gamma(X.numColumns());
+    double[][] gram = X.mul(Y.transpose()).toRawCopy2D();
+    forEachTile(X.numRows(), Y.numRows(), false, (rowStart, rowEnd, columnStart, columnEnd) -> {
+      for (int i = rowStart; i < rowEnd; i++) {
+	for (int j = columnStart; j < columnEnd; j++)
+	  result.set(i, j, StrictMath.tanh(gamma * gram[i][j] + m_Coef0));
+      }
+    });
+  }
+
+  @Override
+  public void applyMatrixInto(Matrix X, Matrix result) {
+    applyMatrixInto(X, X, result);
+  }
+
+  @Override
+  public String getCacheKey() {
+    return "SigmoidKernel(gamma=" + m_Gamma + ",coef0=" + m_Coef0 + ")";
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Sigmoid Kernel: K(x,y)=tanh(gamma*x^T*y + coef_0), gamma=%f, coef_0=%f", m_Gamma, m_Coef0);
+  }
+}
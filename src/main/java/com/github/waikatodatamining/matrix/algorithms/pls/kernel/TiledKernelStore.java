@@ -0,0 +1,318 @@
+package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
+
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.core.matrix.AllocationTracker;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.stream.IntStream;
+
+/**
+ * Symmetric n x n kernel matrix stored out of core, in a memory-mapped
+ * temporary file (row-major doubles).
+ * <p>
+ * The matrix gets computed in square tiles, in parallel, and all operations
+ * stream over blocks of rows, so that the heap only holds a bounded working
+ * set of {@link #getBlockBytes()} per thread, regardless of n. The file is
+ * deleted on {@link #close()}.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class TiledKernelStore implements Closeable {
+
+  /** the number of bytes per matrix element. */
+  protected static final long BYTES_PER_ELEMENT = 8;
+
+  /** the maximum number of bytes of a single mapped region. */
+  protected static final long MAX_REGION_BYTES = Integer.MAX_VALUE;
+
+  /** the default number of rows/columns of the tiles. */
+  public static final int DEFAULT_TILE_SIZE = 1024;
+
+  /** the default maximum number of bytes of a block of rows in memory. */
+  public static final long DEFAULT_BLOCK_BYTES = 64L * 1024 * 1024;
+
+  /** the number of rows and columns. */
+  protected final int m_Size;
+
+  /** the number of rows/columns of the tiles. */
+  protected final int m_TileSize;
+
+  /** the maximum number of bytes of a block of rows in memory. */
+  protected final long m_BlockBytes;
+
+  /** the backing file. */
+  protected final File m_File;
+
+  /** the number of rows per mapped region. */
+  protected final int m_RowsPerRegion;
+
+  /** the mapped regions. */
+  protected DoubleBuffer[] m_Regions;
+
+  /**
+   * Initializes the store with a temporary file in the given directory.
+   *
+   * @param dir        the directory for the temporary file, null for the default one
+   * @param size       the number of rows and columns
+   * @param tileSize   the number of rows/columns of the tiles
+   * @param blockBytes the maximum number of bytes of a block of rows in memory
+   */
+  public TiledKernelStore(File dir, int size, int tileSize, long blockBytes) {
+    if (tileSize < 1)
+      throw new MatrixAlgorithmsException("Tile size must be at least 1 but was " + tileSize + "!");
+
+    m_Size = size;
+    m_TileSize = tileSize;
+    m_BlockBytes = blockBytes;
+    m_RowsPerRegion = (int) Math.max(1, Math.min(size, MAX_REGION_BYTES / (Math.max(1, size) * BYTES_PER_ELEMENT)));
+
+    try {
+      m_File = File.createTempFile("kernel-", ".bin", dir);
+      m_File.deleteOnExit();
+      try (RandomAccessFile raf = new RandomAccessFile(m_File, "rw")) {
+	raf.setLength((long) size * size * BYTES_PER_ELEMENT);
+	FileChannel channel = raf.getChannel();
+	int numRegions = (size + m_RowsPerRegion - 1) / m_RowsPerRegion;
+	m_Regions = new DoubleBuffer[numRegions];
+	for (int r = 0; r < numRegions; r++) {
+	  long start = (long) r * m_RowsPerRegion * size * BYTES_PER_ELEMENT;
+	  long length = (long) Math.min(m_RowsPerRegion, size - r * m_RowsPerRegion) * size * BYTES_PER_ELEMENT;
+	  m_Regions[r] = channel.map(FileChannel.MapMode.READ_WRITE, start, length).asDoubleBuffer();
+	}
+      }
+    }
+    catch (IOException e) {
+      throw new MatrixAlgorithmsException("Failed to create kernel store in " + dir, e);
+    }
+  }
+
+  /**
+   * Returns the number of rows and columns.
+   *
+   * @return the size
+   */
+  public int getSize() {
+    return m_Size;
+  }
+
+  /**
+   * Returns the maximum number of bytes of a block of rows in memory.
+   *
+   * @return the number of bytes
+   */
+  public long getBlockBytes() {
+    return m_BlockBytes;
+  }
+
+  /**
+   * Returns the backing file.
+   *
+   * @return the file
+   */
+  public File getFile() {
+    return m_File;
+  }
+
+  /**
+   * Returns a view of the region containing the row, positioned at the row.
+   *
+   * @param row the row
+   * @return the view
+   */
+  protected DoubleBuffer row(int row) {
+    DoubleBuffer result = m_Regions[row / m_RowsPerRegion].duplicate();
+    result.position((row % m_RowsPerRegion) * m_Size);
+    return result;
+  }
+
+  /**
+   * Computes the kernel matrix K(X, X), tile by tile (in parallel). Only the
+   * tiles of the upper triangle get computed and mirrored.
+   *
+   * @param kernel the kernel
+   * @param X      the data
+   */
+  public void compute(AbstractKernel kernel, Matrix X) {
+    int numTiles = (m_Size + m_TileSize - 1) / m_TileSize;
+
+    IntStream.range(0, numTiles * numTiles)
+      .filter(t -> t % numTiles >= t / numTiles)
+      .parallel()
+      .forEach(AllocationTracker.propagate(t -> {
+	int rowStart = (t / numTiles) * m_TileSize;
+	int rowEnd = Math.min(m_Size, rowStart + m_TileSize);
+	int columnStart = (t % numTiles) * m_TileSize;
+	int columnEnd = Math.min(m_Size, columnStart + m_TileSize);
+	Matrix tile = MatrixFactory.zeros(rowEnd - rowStart, columnEnd - columnStart);
+	kernel.applyMatrixInto(X.getRows(rowStart, rowEnd), X.getRows(columnStart, columnEnd), tile);
+	double[][] raw = tile.toRawCopy2D();
+	for (int i = 0; i < raw.length; i++) {
+	  DoubleBuffer buffer = row(rowStart + i);
+	  buffer.position(buffer.position() + columnStart);
+	  buffer.put(raw[i]);
+	}
+	if (rowStart != columnStart) {
+	  double[] column = new double[raw.length];
+	  for (int j = 0; j < raw[0].length; j++) {
+	    for (int i = 0; i < raw.length; i++)
+	      column[i] = raw[i][j];
+	    DoubleBuffer buffer = row(columnStart + j);
+	    buffer.position(buffer.position() + rowStart);
+	    buffer.put(column);
+	  }
+	}
+      }));
+  }
+
+  /**
+   * Returns the number of rows per block, such that a block stays within
+   * the memory budget.
+   *
+   * @return the number of rows
+   */
+  protected int rowsPerBlock() {
+    return (int) Math.max(1, Math.min(m_Size, m_BlockBytes / (Math.max(1, m_Size) * BYTES_PER_ELEMENT)));
+  }
+
+  /**
+   * Processes the rows block by block (in parallel).
+   *
+   * @param block processes a block, given its first row and the rows
+   */
+  protected void forEachBlock(Block block) {
+    int rowsPerBlock = rowsPerBlock();
+    int numBlocks = (m_Size + rowsPerBlock - 1) / rowsPerBlock;
+
+    IntStream.range(0, numBlocks).parallel().forEach(AllocationTracker.propagate(b -> {
+      int rowStart = b * rowsPerBlock;
+      double[][] rows = new double[Math.min(rowsPerBlock, m_Size - rowStart)][m_Size];
+      for (int i = 0; i < rows.length; i++)
+	row(rowStart + i).get(rows[i]);
+      block.process(rowStart, rows);
+    }));
+  }
+
+  /**
+   * Processes a block of rows.
+   */
+  @FunctionalInterface
+  protected interface Block {
+
+    /**
+     * Processes the rows.
+     *
+     * @param rowStart the index of the first row
+     * @param rows     the rows (may be modified, see {@link #update(Block)})
+     */
+    void process(int rowStart, double[][] rows);
+  }
+
+  /**
+   * Modifies the rows block by block (in parallel) and writes them back.
+   *
+   * @param block modifies a block, given its first row and the rows
+   */
+  protected void update(Block block) {
+    forEachBlock((rowStart, rows) -> {
+      block.process(rowStart, rows);
+      for (int i = 0; i < rows.length; i++)
+	row(rowStart + i).put(rows[i]);
+    });
+  }
+
+  /**
+   * Computes the column means (equal to the row means, due to symmetry).
+   *
+   * @return the means
+   */
+  public double[] columnMeans() {
+    double[] result = new double[m_Size];
+
+    forEachBlock((rowStart, rows) -> {
+      for (int i = 0; i < rows.length; i++) {
+	double sum = 0;
+	for (double value : rows[i])
+	  sum += value;
+	result[rowStart + i] = sum / m_Size;
+      }
+    });
+
+    return result;
+  }
+
+  /**
+   * Centers the kernel matrix in place, i.e., K_i,j - m_i - m_j + m.
+   *
+   * @param means the column means
+   * @param mean  the overall mean
+   */
+  public void center(double[] means, double mean) {
+    update((rowStart, rows) -> {
+      for (int i = 0; i < rows.length; i++) {
+	for (int j = 0; j < m_Size; j++)
+	  rows[i][j] -= means[rowStart + i] + means[j] - mean;
+      }
+    });
+  }
+
+  /**
+   * Multiplies the kernel matrix with the given matrix, streaming over the
+   * blocks of rows.
+   *
+   * @param V the matrix to multiply with (n x k)
+   * @return K*V
+   */
+  public Matrix mul(Matrix V) {
+    double[][] rawV = V.toRawCopy2D();
+    int numColumns = V.numColumns();
+    double[][] result = new double[m_Size][numColumns];
+
+    forEachBlock((rowStart, rows) -> {
+      for (int i = 0; i < rows.length; i++) {
+	double[] out = result[rowStart + i];
+	for (int j = 0; j < m_Size; j++) {
+	  double value = rows[i][j];
+	  for (int c = 0; c < numColumns; c++)
+	    out[c] += value * rawV[j][c];
+	}
+      }
+    });
+
+    return MatrixFactory.fromRaw(result);
+  }
+
+  /**
+   * Copies the kernel matrix into memory.
+   *
+   * @return the matrix
+   */
+  public Matrix toMatrix() {
+    double[][] result = new double[m_Size][];
+
+    forEachBlock((rowStart, rows) -> System.arraycopy(rows, 0, result, rowStart, rows.length));
+
+    return MatrixFactory.fromRaw(result);
+  }
+
+  /**
+   * Releases the mapped regions and deletes the file.
+   */
+  @Override
+  public void close() {
+    m_Regions = null;
+    try {
+      Files.deleteIfExists(m_File.toPath());
+    }
+    catch (IOException e) {
+      // mapped files can't be deleted on some platforms until unmapped, deleteOnExit covers that
+    }
+  }
+}
@@ -20,6 +20,13 @@
 
 package com.github.waikatodatamining.matrix.core;
 
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.lang.reflect.Array;
 
 /**
@@ -479,4 +486,60 @@ public class Utils {
 
     return (value - mean) / stdDev;
   }
+
+  /**
+   * Serializes the object into a byte array.
+   *
+   * @param obj	the object to serialize
+   * @return		the serialized object
+   * @throws MatrixAlgorithmsException	if serialization fails
+   */
+  public static byte[] serialize(Serializable obj) {
+    ByteArrayOutputStream	bos;
+    ObjectOutputStream		oos;
+
+    try {
+      bos = new ByteArrayOutputStream();
+      oos = new ObjectOutputStream(bos);
+      oos.writeObject(obj);
+      oos.close();
+      return bos.toByteArray();
+    }
+    catch (Exception e) {
+      throw new MatrixAlgorithmsException("Failed to serialize " + obj.getClass().getName(), e);
+    }
+  }
+
+  /**
+   * Deserializes an object from a byte array.
+   *
+   * @param data	the serialized object
+   * @param <T>	the type of object
+   * @return		the object
+   * @throws MatrixAlgorithmsException	if deserialization fails
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends Serializable> T deserialize(byte[] data) {
+    ObjectInputStream	ois;
+
+    try {
+      ois = new ObjectInputStream(new ByteArrayInputStream(data));
+      return (T) ois.readObject();
+    }
+    catch (Exception e) {
+      throw new MatrixAlgorithmsException("Failed to deserialize object", e);
+    }
+  }
+
+  /**
+   * Creates a deep copy of the object via serialization.
+   *
+   * @param obj	the object to copy
+   * @param <T>	the type of object
+   * @return		the copy
+   * @throws MatrixAlgorithmsException	if serialization fails
+   */
+  public static <T extends Serializable> T deepCopy(T obj) {
+    return deserialize(serialize(obj));
+  }
 }
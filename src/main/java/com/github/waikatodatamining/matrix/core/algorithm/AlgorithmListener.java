@@ -0,0 +1,63 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AlgorithmListener.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import java.util.EventListener;
+
+/**
+ * Listener for observing algorithms without debug logging, e.g., to
+ * collect metrics on the duration of fits and on convergence. Listeners
+ * are notified synchronously in the thread running the algorithm and must
+ * therefore be fast and thread-safe.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ * @see MatrixAlgorithm#addListener(AlgorithmListener)
+ */
+public interface AlgorithmListener
+  extends EventListener {
+
+  /**
+   * Gets called when an algorithm starts a phase.
+   *
+   * @param algorithm	the algorithm
+   * @param phase	the phase
+   */
+  default void phaseStarted(MatrixAlgorithm algorithm, PhaseEvent.Phase phase) {
+  }
+
+  /**
+   * Gets called when an algorithm completed a phase, like configuring or
+   * transforming.
+   *
+   * @param event	the event
+   */
+  default void phaseCompleted(PhaseEvent event) {
+  }
+
+  /**
+   * Gets called when an iterative algorithm stopped iterating, e.g., for a
+   * single component.
+   *
+   * @param event	the event
+   */
+  default void iterationsCompleted(ConvergenceEvent event) {
+  }
+}
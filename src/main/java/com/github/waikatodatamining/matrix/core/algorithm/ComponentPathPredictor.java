@@ -0,0 +1,51 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ComponentPathPredictor.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+
+/**
+ * Interface for predicting algorithms built from a sequence of components,
+ * where the model with k components is a prefix of the model with more
+ * components. Such algorithms can predict the outcome for every number of
+ * components from a single fit.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public interface ComponentPathPredictor {
+
+  /**
+   * Returns whether the algorithm can predict the whole component path.
+   *
+   * @return		true if the path can be predicted
+   */
+  boolean canPredictPath();
+
+  /**
+   * Performs predictions on the data for each number of components.
+   * Element k of the result contains the predictions of a model with
+   * k+1 components.
+   *
+   * @param X		the feature matrix to predict against
+   * @return		the predictions per number of components
+   */
+  Matrix[] predictPath(Matrix X);
+}
@@ -29,6 +29,12 @@ import com.github.waikatodatamining.matrix.core.matrix.Matrix;
  * as algorithms themselves should not sub-class this class, but
  * instead sub-classes of this class which expose the configuration
  * method.
+ * <p>
+ * Contract: once configured, {@link #transform(Matrix)},
+ * {@link #inverseTransform(Matrix)} and any predictions must not modify the
+ * state of the algorithm (lazily computed state has to be built locally and
+ * only published once complete). A configured algorithm can therefore be
+ * shared between threads, see {@link FrozenPredictor}.
  *
  * @author Corey Sterling (csterlin at waikato dot ac dot nz)
  */
@@ -0,0 +1,116 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ConvergenceEvent.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import java.util.EventObject;
+
+/**
+ * Event for an iterative algorithm that stopped iterating, with the number
+ * of iterations and the change in the last iteration.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class ConvergenceEvent
+  extends EventObject {
+
+  private static final long serialVersionUID = -2384150386226095815L;
+
+  /** the component, -1 if not specific to a component. */
+  protected int m_Component;
+
+  /** the number of iterations. */
+  protected int m_Iterations;
+
+  /** the change in the last iteration. */
+  protected double m_Delta;
+
+  /** whether the tolerance was met. */
+  protected boolean m_Converged;
+
+  /**
+   * Initializes the event.
+   *
+   * @param source	the algorithm
+   * @param component	the component (0-based), -1 if not specific to a component
+   * @param iterations	the number of iterations
+   * @param delta	the change in the last iteration
+   * @param converged	whether the tolerance was met
+   */
+  public ConvergenceEvent(MatrixAlgorithm source, int component, int iterations, double delta, boolean converged) {
+    super(source);
+    m_Component  = component;
+    m_Iterations = iterations;
+    m_Delta      = delta;
+    m_Converged  = converged;
+  }
+
+  /**
+   * Returns the algorithm.
+   *
+   * @return		the algorithm
+   */
+  public MatrixAlgorithm getAlgorithm() {
+    return (MatrixAlgorithm) getSource();
+  }
+
+  /**
+   * Returns the component.
+   *
+   * @return		the component (0-based), -1 if not specific to a component
+   */
+  public int getComponent() {
+    return m_Component;
+  }
+
+  /**
+   * Returns the number of iterations.
+   *
+   * @return		the iterations
+   */
+  public int getIterations() {
+    return m_Iterations;
+  }
+
+  /**
+   * Returns the change in the last iteration, as measured by the algorithm
+   * for its stopping criterion.
+   *
+   * @return		the change
+   */
+  public double getDelta() {
+    return m_Delta;
+  }
+
+  /**
+   * Returns whether the tolerance was met, rather than the maximum number
+   * of iterations.
+   *
+   * @return		true if converged
+   */
+  public boolean isConverged() {
+    return m_Converged;
+  }
+
+  @Override
+  public String toString() {
+    return source.getClass().getName() + ": component=" + m_Component + ", iterations=" + m_Iterations + ", delta=" + m_Delta + ", converged=" + m_Converged;
+  }
+}
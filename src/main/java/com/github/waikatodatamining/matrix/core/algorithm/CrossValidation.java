@@ -0,0 +1,549 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CrossValidation.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import com.github.waikatodatamining.matrix.core.LoggingObject;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Cross-validation of predicting algorithms, either k-fold or
+ * leave-group-out (if groups are supplied).
+ * <p>
+ * The folds are evaluated concurrently on the executor, each using a new
+ * algorithm instance obtained from the factory. The training and test sets
+ * are views on the rows of the data, which does not get copied. Algorithms
+ * that implement {@link ComponentPathPredictor} are evaluated for each
+ * number of components, all others for their configured setup only.
+ * Algorithms that can be configured from the cross products X^T*X and X^T*y
+ * get the cross products of the full data downdated by the test fold.
+ * Currently this only applies to SIMPLS without preprocessing
+ * (PreprocessingType.NONE): the cross products are not centered, and the
+ * column means are not downdated. All other algorithms and preprocessing
+ * types refit each fold on its training rows.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class CrossValidation
+  extends LoggingObject {
+
+  private static final long serialVersionUID = -2006287745163720358L;
+
+  /** the factory for the algorithm instances. */
+  protected transient Supplier<? extends PredictingSupervisedMatrixAlgorithm> m_Factory;
+
+  /** the number of folds. */
+  protected int m_NumFolds = 10;
+
+  /** the group of each row (leave-group-out), null for k-fold. */
+  protected int[] m_Groups = null;
+
+  /** whether to randomize the rows before splitting into folds. */
+  protected boolean m_Randomize = true;
+
+  /** the seed for randomizing the rows. */
+  protected long m_Seed = 1;
+
+  /** whether to downdate the cross products, if supported by the algorithm. */
+  protected boolean m_UseCrossProducts = true;
+
+  /** the executor to evaluate the folds with, null for the common pool. */
+  protected transient ExecutorService m_Executor = null;
+
+  /**
+   * Initializes the cross-validation.
+   *
+   * @param factory	the factory for the algorithm instances
+   */
+  public CrossValidation(Supplier<? extends PredictingSupervisedMatrixAlgorithm> factory) {
+    if (factory == null)
+      throw new NullPointerException("Algorithm factory cannot be null");
+    m_Factory = factory;
+  }
+
+  /**
+   * Returns the factory for the algorithm instances.
+   *
+   * @return		the factory
+   */
+  public Supplier<? extends PredictingSupervisedMatrixAlgorithm> getFactory() {
+    return m_Factory;
+  }
+
+  /**
+   * Sets the number of folds (k-fold only).
+   *
+   * @param value	the number of folds, at least 2
+   */
+  public void setNumFolds(int value) {
+    if (value < 2) {
+      getLogger().warning("Number of folds must be at least 2 but was " + value + ".");
+    }
+    else {
+      m_NumFolds = value;
+    }
+  }
+
+  /**
+   * Returns the number of folds (k-fold only).
+   *
+   * @return		the number of folds
+   */
+  public int getNumFolds() {
+    return m_NumFolds;
+  }
+
+  /**
+   * Sets the groups for leave-group-out cross-validation, one fold per
+   * distinct group.
+   *
+   * @param value	the group of each row, null for k-fold
+   */
+  public void setGroups(int[] value) {
+    m_Groups = (value == null) ? null : value.clone();
+  }
+
+  /**
+   * Returns the groups for leave-group-out cross-validation.
+   *
+   * @return		the group of each row, null for k-fold
+   */
+  public int[] getGroups() {
+    return (m_Groups == null) ? null : m_Groups.clone();
+  }
+
+  /**
+   * Sets whether to randomize the rows before splitting (k-fold only).
+   *
+   * @param value	true if to randomize
+   */
+  public void setRandomize(boolean value) {
+    m_Randomize = value;
+  }
+
+  /**
+   * Returns whether to randomize the rows before splitting (k-fold only).
+   *
+   * @return		true if to randomize
+   */
+  public boolean getRandomize() {
+    return m_Randomize;
+  }
+
+  /**
+   * Sets the seed for randomizing the rows.
+   *
+   * @param value	the seed
+   */
+  public void setSeed(long value) {
+    m_Seed = value;
+  }
+
+  /**
+   * Returns the seed for randomizing the rows.
+   *
+   * @return		the seed
+   */
+  public long getSeed() {
+    return m_Seed;
+  }
+
+  /**
+   * Sets whether to downdate the cross products of the full data for
+   * algorithms that can be configured from them, i.e., SIMPLS without
+   * preprocessing.
+   *
+   * @param value	true if to use cross products
+   */
+  public void setUseCrossProducts(boolean value) {
+    m_UseCrossProducts = value;
+  }
+
+  /**
+   * Returns whether to downdate the cross products of the full data for
+   * algorithms that can be configured from them.
+   *
+   * @return		true if to use cross products
+   */
+  public boolean getUseCrossProducts() {
+    return m_UseCrossProducts;
+  }
+
+  /**
+   * Sets the executor to evaluate the folds with.
+   *
+   * @param value	the executor, null for the common fork/join pool
+   */
+  public void setExecutor(ExecutorService value) {
+    m_Executor = value;
+  }
+
+  /**
+   * Returns the executor to evaluate the folds with.
+   *
+   * @return		the executor, null for the common fork/join pool
+   */
+  public ExecutorService getExecutor() {
+    return m_Executor;
+  }
+
+  /**
+   * Returns the executor to use.
+   *
+   * @return		the executor
+   */
+  protected ExecutorService executor() {
+    if (m_Executor == null)
+      return ForkJoinPool.commonPool();
+    else
+      return m_Executor;
+  }
+
+  /**
+   * Generates the test rows of each fold.
+   *
+   * @param numRows	the number of rows in the data
+   * @return		the (sorted) test row indices per fold
+   */
+  public int[][] generateFolds(int numRows) {
+    int[][]			result;
+    Map<Integer,List<Integer>>	groups;
+    List<Integer>		rows;
+    int[]			order;
+    Random			rand;
+    int				numFolds;
+    int				start;
+    int				end;
+    int				swap;
+    int				i;
+    int				j;
+
+    // leave-group-out
+    if (m_Groups != null) {
+      if (m_Groups.length != numRows)
+	throw new MatrixAlgorithmsException("Number of groups and rows differ: " + m_Groups.length + " != " + numRows);
+      groups = new LinkedHashMap<>();
+      for (i = 0; i < numRows; i++) {
+	if (!groups.containsKey(m_Groups[i]))
+	  groups.put(m_Groups[i], new ArrayList<>());
+	groups.get(m_Groups[i]).add(i);
+      }
+      if (groups.size() < 2)
+	throw new MatrixAlgorithmsException("At least two groups required, found: " + groups.size());
+      result = new int[groups.size()][];
+      i = 0;
+      for (List<Integer> group: groups.values()) {
+	result[i] = new int[group.size()];
+	for (j = 0; j < group.size(); j++)
+	  result[i][j] = group.get(j);
+	i++;
+      }
+      return result;
+    }
+
+    // k-fold
+    numFolds = Math.min(m_NumFolds, numRows);
+    if (numFolds < 2)
+      throw new MatrixAlgorithmsException("At least two rows required for cross-validation, found: " + numRows);
+    order = new int[numRows];
+    for (i = 0; i < numRows; i++)
+      order[i] = i;
+    if (m_Randomize) {
+      rand = new Random(m_Seed);
+      for (i = numRows - 1; i > 0; i--) {
+	j        = rand.nextInt(i + 1);
+	swap     = order[i];
+	order[i] = order[j];
+	order[j] = swap;
+      }
+    }
+    result = new int[numFolds][];
+    for (i = 0; i < numFolds; i++) {
+      start     = (int) ((long) i * numRows / numFolds);
+      end       = (int) ((long) (i + 1) * numRows / numFolds);
+      result[i] = new int[end - start];
+      System.arraycopy(order, start, result[i], 0, end - start);
+      Arrays.sort(result[i]);
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the rows not contained in the test rows.
+   *
+   * @param test	the sorted test rows
+   * @param numRows	the number of rows in the data
+   * @return		the training rows
+   */
+  protected static int[] trainingRows(int[] test, int numRows) {
+    int[]	result;
+    boolean[]	isTest;
+    int		i;
+    int		n;
+
+    isTest = new boolean[numRows];
+    for (int row: test)
+      isTest[row] = true;
+    result = new int[numRows - test.length];
+    n      = 0;
+    for (i = 0; i < numRows; i++) {
+      if (!isTest[i])
+	result[n++] = i;
+    }
+
+    return result;
+  }
+
+  /**
+   * Creates the views on training and test rows for each fold.
+   *
+   * @param X		the feature matrix
+   * @param y		the target matrix
+   * @param folds	the test rows per fold
+   * @return		the folds
+   */
+  protected static Fold[] createFolds(Matrix X, Matrix y, int[][] folds) {
+    Fold[]	result;
+    int		i;
+
+    if (X.numRows() != y.numRows())
+      throw new MatrixAlgorithmsException("Number of rows of features and targets differ: " + X.numRows() + " != " + y.numRows());
+
+    result = new Fold[folds.length];
+    for (i = 0; i < folds.length; i++)
+      result[i] = new Fold(X, y, folds[i]);
+
+    return result;
+  }
+
+  /**
+   * Cross-validates the algorithm on the data.
+   *
+   * @param X		the feature matrix
+   * @param y		the target matrix
+   * @return		the result
+   */
+  public CrossValidationResult evaluate(Matrix X, Matrix y) {
+    return evaluate(X, y, generateFolds(X.numRows()));
+  }
+
+  /**
+   * Cross-validates the algorithm on the data, using the given folds.
+   *
+   * @param X		the feature matrix
+   * @param y		the target matrix
+   * @param folds	the test rows per fold
+   * @return		the result
+   */
+  public CrossValidationResult evaluate(Matrix X, Matrix y, int[][] folds) {
+    List<Future<Matrix[]>>	futures;
+    Fold[]			views;
+    CrossProducts		crossProducts;
+
+    views         = createFolds(X, y, folds);
+    crossProducts = null;
+    if (m_UseCrossProducts && m_Factory.get().canConfigureFromCrossProducts())
+      crossProducts = new CrossProducts(X, y);
+
+    futures = new ArrayList<>();
+    for (Fold fold: views) {
+      final CrossProducts fCrossProducts = crossProducts;
+      futures.add(executor().submit(() -> evaluateFold(fold, fCrossProducts)));
+    }
+
+    return new CrossValidationResult(y, folds, collect(futures));
+  }
+
+  /**
+   * Waits for the fold predictions, cancelling the remaining ones on failure.
+   *
+   * @param futures	the pending fold predictions
+   * @return		the predictions, one per future
+   */
+  protected static Matrix[][] collect(List<Future<Matrix[]>> futures) {
+    Matrix[][]	result;
+    int		i;
+
+    result = new Matrix[futures.size()][];
+    try {
+      for (i = 0; i < futures.size(); i++)
+	result[i] = futures.get(i).get();
+    }
+    catch (InterruptedException e) {
+      for (Future<Matrix[]> future: futures)
+	future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new MatrixAlgorithmsException("Cross-validation interrupted", e);
+    }
+    catch (ExecutionException e) {
+      for (Future<Matrix[]> future: futures)
+	future.cancel(true);
+      throw new MatrixAlgorithmsException("Failed to evaluate fold", e.getCause());
+    }
+
+    return result;
+  }
+
+  /**
+   * Trains a new algorithm instance on the training rows of the fold and
+   * predicts its test rows.
+   *
+   * @param fold		the fold
+   * @param crossProducts	the cross products of all rows, null if not used
+   * @return			the predictions for the test rows, per number of components
+   */
+  protected Matrix[] evaluateFold(Fold fold, CrossProducts crossProducts) {
+    return evaluateFold(m_Factory.get(), fold, crossProducts);
+  }
+
+  /**
+   * Trains the algorithm on the training rows of the fold and predicts its
+   * test rows.
+   *
+   * @param algorithm		the algorithm to train
+   * @param fold		the fold
+   * @param crossProducts	the cross products of all rows, null if not used
+   * @return			the predictions for the test rows, per number of components
+   */
+  protected static Matrix[] evaluateFold(PredictingSupervisedMatrixAlgorithm algorithm, Fold fold, CrossProducts crossProducts) {
+    Matrix[]	downdated;
+
+    if ((crossProducts != null) && algorithm.canConfigureFromCrossProducts()) {
+      downdated = fold.downdate(crossProducts);
+      algorithm.configureFromCrossProducts(downdated[0], downdated[1]);
+    }
+    else {
+      algorithm.configure(fold.getTrainX(), fold.getTrainY());
+    }
+
+    if ((algorithm instanceof ComponentPathPredictor) && ((ComponentPathPredictor) algorithm).canPredictPath())
+      return ((ComponentPathPredictor) algorithm).predictPath(fold.getTestX());
+    else
+      return new Matrix[]{algorithm.predict(fold.getTestX())};
+  }
+
+  /**
+   * The cross products X^T*X and X^T*y of the full data.
+   */
+  protected static class CrossProducts {
+
+    /** X^T*X. */
+    protected final Matrix m_XtX;
+
+    /** X^T*y. */
+    protected final Matrix m_Xty;
+
+    /**
+     * Computes the cross products.
+     *
+     * @param X		the feature matrix
+     * @param y		the target matrix
+     */
+    protected CrossProducts(Matrix X, Matrix y) {
+      m_XtX = X.t().mul(X);
+      m_Xty = X.t().mul(y);
+    }
+  }
+
+  /**
+   * Views on the training and test rows of a fold. Shared by all
+   * algorithms evaluated on the fold, so the views can serve as keys for
+   * the {@link IntermediateCache}.
+   */
+  protected static class Fold {
+
+    /** the test rows. */
+    protected final int[] m_Test;
+
+    /** the training features. */
+    protected final Matrix m_TrainX;
+
+    /** the training targets. */
+    protected final Matrix m_TrainY;
+
+    /** the test features. */
+    protected final Matrix m_TestX;
+
+    /** the test targets. */
+    protected final Matrix m_TestY;
+
+    /** the downdated cross products, lazily computed. */
+    protected Matrix[] m_Downdated;
+
+    /**
+     * Creates the views.
+     *
+     * @param X		the feature matrix
+     * @param y		the target matrix
+     * @param test	the test rows
+     */
+    protected Fold(Matrix X, Matrix y, int[] test) {
+      int[] train = trainingRows(test, X.numRows());
+      m_Test   = test;
+      m_TrainX = X.viewRows(train);
+      m_TrainY = y.viewRows(train);
+      m_TestX  = X.viewRows(test);
+      m_TestY  = y.viewRows(test);
+    }
+
+    public Matrix getTrainX() {
+      return m_TrainX;
+    }
+
+    public Matrix getTrainY() {
+      return m_TrainY;
+    }
+
+    public Matrix getTestX() {
+      return m_TestX;
+    }
+
+    /**
+     * Returns the cross products of the training rows, obtained by removing
+     * the test rows from the cross products of the full data.
+     *
+     * @param crossProducts	the cross products of the full data
+     * @return			X^T*X and X^T*y of the training rows
+     */
+    protected synchronized Matrix[] downdate(CrossProducts crossProducts) {
+      if (m_Downdated == null) {
+	m_Downdated = new Matrix[]{
+	  crossProducts.m_XtX.sub(m_TestX.t().mul(m_TestX)),
+	  crossProducts.m_Xty.sub(m_TestX.t().mul(m_TestY)),
+	};
+      }
+      return m_Downdated;
+    }
+  }
+}
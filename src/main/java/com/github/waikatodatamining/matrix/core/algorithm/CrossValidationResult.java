@@ -0,0 +1,213 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CrossValidationResult.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of a {@link CrossValidation}: the out-of-fold predictions,
+ * RMSECV and R^2 per number of components. For algorithms that don't
+ * predict a component path, there is only a single entry.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class CrossValidationResult
+  implements Serializable {
+
+  private static final long serialVersionUID = 5406393216617052349L;
+
+  /** the test rows per fold. */
+  protected int[][] m_Folds;
+
+  /** the out-of-fold predictions per number of components. */
+  protected Matrix[] m_Predictions;
+
+  /** the root mean squared error per number of components. */
+  protected double[] m_RMSECV;
+
+  /** the coefficient of determination per number of components. */
+  protected double[] m_R2;
+
+  /**
+   * Assembles the result from the fold predictions.
+   *
+   * @param y		the target matrix
+   * @param folds	the test rows per fold
+   * @param predictions	the predictions of the test rows per fold and
+   *                    number of components
+   */
+  public CrossValidationResult(Matrix y, int[][] folds, Matrix[][] predictions) {
+    double[][][]	preds;
+    double[][]		actual;
+    double[]		means;
+    double		sse;
+    double		sst;
+    double		diff;
+    int			numPaths;
+    int			numCols;
+    int			numValues;
+    int			c;
+    int			f;
+    int			i;
+    int			j;
+
+    numPaths = Integer.MAX_VALUE;
+    for (Matrix[] fold: predictions)
+      numPaths = Math.min(numPaths, fold.length);
+    if ((predictions.length == 0) || (numPaths == 0))
+      throw new MatrixAlgorithmsException("No predictions available");
+
+    numCols = y.numColumns();
+    actual  = y.toRawCopy2D();
+    preds   = new double[numPaths][y.numRows()][numCols];
+    for (f = 0; f < folds.length; f++) {
+      for (c = 0; c < numPaths; c++) {
+	for (i = 0; i < folds[f].length; i++) {
+	  for (j = 0; j < numCols; j++)
+	    preds[c][folds[f][i]][j] = predictions[f][c].get(i, j);
+	}
+      }
+    }
+
+    // mean of the evaluated targets
+    means     = new double[numCols];
+    numValues = 0;
+    for (int[] fold: folds) {
+      for (int row: fold) {
+	for (j = 0; j < numCols; j++)
+	  means[j] += actual[row][j];
+	numValues++;
+      }
+    }
+    for (j = 0; j < numCols; j++)
+      means[j] /= numValues;
+
+    m_Folds       = folds;
+    m_Predictions = new Matrix[numPaths];
+    m_RMSECV      = new double[numPaths];
+    m_R2          = new double[numPaths];
+    for (c = 0; c < numPaths; c++) {
+      sse = 0.0;
+      sst = 0.0;
+      for (int[] fold: folds) {
+	for (int row: fold) {
+	  for (j = 0; j < numCols; j++) {
+	    diff = actual[row][j] - preds[c][row][j];
+	    sse += diff * diff;
+	    diff = actual[row][j] - means[j];
+	    sst += diff * diff;
+	  }
+	}
+      }
+      m_Predictions[c] = MatrixFactory.fromRaw(preds[c]);
+      m_RMSECV[c]      = Math.sqrt(sse / (numValues * numCols));
+      m_R2[c]          = (sst > 0) ? 1.0 - sse / sst : Double.NaN;
+    }
+  }
+
+  /**
+   * Returns the number of evaluated component counts.
+   *
+   * @return		the number of entries
+   */
+  public int getNumComponents() {
+    return m_RMSECV.length;
+  }
+
+  /**
+   * Returns the test rows per fold.
+   *
+   * @return		the folds
+   */
+  public int[][] getFolds() {
+    return m_Folds;
+  }
+
+  /**
+   * Returns the out-of-fold predictions for the given number of components.
+   *
+   * @param numComponents	the number of components (1-based)
+   * @return		the predictions, one row per row of the data
+   */
+  public Matrix getPredictions(int numComponents) {
+    return m_Predictions[numComponents - 1];
+  }
+
+  /**
+   * Returns the root mean squared error of cross-validation, with element
+   * k belonging to k+1 components.
+   *
+   * @return		the RMSECV per number of components
+   */
+  public double[] getRMSECV() {
+    return m_RMSECV.clone();
+  }
+
+  /**
+   * Returns the coefficient of determination of the out-of-fold
+   * predictions, with element k belonging to k+1 components.
+   *
+   * @return		the R^2 per number of components
+   */
+  public double[] getR2() {
+    return m_R2.clone();
+  }
+
+  /**
+   * Returns the number of components with the lowest RMSECV.
+   *
+   * @return		the number of components (1-based)
+   */
+  public int getBestNumComponents() {
+    int		result;
+    int		i;
+
+    result = 0;
+    for (i = 1; i < m_RMSECV.length; i++) {
+      if (m_RMSECV[i] < m_RMSECV[result])
+	result = i;
+    }
+
+    return result + 1;
+  }
+
+  /**
+   * Returns a short summary of the result.
+   *
+   * @return		the summary
+   */
+  @Override
+  public String toString() {
+    StringBuilder	result;
+    int			i;
+
+    result = new StringBuilder();
+    result.append("Folds: ").append(m_Folds.length).append("\n");
+    for (i = 0; i < m_RMSECV.length; i++)
+      result.append(i + 1).append(": RMSECV=").append(m_RMSECV[i]).append(", R2=").append(m_R2[i]).append("\n");
+
+    return result.toString();
+  }
+}
@@ -0,0 +1,449 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FitCache.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import com.github.waikatodatamining.matrix.core.LoggingObject;
+import com.github.waikatodatamining.matrix.core.Utils;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in cache for fitted algorithms, avoiding refits of the same
+ * configuration on the same data.
+ * <p>
+ * The key consists of the algorithm class, a digest of its serialized
+ * (unconfigured) parameters and the {@link Matrix#fingerprint()} of the
+ * data. The parameters get serialized straight into the digest, without
+ * copying the algorithm. An algorithm that is already configured gets reset
+ * first, so that the previous fit neither contributes to the key nor has to
+ * be serialized. The fitted algorithms are kept in serialized form in an LRU
+ * that is bounded by the number of bytes. Evicted entries get written to the
+ * spill directory, if one is set, and are read back from there on a later
+ * hit. Spill files are read and written without holding the lock of the
+ * cache.
+ * <p>
+ * A hit returns a copy of the cached algorithm, a miss configures and
+ * returns the supplied algorithm. Either way, the supplied algorithm loses
+ * any previous fit. Callers must therefore always use the returned
+ * instance.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class FitCache
+  extends LoggingObject {
+
+  private static final long serialVersionUID = -3658471938520963021L;
+
+  /** the file extension for spilled entries. */
+  public static final String SPILL_EXTENSION = ".fit";
+
+  /** the maximum number of bytes to keep in memory. */
+  protected long m_MaxBytes = 64L * 1024 * 1024;
+
+  /** the directory to spill evicted entries to, null to discard them. */
+  protected File m_SpillDir = null;
+
+  /** the serialized fitted algorithms, in access order. */
+  protected transient LinkedHashMap<String, byte[]> m_Entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** the evicted entries that are being written to the spill directory. */
+  protected transient Map<String, byte[]> m_Spilling = new HashMap<>();
+
+  /** the number of bytes currently in memory. */
+  protected long m_NumBytes = 0;
+
+  /** the number of fits served from the cache. */
+  protected final AtomicLong m_Hits = new AtomicLong();
+
+  /** the number of fits that had to be performed. */
+  protected final AtomicLong m_Misses = new AtomicLong();
+
+  /**
+   * Sets the maximum number of bytes of fitted algorithms to keep in memory.
+   *
+   * @param value	the number of bytes, at least 0
+   */
+  public void setMaxBytes(long value) {
+    Map<String, byte[]>	evicted;
+
+    if (value < 0) {
+      getLogger().warning("Maximum number of bytes must be at least 0 but was " + value + ".");
+    }
+    else {
+      synchronized (this) {
+	m_MaxBytes = value;
+	evicted    = evict();
+      }
+      spill(evicted);
+    }
+  }
+
+  /**
+   * Returns the maximum number of bytes of fitted algorithms to keep in memory.
+   *
+   * @return		the number of bytes
+   */
+  public synchronized long getMaxBytes() {
+    return m_MaxBytes;
+  }
+
+  /**
+   * Sets the directory to spill evicted entries to.
+   *
+   * @param value	the directory, null to discard evicted entries
+   */
+  public synchronized void setSpillDir(File value) {
+    if ((value != null) && !value.isDirectory() && !value.mkdirs())
+      throw new MatrixAlgorithmsException("Failed to create spill directory: " + value);
+    m_SpillDir = value;
+  }
+
+  /**
+   * Returns the directory to spill evicted entries to.
+   *
+   * @return		the directory, null if evicted entries are discarded
+   */
+  public synchronized File getSpillDir() {
+    return m_SpillDir;
+  }
+
+  /**
+   * Returns the number of fits served from the cache.
+   *
+   * @return		the number of hits
+   */
+  public long getHits() {
+    return m_Hits.get();
+  }
+
+  /**
+   * Returns the number of fits that had to be performed.
+   *
+   * @return		the number of misses
+   */
+  public long getMisses() {
+    return m_Misses.get();
+  }
+
+  /**
+   * Returns the number of entries held in memory.
+   *
+   * @return		the number of entries
+   */
+  public synchronized int size() {
+    return m_Entries.size();
+  }
+
+  /**
+   * Returns the number of bytes held in memory.
+   *
+   * @return		the number of bytes
+   */
+  public synchronized long getNumBytes() {
+    return m_NumBytes;
+  }
+
+  /**
+   * Removes all entries from memory (the spill directory is left untouched).
+   */
+  public synchronized void clear() {
+    m_Entries.clear();
+    m_NumBytes = 0;
+  }
+
+  /**
+   * Configures the algorithm on the data, unless a fitted algorithm with
+   * the same parameters is already cached for the data.
+   *
+   * @param algorithm	the algorithm to configure
+   * @param X		the feature matrix
+   * @param y		the target matrix
+   * @param <T>		the type of algorithm
+   * @return		the configured algorithm, a copy in case of a hit
+   */
+  public <T extends SupervisedMatrixAlgorithm> T configure(T algorithm, Matrix X, Matrix y) {
+    String	key;
+    T		result;
+
+    key    = key(algorithm, X, y);
+    result = lookup(key);
+    if (result == null) {
+      algorithm.configure(X, y);
+      store(key, algorithm);
+      result = algorithm;
+    }
+
+    return result;
+  }
+
+  /**
+   * Configures the algorithm on the data, unless a fitted algorithm with
+   * the same parameters is already cached for the data.
+   *
+   * @param algorithm	the algorithm to configure
+   * @param X		the matrix to configure on
+   * @param <T>		the type of algorithm
+   * @return		the configured algorithm, a copy in case of a hit
+   */
+  public <T extends UnsupervisedMatrixAlgorithm> T configure(T algorithm, Matrix X) {
+    String	key;
+    T		result;
+
+    key    = key(algorithm, X, null);
+    result = lookup(key);
+    if (result == null) {
+      algorithm.configure(X);
+      store(key, algorithm);
+      result = algorithm;
+    }
+
+    return result;
+  }
+
+  /**
+   * Generates the key for the algorithm parameters and the data. A
+   * configured algorithm gets reset, so that only its parameters contribute.
+   *
+   * @param algorithm	the algorithm
+   * @param X		the feature matrix
+   * @param y		the target matrix, null for unsupervised algorithms
+   * @return		the key
+   */
+  protected String key(ConfiguredMatrixAlgorithm algorithm, Matrix X, Matrix y) {
+    final MessageDigest	digest;
+    OutputStream	out;
+    StringBuilder	result;
+
+    if (algorithm.isConfigured())
+      algorithm.reset();
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new MatrixAlgorithmsException("Failed to create digest", e);
+    }
+    out = new OutputStream() {
+      @Override
+      public void write(int b) {
+	digest.update((byte) b);
+      }
+      @Override
+      public void write(byte[] b, int off, int len) {
+	digest.update(b, off, len);
+      }
+    };
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(algorithm);
+    }
+    catch (IOException e) {
+      throw new MatrixAlgorithmsException("Failed to serialize " + algorithm.getClass().getName(), e);
+    }
+
+    result = new StringBuilder(algorithm.getClass().getName());
+    result.append('-');
+    for (byte b: digest.digest())
+      result.append(String.format("%02x", b));
+    result.append('-').append(Long.toHexString(X.fingerprint()));
+    if (y != null)
+      result.append('-').append(Long.toHexString(y.fingerprint()));
+
+    return result.toString();
+  }
+
+  /**
+   * Returns a copy of the cached algorithm. A spilled entry gets read
+   * without holding the lock and then published again.
+   *
+   * @param key		the key of the algorithm
+   * @param <T>		the type of algorithm
+   * @return		the algorithm, null if not cached
+   */
+  protected <T extends ConfiguredMatrixAlgorithm> T lookup(String key) {
+    byte[]		data;
+    byte[]		current;
+    File		file;
+    Map<String, byte[]>	evicted;
+
+    file    = null;
+    evicted = null;
+    synchronized (this) {
+      data = m_Entries.get(key);
+      if (data == null)
+	data = m_Spilling.get(key);
+      if ((data == null) && (m_SpillDir != null))
+	file = new File(m_SpillDir, key + SPILL_EXTENSION);
+    }
+
+    if ((file != null) && file.exists()) {
+      try {
+	data = Files.readAllBytes(file.toPath());
+      }
+      catch (IOException e) {
+	getLogger().warning("Failed to read spilled fit " + file + ": " + e);
+      }
+      if (data != null) {
+	synchronized (this) {
+	  current = m_Entries.get(key);
+	  if (current == null)
+	    evicted = put(key, data);
+	  else
+	    data = current;
+	}
+	spill(evicted);
+      }
+    }
+
+    if (data == null) {
+      m_Misses.incrementAndGet();
+      return null;
+    }
+
+    m_Hits.incrementAndGet();
+    return Utils.deserialize(data);
+  }
+
+  /**
+   * Caches the fitted algorithm.
+   *
+   * @param key		the key of the algorithm
+   * @param algorithm	the fitted algorithm
+   */
+  protected void store(String key, ConfiguredMatrixAlgorithm algorithm) {
+    byte[]		data;
+    Map<String, byte[]>	evicted;
+
+    data = Utils.serialize(algorithm);
+    synchronized (this) {
+      evicted = put(key, data);
+    }
+    spill(evicted);
+  }
+
+  /**
+   * Adds the entry and evicts the least recently used entries if the memory
+   * budget is exceeded. Must be called while holding the lock.
+   *
+   * @param key		the key
+   * @param data	the serialized algorithm
+   * @return		the evicted entries to spill
+   */
+  protected Map<String, byte[]> put(String key, byte[] data) {
+    byte[]	previous;
+
+    previous = m_Entries.put(key, data);
+    if (previous != null)
+      m_NumBytes -= previous.length;
+    m_NumBytes += data.length;
+    return evict();
+  }
+
+  /**
+   * Evicts the least recently used entries until the memory budget is met.
+   * If a spill directory is set, the evicted entries are kept as being
+   * spilled until {@link #spill(Map)} has written them. Must be called while
+   * holding the lock.
+   *
+   * @return		the evicted entries to spill
+   */
+  protected Map<String, byte[]> evict() {
+    Iterator<Map.Entry<String, byte[]>>	iter;
+    Map.Entry<String, byte[]>		entry;
+    Map<String, byte[]>			result;
+
+    result = new LinkedHashMap<>();
+    iter   = m_Entries.entrySet().iterator();
+    while ((m_NumBytes > m_MaxBytes) && iter.hasNext()) {
+      entry = iter.next();
+      if (m_SpillDir != null) {
+	result.put(entry.getKey(), entry.getValue());
+	m_Spilling.put(entry.getKey(), entry.getValue());
+      }
+      m_NumBytes -= entry.getValue().length;
+      iter.remove();
+    }
+
+    return result;
+  }
+
+  /**
+   * Writes the evicted entries to the spill directory, without holding the
+   * lock. Each file gets written under a temporary name and then renamed,
+   * i.e., readers never see partial files.
+   *
+   * @param evicted	the evicted entries, may be null
+   */
+  protected void spill(Map<String, byte[]> evicted) {
+    File	dir;
+    File	file;
+    File	tmp;
+
+    if ((evicted == null) || evicted.isEmpty())
+      return;
+
+    synchronized (this) {
+      dir = m_SpillDir;
+    }
+    for (Map.Entry<String, byte[]> entry: evicted.entrySet()) {
+      if (dir != null) {
+	file = new File(dir, entry.getKey() + SPILL_EXTENSION);
+	try {
+	  if (!file.exists()) {
+	    tmp = File.createTempFile(entry.getKey(), ".tmp", dir);
+	    Files.write(tmp.toPath(), entry.getValue());
+	    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	  }
+	}
+	catch (IOException e) {
+	  getLogger().warning("Failed to spill fit to " + file + ": " + e);
+	}
+      }
+      synchronized (this) {
+	m_Spilling.remove(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Restores the transient entries after deserialization.
+   *
+   * @return		this cache, without entries
+   */
+  protected Object readResolve() {
+    m_Entries  = new LinkedHashMap<>(16, 0.75f, true);
+    m_Spilling = new HashMap<>();
+    m_NumBytes = 0;
+    return this;
+  }
+}
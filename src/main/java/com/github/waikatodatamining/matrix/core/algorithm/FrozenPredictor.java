@@ -0,0 +1,157 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FrozenPredictor.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import com.github.waikatodatamining.matrix.core.Utils;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+
+import java.io.Serializable;
+
+/**
+ * Immutable, thread-safe view on a configured algorithm, for sharing a
+ * fitted model between threads without locks or per-thread copies.
+ * <p>
+ * Freezing takes a private copy of the configured algorithm, so that neither
+ * reconfiguring nor changing the parameters of the original affects the
+ * frozen model. The copy is never exposed and only its read-only operations
+ * (transform, predict and predict path) are available.
+ * <p>
+ * This relies on the contract of {@link SupervisedMatrixAlgorithm} and
+ * {@link UnsupervisedMatrixAlgorithm} that, once configured, transforming
+ * and predicting don't modify the state of the algorithm. Algorithms that
+ * (re-)fit on every transform (e.g., PCA or FastICA) are not configured
+ * algorithms and can therefore not be frozen. Listeners of the original
+ * algorithm are not carried over.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public final class FrozenPredictor
+  implements Serializable {
+
+  private static final long serialVersionUID = -2178520453461802283L;
+
+  /** the private copy of the configured algorithm. */
+  private final ConfiguredMatrixAlgorithm m_Algorithm;
+
+  /**
+   * Initializes the predictor with its private copy of the algorithm.
+   *
+   * @param algorithm	the configured algorithm
+   */
+  private FrozenPredictor(ConfiguredMatrixAlgorithm algorithm) {
+    algorithm.ensureConfigured();
+    m_Algorithm = Utils.deepCopy(algorithm);
+  }
+
+  /**
+   * Freezes the configured supervised algorithm.
+   *
+   * @param algorithm	the algorithm to freeze
+   * @return		the frozen predictor
+   * @throws com.github.waikatodatamining.matrix.core.exceptions.UnconfiguredAlgorithmException	if the algorithm is not configured
+   */
+  public static FrozenPredictor freeze(SupervisedMatrixAlgorithm algorithm) {
+    return new FrozenPredictor(algorithm);
+  }
+
+  /**
+   * Freezes the configured unsupervised algorithm.
+   *
+   * @param algorithm	the algorithm to freeze
+   * @return		the frozen predictor
+   * @throws com.github.waikatodatamining.matrix.core.exceptions.UnconfiguredAlgorithmException	if the algorithm is not configured
+   */
+  public static FrozenPredictor freeze(UnsupervisedMatrixAlgorithm algorithm) {
+    return new FrozenPredictor(algorithm);
+  }
+
+  /**
+   * Returns the class of the frozen algorithm.
+   *
+   * @return		the class
+   */
+  public Class<? extends MatrixAlgorithm> getAlgorithmClass() {
+    return m_Algorithm.getClass();
+  }
+
+  /**
+   * Transforms the data.
+   *
+   * @param X		the data to transform
+   * @return		the transformed data
+   */
+  public Matrix transform(Matrix X) {
+    return m_Algorithm.transform(X);
+  }
+
+  /**
+   * Returns whether the frozen algorithm can predict.
+   *
+   * @return		true if {@link #predict(Matrix)} is available
+   */
+  public boolean canPredict() {
+    return (m_Algorithm instanceof PredictingSupervisedMatrixAlgorithm);
+  }
+
+  /**
+   * Performs predictions on the feature matrix.
+   *
+   * @param X		the feature matrix to predict against
+   * @return		the predictions
+   * @throws MatrixAlgorithmsException	if the algorithm cannot predict
+   */
+  public Matrix predict(Matrix X) {
+    if (!canPredict())
+      throw new MatrixAlgorithmsException(m_Algorithm.getClass().getSimpleName() + " cannot predict!");
+
+    return ((PredictingSupervisedMatrixAlgorithm) m_Algorithm).predict(X);
+  }
+
+  /**
+   * Returns whether the frozen algorithm can predict for each number of
+   * components.
+   *
+   * @return		true if {@link #predictPath(Matrix)} is available
+   */
+  public boolean canPredictPath() {
+    return (m_Algorithm instanceof ComponentPathPredictor) && ((ComponentPathPredictor) m_Algorithm).canPredictPath();
+  }
+
+  /**
+   * Performs predictions on the feature matrix for each number of components.
+   *
+   * @param X		the feature matrix to predict against
+   * @return		the predictions per number of components
+   * @throws MatrixAlgorithmsException	if the algorithm cannot predict paths
+   */
+  public Matrix[] predictPath(Matrix X) {
+    if (!canPredictPath())
+      throw new MatrixAlgorithmsException(m_Algorithm.getClass().getSimpleName() + " cannot predict paths!");
+
+    return ((ComponentPathPredictor) m_Algorithm).predictPath(X);
+  }
+
+  @Override
+  public String toString() {
+    return "Frozen " + m_Algorithm;
+  }
+}
@@ -0,0 +1,275 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * IntermediateCache.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import com.github.waikatodatamining.matrix.core.Tuple;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes intermediate results that don't depend on an algorithm's
+ * configuration, e.g., standardized data, cross products or pairwise
+ * distances, so that they can be shared when fitting many configurations
+ * on the same data (see {@link ParameterSearch}).
+ * <p>
+ * A cache only takes effect for code run via {@link #call(Callable)}, which
+ * makes it the active cache of the current thread. Algorithms request
+ * intermediates via {@link #computeIfAbsent(String, Supplier, Object...)},
+ * which simply computes the value if no cache is active. The inputs are
+ * compared by identity, and cached values must never be modified.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class IntermediateCache {
+
+  /** the cache active in the current thread. */
+  protected static final ThreadLocal<IntermediateCache> ACTIVE = new ThreadLocal<>();
+
+  /** the cached values. */
+  protected final ConcurrentHashMap<Key, FutureTask<Object>> m_Values = new ConcurrentHashMap<>();
+
+  /** the number of cache hits. */
+  protected final AtomicLong m_Hits = new AtomicLong();
+
+  /** the number of cache misses. */
+  protected final AtomicLong m_Misses = new AtomicLong();
+
+  /**
+   * Runs the task with this cache being the active one in the current thread.
+   *
+   * @param task	the task to run
+   * @param <V>		the type of result
+   * @return		the result of the task
+   * @throws Exception	if the task fails
+   */
+  public <V> V call(Callable<V> task) throws Exception {
+    IntermediateCache	previous;
+
+    previous = ACTIVE.get();
+    ACTIVE.set(this);
+    try {
+      return task.call();
+    }
+    finally {
+      if (previous == null)
+	ACTIVE.remove();
+      else
+	ACTIVE.set(previous);
+    }
+  }
+
+  /**
+   * Returns the cached value for the name and inputs, computing it if
+   * necessary. Concurrent requests for the same value wait for a single
+   * computation.
+   *
+   * @param name	the name of the intermediate
+   * @param compute	computes the value
+   * @param inputs	the inputs the value depends on
+   * @param <V>		the type of value
+   * @return		the value
+   */
+  @SuppressWarnings("unchecked")
+  public <V> V get(String name, Supplier<V> compute, Object... inputs) {
+    Key			key;
+    FutureTask<Object>	task;
+    FutureTask<Object>	existing;
+
+    key      = new Key(name, inputs);
+    task     = new FutureTask<>(compute::get);
+    existing = m_Values.putIfAbsent(key, task);
+    if (existing == null) {
+      m_Misses.incrementAndGet();
+      task.run();
+    }
+    else {
+      m_Hits.incrementAndGet();
+      task = existing;
+    }
+
+    try {
+      return (V) task.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MatrixAlgorithmsException("Interrupted while waiting for intermediate: " + name, e);
+    }
+    catch (ExecutionException e) {
+      // don't keep failures around
+      m_Values.remove(key, task);
+      if (e.getCause() instanceof RuntimeException)
+	throw (RuntimeException) e.getCause();
+      throw new MatrixAlgorithmsException("Failed to compute intermediate: " + name, e.getCause());
+    }
+  }
+
+  /**
+   * Returns the number of cached values.
+   *
+   * @return		the number of values
+   */
+  public int size() {
+    return m_Values.size();
+  }
+
+  /**
+   * Returns the number of requests served from the cache.
+   *
+   * @return		the number of hits
+   */
+  public long getHits() {
+    return m_Hits.get();
+  }
+
+  /**
+   * Returns the number of requests that required a computation.
+   *
+   * @return		the number of misses
+   */
+  public long getMisses() {
+    return m_Misses.get();
+  }
+
+  /**
+   * Removes all cached values.
+   */
+  public void clear() {
+    m_Values.clear();
+  }
+
+  /**
+   * Returns the cache active in the current thread.
+   *
+   * @return		the cache, null if none active
+   */
+  public static IntermediateCache active() {
+    return ACTIVE.get();
+  }
+
+  /**
+   * Returns the value from the active cache, computing it if necessary. If
+   * no cache is active, the value is just computed.
+   *
+   * @param name	the name of the intermediate
+   * @param compute	computes the value
+   * @param inputs	the inputs the value depends on (compared by identity)
+   * @param <V>		the type of value
+   * @return		the value
+   */
+  public static <V> V computeIfAbsent(String name, Supplier<V> compute, Object... inputs) {
+    IntermediateCache	cache;
+
+    cache = ACTIVE.get();
+    if (cache == null)
+      return compute.get();
+    else
+      return cache.get(name, compute, inputs);
+  }
+
+  /**
+   * Configures a new transformation on the data and applies it, sharing
+   * the result via the active cache.
+   *
+   * @param name	the name of the transformation
+   * @param factory	creates the (unconfigured) transformation
+   * @param data	the data to configure on and transform
+   * @param <T>		the type of transformation
+   * @return		the configured transformation and the transformed data
+   */
+  public static <T extends UnsupervisedMatrixAlgorithm> Tuple<T, Matrix> configureAndTransform(String name, Supplier<T> factory, Matrix data) {
+    return computeIfAbsent(name + ".configureAndTransform", () -> {
+      T trans = factory.get();
+      return new Tuple<>(trans, trans.configureAndTransform(data));
+    }, data);
+  }
+
+  /**
+   * Key consisting of a name and input objects compared by identity.
+   */
+  protected static class Key {
+
+    /** the name. */
+    protected final String m_Name;
+
+    /** the inputs. */
+    protected final Object[] m_Inputs;
+
+    /** the hash code. */
+    protected final int m_Hash;
+
+    /**
+     * Initializes the key.
+     *
+     * @param name	the name
+     * @param inputs	the inputs
+     */
+    protected Key(String name, Object[] inputs) {
+      int	hash;
+
+      m_Name   = name;
+      m_Inputs = inputs.clone();
+      hash     = name.hashCode();
+      for (Object input: m_Inputs)
+	hash = 31 * hash + System.identityHashCode(input);
+      m_Hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      Key	other;
+      int	i;
+
+      if (!(o instanceof Key))
+	return false;
+      other = (Key) o;
+      if (!m_Name.equals(other.m_Name) || (m_Inputs.length != other.m_Inputs.length))
+	return false;
+      for (i = 0; i < m_Inputs.length; i++) {
+	if (m_Inputs[i] != other.m_Inputs[i])
+	  return false;
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return m_Hash;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder	result;
+
+      result = new StringBuilder(m_Name);
+      for (Object input: m_Inputs)
+	result.append("@").append(Integer.toHexString(System.identityHashCode(input)));
+
+      return result.toString();
+    }
+  }
+}
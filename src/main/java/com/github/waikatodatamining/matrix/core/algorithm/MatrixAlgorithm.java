@@ -23,8 +23,12 @@ package com.github.waikatodatamining.matrix.core.algorithm;
 import com.github.waikatodatamining.matrix.core.LoggingObject;
 import com.github.waikatodatamining.matrix.core.exceptions.InverseTransformException;
 import com.github.waikatodatamining.matrix.core.exceptions.UninvertibleAlgorithmException;
+import com.github.waikatodatamining.matrix.core.matrix.AllocationTracker;
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * Base class for all matrix algorithms.
  *
@@ -33,6 +37,9 @@ import com.github.waikatodatamining.matrix.core.matrix.Matrix;
 public abstract class MatrixAlgorithm
   extends LoggingObject {
 
+  /** The listeners to notify (not serialized). */
+  private transient volatile List<AlgorithmListener> m_Listeners;
+
   /**
    * Performs the transformation that this algorithm represents on
    * the given matrix.
@@ -44,7 +51,17 @@ public abstract class MatrixAlgorithm
     if (X == null)
       throw new NullPointerException("Can't transform null matrix");
 
-    return doTransform(X);
+    long start = startPhase(PhaseEvent.Phase.TRANSFORM);
+    Matrix result;
+    try {
+      result = doTransform(X);
+    }
+    finally {
+      endPhase(PhaseEvent.Phase.TRANSFORM);
+    }
+    notifyPhase(PhaseEvent.Phase.TRANSFORM, start, X);
+
+    return result;
   }
 
   /**
@@ -67,7 +84,17 @@ public abstract class MatrixAlgorithm
     if (X == null)
       throw new NullPointerException("Can't inverse-transform null matrix");
 
-    return doInverseTransform(X);
+    long start = startPhase(PhaseEvent.Phase.INVERSE_TRANSFORM);
+    Matrix result;
+    try {
+      result = doInverseTransform(X);
+    }
+    finally {
+      endPhase(PhaseEvent.Phase.INVERSE_TRANSFORM);
+    }
+    notifyPhase(PhaseEvent.Phase.INVERSE_TRANSFORM, start, X);
+
+    return result;
   }
 
   /**
@@ -99,4 +126,97 @@ public abstract class MatrixAlgorithm
     return false;
   }
 
+  /**
+   * Adds the listener to notify about completed phases and convergence.
+   * Listeners are not serialized.
+   *
+   * @param listener  The listener to add.
+   */
+  public synchronized void addListener(AlgorithmListener listener) {
+    if (m_Listeners == null)
+      m_Listeners = new CopyOnWriteArrayList<>();
+    m_Listeners.add(listener);
+  }
+
+  /**
+   * Removes the listener.
+   *
+   * @param listener  The listener to remove.
+   */
+  public synchronized void removeListener(AlgorithmListener listener) {
+    if (m_Listeners != null)
+      m_Listeners.remove(listener);
+  }
+
+  /**
+   * Whether any listeners are registered.
+   *
+   * @return  True if there are listeners to notify.
+   */
+  public boolean hasListeners() {
+    List<AlgorithmListener> listeners = m_Listeners;
+    return (listeners != null) && !listeners.isEmpty();
+  }
+
+  /**
+   * Notifies the listeners that a phase is starting. Every call must be
+   * matched by a call to {@link #endPhase(PhaseEvent.Phase)} in a finally
+   * block.
+   *
+   * @param phase The phase.
+   * @return      The start of the phase, as obtained from {@link System#nanoTime()}.
+   */
+  protected long startPhase(PhaseEvent.Phase phase) {
+    if (hasListeners()) {
+      for (AlgorithmListener listener : m_Listeners)
+        listener.phaseStarted(this, phase);
+    }
+    AllocationTracker.enter(this, phase.name());
+
+    return System.nanoTime();
+  }
+
+  /**
+   * Ends a phase started with {@link #startPhase(PhaseEvent.Phase)}, whether
+   * it completed or failed.
+   *
+   * @param phase The phase.
+   */
+  protected void endPhase(PhaseEvent.Phase phase) {
+    AllocationTracker.exit(this, phase.name());
+  }
+
+  /**
+   * Notifies the listeners that a phase has completed successfully, after
+   * {@link #endPhase(PhaseEvent.Phase)}.
+   *
+   * @param phase The completed phase.
+   * @param start The start of the phase, as returned by {@link #startPhase(PhaseEvent.Phase)}.
+   * @param data  The data processed in the phase.
+   */
+  protected void notifyPhase(PhaseEvent.Phase phase, long start, Matrix data) {
+    if (!hasListeners())
+      return;
+
+    PhaseEvent event = new PhaseEvent(this, phase, System.nanoTime() - start, data.numRows(), data.numColumns());
+    for (AlgorithmListener listener : m_Listeners)
+      listener.phaseCompleted(event);
+  }
+
+  /**
+   * Notifies the listeners that an iterative algorithm stopped iterating.
+   *
+   * @param component   The component (0-based), -1 if not specific to a component.
+   * @param iterations  The number of iterations.
+   * @param delta       The change in the last iteration.
+   * @param converged   Whether the tolerance was met.
+   */
+  protected void notifyConvergence(int component, int iterations, double delta, boolean converged) {
+    if (!hasListeners())
+      return;
+
+    ConvergenceEvent event = new ConvergenceEvent(this, component, iterations, delta, converged);
+    for (AlgorithmListener listener : m_Listeners)
+      listener.iterationsCompleted(event);
+  }
 }
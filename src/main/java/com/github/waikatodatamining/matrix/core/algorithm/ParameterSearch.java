@@ -0,0 +1,459 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ParameterSearch.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import com.github.waikatodatamining.matrix.core.LoggingObject;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Grid or random search over hyperparameters of a predicting algorithm,
+ * e.g., SparsePLS lambda, PRM C or the gamma of the RBF kernel of KernelPLS.
+ * Filters like YGradientGLSW, YGradientEPO or CCAFilter are tuned in front
+ * of a predictor via a
+ * {@link com.github.waikatodatamining.matrix.algorithms.FilteredPredictor},
+ * whose filter the parameter setters modify.
+ * <p>
+ * Each candidate is cross-validated using the settings of
+ * {@link #getCrossValidation()}. All (candidate, fold) pairs are evaluated
+ * concurrently on its executor, sharing the same fold views and a single
+ * {@link IntermediateCache}. Intermediates that don't depend on the
+ * hyperparameters (standardized data, cross products, kernel distances)
+ * therefore only get computed once per fold.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ * @param <T> the type of algorithm to tune
+ */
+public class ParameterSearch<T extends PredictingSupervisedMatrixAlgorithm>
+  extends LoggingObject {
+
+  private static final long serialVersionUID = 3209553841187035842L;
+
+  /**
+   * The type of search.
+   */
+  public enum SearchType {
+    /** all combinations of the parameter values. */
+    GRID,
+    /** randomly sampled combinations. */
+    RANDOM,
+  }
+
+  /** the factory for the algorithm instances. */
+  protected transient Supplier<T> m_Factory;
+
+  /** the parameters to search. */
+  protected transient List<Parameter<T>> m_Parameters;
+
+  /** the type of search. */
+  protected SearchType m_SearchType = SearchType.GRID;
+
+  /** the number of candidates for random search. */
+  protected int m_NumRandomCandidates = 20;
+
+  /** the seed for random search. */
+  protected long m_Seed = 1;
+
+  /** the cross-validation settings. */
+  protected CrossValidation m_CrossValidation;
+
+  /** the cache used by the last search. */
+  protected transient IntermediateCache m_LastCache;
+
+  /**
+   * Initializes the search.
+   *
+   * @param factory	the factory for the algorithm instances
+   */
+  public ParameterSearch(Supplier<T> factory) {
+    if (factory == null)
+      throw new NullPointerException("Algorithm factory cannot be null");
+    m_Factory         = factory;
+    m_Parameters      = new ArrayList<>();
+    m_CrossValidation = new CrossValidation(factory);
+  }
+
+  /**
+   * Adds a parameter with the values to try.
+   *
+   * @param name	the name of the parameter
+   * @param setter	applies a value to an algorithm instance
+   * @param values	the values to try
+   */
+  public void addParameter(String name, BiConsumer<T, Double> setter, double... values) {
+    if (values.length == 0)
+      throw new MatrixAlgorithmsException("At least one value required for parameter: " + name);
+    m_Parameters.add(new Parameter<>(name, setter, values.clone(), Double.NaN, Double.NaN, false));
+  }
+
+  /**
+   * Adds a parameter with a range to sample from (random search only).
+   *
+   * @param name	the name of the parameter
+   * @param setter	applies a value to an algorithm instance
+   * @param min		the smallest value
+   * @param max		the largest value
+   * @param log		whether to sample on a log scale
+   */
+  public void addParameter(String name, BiConsumer<T, Double> setter, double min, double max, boolean log) {
+    if (min > max)
+      throw new MatrixAlgorithmsException("Minimum larger than maximum for parameter " + name + ": " + min + " > " + max);
+    if (log && (min <= 0))
+      throw new MatrixAlgorithmsException("Log scale requires positive range for parameter " + name + ": " + min);
+    m_Parameters.add(new Parameter<>(name, setter, null, min, max, log));
+  }
+
+  /**
+   * Sets the type of search.
+   *
+   * @param value	the type
+   */
+  public void setSearchType(SearchType value) {
+    m_SearchType = value;
+  }
+
+  /**
+   * Returns the type of search.
+   *
+   * @return		the type
+   */
+  public SearchType getSearchType() {
+    return m_SearchType;
+  }
+
+  /**
+   * Sets the number of candidates to sample for random search.
+   *
+   * @param value	the number of candidates, at least 1
+   */
+  public void setNumRandomCandidates(int value) {
+    if (value < 1) {
+      getLogger().warning("Number of random candidates must be at least 1 but was " + value + ".");
+    }
+    else {
+      m_NumRandomCandidates = value;
+    }
+  }
+
+  /**
+   * Returns the number of candidates to sample for random search.
+   *
+   * @return		the number of candidates
+   */
+  public int getNumRandomCandidates() {
+    return m_NumRandomCandidates;
+  }
+
+  /**
+   * Sets the seed for random search.
+   *
+   * @param value	the seed
+   */
+  public void setSeed(long value) {
+    m_Seed = value;
+  }
+
+  /**
+   * Returns the seed for random search.
+   *
+   * @return		the seed
+   */
+  public long getSeed() {
+    return m_Seed;
+  }
+
+  /**
+   * Returns the cross-validation settings (folds, groups, executor) used
+   * for evaluating the candidates.
+   *
+   * @return		the cross-validation
+   */
+  public CrossValidation getCrossValidation() {
+    return m_CrossValidation;
+  }
+
+  /**
+   * Returns the cache of intermediates used by the last search.
+   *
+   * @return		the cache, null if no search performed yet
+   */
+  public IntermediateCache getLastCache() {
+    return m_LastCache;
+  }
+
+  /**
+   * Generates the parameter values of the candidates.
+   *
+   * @return		the values per candidate, in order of the parameters
+   */
+  protected List<double[]> generateCandidates() {
+    List<double[]>	result;
+    List<double[]>	expanded;
+    Random		rand;
+    double[]		values;
+    Parameter<T>	param;
+    int			i;
+
+    result = new ArrayList<>();
+    switch (m_SearchType) {
+      case GRID:
+	result.add(new double[0]);
+	for (i = 0; i < m_Parameters.size(); i++) {
+	  param = m_Parameters.get(i);
+	  if (param.m_Values == null)
+	    throw new MatrixAlgorithmsException("Grid search requires values for parameter: " + param.m_Name);
+	  expanded = new ArrayList<>();
+	  for (double[] partial: result) {
+	    for (double value: param.m_Values) {
+	      values = new double[i + 1];
+	      System.arraycopy(partial, 0, values, 0, i);
+	      values[i] = value;
+	      expanded.add(values);
+	    }
+	  }
+	  result = expanded;
+	}
+	break;
+
+      case RANDOM:
+	rand = new Random(m_Seed);
+	while (result.size() < m_NumRandomCandidates) {
+	  values = new double[m_Parameters.size()];
+	  for (i = 0; i < m_Parameters.size(); i++)
+	    values[i] = m_Parameters.get(i).sample(rand);
+	  result.add(values);
+	}
+	break;
+
+      default:
+	throw new IllegalStateException("Unhandled search type: " + m_SearchType);
+    }
+
+    return result;
+  }
+
+  /**
+   * Creates a new algorithm instance with the parameter values applied.
+   *
+   * @param values	the values, in order of the parameters
+   * @return		the algorithm
+   */
+  protected T instantiate(double[] values) {
+    T	result;
+    int	i;
+
+    result = m_Factory.get();
+    for (i = 0; i < values.length; i++)
+      m_Parameters.get(i).m_Setter.accept(result, values[i]);
+
+    return result;
+  }
+
+  /**
+   * Evaluates all candidates on the data.
+   *
+   * @param X		the feature matrix
+   * @param y		the target matrix
+   * @return		the candidates, best (lowest RMSECV) first
+   */
+  public List<Candidate> evaluate(Matrix X, Matrix y) {
+    List<Candidate>			result;
+    List<double[]>			candidates;
+    List<List<Future<Matrix[]>>>	futures;
+    List<Future<Matrix[]>>		candidateFutures;
+    int[][]				folds;
+    CrossValidation.Fold[]		views;
+    CrossValidation.CrossProducts	crossProducts;
+    IntermediateCache			cache;
+    Map<String,Double>			settings;
+    int					i;
+
+    if (m_Parameters.isEmpty())
+      throw new MatrixAlgorithmsException("No parameters to search");
+
+    candidates    = generateCandidates();
+    folds         = m_CrossValidation.generateFolds(X.numRows());
+    views         = CrossValidation.createFolds(X, y, folds);
+    crossProducts = null;
+    if (m_CrossValidation.getUseCrossProducts() && m_Factory.get().canConfigureFromCrossProducts())
+      crossProducts = new CrossValidation.CrossProducts(X, y);
+    cache       = new IntermediateCache();
+    m_LastCache = cache;
+
+    futures = new ArrayList<>();
+    for (double[] values: candidates) {
+      candidateFutures = new ArrayList<>();
+      for (CrossValidation.Fold fold: views) {
+	final CrossValidation.CrossProducts fCrossProducts = crossProducts;
+	candidateFutures.add(m_CrossValidation.executor().submit(
+	  () -> cache.call(() -> CrossValidation.evaluateFold(instantiate(values), fold, fCrossProducts))));
+      }
+      futures.add(candidateFutures);
+    }
+
+    result = new ArrayList<>();
+    try {
+      for (i = 0; i < candidates.size(); i++) {
+	settings = new LinkedHashMap<>();
+	for (int n = 0; n < m_Parameters.size(); n++)
+	  settings.put(m_Parameters.get(n).m_Name, candidates.get(i)[n]);
+	result.add(new Candidate(settings, new CrossValidationResult(y, folds, CrossValidation.collect(futures.get(i)))));
+      }
+    }
+    catch (RuntimeException e) {
+      for (List<Future<Matrix[]>> pending: futures) {
+	for (Future<Matrix[]> future: pending)
+	  future.cancel(true);
+      }
+      throw e;
+    }
+
+    if (m_Debug)
+      getLogger().info("Evaluated " + candidates.size() + " candidates, intermediate cache hits/misses: " + cache.getHits() + "/" + cache.getMisses());
+
+    Collections.sort(result, Comparator.comparingDouble(Candidate::getBestRMSECV));
+
+    return result;
+  }
+
+  /**
+   * A parameter to search.
+   *
+   * @param <T> the type of algorithm
+   */
+  protected static class Parameter<T> {
+
+    /** the name. */
+    protected final String m_Name;
+
+    /** applies a value. */
+    protected final BiConsumer<T, Double> m_Setter;
+
+    /** the values, null if sampling from the range. */
+    protected final double[] m_Values;
+
+    /** the smallest value of the range. */
+    protected final double m_Min;
+
+    /** the largest value of the range. */
+    protected final double m_Max;
+
+    /** whether to sample on a log scale. */
+    protected final boolean m_Log;
+
+    protected Parameter(String name, BiConsumer<T, Double> setter, double[] values, double min, double max, boolean log) {
+      m_Name   = name;
+      m_Setter = setter;
+      m_Values = values;
+      m_Min    = min;
+      m_Max    = max;
+      m_Log    = log;
+    }
+
+    /**
+     * Draws a random value.
+     *
+     * @param rand	the random number generator
+     * @return		the value
+     */
+    protected double sample(Random rand) {
+      if (m_Values != null)
+	return m_Values[rand.nextInt(m_Values.length)];
+      else if (m_Log)
+	return Math.exp(Math.log(m_Min) + rand.nextDouble() * (Math.log(m_Max) - Math.log(m_Min)));
+      else
+	return m_Min + rand.nextDouble() * (m_Max - m_Min);
+    }
+  }
+
+  /**
+   * An evaluated combination of parameter values.
+   */
+  public static class Candidate
+    implements Serializable {
+
+    private static final long serialVersionUID = -5283127457420771180L;
+
+    /** the parameter values. */
+    protected Map<String,Double> m_Settings;
+
+    /** the cross-validation result. */
+    protected CrossValidationResult m_Result;
+
+    protected Candidate(Map<String,Double> settings, CrossValidationResult result) {
+      m_Settings = settings;
+      m_Result   = result;
+    }
+
+    /**
+     * Returns the parameter values.
+     *
+     * @return		the values, in order of the parameters
+     */
+    public Map<String,Double> getSettings() {
+      return Collections.unmodifiableMap(m_Settings);
+    }
+
+    /**
+     * Returns the cross-validation result.
+     *
+     * @return		the result
+     */
+    public CrossValidationResult getResult() {
+      return m_Result;
+    }
+
+    /**
+     * Returns the number of components with the lowest RMSECV.
+     *
+     * @return		the number of components
+     */
+    public int getBestNumComponents() {
+      return m_Result.getBestNumComponents();
+    }
+
+    /**
+     * Returns the lowest RMSECV over the number of components.
+     *
+     * @return		the RMSECV
+     */
+    public double getBestRMSECV() {
+      return m_Result.getRMSECV()[m_Result.getBestNumComponents() - 1];
+    }
+
+    @Override
+    public String toString() {
+      return m_Settings + ": RMSECV=" + getBestRMSECV() + " (" + getBestNumComponents() + " components)";
+    }
+  }
+}
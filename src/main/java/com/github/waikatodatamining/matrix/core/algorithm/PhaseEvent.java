@@ -0,0 +1,130 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PhaseEvent.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import java.util.EventObject;
+
+/**
+ * Event for a completed phase of an algorithm, with the wall time it took
+ * and the shape of the data it processed.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class PhaseEvent
+  extends EventObject {
+
+  private static final long serialVersionUID = 4511722358291069046L;
+
+  /**
+   * The phases of an algorithm.
+   */
+  public enum Phase {
+    /** preprocessing of the data, e.g., centering. */
+    PREPROCESS,
+    /** configuring on the data. */
+    CONFIGURE,
+    /** transforming data. */
+    TRANSFORM,
+    /** inverse-transforming data. */
+    INVERSE_TRANSFORM,
+    /** predicting targets. */
+    PREDICT,
+  }
+
+  /** the phase. */
+  protected Phase m_Phase;
+
+  /** the wall time in nanoseconds. */
+  protected long m_DurationNanos;
+
+  /** the number of rows of the data. */
+  protected int m_NumRows;
+
+  /** the number of columns of the data. */
+  protected int m_NumColumns;
+
+  /**
+   * Initializes the event.
+   *
+   * @param source		the algorithm
+   * @param phase		the phase
+   * @param durationNanos	the wall time in nanoseconds
+   * @param numRows		the number of rows of the data
+   * @param numColumns		the number of columns of the data
+   */
+  public PhaseEvent(MatrixAlgorithm source, Phase phase, long durationNanos, int numRows, int numColumns) {
+    super(source);
+    m_Phase         = phase;
+    m_DurationNanos = durationNanos;
+    m_NumRows       = numRows;
+    m_NumColumns    = numColumns;
+  }
+
+  /**
+   * Returns the algorithm.
+   *
+   * @return		the algorithm
+   */
+  public MatrixAlgorithm getAlgorithm() {
+    return (MatrixAlgorithm) getSource();
+  }
+
+  /**
+   * Returns the phase.
+   *
+   * @return		the phase
+   */
+  public Phase getPhase() {
+    return m_Phase;
+  }
+
+  /**
+   * Returns the wall time of the phase.
+   *
+   * @return		the duration in nanoseconds
+   */
+  public long getDurationNanos() {
+    return m_DurationNanos;
+  }
+
+  /**
+   * Returns the number of rows of the data.
+   *
+   * @return		the number of rows
+   */
+  public int getNumRows() {
+    return m_NumRows;
+  }
+
+  /**
+   * Returns the number of columns of the data.
+   *
+   * @return		the number of columns
+   */
+  public int getNumColumns() {
+    return m_NumColumns;
+  }
+
+  @Override
+  public String toString() {
+    return source.getClass().getName() + ": " + m_Phase + " [" + m_NumRows + " x " + m_NumColumns + "] in " + (m_DurationNanos / 1000000.0) + "ms";
+  }
+}
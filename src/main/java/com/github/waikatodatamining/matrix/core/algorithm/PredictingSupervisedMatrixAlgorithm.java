@@ -60,7 +60,17 @@ public abstract class PredictingSupervisedMatrixAlgorithm
     // Ensure the algorithm is configured
     ensureConfigured();
 
-    return doPredict(X);
+    long start = startPhase(PhaseEvent.Phase.PREDICT);
+    Matrix result;
+    try {
+      result = doPredict(X);
+    }
+    finally {
+      endPhase(PhaseEvent.Phase.PREDICT);
+    }
+    notifyPhase(PhaseEvent.Phase.PREDICT, start, X);
+
+    return result;
   }
 
   /**
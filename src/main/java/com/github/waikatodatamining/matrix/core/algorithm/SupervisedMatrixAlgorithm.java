@@ -20,6 +20,7 @@
 
 package com.github.waikatodatamining.matrix.core.algorithm;
 
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
 
 /**
@@ -61,7 +62,14 @@ public abstract class SupervisedMatrixAlgorithm
       throw new NullPointerException("Cannot configure on null target matrix");
 
     // Perform actual configuration
-    doConfigure(X, y);
+    long start = startPhase(PhaseEvent.Phase.CONFIGURE);
+    try {
+      doConfigure(X, y);
+    }
+    finally {
+      endPhase(PhaseEvent.Phase.CONFIGURE);
+    }
+    notifyPhase(PhaseEvent.Phase.CONFIGURE, start, X);
 
     // Flag that we are configured
     setConfigured();
@@ -76,4 +84,56 @@ public abstract class SupervisedMatrixAlgorithm
    */
   protected abstract void doConfigure(Matrix X, Matrix y);
 
+  /**
+   * Whether this algorithm can be configured from the cross products
+   * X^T*X and X^T*y alone, see {@link #configureFromCrossProducts(Matrix, Matrix)}.
+   * This allows, e.g., cross-validation to downdate the cross products of
+   * the full data rather than recomputing them per fold.
+   *
+   * @return    True if supported.
+   */
+  public boolean canConfigureFromCrossProducts() {
+    return false;
+  }
+
+  /**
+   * Configures this algorithm on the cross products of the feature and
+   * target matrices.
+   *
+   * @param XtX The feature cross product X^T*X.
+   * @param Xty The feature/target cross product X^T*y.
+   */
+  public final void configureFromCrossProducts(Matrix XtX, Matrix Xty) {
+    // Check that the cross products were given
+    if (XtX == null)
+      throw new NullPointerException("Cannot configure on null feature cross product");
+    else if (Xty == null)
+      throw new NullPointerException("Cannot configure on null feature/target cross product");
+    if (!canConfigureFromCrossProducts())
+      throw new MatrixAlgorithmsException(getClass().getName() + " cannot be configured from cross products");
+
+    // Perform actual configuration
+    long start = startPhase(PhaseEvent.Phase.CONFIGURE);
+    try {
+      doConfigureFromCrossProducts(XtX, Xty);
+    }
+    finally {
+      endPhase(PhaseEvent.Phase.CONFIGURE);
+    }
+    notifyPhase(PhaseEvent.Phase.CONFIGURE, start, XtX);
+
+    // Flag that we are configured
+    setConfigured();
+  }
+
+  /**
+   * Cross product configuration implementation. Override together with
+   * {@link #canConfigureFromCrossProducts()}.
+   *
+   * @param XtX The feature cross product X^T*X.
+   * @param Xty The feature/target cross product X^T*y.
+   */
+  protected void doConfigureFromCrossProducts(Matrix XtX, Matrix Xty) {
+    throw new MatrixAlgorithmsException(getClass().getName() + " cannot be configured from cross products");
+  }
 }
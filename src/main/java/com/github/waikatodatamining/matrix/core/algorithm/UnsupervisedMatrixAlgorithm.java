@@ -57,7 +57,14 @@ public abstract class UnsupervisedMatrixAlgorithm
       throw new NullPointerException("Cannot configure on null matrix");
 
     // Perform actual configuration
-    doConfigure(X);
+    long start = startPhase(PhaseEvent.Phase.CONFIGURE);
+    try {
+      doConfigure(X);
+    }
+    finally {
+      endPhase(PhaseEvent.Phase.CONFIGURE);
+    }
+    notifyPhase(PhaseEvent.Phase.CONFIGURE, start, X);
 
     // Flag that we are configured
     setConfigured();
@@ -0,0 +1,51 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * WarmStartable.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+/**
+ * Interface for iterative algorithms that can seed their iterations
+ * from a previously configured model, e.g., when recalibrating on a
+ * slightly extended dataset.
+ * <p>
+ * The relevant state is copied from the model at the time the warm start
+ * is set, so the model can be re-configured (or even be the algorithm
+ * itself) afterwards. The warm start survives {@code reset()} and is used
+ * by every subsequent configuration until it is cleared.
+ *
+ * @param <T> the type of model to warm-start from
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public interface WarmStartable<T> {
+
+  /**
+   * Sets the model to seed the iterations from.
+   *
+   * @param model	the configured model, null to clear the warm start
+   */
+  void setWarmStart(T model);
+
+  /**
+   * Returns whether a warm start has been set.
+   *
+   * @return		true if the iterations get seeded
+   */
+  boolean hasWarmStart();
+}
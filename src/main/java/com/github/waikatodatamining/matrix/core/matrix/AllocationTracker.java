@@ -0,0 +1,410 @@
+package com.github.waikatodatamining.matrix.core.matrix;
+
+import org.ojalgo.matrix.store.MatrixStore;
+import org.ojalgo.matrix.store.PhysicalStore;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Opt-in accounting of the matrices allocated by {@link MatrixFactory}.
+ * <p>
+ * While enabled, every matrix that gets created is attributed to the
+ * innermost algorithm phase that is running on the current thread (see
+ * {@link #enter(Object, String)}), or to {@link #UNATTRIBUTED} if there is
+ * none. Each context keeps its own ("self") counts and inclusive counts,
+ * which also contain the allocations of nested phases, e.g., the centering
+ * performed within the configuration of a PLS algorithm.
+ * <p>
+ * Tasks that run on other threads on behalf of a phase (e.g., the parallel
+ * computation of the tiles of a kernel matrix) need to be wrapped via
+ * {@link #propagate(IntConsumer)} to get attributed to that phase, otherwise
+ * their allocations count as {@link #UNATTRIBUTED}.
+ * <p>
+ * Only physical stores count towards the bytes, lazy views (e.g., transposes)
+ * are counted as matrices but without bytes.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class AllocationTracker {
+
+  /** the context for allocations outside of any algorithm phase. */
+  public static final String UNATTRIBUTED = "<unattributed>";
+
+  /** the number of bytes per matrix element. */
+  protected static final long BYTES_PER_ELEMENT = 8;
+
+  /** whether tracking is enabled. */
+  protected static volatile boolean m_Enabled = false;
+
+  /** the generation of the tracking, changes whenever it gets enabled/disabled. */
+  protected static volatile int m_Generation = 0;
+
+  /** the counters per context. */
+  protected static final Map<String, Counter> m_Counters = new ConcurrentHashMap<>();
+
+  /** the stack of active contexts per thread. */
+  protected static final ThreadLocal<Deque<Frame>> m_Frames = ThreadLocal.withInitial(ArrayDeque::new);
+
+  /**
+   * The counters of a single context.
+   */
+  protected static class Counter {
+
+    /** the matrices allocated directly within the context. */
+    protected final LongAdder matrices = new LongAdder();
+
+    /** the bytes allocated directly within the context. */
+    protected final LongAdder bytes = new LongAdder();
+
+    /** the matrices allocated within the context, including nested ones. */
+    protected final LongAdder inclusiveMatrices = new LongAdder();
+
+    /** the bytes allocated within the context, including nested ones. */
+    protected final LongAdder inclusiveBytes = new LongAdder();
+  }
+
+  /**
+   * An active context on the stack of a thread.
+   */
+  protected static class Frame {
+
+    /** the object owning the context. */
+    protected final Object owner;
+
+    /** the phase. */
+    protected final String phase;
+
+    /** the counter to record to. */
+    protected final Counter counter;
+
+    /** the generation of the tracking the context was entered in. */
+    protected final int generation;
+
+    protected Frame(Object owner, String phase, Counter counter, int generation) {
+      this.owner = owner;
+      this.phase = phase;
+      this.counter = counter;
+      this.generation = generation;
+    }
+  }
+
+  /**
+   * Immutable view on the counts of a single context.
+   */
+  public static class Allocation {
+
+    /** the context, i.e., algorithm and phase. */
+    protected final String context;
+
+    /** the matrices allocated directly within the context. */
+    protected final long matrices;
+
+    /** the bytes allocated directly within the context. */
+    protected final long bytes;
+
+    /** the matrices allocated within the context, including nested ones. */
+    protected final long inclusiveMatrices;
+
+    /** the bytes allocated within the context, including nested ones. */
+    protected final long inclusiveBytes;
+
+    protected Allocation(String context, Counter counter) {
+      this.context = context;
+      this.matrices = counter.matrices.sum();
+      this.bytes = counter.bytes.sum();
+      this.inclusiveMatrices = counter.inclusiveMatrices.sum();
+      this.inclusiveBytes = counter.inclusiveBytes.sum();
+    }
+
+    /**
+     * Returns the context, e.g., "KernelPLS.CONFIGURE".
+     *
+     * @return the context
+     */
+    public String getContext() {
+      return context;
+    }
+
+    /**
+     * Returns the number of matrices allocated directly within the context.
+     *
+     * @return the number of matrices
+     */
+    public long getMatrices() {
+      return matrices;
+    }
+
+    /**
+     * Returns the number of bytes allocated directly within the context.
+     *
+     * @return the number of bytes
+     */
+    public long getBytes() {
+      return bytes;
+    }
+
+    /**
+     * Returns the number of matrices allocated within the context, including
+     * nested contexts.
+     *
+     * @return the number of matrices
+     */
+    public long getInclusiveMatrices() {
+      return inclusiveMatrices;
+    }
+
+    /**
+     * Returns the number of bytes allocated within the context, including
+     * nested contexts.
+     *
+     * @return the number of bytes
+     */
+    public long getInclusiveBytes() {
+      return inclusiveBytes;
+    }
+
+    @Override
+    public String toString() {
+      return context + " allocated " + formatBytes(inclusiveBytes) + " in " + inclusiveMatrices + " matrices"
+	+ " (self: " + formatBytes(bytes) + " in " + matrices + " matrices)";
+    }
+  }
+
+  /**
+   * Enables or disables the tracking.
+   *
+   * @param value whether to track allocations
+   */
+  public static synchronized void setEnabled(boolean value) {
+    m_Generation++;
+    m_Enabled = value;
+  }
+
+  /**
+   * Returns whether the tracking is enabled.
+   *
+   * @return true if allocations are tracked
+   */
+  public static boolean isEnabled() {
+    return m_Enabled;
+  }
+
+  /**
+   * Discards all counts. The contexts active on the threads are kept.
+   */
+  public static void reset() {
+    m_Counters.clear();
+  }
+
+  /**
+   * Returns the counter for the context, creating it if necessary.
+   *
+   * @param context the context
+   * @return the counter
+   */
+  protected static Counter counter(String context) {
+    return m_Counters.computeIfAbsent(context, k -> new Counter());
+  }
+
+  /**
+   * Returns the stack of active contexts of the current thread. Contexts
+   * left over from before tracking got disabled (e.g., entered while enabled
+   * but exited while disabled) are discarded.
+   *
+   * @return the stack
+   */
+  protected static Deque<Frame> frames() {
+    Deque<Frame> result;
+
+    result = m_Frames.get();
+    if (!result.isEmpty() && (result.peekLast().generation != m_Generation))
+      result.clear();
+
+    return result;
+  }
+
+  /**
+   * Starts a context on the current thread, to which all subsequent
+   * allocations get attributed until the matching {@link #exit(Object, String)}.
+   *
+   * @param owner the owner of the context, usually an algorithm
+   * @param phase the phase
+   */
+  public static void enter(Object owner, String phase) {
+    if (!m_Enabled)
+      return;
+
+    frames().push(new Frame(owner, phase, counter(owner.getClass().getSimpleName() + "." + phase), m_Generation));
+  }
+
+  /**
+   * Ends the context on the current thread. Contexts that were entered later
+   * but not exited (e.g., due to an exception) are discarded as well.
+   *
+   * @param owner the owner of the context
+   * @param phase the phase
+   */
+  public static void exit(Object owner, String phase) {
+    Deque<Frame> frames;
+    Iterator<Frame> iter;
+    Frame frame;
+    int depth;
+
+    if (!m_Enabled)
+      return;
+
+    frames = frames();
+    if (frames.isEmpty())
+      return;
+
+    // only unwind if the context is actually on the stack, it may have been
+    // entered while tracking was disabled
+    depth = 0;
+    iter = frames.iterator();
+    while (iter.hasNext()) {
+      depth++;
+      frame = iter.next();
+      if ((frame.owner == owner) && frame.phase.equals(phase)) {
+	for (int i = 0; i < depth; i++)
+	  frames.pop();
+	break;
+      }
+    }
+  }
+
+  /**
+   * Wraps the task, such that the allocations it performs on any thread get
+   * attributed to the contexts that are active on the current thread. The
+   * counts get merged into those of the contexts, as the counters are shared.
+   * Intended for the tasks of parallel streams, e.g.,
+   * <code>IntStream.range(0, n).parallel().forEach(AllocationTracker.propagate(i -&gt; ...))</code>.
+   *
+   * @param task the task to wrap
+   * @return the wrapped task, or the task itself if there is nothing to propagate
+   */
+  public static IntConsumer propagate(IntConsumer task) {
+    List<Frame> captured;
+
+    if (!m_Enabled)
+      return task;
+
+    captured = new ArrayList<>(frames());
+    if (captured.isEmpty())
+      return task;
+
+    return value -> {
+      Deque<Frame> frames = m_Frames.get();
+      List<Frame> previous = new ArrayList<>(frames);
+      frames.clear();
+      frames.addAll(captured);
+      try {
+	task.accept(value);
+      }
+      finally {
+	frames.clear();
+	frames.addAll(previous);
+      }
+    };
+  }
+
+  /**
+   * Records the allocation of the matrix store.
+   *
+   * @param data the store backing a new matrix
+   */
+  public static void record(MatrixStore<Double> data) {
+    if (!m_Enabled)
+      return;
+
+    if (data instanceof PhysicalStore)
+      record(data.countRows() * data.countColumns() * BYTES_PER_ELEMENT);
+    else
+      record(0);
+  }
+
+  /**
+   * Records the allocation of a matrix with the given number of bytes.
+   *
+   * @param bytes the number of bytes
+   */
+  protected static void record(long bytes) {
+    Deque<Frame> frames;
+    List<Counter> seen;
+    boolean first;
+
+    frames = frames();
+    if (frames.isEmpty()) {
+      Counter counter = counter(UNATTRIBUTED);
+      counter.matrices.increment();
+      counter.bytes.add(bytes);
+      counter.inclusiveMatrices.increment();
+      counter.inclusiveBytes.add(bytes);
+      return;
+    }
+
+    // recursive contexts (e.g., nested filters of the same class) must only
+    // count once towards the inclusive totals
+    first = true;
+    seen = new ArrayList<>(frames.size());
+    for (Frame frame : frames) {
+      if (first) {
+	frame.counter.matrices.increment();
+	frame.counter.bytes.add(bytes);
+	first = false;
+      }
+      if (!seen.contains(frame.counter)) {
+	seen.add(frame.counter);
+	frame.counter.inclusiveMatrices.increment();
+	frame.counter.inclusiveBytes.add(bytes);
+      }
+    }
+  }
+
+  /**
+   * Returns a snapshot of the counts, sorted by inclusive bytes (descending).
+   *
+   * @return the counts per context
+   */
+  public static Map<String, Allocation> snapshot() {
+    List<Allocation> list;
+    Map<String, Allocation> result;
+
+    list = new ArrayList<>();
+    for (Map.Entry<String, Counter> entry : m_Counters.entrySet())
+      list.add(new Allocation(entry.getKey(), entry.getValue()));
+    list.sort((a1, a2) -> Long.compare(a2.getInclusiveBytes(), a1.getInclusiveBytes()));
+
+    result = new LinkedHashMap<>();
+    for (Allocation allocation : list)
+      result.put(allocation.getContext(), allocation);
+
+    return Collections.unmodifiableMap(result);
+  }
+
+  /**
+   * Formats the number of bytes in a human-readable way.
+   *
+   * @param bytes the number of bytes
+   * @return the formatted string
+   */
+  protected static String formatBytes(long bytes) {
+    String[] units = {"B", "KB", "MB", "GB", "TB"};
+    double value = bytes;
+    int unit = 0;
+    while ((value >= 1024) && (unit < units.length - 1)) {
+      value /= 1024;
+      unit++;
+    }
+    return (unit == 0) ? bytes + " B" : String.format("%.1f %s", value, units[unit]);
+  }
+}
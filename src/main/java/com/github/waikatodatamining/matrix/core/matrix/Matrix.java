@@ -22,6 +22,9 @@ import org.ojalgo.structure.Access1D;
 import org.ojalgo.structure.ElementView2D;
 import org.ojalgo.type.context.NumberContext;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -39,6 +42,16 @@ import static com.github.waikatodatamining.matrix.core.matrix.MatrixFactory.from
 /**
  * Matrix abstraction to the ojAlgo's Matrix Primitive64Store
  * implementation.
+ * <p>
+ * Reading a matrix from multiple threads is safe, including the methods that
+ * use the cached decompositions (these are computed and accessed under the
+ * matrix's monitor). Modifying a matrix while it is shared is not. Element
+ * writes only take the monitor if a decomposition is cached.
+ * <p>
+ * The predict paths of configured algorithms never decompose their model
+ * matrices (decompositions only happen at configure time or on matrices local
+ * to a call, e.g., {@link #inverse()}, which doesn't use the cache), so
+ * shared models are read without ever taking a contended lock.
  *
  * @author Steven Lang
  */
@@ -46,23 +59,26 @@ public class Matrix implements Serializable {
 
   private static final long serialVersionUID = -4756923165691071163L;
 
-  /** Underlying data store */
-  protected MatrixStore<Double> data;
+  /** Underlying data store (serialized via {@link #writeObject(ObjectOutputStream)}) */
+  protected transient MatrixStore<Double> data;
 
   /**
    * Eigenvalue decomposition. Get reset after {@link #data} has changed.
+   * Guarded by this matrix.
    */
-  protected Eigenvalue<Double> eigenvalueDecomposition;
+  protected transient Eigenvalue<Double> eigenvalueDecomposition;
 
   /**
    * SingularValue decomposition. Get reset after {@link #data} has changed.
+   * Guarded by this matrix.
    */
-  protected SingularValue<Double> singularvalueDecomposition;
+  protected transient SingularValue<Double> singularvalueDecomposition;
 
   /**
    * QR decomposition decomposition. Get reset after {@link #data} has changed.
+   * Guarded by this matrix.
    */
-  protected QR<Double> qrDecomposition;
+  protected transient QR<Double> qrDecomposition;
 
   /**
    * Constructor for creating a new matrix wrapper from another matrix store.
@@ -149,6 +165,17 @@ public class Matrix implements Serializable {
     return getSubMatrix(0, numRows(), columnStart, columnEndExclusive);
   }
 
+  /**
+   * Get a view on the given rows, without copying the data. Modifying the
+   * view creates a copy first, leaving this matrix untouched.
+   *
+   * @param rows Row indices
+   * @return View on the rows of the current matrix
+   */
+  public Matrix viewRows(int[] rows) {
+    return create(data.logical().rows(rows).get());
+  }
+
   /**
    * Get the eigenvectors of this matrix, sorted according to their descending
    * eigenvalues.
@@ -157,7 +184,7 @@ public class Matrix implements Serializable {
    *                      vectors dominances
    * @return Eigenvectors of this matrix
    */
-  public Matrix getEigenvectors(boolean sortDominance) {
+  public synchronized Matrix getEigenvectors(boolean sortDominance) {
     makeEigenvalueDecomposition();
     MatrixStore<Double> eigVunsorted = eigenvalueDecomposition.getV();
 
@@ -185,7 +212,7 @@ public class Matrix implements Serializable {
    *
    * @return Eigenvectors of this matrix
    */
-  public Matrix getEigenvectorsSortedAscending() {
+  public synchronized Matrix getEigenvectorsSortedAscending() {
     makeEigenvalueDecomposition();
     // Get eigenpairs
     List<Eigenpair> eigenpairs = IntStream
@@ -204,7 +231,7 @@ public class Matrix implements Serializable {
    *
    * @return Eigenvectors of this matrix
    */
-  public Matrix getEigenvectorsSortedDescending() {
+  public synchronized Matrix getEigenvectorsSortedDescending() {
     makeEigenvalueDecomposition();
     
     if (eigenvalueDecomposition.isOrdered()) {
@@ -241,12 +268,12 @@ public class Matrix implements Serializable {
     return getEigenvectors(false);
   }
 
-  public Matrix getEigenvalueDecompositionV() {
+  public synchronized Matrix getEigenvalueDecompositionV() {
     makeEigenvalueDecomposition();
     return create(eigenvalueDecomposition.getV());
   }
 
-  public Matrix getEigenvalueDecompositionD() {
+  public synchronized Matrix getEigenvalueDecompositionD() {
     makeEigenvalueDecomposition();
     return create(eigenvalueDecomposition.getD());
   }
@@ -256,7 +283,7 @@ public class Matrix implements Serializable {
    *
    * @return Eigenvalues of this matrix
    */
-  public Matrix getEigenvalues() {
+  public synchronized Matrix getEigenvalues() {
     makeEigenvalueDecomposition();
     Array1D<ComplexNumber> eigenvalues = eigenvalueDecomposition.getEigenvalues();
     return MatrixFactory.fromColumn(eigenvalues.toRawCopy1D());
@@ -267,7 +294,7 @@ public class Matrix implements Serializable {
    *
    * @return Eigenvalues of this matrix
    */
-  public Matrix getEigenvaluesSortedDescending() {
+  public synchronized Matrix getEigenvaluesSortedDescending() {
     makeEigenvalueDecomposition();
     Array1D<ComplexNumber> eigenvalues = eigenvalueDecomposition.getEigenvalues();
     if (!eigenvalueDecomposition.isOrdered()) {
@@ -281,7 +308,7 @@ public class Matrix implements Serializable {
    *
    * @return Eigenvalues of this matrix
    */
-  public Matrix getEigenvaluesSortedAscending() {
+  public synchronized Matrix getEigenvaluesSortedAscending() {
     makeEigenvalueDecomposition();
     Array1D<ComplexNumber> eigenvalues = eigenvalueDecomposition.getEigenvalues();
     eigenvalues.sortAscending();
@@ -291,7 +318,7 @@ public class Matrix implements Serializable {
   /**
    * Initialize the singular value decomposition.
    */
-  protected void makeSingularValueDecomposition() {
+  protected synchronized void makeSingularValueDecomposition() {
     if (singularvalueDecomposition == null) {
       singularvalueDecomposition = SingularValue.PRIMITIVE.make(data);
       singularvalueDecomposition.decompose(data);
@@ -301,7 +328,7 @@ public class Matrix implements Serializable {
   /**
    * Initialize the eigenvalue decomposition.
    */
-  protected void makeEigenvalueDecomposition() {
+  protected synchronized void makeEigenvalueDecomposition() {
     if (eigenvalueDecomposition == null) {
       eigenvalueDecomposition = Eigenvalue.PRIMITIVE.make(data);
       eigenvalueDecomposition.decompose(data);
@@ -311,7 +338,7 @@ public class Matrix implements Serializable {
   /**
    * Initialize the QR decomposition.
    */
-  protected void makeQRDecomposition() {
+  protected synchronized void makeQRDecomposition() {
     if (qrDecomposition == null) {
       qrDecomposition = QR.PRIMITIVE.make(data);
       qrDecomposition.decompose(data);
@@ -323,7 +350,7 @@ public class Matrix implements Serializable {
    *
    * @return SVD-U matrix
    */
-  public Matrix svdU() {
+  public synchronized Matrix svdU() {
     makeSingularValueDecomposition();
     return create(singularvalueDecomposition.getU());
   }
@@ -333,7 +360,7 @@ public class Matrix implements Serializable {
    *
    * @return SVD-V matrix
    */
-  public Matrix svdV() {
+  public synchronized Matrix svdV() {
     makeSingularValueDecomposition();
     return create(singularvalueDecomposition.getV());
   }
@@ -343,7 +370,7 @@ public class Matrix implements Serializable {
    *
    * @return SVD-S matrix
    */
-  public Matrix svdS() {
+  public synchronized Matrix svdS() {
     makeSingularValueDecomposition();
     return create(singularvalueDecomposition.getD());
   }
@@ -353,7 +380,7 @@ public class Matrix implements Serializable {
    *
    * @return SVD-S matrix
    */
-  public Matrix getSingularValues() {
+  public synchronized Matrix getSingularValues() {
     makeSingularValueDecomposition();
     return MatrixFactory.fromColumn(singularvalueDecomposition.getSingularValues());
   }
@@ -899,6 +926,48 @@ public class Matrix implements Serializable {
     }
   }
 
+  /**
+   * Serializes the shape and the values, as the ojAlgo stores are not
+   * serializable.
+   *
+   * @param out the stream to write to
+   * @throws IOException if writing fails
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    int rows = numRows();
+    int columns = numColumns();
+
+    out.defaultWriteObject();
+    out.writeInt(rows);
+    out.writeInt(columns);
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+	out.writeDouble(data.doubleValue(i, j));
+      }
+    }
+  }
+
+  /**
+   * Restores the values written by {@link #writeObject(ObjectOutputStream)}.
+   *
+   * @param in the stream to read from
+   * @throws IOException if reading fails
+   * @throws ClassNotFoundException if a class cannot be found
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    int rows = in.readInt();
+    int columns = in.readInt();
+    PhysicalStore<Double> store = MatrixFactory.FACTORY.make(rows, columns);
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+	store.set(i, j, in.readDouble());
+      }
+    }
+    data = store;
+    AllocationTracker.record(store);
+  }
+
   /**
    * Create a duplicate of this matrix.
    *
@@ -986,9 +1055,14 @@ public class Matrix implements Serializable {
    * matrix has been modified.
    */
   protected void resetCache() {
-    this.eigenvalueDecomposition = null;
-    this.singularvalueDecomposition = null;
-    this.qrDecomposition = null;
+    // cheap check first, as this gets called for every modification
+    if ((eigenvalueDecomposition != null) || (singularvalueDecomposition != null) || (qrDecomposition != null)) {
+      synchronized (this) {
+	this.eigenvalueDecomposition = null;
+	this.singularvalueDecomposition = null;
+	this.qrDecomposition = null;
+      }
+    }
   }
 
   /**
@@ -1223,7 +1297,7 @@ public class Matrix implements Serializable {
    *
    * @return Q matrix
    */
-  public Matrix qrQ() {
+  public synchronized Matrix qrQ() {
     makeQRDecomposition();
     return create(qrDecomposition.getQ());
   }
@@ -1233,7 +1307,7 @@ public class Matrix implements Serializable {
    *
    * @return R matrix
    */
-  public Matrix qrR() {
+  public synchronized Matrix qrR() {
     makeQRDecomposition();
     return create(qrDecomposition.getR());
   }
@@ -1321,6 +1395,40 @@ public class Matrix implements Serializable {
     return Objects.hash(data);
   }
 
+  /**
+   * Computes a 64-bit fingerprint of the shape and the exact values in a
+   * single pass over the data. Unlike {@link #equals(Object)}, which
+   * compares with a tolerance, any change of a value changes the
+   * fingerprint (with high probability).
+   *
+   * @return the fingerprint
+   */
+  public long fingerprint() {
+    int rows = numRows();
+    int columns = numColumns();
+    long result = mix(0x9E3779B97F4A7C15L ^ (((long) rows << 32) | columns));
+
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+	result = mix(result ^ Double.doubleToLongBits(data.doubleValue(i, j))) * 0x100000001B3L;
+      }
+    }
+
+    return mix(result);
+  }
+
+  /**
+   * Finalization step of SplitMix64, spreads the bits of the value.
+   *
+   * @param value the value to mix
+   * @return the mixed value
+   */
+  private static long mix(long value) {
+    value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+    value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+    return value ^ (value >>> 31);
+  }
+
   /**
    * Create a string representation of the matrix's shape.
    *
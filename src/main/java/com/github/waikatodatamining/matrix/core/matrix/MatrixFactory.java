@@ -25,6 +25,7 @@ public class MatrixFactory {
    * @return Wrapped matrix store
    */
   protected static Matrix create(MatrixStore<Double> data) {
+    AllocationTracker.record(data);
     return new Matrix(data);
   }
 
@@ -138,7 +139,7 @@ public class MatrixFactory {
    * @return Wrapped vector
    */
   protected static Matrix fromRow(Access1D<Double> vector) {
-    return new Matrix(FACTORY.rows(vector));
+    return create(FACTORY.rows(vector));
   }
 
   /**
@@ -148,7 +149,7 @@ public class MatrixFactory {
    * @return Wrapped raw data
    */
   public static Matrix fromRow(double[] vector) {
-    return new Matrix(FACTORY.rows(vector));
+    return create(FACTORY.rows(vector));
   }
 
   /**
@@ -158,7 +159,7 @@ public class MatrixFactory {
    * @return Wrapped raw data
    */
   public static Matrix fromRows(Access1D<Double>... vectors) {
-    return new Matrix(FACTORY.rows(vectors));
+    return create(FACTORY.rows(vectors));
   }
 
   /**
@@ -168,7 +169,7 @@ public class MatrixFactory {
    * @return Wrapped vector
    */
   protected static Matrix fromColumn(Access1D<Double> vector) {
-    return new Matrix(FACTORY.columns(vector));
+    return create(FACTORY.columns(vector));
   }
 
   /**
@@ -178,7 +179,7 @@ public class MatrixFactory {
    * @return Wrapped vector
    */
   protected static Matrix fromColumns(Access1D<Double>... vectors) {
-    return new Matrix(FACTORY.columns(vectors));
+    return create(FACTORY.columns(vectors));
   }
 
   /**
@@ -188,7 +189,7 @@ public class MatrixFactory {
    * @return Wrapped raw data
    */
   public static Matrix fromColumn(double[] vector) {
-    return new Matrix(FACTORY.columns(vector));
+    return create(FACTORY.columns(vector));
   }
 
   /**
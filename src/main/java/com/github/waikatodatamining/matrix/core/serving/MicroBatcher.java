@@ -0,0 +1,383 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MicroBatcher.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.core.serving;
+
+import com.github.waikatodatamining.matrix.core.LoggingObject;
+import com.github.waikatodatamining.matrix.core.algorithm.FrozenPredictor;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent single-row prediction requests into micro-batches,
+ * so that a single (matrix-matrix) prediction serves many callers.
+ * <p>
+ * A batch gets predicted as soon as it reaches the maximum batch size or
+ * the maximum wait since its first request has passed. Rows of different
+ * lengths within a batch are predicted separately.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class MicroBatcher
+  extends LoggingObject {
+
+  private static final long serialVersionUID = 7345118233750381246L;
+
+  /**
+   * A pending prediction request.
+   */
+  protected static class Request {
+
+    /** the row to predict. */
+    protected final double[] row;
+
+    /** when the request was submitted. */
+    protected final long submitted;
+
+    /** the future to complete with the prediction. */
+    protected final CompletableFuture<double[]> result = new CompletableFuture<>();
+
+    protected Request(double[] row) {
+      this.row = row;
+      this.submitted = System.nanoTime();
+    }
+  }
+
+  /** the model to predict with. */
+  protected final FrozenPredictor m_Predictor;
+
+  /** the maximum number of rows per batch. */
+  protected final int m_MaxBatchSize;
+
+  /** the maximum wait for a batch to fill up, in microseconds. */
+  protected final long m_MaxWaitMicros;
+
+  /** the pending requests. */
+  protected final transient LinkedBlockingQueue<Request> m_Queue = new LinkedBlockingQueue<>();
+
+  /** the thread predicting the batches. */
+  protected transient Thread m_Worker;
+
+  /** whether the batcher has been shut down. */
+  protected volatile boolean m_Shutdown;
+
+  /** when the batcher was started. */
+  protected final long m_Started = System.nanoTime();
+
+  /** the number of completed requests. */
+  protected final LongAdder m_Requests = new LongAdder();
+
+  /** the number of predicted batches. */
+  protected final LongAdder m_Batches = new LongAdder();
+
+  /** the number of failed requests. */
+  protected final LongAdder m_Failures = new LongAdder();
+
+  /** the summed latency of the requests in nanoseconds. */
+  protected final LongAdder m_LatencyNanos = new LongAdder();
+
+  /** the maximum latency of a request in nanoseconds. */
+  protected final AtomicLong m_MaxLatencyNanos = new AtomicLong();
+
+  /**
+   * Initializes the batcher and starts its worker thread.
+   *
+   * @param predictor		the model to predict with
+   * @param maxBatchSize	the maximum number of rows per batch, at least 1
+   * @param maxWaitMicros	the maximum wait for a batch to fill up, at least 0
+   */
+  public MicroBatcher(FrozenPredictor predictor, int maxBatchSize, long maxWaitMicros) {
+    if (!predictor.canPredict())
+      throw new MatrixAlgorithmsException(predictor.getAlgorithmClass().getSimpleName() + " cannot predict!");
+    if (maxBatchSize < 1)
+      throw new MatrixAlgorithmsException("Maximum batch size must be at least 1 but was " + maxBatchSize + "!");
+    if (maxWaitMicros < 0)
+      throw new MatrixAlgorithmsException("Maximum wait must be at least 0 but was " + maxWaitMicros + "!");
+
+    m_Predictor     = predictor;
+    m_MaxBatchSize  = maxBatchSize;
+    m_MaxWaitMicros = maxWaitMicros;
+    m_Worker        = new Thread(this::work, "MicroBatcher-" + predictor.getAlgorithmClass().getSimpleName());
+    m_Worker.setDaemon(true);
+    m_Worker.start();
+  }
+
+  /**
+   * Returns the maximum number of rows per batch.
+   *
+   * @return		the batch size
+   */
+  public int getMaxBatchSize() {
+    return m_MaxBatchSize;
+  }
+
+  /**
+   * Returns the maximum wait for a batch to fill up.
+   *
+   * @return		the wait in microseconds
+   */
+  public long getMaxWaitMicros() {
+    return m_MaxWaitMicros;
+  }
+
+  /**
+   * Submits a single row for prediction.
+   *
+   * @param row		the row to predict
+   * @return		the future prediction (one value per target)
+   */
+  public CompletableFuture<double[]> submit(double[] row) {
+    Request	request;
+
+    request = new Request(row);
+    if (m_Shutdown)
+      request.result.completeExceptionally(new MatrixAlgorithmsException("MicroBatcher has been shut down!"));
+    else
+      m_Queue.add(request);
+    // the worker may have drained the queue in the meantime
+    if (m_Shutdown && m_Queue.remove(request))
+      request.result.completeExceptionally(new MatrixAlgorithmsException("MicroBatcher has been shut down!"));
+
+    return request.result;
+  }
+
+  /**
+   * Predicts the batches until shut down. Any error while predicting a batch
+   * fails the requests of that batch, but keeps the worker alive. Should the
+   * worker terminate nevertheless, the batcher gets shut down, i.e., pending
+   * and further requests fail instead of waiting forever.
+   */
+  protected void work() {
+    List<Request>	batch;
+    Request		request;
+    long		deadline;
+    long		remaining;
+    Throwable		error;
+
+    batch = new ArrayList<>(m_MaxBatchSize);
+    try {
+      while (!m_Shutdown) {
+	error = null;
+	try {
+	  request = m_Queue.take();
+	  batch.add(request);
+	  deadline = System.nanoTime() + m_MaxWaitMicros * 1000L;
+	  while (batch.size() < m_MaxBatchSize) {
+	    // take whatever is already waiting, then wait for the remainder
+	    request = m_Queue.poll();
+	    if (request == null) {
+	      remaining = deadline - System.nanoTime();
+	      if (remaining <= 0)
+		break;
+	      request = m_Queue.poll(remaining, TimeUnit.NANOSECONDS);
+	      if (request == null)
+		break;
+	    }
+	    batch.add(request);
+	  }
+	  predict(batch);
+	}
+	catch (InterruptedException e) {
+	  // shut down, failing the partial batch
+	  error = new MatrixAlgorithmsException("MicroBatcher has been shut down!");
+	}
+	catch (Throwable t) {
+	  getLogger().severe("Failed to predict batch: " + t);
+	  error = t;
+	}
+	finally {
+	  for (Request r : batch) {
+	    if (!r.result.isDone())
+	      complete(r, null, (error != null) ? error : new MatrixAlgorithmsException("Request has not been predicted!"));
+	  }
+	  batch.clear();
+	}
+      }
+    }
+    finally {
+      // fail whatever is left
+      m_Shutdown = true;
+      while ((request = m_Queue.poll()) != null)
+	request.result.completeExceptionally(new MatrixAlgorithmsException("MicroBatcher has been shut down!"));
+    }
+  }
+
+  /**
+   * Predicts the batch and completes its requests.
+   *
+   * @param batch	the requests
+   */
+  protected void predict(List<Request> batch) {
+    Map<Integer, List<Request>>	groups;
+    double[][]			rows;
+    Matrix			predictions;
+    int				i;
+
+    groups = new LinkedHashMap<>();
+    for (Request request : batch)
+      groups.computeIfAbsent(request.row.length, k -> new ArrayList<>()).add(request);
+
+    for (List<Request> group : groups.values()) {
+      try {
+	rows = new double[group.size()][];
+	for (i = 0; i < rows.length; i++)
+	  rows[i] = group.get(i).row;
+	predictions = m_Predictor.predict(MatrixFactory.fromRaw(rows));
+	for (i = 0; i < rows.length; i++)
+	  complete(group.get(i), predictions.getRow(i).toRawCopy1D(), null);
+      }
+      catch (Throwable t) {
+	for (Request request : group)
+	  complete(request, null, t);
+      }
+    }
+    m_Batches.increment();
+  }
+
+  /**
+   * Completes the request and updates the counters.
+   *
+   * @param request	the request
+   * @param prediction	the prediction, null in case of an error
+   * @param error	the error, null if successful
+   */
+  protected void complete(Request request, double[] prediction, Throwable error) {
+    long	latency;
+    long	max;
+
+    latency = System.nanoTime() - request.submitted;
+    m_Requests.increment();
+    m_LatencyNanos.add(latency);
+    max = m_MaxLatencyNanos.get();
+    while ((latency > max) && !m_MaxLatencyNanos.compareAndSet(max, latency))
+      max = m_MaxLatencyNanos.get();
+
+    if (error == null) {
+      request.result.complete(prediction);
+    }
+    else {
+      m_Failures.increment();
+      request.result.completeExceptionally(error);
+    }
+  }
+
+  /**
+   * Returns the number of completed requests.
+   *
+   * @return		the number of requests
+   */
+  public long getNumRequests() {
+    return m_Requests.sum();
+  }
+
+  /**
+   * Returns the number of predicted batches.
+   *
+   * @return		the number of batches
+   */
+  public long getNumBatches() {
+    return m_Batches.sum();
+  }
+
+  /**
+   * Returns the number of failed requests.
+   *
+   * @return		the number of failures
+   */
+  public long getNumFailures() {
+    return m_Failures.sum();
+  }
+
+  /**
+   * Returns the mean number of requests per batch.
+   *
+   * @return		the mean batch size, NaN if nothing was predicted yet
+   */
+  public double getMeanBatchSize() {
+    return (double) getNumRequests() / getNumBatches();
+  }
+
+  /**
+   * Returns the mean latency of the requests, from submitting to completion.
+   *
+   * @return		the latency in microseconds, NaN if nothing was predicted yet
+   */
+  public double getMeanLatencyMicros() {
+    return m_LatencyNanos.sum() / 1000.0 / getNumRequests();
+  }
+
+  /**
+   * Returns the maximum latency of the requests.
+   *
+   * @return		the latency in microseconds
+   */
+  public double getMaxLatencyMicros() {
+    return m_MaxLatencyNanos.get() / 1000.0;
+  }
+
+  /**
+   * Returns the number of completed requests per second since the start.
+   *
+   * @return		the throughput
+   */
+  public double getThroughput() {
+    return getNumRequests() / ((System.nanoTime() - m_Started) / 1e9);
+  }
+
+  /**
+   * Returns the counters.
+   *
+   * @return		the counters, by name
+   */
+  public Map<String, Number> getStatistics() {
+    Map<String, Number>	result;
+
+    result = new LinkedHashMap<>();
+    result.put("requests", getNumRequests());
+    result.put("failures", getNumFailures());
+    result.put("batches", getNumBatches());
+    result.put("meanBatchSize", getMeanBatchSize());
+    result.put("meanLatencyMicros", getMeanLatencyMicros());
+    result.put("maxLatencyMicros", getMaxLatencyMicros());
+    result.put("throughput", getThroughput());
+
+    return result;
+  }
+
+  /**
+   * Stops the worker thread. Pending requests fail.
+   */
+  public void shutdown() {
+    m_Shutdown = true;
+    if (m_Worker != null)
+      m_Worker.interrupt();
+  }
+}
@@ -0,0 +1,347 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ModelRegistry.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.core.serving;
+
+import com.github.waikatodatamining.matrix.core.LoggingObject;
+import com.github.waikatodatamining.matrix.core.Utils;
+import com.github.waikatodatamining.matrix.core.algorithm.FrozenPredictor;
+import com.github.waikatodatamining.matrix.core.algorithm.PredictingSupervisedMatrixAlgorithm;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU of the models that are loaded for serving, bounded by the (serialized)
+ * size of the models.
+ * <p>
+ * Models are either registered directly or loaded on demand from the model
+ * directory, which contains serialized {@link PredictingSupervisedMatrixAlgorithm}
+ * instances as "&lt;name&gt;.model" files. Each loaded model is frozen (see
+ * {@link FrozenPredictor}) and gets its own {@link MicroBatcher}, which is shut
+ * down when the model gets evicted. Models registered directly cannot be
+ * reloaded after eviction, unless they are available from the model directory.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class ModelRegistry
+  extends LoggingObject {
+
+  private static final long serialVersionUID = 2405125878718442962L;
+
+  /** the file extension for models in the model directory. */
+  public static final String MODEL_EXTENSION = ".model";
+
+  /**
+   * A loaded model.
+   */
+  protected static class Entry {
+
+    /** the batcher serving the model. */
+    protected final MicroBatcher batcher;
+
+    /** the size of the model in bytes. */
+    protected final long bytes;
+
+    protected Entry(MicroBatcher batcher, long bytes) {
+      this.batcher = batcher;
+      this.bytes = bytes;
+    }
+  }
+
+  /** the directory to load models from, null if models are only registered. */
+  protected File m_ModelDir = null;
+
+  /** the maximum number of bytes of loaded models. */
+  protected long m_MaxBytes = 256L * 1024 * 1024;
+
+  /** the maximum number of rows per batch. */
+  protected int m_MaxBatchSize = 64;
+
+  /** the maximum wait for a batch to fill up, in microseconds. */
+  protected long m_MaxWaitMicros = 500;
+
+  /** the loaded models, in access order. */
+  protected transient LinkedHashMap<String, Entry> m_Entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** the number of bytes of the loaded models. */
+  protected long m_NumBytes = 0;
+
+  /**
+   * Sets the directory to load models from.
+   *
+   * @param value	the directory, null to only serve registered models
+   */
+  public synchronized void setModelDir(File value) {
+    m_ModelDir = value;
+  }
+
+  /**
+   * Returns the directory to load models from.
+   *
+   * @return		the directory, null if only registered models are served
+   */
+  public synchronized File getModelDir() {
+    return m_ModelDir;
+  }
+
+  /**
+   * Sets the maximum number of bytes of loaded models. The most recently used
+   * model is always kept.
+   *
+   * @param value	the number of bytes, at least 0
+   */
+  public synchronized void setMaxBytes(long value) {
+    if (value < 0) {
+      getLogger().warning("Maximum number of bytes must be at least 0 but was " + value + ".");
+    }
+    else {
+      m_MaxBytes = value;
+      evict();
+    }
+  }
+
+  /**
+   * Returns the maximum number of bytes of loaded models.
+   *
+   * @return		the number of bytes
+   */
+  public synchronized long getMaxBytes() {
+    return m_MaxBytes;
+  }
+
+  /**
+   * Sets the maximum number of rows per batch for models loaded from now on.
+   *
+   * @param value	the batch size, at least 1
+   */
+  public synchronized void setMaxBatchSize(int value) {
+    if (value < 1)
+      getLogger().warning("Maximum batch size must be at least 1 but was " + value + ".");
+    else
+      m_MaxBatchSize = value;
+  }
+
+  /**
+   * Returns the maximum number of rows per batch.
+   *
+   * @return		the batch size
+   */
+  public synchronized int getMaxBatchSize() {
+    return m_MaxBatchSize;
+  }
+
+  /**
+   * Sets the maximum wait for a batch to fill up for models loaded from now on.
+   *
+   * @param value	the wait in microseconds, at least 0
+   */
+  public synchronized void setMaxWaitMicros(long value) {
+    if (value < 0)
+      getLogger().warning("Maximum wait must be at least 0 but was " + value + ".");
+    else
+      m_MaxWaitMicros = value;
+  }
+
+  /**
+   * Returns the maximum wait for a batch to fill up.
+   *
+   * @return		the wait in microseconds
+   */
+  public synchronized long getMaxWaitMicros() {
+    return m_MaxWaitMicros;
+  }
+
+  /**
+   * Registers the configured algorithm under the name, replacing any model
+   * loaded under that name.
+   *
+   * @param name	the name of the model
+   * @param algorithm	the configured algorithm
+   */
+  public void register(String name, PredictingSupervisedMatrixAlgorithm algorithm) {
+    FrozenPredictor	predictor;
+
+    predictor = FrozenPredictor.freeze(algorithm);
+    synchronized (this) {
+      put(name, predictor, Utils.serialize(predictor).length);
+    }
+  }
+
+  /**
+   * Returns the batcher for the model, loading the model if necessary. The
+   * model gets read and deserialized without holding the lock of the
+   * registry, i.e., other models can be served in the meantime. If several
+   * threads load the same model concurrently, the first one to finish gets
+   * published.
+   *
+   * @param name	the name of the model
+   * @return		the batcher, null if the model is not available
+   */
+  public MicroBatcher get(String name) {
+    Entry				entry;
+    File				file;
+    byte[]				data;
+    PredictingSupervisedMatrixAlgorithm	algorithm;
+    FrozenPredictor			predictor;
+
+    synchronized (this) {
+      entry = m_Entries.get(name);
+      if (entry != null)
+	return entry.batcher;
+      if ((m_ModelDir == null) || !isValidName(name))
+	return null;
+      file = new File(m_ModelDir, name + MODEL_EXTENSION);
+    }
+
+    if (!file.isFile())
+      return null;
+
+    try {
+      data = Files.readAllBytes(file.toPath());
+    }
+    catch (IOException e) {
+      throw new MatrixAlgorithmsException("Failed to read model " + file, e);
+    }
+    algorithm = Utils.deserialize(data);
+    predictor = FrozenPredictor.freeze(algorithm);
+
+    synchronized (this) {
+      entry = m_Entries.get(name);
+      if (entry != null)
+	return entry.batcher;
+      return put(name, predictor, data.length).batcher;
+    }
+  }
+
+  /**
+   * Checks whether the name can be used for a file in the model directory.
+   *
+   * @param name	the name to check
+   * @return		true if valid
+   */
+  protected boolean isValidName(String name) {
+    return !name.isEmpty() && name.matches("[A-Za-z0-9_.\\-]+") && !name.startsWith(".");
+  }
+
+  /**
+   * Adds the model and evicts the least recently used ones if the memory
+   * budget is exceeded.
+   *
+   * @param name	the name of the model
+   * @param predictor	the model
+   * @param bytes	the size of the model
+   * @return		the new entry
+   */
+  protected Entry put(String name, FrozenPredictor predictor, long bytes) {
+    Entry	result;
+    Entry	previous;
+
+    result   = new Entry(new MicroBatcher(predictor, m_MaxBatchSize, m_MaxWaitMicros), bytes);
+    previous = m_Entries.put(name, result);
+    if (previous != null) {
+      previous.batcher.shutdown();
+      m_NumBytes -= previous.bytes;
+    }
+    m_NumBytes += bytes;
+    evict();
+
+    return result;
+  }
+
+  /**
+   * Evicts the least recently used models until the memory budget is met,
+   * always keeping the most recently used one.
+   */
+  protected void evict() {
+    Iterator<Map.Entry<String, Entry>>	iter;
+    Map.Entry<String, Entry>		entry;
+
+    iter = m_Entries.entrySet().iterator();
+    while ((m_NumBytes > m_MaxBytes) && (m_Entries.size() > 1) && iter.hasNext()) {
+      entry = iter.next();
+      getLogger().info("Evicting model " + entry.getKey());
+      entry.getValue().batcher.shutdown();
+      m_NumBytes -= entry.getValue().bytes;
+      iter.remove();
+    }
+  }
+
+  /**
+   * Returns the names of the loaded models, least recently used first.
+   *
+   * @return		the names
+   */
+  public synchronized List<String> getLoaded() {
+    return new ArrayList<>(m_Entries.keySet());
+  }
+
+  /**
+   * Returns the number of bytes of the loaded models.
+   *
+   * @return		the number of bytes
+   */
+  public synchronized long getNumBytes() {
+    return m_NumBytes;
+  }
+
+  /**
+   * Returns the counters of all loaded models.
+   *
+   * @return		the counters, by model name
+   */
+  public synchronized Map<String, Map<String, Number>> getStatistics() {
+    Map<String, Map<String, Number>>	result;
+
+    result = new LinkedHashMap<>();
+    for (Map.Entry<String, Entry> entry : m_Entries.entrySet())
+      result.put(entry.getKey(), entry.getValue().batcher.getStatistics());
+
+    return result;
+  }
+
+  /**
+   * Shuts down all batchers and unloads the models.
+   */
+  public synchronized void clear() {
+    for (Entry entry : m_Entries.values())
+      entry.batcher.shutdown();
+    m_Entries.clear();
+    m_NumBytes = 0;
+  }
+
+  /**
+   * Restores the transient entries after deserialization.
+   *
+   * @return		this registry, without loaded models
+   */
+  protected Object readResolve() {
+    m_Entries  = new LinkedHashMap<>(16, 0.75f, true);
+    m_NumBytes = 0;
+    return this;
+  }
+}
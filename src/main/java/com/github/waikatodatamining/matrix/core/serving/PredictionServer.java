@@ -0,0 +1,314 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PredictionServer.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package com.github.waikatodatamining.matrix.core.serving;
+
+import com.github.waikatodatamining.matrix.core.LoggingObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Serves the models of a {@link ModelRegistry} over HTTP, using the server
+ * built into the JDK.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *   <li>POST /predict/&lt;model&gt; - the body contains one row per line,
+ *   with comma-separated values. Each row is predicted via the model's
+ *   {@link MicroBatcher}, i.e., concurrent requests get batched. The response
+ *   contains the comma-separated predictions, one line per row. Requests
+ *   whose predictions take longer than the timeout (see
+ *   {@link #setTimeoutMillis(long)}) get answered with 504.</li>
+ *   <li>GET /stats - the counters of the loaded models, one
+ *   "&lt;model&gt;.&lt;counter&gt;=&lt;value&gt;" per line.</li>
+ * </ul>
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class PredictionServer
+  extends LoggingObject {
+
+  private static final long serialVersionUID = -1204568541925416377L;
+
+  /** the path prefix for predictions. */
+  public static final String PREDICT = "/predict/";
+
+  /** the path for the statistics. */
+  public static final String STATS = "/stats";
+
+  /** the models to serve. */
+  protected final ModelRegistry m_Registry;
+
+  /** the number of threads handling the requests. */
+  protected int m_NumThreads = 16;
+
+  /** the maximum wait for the predictions of a request, in milliseconds. */
+  protected long m_TimeoutMillis = 30000;
+
+  /** the server, null if not running. */
+  protected transient HttpServer m_Server;
+
+  /** the threads handling the requests. */
+  protected transient ExecutorService m_Executor;
+
+  /**
+   * Initializes the server.
+   *
+   * @param registry	the models to serve
+   */
+  public PredictionServer(ModelRegistry registry) {
+    m_Registry = registry;
+  }
+
+  /**
+   * Returns the models that are served.
+   *
+   * @return		the registry
+   */
+  public ModelRegistry getRegistry() {
+    return m_Registry;
+  }
+
+  /**
+   * Sets the number of threads handling the requests. Takes effect on the
+   * next start. Since the requests block until their batch is predicted,
+   * this limits the number of rows that can be batched.
+   *
+   * @param value	the number of threads, at least 1
+   */
+  public void setNumThreads(int value) {
+    if (value < 1)
+      getLogger().warning("Number of threads must be at least 1 but was " + value + ".");
+    else
+      m_NumThreads = value;
+  }
+
+  /**
+   * Returns the number of threads handling the requests.
+   *
+   * @return		the number of threads
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Sets the maximum wait for the predictions of a request. Requests that
+   * take longer get answered with 504.
+   *
+   * @param value	the wait in milliseconds, at least 1
+   */
+  public void setTimeoutMillis(long value) {
+    if (value < 1)
+      getLogger().warning("Timeout must be at least 1 but was " + value + ".");
+    else
+      m_TimeoutMillis = value;
+  }
+
+  /**
+   * Returns the maximum wait for the predictions of a request.
+   *
+   * @return		the wait in milliseconds
+   */
+  public long getTimeoutMillis() {
+    return m_TimeoutMillis;
+  }
+
+  /**
+   * Starts the server.
+   *
+   * @param port	the port to listen on, 0 for any free port
+   * @throws IOException	if the server fails to start
+   */
+  public synchronized void start(int port) throws IOException {
+    if (m_Server != null)
+      throw new IllegalStateException("Server is already running!");
+
+    m_Executor = Executors.newFixedThreadPool(m_NumThreads);
+    m_Server   = HttpServer.create(new InetSocketAddress(port), 0);
+    m_Server.createContext(PREDICT, this::handlePredict);
+    m_Server.createContext(STATS, this::handleStats);
+    m_Server.setExecutor(m_Executor);
+    m_Server.start();
+    getLogger().info("Listening on port " + getPort());
+  }
+
+  /**
+   * Returns the port the server listens on.
+   *
+   * @return		the port, -1 if not running
+   */
+  public synchronized int getPort() {
+    return (m_Server == null) ? -1 : m_Server.getAddress().getPort();
+  }
+
+  /**
+   * Stops the server.
+   */
+  public synchronized void stop() {
+    if (m_Server == null)
+      return;
+
+    m_Server.stop(0);
+    m_Executor.shutdownNow();
+    m_Server   = null;
+    m_Executor = null;
+  }
+
+  /**
+   * Handles a prediction request.
+   *
+   * @param exchange	the exchange
+   * @throws IOException	if communication fails
+   */
+  protected void handlePredict(HttpExchange exchange) throws IOException {
+    String				name;
+    MicroBatcher			batcher;
+    List<CompletableFuture<double[]>>	futures;
+    StringBuilder			response;
+    BufferedReader			reader;
+    String				line;
+    String[]				parts;
+    double[]				row;
+    double[]				prediction;
+    int					i;
+    long				deadline;
+
+    try {
+      if (!exchange.getRequestMethod().equals("POST")) {
+	send(exchange, 405, "Use POST\n");
+	return;
+      }
+
+      name    = exchange.getRequestURI().getPath().substring(PREDICT.length());
+      batcher = m_Registry.get(name);
+      if (batcher == null) {
+	send(exchange, 404, "Unknown model: " + name + "\n");
+	return;
+      }
+
+      futures = new ArrayList<>();
+      reader  = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+      while ((line = reader.readLine()) != null) {
+	line = line.trim();
+	if (line.isEmpty())
+	  continue;
+	parts = line.split(",");
+	row   = new double[parts.length];
+	try {
+	  for (i = 0; i < parts.length; i++)
+	    row[i] = Double.parseDouble(parts[i].trim());
+	}
+	catch (NumberFormatException e) {
+	  send(exchange, 400, "Invalid row " + (futures.size() + 1) + ": " + e.getMessage() + "\n");
+	  return;
+	}
+	futures.add(batcher.submit(row));
+      }
+
+      response = new StringBuilder();
+      deadline = System.nanoTime() + m_TimeoutMillis * 1000000L;
+      for (CompletableFuture<double[]> future : futures) {
+	prediction = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+	for (i = 0; i < prediction.length; i++) {
+	  if (i > 0)
+	    response.append(',');
+	  response.append(prediction[i]);
+	}
+	response.append('\n');
+      }
+      send(exchange, 200, response.toString());
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      send(exchange, 503, "Interrupted\n");
+    }
+    catch (ExecutionException e) {
+      send(exchange, 500, "Prediction failed: " + e.getCause() + "\n");
+    }
+    catch (TimeoutException e) {
+      send(exchange, 504, "Prediction timed out\n");
+    }
+    catch (RuntimeException e) {
+      getLogger().warning("Failed to handle request: " + e);
+      send(exchange, 500, "Failed to handle request: " + e + "\n");
+    }
+    finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Handles a statistics request.
+   *
+   * @param exchange	the exchange
+   * @throws IOException	if communication fails
+   */
+  protected void handleStats(HttpExchange exchange) throws IOException {
+    StringBuilder	response;
+
+    try {
+      response = new StringBuilder();
+      for (Map.Entry<String, Map<String, Number>> model : m_Registry.getStatistics().entrySet()) {
+	for (Map.Entry<String, Number> counter : model.getValue().entrySet())
+	  response.append(model.getKey()).append('.').append(counter.getKey()).append('=').append(counter.getValue()).append('\n');
+      }
+      send(exchange, 200, response.toString());
+    }
+    finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Sends the plain text response.
+   *
+   * @param exchange	the exchange
+   * @param code	the HTTP status code
+   * @param body	the body
+   * @throws IOException	if sending fails
+   */
+  protected void send(HttpExchange exchange, int code, String body) throws IOException {
+    byte[]	bytes;
+
+    bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(code, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
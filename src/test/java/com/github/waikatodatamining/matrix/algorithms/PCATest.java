@@ -1,8 +1,13 @@
 package com.github.waikatodatamining.matrix.algorithms;
 
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
 import com.github.waikatodatamining.matrix.test.misc.Tags;
+import com.github.waikatodatamining.matrix.test.misc.TestDataset;
 import com.github.waikatodatamining.matrix.test.misc.TestRegression;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
  * Test the PCA class.
@@ -21,6 +26,55 @@ public class PCATest extends MatrixAlgorithmTest<PCA> {
     m_subject.setMaxColumns(3);
   }
 
+  @TestRegression
+  public void gram() {
+    m_subject.setStrategy(PCA.Strategy.GRAM);
+  }
+
+  @TestRegression
+  public void svd() {
+    m_subject.setStrategy(PCA.Strategy.SVD);
+  }
+
+  @Test
+  public void strategiesAgreeOnTallData() {
+    checkStrategiesAgree(TestDataset.BOLTS.load());
+  }
+
+  @Test
+  public void strategiesAgreeOnWideData() {
+    checkStrategiesAgree(MatrixFactory.randn(15, 60, 1));
+  }
+
+  /**
+   * Checks that all strategies produce the same scores, up to the sign of
+   * the components.
+   *
+   * @param X	the data to use
+   */
+  protected void checkStrategiesAgree(Matrix X) {
+    PCA		pca;
+    Matrix	expected;
+    Matrix	actual;
+
+    pca = new PCA();
+    pca.setMaxColumns(5);
+    pca.setStrategy(PCA.Strategy.COVARIANCE);
+    expected = pca.transform(X);
+
+    for (PCA.Strategy strategy: PCA.Strategy.values()) {
+      pca = new PCA();
+      pca.setMaxColumns(5);
+      pca.setStrategy(strategy);
+      actual = pca.transform(X);
+      assertEquals(expected.numColumns(), actual.numColumns(), strategy.toString());
+      for (int j = 0; j < expected.numColumns(); j++) {
+        double sign = Math.signum(expected.get(0, j) * actual.get(0, j));
+        for (int i = 0; i < expected.numRows(); i++)
+          assertEquals(expected.get(i, j), sign * actual.get(i, j), 1e-6, strategy.toString());
+      }
+    }
+  }
 
   @Override
   protected void setupRegressions(PCA subject, Matrix[] inputData) {
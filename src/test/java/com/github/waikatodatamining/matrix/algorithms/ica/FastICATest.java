@@ -5,9 +5,16 @@ import com.github.waikatodatamining.matrix.algorithms.ica.FastICA.Algorithm;
 import com.github.waikatodatamining.matrix.algorithms.ica.approxfun.Cube;
 import com.github.waikatodatamining.matrix.algorithms.ica.approxfun.Exponential;
 import com.github.waikatodatamining.matrix.algorithms.ica.approxfun.LogCosH;
+import com.github.waikatodatamining.matrix.core.algorithm.AlgorithmListener;
+import com.github.waikatodatamining.matrix.core.algorithm.ConvergenceEvent;
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
 import com.github.waikatodatamining.matrix.test.misc.TestRegression;
 import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class FastICATest extends MatrixAlgorithmTest<FastICA> {
 
@@ -41,6 +48,13 @@ public class FastICATest extends MatrixAlgorithmTest<FastICA> {
     m_subject.setFun(new Exponential());
   }
 
+  @TestRegression
+  public void warmStart() {
+    FastICA previous = new FastICA();
+    previous.transform(m_inputData[0]);
+    m_subject.setWarmStart(previous);
+  }
+
   @Override
   protected void setupRegressions(FastICA subject, Matrix[] inputData) {
     super.setupRegressions(subject, inputData);
@@ -60,6 +74,53 @@ public class FastICATest extends MatrixAlgorithmTest<FastICA> {
     }
   }
 
+  /**
+   * Warm-starting the refit on data with appended rows from the model of the
+   * original data converges in fewer iterations.
+   */
+  @Test
+  public void warmStartAfterAppendingRows() {
+    Matrix mixing = MatrixFactory.randn(3, 3, 1);
+    Matrix X = MatrixFactory.rand(200, 3, 2).sub(0.5).mul(mixing);
+    Matrix XNew = X.concatAlongRows(MatrixFactory.rand(10, 3, 3).sub(0.5).mul(mixing));
+    m_subject.transform(X);
+
+    FastICA cold = new FastICA();
+    int coldIterations = fitIterations(cold, XNew);
+
+    FastICA warm = new FastICA();
+    warm.setWarmStart(m_subject);
+    int warmIterations = fitIterations(warm, XNew);
+
+    Assert.assertTrue(warmIterations + " >= " + coldIterations, warmIterations < coldIterations);
+  }
+
+  /**
+   * Fits the algorithm and sums the iterations over all convergence events.
+   *
+   * @param algorithm	the algorithm to fit
+   * @param X		the data
+   * @return		the total number of iterations
+   */
+  protected int fitIterations(FastICA algorithm, Matrix X) {
+    List<ConvergenceEvent> events = new ArrayList<>();
+    algorithm.addListener(new AlgorithmListener() {
+      @Override
+      public void iterationsCompleted(ConvergenceEvent event) {
+	events.add(event);
+      }
+    });
+    algorithm.transform(X);
+
+    Assert.assertFalse(events.isEmpty());
+    int result = 0;
+    for (ConvergenceEvent event : events) {
+      Assert.assertTrue(event.isConverged());
+      result += event.getIterations();
+    }
+    return result;
+  }
+
   @Override
   protected FastICA instantiateSubject() {
     return new FastICA();
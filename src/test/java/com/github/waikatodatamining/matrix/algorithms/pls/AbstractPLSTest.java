@@ -30,6 +30,37 @@ public abstract class AbstractPLSTest<T extends AbstractPLS> extends MatrixAlgor
     }
   }
 
+  @Test
+  public void checkPredictPath() throws Exception {
+    Matrix X = m_inputData[0];
+    Matrix Y = m_inputData[1];
+    int numComponents = 4;
+
+    if (!m_subject.canPredictPath())
+      return;
+
+    m_subject.setNumComponents(numComponents);
+    m_subject.configure(X, Y);
+    Matrix[] path = m_subject.predictPath(X);
+    Assertions.assertEquals(numComponents, path.length);
+
+    // Each element must match a model fitted with the respective number of components
+    for (int k = 1; k <= numComponents; k++) {
+      T single = instantiateSubject();
+      single.setNumComponents(k);
+      single.configure(X, Y);
+      Matrix expected = single.predict(X);
+      Matrix actual = path[k - 1];
+      for (int i = 0; i < expected.numRows(); i++) {
+	for (int j = 0; j < expected.numColumns(); j++) {
+	  double tol = 1e-6 * Math.max(1.0, Math.abs(expected.get(i, j)));
+	  Assertions.assertEquals(expected.get(i, j), actual.get(i, j), tol,
+	    "Path differs for " + k + " components at (" + i + "," + j + ")");
+	}
+      }
+    }
+  }
+
   /** Merge two tags with / if second tag is not empty */
   private static String mergeIfNotEmpty(String tag1, String tag2) {
     return tag1 + ("".equals(tag2) ? "" : "/" + tag2);
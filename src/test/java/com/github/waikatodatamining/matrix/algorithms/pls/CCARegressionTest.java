@@ -1,7 +1,14 @@
 package com.github.waikatodatamining.matrix.algorithms.pls;
 
+import com.github.waikatodatamining.matrix.algorithms.pls.NIPALS.DeflatedLeastSquares;
 import com.github.waikatodatamining.matrix.algorithms.pls.NIPALS.DeflationMode;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
 import com.github.waikatodatamining.matrix.test.misc.TestRegression;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 /**
  * Testcase for the CCARegression algorithm.
@@ -25,6 +32,26 @@ public class CCARegressionTest extends AbstractPLSTest<CCARegression> {
     m_subject.setNormYWeights(true);
   }
 
+  /**
+   * The least-squares solutions of the deflated matrices equal the ones via
+   * the pseudo-inverse.
+   */
+  @Test
+  public void deflatedLeastSquaresMatchesPseudoInverse() {
+    Matrix A = MatrixFactory.randn(40, 7, 1);
+    Matrix b = MatrixFactory.randn(40, 1, 2);
+    DeflatedLeastSquares solver = DeflatedLeastSquares.create(A);
+
+    for (int k = 0; k < 3; k++) {
+      assertArrayEquals(A.pseudoInverse().mul(b).toRawCopy1D(), solver.solve(b).toRawCopy1D(), 1e-10);
+      Matrix s = A.mul(MatrixFactory.randn(7, 1, 10 + k));
+      A = A.sub(s.mul(s.t().mul(A)).div(s.norm2squared()));
+      solver.deflate(s);
+    }
+
+    assertNull(DeflatedLeastSquares.create(MatrixFactory.randn(5, 7, 1)));
+  }
+
   @Override
   protected CCARegression instantiateSubject() {
     return new CCARegression();
@@ -1,9 +1,24 @@
 package com.github.waikatodatamining.matrix.algorithms.pls;
 
+import com.github.waikatodatamining.matrix.core.algorithm.AlgorithmListener;
+import com.github.waikatodatamining.matrix.core.algorithm.ConvergenceEvent;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
 import com.github.waikatodatamining.matrix.test.misc.TestRegression;
 import com.github.waikatodatamining.matrix.algorithms.pls.kernel.LinearKernel;
 import com.github.waikatodatamining.matrix.algorithms.pls.kernel.PolyKernel;
 import com.github.waikatodatamining.matrix.algorithms.pls.kernel.RBFKernel;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Testcase for the KernelPLS algorithm.
@@ -27,6 +42,159 @@ public class KernelPLSTest extends AbstractPLSTest<KernelPLS> {
     m_subject.setKernel(new RBFKernel());
   }
 
+  @TestRegression
+  public void warmStart() throws Exception {
+    KernelPLS previous = new KernelPLS();
+    previous.configure(m_inputData[0], m_inputData[1]);
+    m_subject.setWarmStart(previous);
+  }
+
+  @TestRegression
+  public void nystroem() {
+    m_subject.setApproximation(KernelPLS.Approximation.NYSTROEM);
+    m_subject.setNumLandmarks(10);
+  }
+
+  @TestRegression
+  public void nystroemUniform() {
+    m_subject.setApproximation(KernelPLS.Approximation.NYSTROEM);
+    m_subject.setLandmarkSelection(KernelPLS.LandmarkSelection.UNIFORM);
+    m_subject.setNumLandmarks(10);
+  }
+
+  @TestRegression
+  public void randomFeatures() {
+    m_subject.setKernel(new RBFKernel());
+    m_subject.setApproximation(KernelPLS.Approximation.RANDOM_FEATURES);
+    m_subject.setNumFeatures(50);
+  }
+
+  /**
+   * Random features require a kernel with an explicit feature map.
+   */
+  @Test
+  public void randomFeaturesRequireFeatureMap() {
+    m_subject.setKernel(new PolyKernel());
+    m_subject.setApproximation(KernelPLS.Approximation.RANDOM_FEATURES);
+    assertThrows(MatrixAlgorithmsException.class, () -> m_subject.configure(m_inputData[0], m_inputData[1]));
+  }
+
+  /**
+   * The in-place rank-1 deflation matches (I - t*t^T) * K * (I - t*t^T).
+   */
+  @Test
+  public void deflationMatchesProjection() {
+    Matrix X = MatrixFactory.randn(30, 5, 1);
+    Matrix K = X.mul(X.transpose());
+    Matrix t = MatrixFactory.randn(30, 1, 2).normalized();
+    Matrix part = MatrixFactory.eye(30, 30).sub(t.mul(t.transpose()));
+    Matrix expected = part.mul(K).mul(part);
+
+    m_subject.deflateInKernelSpace(K, t);
+    assertArrayEquals(expected.toRawCopy1D(), K.toRawCopy1D(), 1e-10);
+  }
+
+  /**
+   * Centering the kernel matrix of the training rows as test rows yields the
+   * centered training kernel matrix.
+   */
+  @Test
+  public void testCenteringMatchesTrainCentering() {
+    m_subject.configure(m_inputData[0], m_inputData[1]);
+    Matrix K = m_subject.centralizedTestKernel(m_inputData[0]);
+    assertArrayEquals(m_subject.m_K_orig.toRawCopy1D(), K.toRawCopy1D(), 1e-10);
+  }
+
+  /**
+   * The out-of-core kernel matrix yields the in-memory model.
+   */
+  @Test
+  public void outOfCore() {
+    Matrix X = m_inputData[0];
+    Matrix y = m_inputData[1];
+    KernelPLS inMemory = new KernelPLS();
+    inMemory.configure(X, y);
+
+    m_subject.setKernelStorage(new File(System.getProperty("java.io.tmpdir")));
+    m_subject.setKernelTileSize(7);
+    m_subject.setKernelBlockBytes(1);
+    m_subject.configure(X, y);
+
+    assertArrayEquals(inMemory.predict(X).toRawCopy1D(), m_subject.predict(X).toRawCopy1D(), 1e-8);
+    assertArrayEquals(inMemory.transform(X).toRawCopy1D(), m_subject.transform(X).toRawCopy1D(), 1e-8);
+  }
+
+  /**
+   * With all rows as landmarks, the Nystroem approximation is exact.
+   */
+  @Test
+  public void nystroemAllLandmarks() {
+    Matrix X = m_inputData[0];
+    Matrix y = m_inputData[1];
+    KernelPLS exact = new KernelPLS();
+    exact.setKernel(new RBFKernel());
+    exact.configure(X, y);
+
+    m_subject.setKernel(new RBFKernel());
+    m_subject.setApproximation(KernelPLS.Approximation.NYSTROEM);
+    m_subject.setNumLandmarks(X.numRows());
+    m_subject.configure(X, y);
+
+    assertArrayEquals(exact.predict(X).toRawCopy1D(), m_subject.predict(X).toRawCopy1D(), 1e-6);
+  }
+
+  /**
+   * Warm-starting the refit on data with appended rows from the model of the
+   * original data converges in fewer iterations, with multiple responses.
+   */
+  @Test
+  public void warmStartAfterAppendingRows() {
+    Matrix X = MatrixFactory.randn(100, 10, 1);
+    Matrix Y = X.mul(MatrixFactory.randn(10, 4, 2)).add(MatrixFactory.randn(100, 4, 3));
+    Matrix XNew = X.concatAlongRows(MatrixFactory.randn(5, 10, 4));
+    Matrix YNew = Y.concatAlongRows(XNew.getRows(100, 105).mul(MatrixFactory.randn(10, 4, 2)));
+    m_subject.setKernel(new LinearKernel());
+    m_subject.configure(X, Y);
+
+    KernelPLS cold = new KernelPLS();
+    cold.setKernel(new LinearKernel());
+    int coldIterations = fitIterations(cold, XNew, YNew);
+
+    KernelPLS warm = new KernelPLS();
+    warm.setKernel(new LinearKernel());
+    warm.setWarmStart(m_subject);
+    int warmIterations = fitIterations(warm, XNew, YNew);
+
+    assertTrue(warmIterations < coldIterations, warmIterations + " >= " + coldIterations);
+  }
+
+  /**
+   * Fits the algorithm and sums the iterations over all components.
+   *
+   * @param algorithm	the algorithm to fit
+   * @param X		the predictors
+   * @param Y		the response
+   * @return		the total number of iterations
+   */
+  protected int fitIterations(KernelPLS algorithm, Matrix X, Matrix Y) {
+    List<ConvergenceEvent> events = new ArrayList<>();
+    algorithm.addListener(new AlgorithmListener() {
+      @Override
+      public void iterationsCompleted(ConvergenceEvent event) {
+	events.add(event);
+      }
+    });
+    algorithm.configure(X, Y);
+
+    assertEquals(algorithm.getNumComponents(), events.size());
+    int result = 0;
+    for (ConvergenceEvent event : events) {
+      assertTrue(event.isConverged());
+      result += event.getIterations();
+    }
+    return result;
+  }
+
   @Override
   protected KernelPLS instantiateSubject() {
     return new KernelPLS();
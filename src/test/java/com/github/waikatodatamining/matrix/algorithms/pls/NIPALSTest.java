@@ -1,7 +1,19 @@
 package com.github.waikatodatamining.matrix.algorithms.pls;
 
 import com.github.waikatodatamining.matrix.algorithms.pls.NIPALS.DeflationMode;
+import com.github.waikatodatamining.matrix.core.algorithm.AlgorithmListener;
+import com.github.waikatodatamining.matrix.core.algorithm.ConvergenceEvent;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
 import com.github.waikatodatamining.matrix.test.misc.TestRegression;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Testcase for the NIPALS algorithm.
@@ -25,6 +37,129 @@ public class NIPALSTest extends AbstractPLSTest<NIPALS> {
     m_subject.setNormYWeights(true);
   }
 
+  @TestRegression
+  public void gram() {
+    m_subject.setFitStrategy(FitStrategy.GRAM);
+  }
+
+  /**
+   * The fit on the Gram matrix yields the standard model on wide data with
+   * multiple responses, for both deflation modes.
+   */
+  @Test
+  public void gramMatchesStandardOnWideData() {
+    Matrix X = MatrixFactory.randn(30, 200, 1);
+    Matrix Y = MatrixFactory.randn(30, 3, 2);
+    m_subject.setTol(1e-12);
+    for (DeflationMode mode : DeflationMode.values()) {
+      m_subject.setDeflationMode(mode);
+      m_subject.setFitStrategy(FitStrategy.STANDARD);
+      m_subject.configure(X, Y);
+      Matrix coef = m_subject.getCoef();
+      Matrix T = m_subject.transform(X);
+
+      m_subject.setFitStrategy(FitStrategy.GRAM);
+      m_subject.configure(X, Y);
+      assertArrayEquals(coef.toRawCopy1D(), m_subject.getCoef().toRawCopy1D(), 1e-6, mode.toString());
+      assertArrayEquals(T.toRawCopy1D(), m_subject.transform(X).toRawCopy1D(), 1e-6, mode.toString());
+    }
+  }
+
+  /**
+   * Processing the responses in blocks of columns yields the same model.
+   */
+  @Test
+  public void blockedResponsesMatchUnblocked() {
+    Matrix X = MatrixFactory.randn(40, 10, 1);
+    Matrix Y = MatrixFactory.randn(40, 7, 2);
+    for (DeflationMode mode : DeflationMode.values()) {
+      m_subject.setDeflationMode(mode);
+      m_subject.setResponseBlockSize(0);
+      m_subject.configure(X, Y);
+      Matrix expected = m_subject.predict(X);
+
+      m_subject.setResponseBlockSize(3);
+      m_subject.configure(X, Y);
+      assertArrayEquals(expected.toRawCopy1D(), m_subject.predict(X).toRawCopy1D(), 1e-10, mode.toString());
+    }
+  }
+
+  /**
+   * Warm-starting the refit on data with appended rows from the model of the
+   * original data converges in fewer iterations, with multiple responses.
+   */
+  @Test
+  public void warmStartAfterAppendingRows() {
+    Matrix X = MatrixFactory.randn(100, 10, 1);
+    Matrix Y = X.mul(MatrixFactory.randn(10, 4, 2)).add(MatrixFactory.randn(100, 4, 3));
+    Matrix XNew = X.concatAlongRows(MatrixFactory.randn(5, 10, 4));
+    Matrix YNew = Y.concatAlongRows(XNew.getRows(100, 105).mul(MatrixFactory.randn(10, 4, 2)));
+    m_subject.setTol(1e-10);
+    m_subject.configure(X, Y);
+
+    NIPALS cold = new NIPALS();
+    cold.setTol(1e-10);
+    int coldIterations = fitIterations(cold, XNew, YNew);
+
+    NIPALS warm = new NIPALS();
+    warm.setTol(1e-10);
+    warm.setWarmStart(m_subject);
+    int warmIterations = fitIterations(warm, XNew, YNew);
+
+    assertTrue(warmIterations < coldIterations, warmIterations + " >= " + coldIterations);
+    assertArrayEquals(cold.predict(XNew).toRawCopy1D(), warm.predict(XNew).toRawCopy1D(), 1e-4);
+  }
+
+  /**
+   * With a single response the inner loop is exact after one pass, so the
+   * warm start has no effect.
+   */
+  @Test
+  public void warmStartSingleResponse() {
+    Matrix X = MatrixFactory.randn(100, 10, 1);
+    Matrix y = X.mul(MatrixFactory.randn(10, 1, 2)).add(MatrixFactory.randn(100, 1, 3));
+    Matrix XNew = X.concatAlongRows(MatrixFactory.randn(5, 10, 4));
+    Matrix yNew = y.concatAlongRows(MatrixFactory.randn(5, 1, 5));
+    m_subject.configure(X, y);
+
+    NIPALS cold = new NIPALS();
+    int coldIterations = fitIterations(cold, XNew, yNew);
+
+    NIPALS warm = new NIPALS();
+    warm.setWarmStart(m_subject);
+    int warmIterations = fitIterations(warm, XNew, yNew);
+
+    assertEquals(coldIterations, warmIterations);
+    assertArrayEquals(cold.predict(XNew).toRawCopy1D(), warm.predict(XNew).toRawCopy1D(), 1e-10);
+  }
+
+  /**
+   * Fits the algorithm and sums the iterations over all components.
+   *
+   * @param algorithm	the algorithm to fit
+   * @param X		the predictors
+   * @param Y		the response
+   * @return		the total number of iterations
+   */
+  protected int fitIterations(NIPALS algorithm, Matrix X, Matrix Y) {
+    List<ConvergenceEvent> events = new ArrayList<>();
+    algorithm.addListener(new AlgorithmListener() {
+      @Override
+      public void iterationsCompleted(ConvergenceEvent event) {
+	events.add(event);
+      }
+    });
+    algorithm.configure(X, Y);
+
+    assertEquals(algorithm.getNumComponents(), events.size());
+    int result = 0;
+    for (ConvergenceEvent event : events) {
+      assertTrue(event.isConverged());
+      result += event.getIterations();
+    }
+    return result;
+  }
+
   @Override
   protected NIPALS instantiateSubject() {
     return new NIPALS();
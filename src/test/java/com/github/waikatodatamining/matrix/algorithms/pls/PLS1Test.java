@@ -1,5 +1,13 @@
 package com.github.waikatodatamining.matrix.algorithms.pls;
 
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+import com.github.waikatodatamining.matrix.test.misc.TestRegression;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 /**
  * Testcase for the PLS1 algorithm.
  *
@@ -7,6 +15,31 @@ package com.github.waikatodatamining.matrix.algorithms.pls;
  */
 public class PLS1Test<T extends PLS1> extends AbstractPLSTest<T> {
 
+  @TestRegression
+  public void gram() {
+    m_subject.setFitStrategy(FitStrategy.GRAM);
+  }
+
+  /**
+   * The fit on the Gram matrix yields the standard model on wide data, and
+   * gets selected automatically.
+   */
+  @Test
+  public void gramMatchesStandardOnWideData() {
+    Matrix X = MatrixFactory.randn(30, 200, 1);
+    Matrix y = MatrixFactory.randn(30, 1, 2);
+    m_subject.setFitStrategy(FitStrategy.STANDARD);
+    m_subject.configure(X, y);
+    Matrix W = m_subject.getMatrix("W");
+    Matrix expected = m_subject.predict(X);
+
+    m_subject.setFitStrategy(FitStrategy.AUTO);
+    assertEquals(FitStrategy.GRAM, m_subject.determineFitStrategy(X));
+    m_subject.configure(X, y);
+    assertArrayEquals(W.toRawCopy1D(), m_subject.getMatrix("W").toRawCopy1D(), 1e-8);
+    assertArrayEquals(expected.toRawCopy1D(), m_subject.predict(X).toRawCopy1D(), 1e-8);
+  }
+
   @Override
   protected T instantiateSubject() {
     return (T) new PLS1();
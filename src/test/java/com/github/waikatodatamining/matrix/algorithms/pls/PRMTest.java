@@ -1,5 +1,18 @@
 package com.github.waikatodatamining.matrix.algorithms.pls;
 
+import com.github.waikatodatamining.matrix.core.algorithm.AlgorithmListener;
+import com.github.waikatodatamining.matrix.core.algorithm.ConvergenceEvent;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+import com.github.waikatodatamining.matrix.test.misc.TestRegression;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Testcase for the PRM algorithm.
@@ -8,6 +21,102 @@ package com.github.waikatodatamining.matrix.algorithms.pls;
  */
 public class PRMTest extends AbstractPLSTest<PRM> {
 
+  @TestRegression
+  public void warmStart() throws Exception {
+    PRM previous = new PRM();
+    previous.configure(m_inputData[0], m_inputData[1]);
+    m_subject.setWarmStart(previous);
+  }
+
+  /**
+   * With more columns than rows, the SIMPLS weights get back-transformed from
+   * the SVD-reduced space X = V*S*U^T, i.e., the scores X*(U*W) in the original
+   * space equal the scores (V*S)*W in the reduced space.
+   */
+  @Test
+  public void transformWideData() {
+    Matrix X = MatrixFactory.randn(20, 50, 1);
+    Matrix y = MatrixFactory.randn(20, 1, 2);
+    m_subject.configure(X, y);
+    Matrix T = m_subject.transform(X);
+
+    Matrix Xt = X.t();
+    Matrix reduced = Xt.svdV().mul(Xt.svdS());
+    Matrix expected = reduced.mul(m_subject.m_Simpls.getMatrix("W"));
+
+    assertEquals(X.numRows(), T.numRows());
+    assertEquals(m_subject.getNumComponents(), T.numColumns());
+    assertArrayEquals(expected.toRawCopy1D(), T.toRawCopy1D(), 1e-8);
+  }
+
+  /**
+   * A normally finishing fit iterates until gamma has converged and reports
+   * so.
+   */
+  @Test
+  public void reportsConvergence() {
+    List<ConvergenceEvent> events = new ArrayList<>();
+    m_subject.addListener(new AlgorithmListener() {
+      @Override
+      public void iterationsCompleted(ConvergenceEvent event) {
+	events.add(event);
+      }
+    });
+    m_subject.configure(m_inputData[0], m_inputData[1]);
+
+    assertEquals(1, events.size());
+    assertTrue(events.get(0).isConverged());
+    assertTrue(events.get(0).getIterations() > 1);
+    assertTrue(events.get(0).getDelta() < m_subject.getTol());
+  }
+
+  /**
+   * Warm-starting the refit on data with appended rows from the model of the
+   * original data converges to the same model as the cold refit. The
+   * reweighting is not monotone, so fewer iterations are not guaranteed.
+   */
+  @Test
+  public void warmStartAfterAppendingRows() {
+    Matrix XNew = m_inputData[0];
+    Matrix yNew = m_inputData[1];
+    int numRows = XNew.numRows() - 5;
+    m_subject.configure(XNew.getRows(0, numRows), yNew.getRows(0, numRows));
+
+    PRM cold = new PRM();
+    int coldIterations = fitIterations(cold, XNew, yNew);
+
+    PRM warm = new PRM();
+    warm.setWarmStart(m_subject);
+    int warmIterations = fitIterations(warm, XNew, yNew);
+
+    assertTrue(coldIterations > 1);
+    assertTrue(warmIterations > 1);
+    assertArrayEquals(cold.predict(XNew).toRawCopy1D(), warm.predict(XNew).toRawCopy1D(), 1e-2);
+  }
+
+  /**
+   * Fits the algorithm and returns the number of iterations.
+   *
+   * @param algorithm	the algorithm to fit
+   * @param X		the predictors
+   * @param y		the response
+   * @return		the number of iterations
+   */
+  protected int fitIterations(PRM algorithm, Matrix X, Matrix y) {
+    List<ConvergenceEvent> events = new ArrayList<>();
+    algorithm.addListener(new AlgorithmListener() {
+      @Override
+      public void iterationsCompleted(ConvergenceEvent event) {
+	events.add(event);
+      }
+    });
+    algorithm.configure(X, y);
+
+    assertEquals(1, events.size());
+    assertTrue(events.get(0).isConverged());
+    return events.get(0).getIterations();
+  }
+
   @Override
   protected PRM instantiateSubject() {
     return new PRM();
@@ -1,6 +1,12 @@
 package com.github.waikatodatamining.matrix.algorithms.pls;
 
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
 import com.github.waikatodatamining.matrix.test.misc.TestRegression;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
  * Testcase for the SIMPLS algorithm.
@@ -24,6 +30,54 @@ public class SIMPLSTest extends AbstractPLSTest<SIMPLS> {
     m_subject.setNumCoefficients(3);
   }
 
+  @TestRegression
+  public void improvedKernel() {
+    m_subject.setMode(SIMPLS.Mode.IMPROVED_KERNEL);
+  }
+
+  /**
+   * The improved kernel mode yields the standard model, also on wide data.
+   */
+  @Test
+  public void improvedKernelMatchesStandard() {
+    Matrix X = MatrixFactory.randn(40, 200, 1);
+    Matrix y = MatrixFactory.randn(40, 1, 2);
+    m_subject.setNumComponents(10);
+    m_subject.configure(X, y);
+    Matrix expected = m_subject.predict(X);
+    Matrix W = m_subject.getLoadings();
+
+    m_subject.setMode(SIMPLS.Mode.IMPROVED_KERNEL);
+    m_subject.configure(X, y);
+    assertArrayEquals(W.toRawCopy1D(), m_subject.getLoadings().toRawCopy1D(), 1e-8);
+    assertArrayEquals(expected.toRawCopy1D(), m_subject.predict(X).toRawCopy1D(), 1e-8);
+  }
+
+  @TestRegression
+  public void gram() {
+    m_subject.setFitStrategy(FitStrategy.GRAM);
+  }
+
+  /**
+   * The fit on the Gram matrix yields the standard model on wide data, and
+   * gets selected automatically.
+   */
+  @Test
+  public void gramMatchesStandardOnWideData() {
+    Matrix X = MatrixFactory.randn(30, 200, 1);
+    Matrix y = MatrixFactory.randn(30, 1, 2);
+    m_subject.setFitStrategy(FitStrategy.STANDARD);
+    m_subject.configure(X, y);
+    Matrix W = m_subject.getLoadings();
+    Matrix expected = m_subject.predict(X);
+
+    m_subject.setFitStrategy(FitStrategy.AUTO);
+    assertEquals(FitStrategy.GRAM, m_subject.determineFitStrategy(X));
+    m_subject.configure(X, y);
+    assertArrayEquals(W.toRawCopy1D(), m_subject.getLoadings().toRawCopy1D(), 1e-8);
+    assertArrayEquals(expected.toRawCopy1D(), m_subject.predict(X).toRawCopy1D(), 1e-8);
+  }
+
   @Override
   protected SIMPLS instantiateSubject() {
     return new SIMPLS();
@@ -1,6 +1,11 @@
 package com.github.waikatodatamining.matrix.algorithms.pls;
 
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
 import com.github.waikatodatamining.matrix.test.misc.TestRegression;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 
 /**
  * Testcase for the SparsePLS algorithm.
@@ -19,6 +24,23 @@ public class SparsePLSTest extends AbstractPLSTest<SparsePLS> {
     m_subject.setLambda(0.001);
   }
 
+  /**
+   * Without sparsity, all features are selected and the predictions equal
+   * the ones of NIPALS.
+   */
+  @Test
+  public void lambda0MatchesNIPALS() {
+    Matrix X = MatrixFactory.randn(50, 10, 1);
+    Matrix y = MatrixFactory.randn(50, 1, 2);
+    NIPALS nipals = new NIPALS();
+    nipals.setNumComponents(2);
+    nipals.configure(X, y);
+    m_subject.setLambda(0);
+    m_subject.configure(X, y);
+
+    assertArrayEquals(nipals.predict(X).toRawCopy1D(), m_subject.predict(X).toRawCopy1D(), 1e-8);
+  }
+
 
   @Override
   protected SparsePLS instantiateSubject() {
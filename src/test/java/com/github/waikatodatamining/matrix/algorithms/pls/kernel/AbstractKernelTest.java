@@ -1,8 +1,12 @@
 package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
 
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
 import com.github.waikatodatamining.matrix.test.AbstractRegressionTest;
 import com.github.waikatodatamining.matrix.test.misc.TestDataset;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
  * Abstract kernel test. Regression for matrix transformation.
@@ -18,6 +22,28 @@ public abstract class AbstractKernelTest<T extends AbstractKernel> extends Abstr
     addRegression("kernel-matrix-result", matrixResult);
   }
 
+  /**
+   * The (vectorized, tiled) kernel matrices must match the pairwise kernel,
+   * also for matrices that get computed in parallel.
+   */
+  @Test
+  public void matrixMatchesVector() {
+    Matrix X = MatrixFactory.randn(AbstractKernel.PARALLEL_THRESHOLD + 10, 20, 1);
+    Matrix Y = MatrixFactory.randn(30, 20, 2);
+    // duplicate row, where the Gram expansion of distances cancels
+    X.setRow(1, X.getRow(0));
+
+    Matrix K = m_subject.applyMatrix(X);
+    Matrix KY = MatrixFactory.zeros(X.numRows(), Y.numRows());
+    m_subject.applyMatrixInto(X, Y, KY);
+    for (int i = 0; i < X.numRows(); i++) {
+      for (int j = 0; j < X.numRows(); j++)
+	assertEquals(m_subject.applyVector(X.getRow(i), X.getRow(j)), K.get(i, j), 1e-10);
+      for (int j = 0; j < Y.numRows(); j++)
+	assertEquals(m_subject.applyVector(X.getRow(i), Y.getRow(j)), KY.get(i, j), 1e-10);
+    }
+  }
+
   @Override
   protected TestDataset[] getDatasets() {
     return new TestDataset[]{
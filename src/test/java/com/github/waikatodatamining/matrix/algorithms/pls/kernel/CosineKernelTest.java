@@ -0,0 +1,14 @@
+package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
+
+/**
+ * Tests the Cosine Kernel.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class CosineKernelTest extends AbstractKernelTest<CosineKernel> {
+
+  @Override
+  protected CosineKernel instantiateSubject() {
+    return new CosineKernel();
+  }
+}
@@ -0,0 +1,102 @@
+package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
+
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the kernel matrix cache.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class KernelCacheTest {
+
+  protected Matrix X;
+
+  @BeforeEach
+  public void setUp() {
+    X = MatrixFactory.randn(50, 5, 1);
+    KernelCache.clear();
+    KernelCache.setMaxBytes(1024 * 1024);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    KernelCache.setMaxBytes(0);
+    KernelCache.clear();
+  }
+
+  /**
+   * Equal data (by value) hits the cache, and modifying the returned kernel
+   * matrix doesn't affect the cached one.
+   */
+  @Test
+  public void hitsOnEqualData() {
+    PolyKernel kernel = new PolyKernel();
+    Matrix expected = kernel.applyMatrix(X);
+    expected.set(0, 0, 42);
+    Matrix K = kernel.applyMatrix(X.copy());
+
+    assertEquals(1, KernelCache.getMisses());
+    assertEquals(1, KernelCache.getHits());
+    KernelCache.setMaxBytes(0);
+    assertArrayEquals(kernel.applyMatrix(X).toRawCopy1D(), K.toRawCopy1D(), 1e-12);
+  }
+
+  /**
+   * A gamma sweep of the RBF kernel computes the distances only once.
+   */
+  @Test
+  public void rbfGammaSweepSharesDistances() {
+    RBFKernel kernel = new RBFKernel();
+    for (double gamma : new double[]{0.1, 1.0, 10.0}) {
+      kernel.setGamma(gamma);
+      kernel.applyMatrix(X);
+    }
+
+    // one distance matrix and three kernel matrices
+    assertEquals(4, KernelCache.size());
+    assertEquals(4, KernelCache.getMisses());
+    assertEquals(2, KernelCache.getHits());
+  }
+
+  /**
+   * The least recently used matrices get evicted to meet the budget.
+   */
+  @Test
+  public void evictsLeastRecentlyUsed() {
+    long bytes = 50 * 50 * 8;
+    KernelCache.setMaxBytes(2 * bytes);
+    PolyKernel kernel = new PolyKernel();
+    for (int degree = 1; degree <= 3; degree++) {
+      kernel.setDegree(degree);
+      kernel.applyMatrix(X);
+    }
+
+    assertEquals(2, KernelCache.size());
+    assertTrue(KernelCache.getNumBytes() <= KernelCache.getMaxBytes());
+    kernel.setDegree(1);
+    kernel.applyMatrix(X);
+    assertEquals(4, KernelCache.getMisses());
+  }
+
+  /**
+   * Keys compare the shapes of the inputs in addition to their fingerprints.
+   */
+  @Test
+  public void keyIncludesShapes() {
+    KernelCache.Key key = new KernelCache.Key("k", new Matrix[]{X});
+    assertEquals(key, new KernelCache.Key("k", new Matrix[]{X.copy()}));
+    assertEquals(key.hashCode(), new KernelCache.Key("k", new Matrix[]{X.copy()}).hashCode());
+    assertNotEquals(key, new KernelCache.Key("k", new Matrix[]{X.t()}));
+    assertNotEquals(key, new KernelCache.Key("k", new Matrix[]{X.getRows(0, 49)}));
+    assertNotEquals(key, new KernelCache.Key("l", new Matrix[]{X}));
+  }
+}
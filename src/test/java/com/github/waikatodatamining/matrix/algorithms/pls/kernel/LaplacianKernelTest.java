@@ -0,0 +1,31 @@
+package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
+
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Tests the Laplacian Kernel.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class LaplacianKernelTest extends AbstractKernelTest<LaplacianKernel> {
+
+  /**
+   * The random Fourier features approximate the kernel, Phi*Phi^T ~ K.
+   */
+  @Test
+  public void featureMapApproximatesKernel() {
+    Matrix X = MatrixFactory.randn(20, 5, 1);
+    Matrix Phi = m_subject.createFeatureMap(X.numColumns(), 20000, 1).apply(X);
+
+    assertArrayEquals(m_subject.applyMatrix(X).toRawCopy1D(), Phi.mul(Phi.transpose()).toRawCopy1D(), 0.05);
+  }
+
+  @Override
+  protected LaplacianKernel instantiateSubject() {
+    return new LaplacianKernel();
+  }
+}
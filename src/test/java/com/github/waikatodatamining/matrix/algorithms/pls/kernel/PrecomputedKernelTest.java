@@ -0,0 +1,46 @@
+package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
+
+import com.github.waikatodatamining.matrix.algorithms.pls.KernelPLS;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.test.misc.TestDataset;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the precomputed kernel.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class PrecomputedKernelTest {
+
+  /**
+   * KernelPLS on a precomputed RBF kernel matrix matches KernelPLS with the
+   * RBF kernel (which is invariant to the centering of the predictors).
+   */
+  @Test
+  public void matchesComputedKernel() {
+    Matrix X = TestDataset.BOLTS.load();
+    Matrix y = TestDataset.BOLTS_RESPONSE.load();
+    int numTrain = X.numRows() - 10;
+
+    KernelPLS computed = new KernelPLS();
+    computed.setKernel(new RBFKernel());
+    computed.configure(X.getRows(0, numTrain), y.getRows(0, numTrain));
+
+    KernelPLS precomputed = new KernelPLS();
+    precomputed.setKernel(new PrecomputedKernel(new RBFKernel().applyMatrix(X)));
+    precomputed.configure(PrecomputedKernel.indices(0, numTrain), y.getRows(0, numTrain));
+
+    assertArrayEquals(computed.predict(X.getRows(numTrain, X.numRows())).toRawCopy1D(),
+      precomputed.predict(PrecomputedKernel.indices(numTrain, X.numRows())).toRawCopy1D(), 1e-8);
+  }
+
+  @Test
+  public void invalidIndices() {
+    PrecomputedKernel kernel = new PrecomputedKernel(new RBFKernel().applyMatrix(TestDataset.BOLTS.load()));
+    assertThrows(MatrixAlgorithmsException.class, () -> kernel.applyMatrix(PrecomputedKernel.indices(0, 1000)));
+  }
+}
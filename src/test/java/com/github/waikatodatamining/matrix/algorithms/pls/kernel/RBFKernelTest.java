@@ -1,5 +1,12 @@
 package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
 
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 /**
  * Tests the RBF Kernel.
  *
@@ -7,6 +14,19 @@ package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
  */
 public class RBFKernelTest extends AbstractKernelTest<RBFKernel> {
 
+  /**
+   * The random Fourier features approximate the kernel, Phi*Phi^T ~ K.
+   */
+  @Test
+  public void featureMapApproximatesKernel() {
+    Matrix X = MatrixFactory.randn(20, 5, 1);
+    FeatureMap map = m_subject.createFeatureMap(X.numColumns(), 20000, 1);
+    Matrix Phi = map.apply(X);
+
+    assertEquals(20000, map.numFeatures());
+    assertArrayEquals(m_subject.applyMatrix(X).toRawCopy1D(), Phi.mul(Phi.transpose()).toRawCopy1D(), 0.05);
+  }
+
   @Override
   protected RBFKernel instantiateSubject() {
     return new RBFKernel();
@@ -0,0 +1,14 @@
+package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
+
+/**
+ * Tests the Sigmoid Kernel.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class SigmoidKernelTest extends AbstractKernelTest<SigmoidKernel> {
+
+  @Override
+  protected SigmoidKernel instantiateSubject() {
+    return new SigmoidKernel();
+  }
+}
@@ -0,0 +1,39 @@
+package com.github.waikatodatamining.matrix.algorithms.pls.kernel;
+
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.core.matrix.MatrixFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Tests the out-of-core kernel matrix.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class TiledKernelStoreTest {
+
+  /**
+   * Partial tiles and single-row blocks yield the in-memory results.
+   */
+  @Test
+  public void matchesInMemory() {
+    Matrix X = MatrixFactory.randn(30, 4, 1);
+    Matrix V = MatrixFactory.randn(30, 2, 2);
+    RBFKernel kernel = new RBFKernel();
+    Matrix expected = kernel.applyMatrix(X);
+    File file;
+
+    try (TiledKernelStore store = new TiledKernelStore(null, X.numRows(), 7, 1)) {
+      file = store.getFile();
+      store.compute(kernel, X);
+      assertArrayEquals(expected.toRawCopy1D(), store.toMatrix().toRawCopy1D(), 1e-12);
+      assertArrayEquals(expected.mul(V).toRawCopy1D(), store.mul(V).toRawCopy1D(), 1e-10);
+      assertArrayEquals(expected.mean(0).toRawCopy1D(), store.columnMeans(), 1e-12);
+    }
+    assertFalse(file.exists());
+  }
+}
@@ -0,0 +1,102 @@
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import com.github.waikatodatamining.matrix.algorithms.pls.KernelPLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.NIPALS;
+import com.github.waikatodatamining.matrix.algorithms.pls.PreprocessingType;
+import com.github.waikatodatamining.matrix.core.Utils;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.test.misc.TestDataset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the notification of AlgorithmListener instances.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class AlgorithmListenerTest {
+
+  protected Matrix X;
+
+  protected Matrix y;
+
+  protected List<PhaseEvent> m_Phases;
+
+  protected List<ConvergenceEvent> m_Convergence;
+
+  protected AlgorithmListener m_Listener;
+
+  @BeforeEach
+  public void setUp() {
+    X = TestDataset.BOLTS.load();
+    y = TestDataset.BOLTS_RESPONSE.load();
+    m_Phases = new ArrayList<>();
+    m_Convergence = new ArrayList<>();
+    m_Listener = new AlgorithmListener() {
+      @Override
+      public void phaseCompleted(PhaseEvent event) {
+	m_Phases.add(event);
+      }
+
+      @Override
+      public void iterationsCompleted(ConvergenceEvent event) {
+	m_Convergence.add(event);
+      }
+    };
+  }
+
+  @Test
+  public void phasesAndConvergence() {
+    NIPALS nipals = new NIPALS();
+    nipals.setPreprocessingType(PreprocessingType.CENTER);
+    nipals.addListener(m_Listener);
+    nipals.configure(X, y);
+    nipals.predict(X);
+
+    assertEquals(3, m_Phases.size());
+    assertEquals(PhaseEvent.Phase.PREPROCESS, m_Phases.get(0).getPhase());
+    assertEquals(PhaseEvent.Phase.CONFIGURE, m_Phases.get(1).getPhase());
+    assertEquals(PhaseEvent.Phase.PREDICT, m_Phases.get(2).getPhase());
+    assertEquals(X.numRows(), m_Phases.get(2).getNumRows());
+    assertEquals(X.numColumns(), m_Phases.get(2).getNumColumns());
+    for (PhaseEvent event : m_Phases)
+      assertTrue(event.getDurationNanos() >= 0);
+
+    assertEquals(nipals.getNumComponents(), m_Convergence.size());
+    for (int k = 0; k < m_Convergence.size(); k++)
+      assertEquals(k, m_Convergence.get(k).getComponent());
+  }
+
+  @Test
+  public void iterativeKernelPLS() {
+    KernelPLS pls = new KernelPLS();
+    pls.addListener(m_Listener);
+    pls.configure(X, y);
+
+    assertEquals(pls.getNumComponents(), m_Convergence.size());
+    for (ConvergenceEvent event : m_Convergence) {
+      assertTrue(event.getIterations() > 0);
+      assertTrue(event.getIterations() <= pls.getMaxIter());
+      assertEquals(event.isConverged(), event.getDelta() <= pls.getTol());
+    }
+  }
+
+  @Test
+  public void removedAndNotSerialized() {
+    NIPALS nipals = new NIPALS();
+    nipals.addListener(m_Listener);
+    assertFalse(Utils.deepCopy(nipals).hasListeners());
+
+    nipals.removeListener(m_Listener);
+    assertFalse(nipals.hasListeners());
+    nipals.configure(X, y);
+    assertTrue(m_Phases.isEmpty());
+  }
+}
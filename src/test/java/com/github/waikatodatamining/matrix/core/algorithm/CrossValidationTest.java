@@ -0,0 +1,110 @@
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import com.github.waikatodatamining.matrix.algorithms.pls.PLS1;
+import com.github.waikatodatamining.matrix.algorithms.pls.SIMPLS;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.test.misc.TestDataset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the CrossValidation class.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class CrossValidationTest {
+
+  private static final double PRECISION = 1e-6;
+
+  protected Matrix X;
+
+  protected Matrix y;
+
+  @BeforeEach
+  public void setUp() {
+    X = TestDataset.BOLTS.load();
+    y = TestDataset.BOLTS_RESPONSE.load();
+  }
+
+  @Test
+  public void foldsPartitionRows() {
+    CrossValidation cv = new CrossValidation(PLS1::new);
+    cv.setNumFolds(7);
+    int[][] folds = cv.generateFolds(X.numRows());
+    assertEquals(7, folds.length);
+
+    boolean[] seen = new boolean[X.numRows()];
+    for (int[] fold : folds) {
+      for (int row : fold) {
+	assertTrue(!seen[row], "Row in multiple folds: " + row);
+	seen[row] = true;
+      }
+    }
+    for (boolean s : seen)
+      assertTrue(s);
+  }
+
+  @Test
+  public void leaveGroupOut() {
+    int[] groups = new int[X.numRows()];
+    for (int i = 0; i < groups.length; i++)
+      groups[i] = i / 8;
+
+    CrossValidation cv = new CrossValidation(PLS1::new);
+    cv.setGroups(groups);
+    CrossValidationResult result = cv.evaluate(X, y);
+    assertEquals(5, result.getFolds().length);
+    assertEquals(5, result.getNumComponents());
+  }
+
+  @Test
+  public void pathMatchesSingleFits() {
+    CrossValidation cv = new CrossValidation(PLS1::new);
+    CrossValidationResult path = cv.evaluate(X, y);
+
+    for (int k = 1; k <= path.getNumComponents(); k++) {
+      final int numComponents = k;
+      CrossValidation single = new CrossValidation(() -> {
+	PLS1 pls = new PLS1();
+	pls.setNumComponents(numComponents);
+	return pls;
+      });
+      CrossValidationResult result = single.evaluate(X, y, path.getFolds());
+      assertEquals(path.getRMSECV()[k - 1], result.getRMSECV()[k - 1], PRECISION);
+      assertEquals(path.getR2()[k - 1], result.getR2()[k - 1], PRECISION);
+    }
+  }
+
+  @Test
+  public void crossProductsMatchRefit() {
+    CrossValidation cv = new CrossValidation(SIMPLS::new);
+    CrossValidationResult downdated = cv.evaluate(X, y);
+    cv.setUseCrossProducts(false);
+    CrossValidationResult refit = cv.evaluate(X, y);
+
+    assertArrayEquals(refit.getRMSECV(), downdated.getRMSECV(), PRECISION);
+  }
+
+  @Test
+  public void executorDoesNotChangeResult() {
+    CrossValidation cv = new CrossValidation(PLS1::new);
+    CrossValidationResult common = cv.evaluate(X, y);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      cv.setExecutor(executor);
+      CrossValidationResult fixed = cv.evaluate(X, y);
+      assertArrayEquals(common.getRMSECV(), fixed.getRMSECV());
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+}
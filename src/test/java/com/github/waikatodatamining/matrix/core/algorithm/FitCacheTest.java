@@ -0,0 +1,126 @@
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import com.github.waikatodatamining.matrix.algorithms.Standardize;
+import com.github.waikatodatamining.matrix.algorithms.pls.SIMPLS;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.test.misc.TestDataset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the FitCache class.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class FitCacheTest {
+
+  protected Matrix X;
+
+  protected Matrix y;
+
+  @BeforeEach
+  public void setUp() {
+    X = TestDataset.BOLTS.load();
+    y = TestDataset.BOLTS_RESPONSE.load();
+  }
+
+  @Test
+  public void repeatedFitIsHit() {
+    FitCache cache = new FitCache();
+    SIMPLS first = new SIMPLS();
+    assertSame(first, cache.configure(first, X, y));
+
+    SIMPLS second = cache.configure(new SIMPLS(), X.copy(), y.copy());
+    assertNotSame(first, second);
+    assertTrue(second.isConfigured());
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(first.predict(X), second.predict(X));
+  }
+
+  @Test
+  public void parametersAndDataAreKeys() {
+    FitCache cache = new FitCache();
+    cache.configure(new SIMPLS(), X, y);
+
+    SIMPLS other = new SIMPLS();
+    other.setNumComponents(2);
+    cache.configure(other, X, y);
+
+    Matrix changed = X.copy();
+    changed.set(0, 0, changed.get(0, 0) + 1e-12);
+    cache.configure(new SIMPLS(), changed, y);
+
+    // an already configured algorithm is keyed on its parameters only
+    assertNotSame(other, cache.configure(other, X, y));
+    assertFalse(other.isConfigured());
+
+    assertEquals(1, cache.getHits());
+    assertEquals(3, cache.getMisses());
+  }
+
+  @Test
+  public void evictedEntriesAreSpilled() throws Exception {
+    File dir = Files.createTempDirectory("fitcache").toFile();
+    try {
+      FitCache cache = new FitCache();
+      cache.setMaxBytes(0);
+      cache.setSpillDir(dir);
+      Standardize standardize = cache.configure(new Standardize(), X);
+      assertEquals(0, cache.size());
+      assertEquals(1, dir.listFiles().length);
+
+      Standardize copy = cache.configure(new Standardize(), X);
+      assertEquals(1, cache.getHits());
+      assertEquals(standardize.transform(X), copy.transform(X));
+    }
+    finally {
+      for (File file : dir.listFiles())
+	file.delete();
+      dir.delete();
+    }
+  }
+
+  /**
+   * Concurrent fits spill and read back entries without corrupting them.
+   */
+  @Test
+  public void concurrentSpilling() throws Exception {
+    File dir = Files.createTempDirectory("fitcache").toFile();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      FitCache cache = new FitCache();
+      cache.setMaxBytes(0);
+      cache.setSpillDir(dir);
+      Matrix expected = cache.configure(new SIMPLS(), X, y).predict(X);
+      List<Future<Matrix>> futures = new ArrayList<>();
+      for (int i = 0; i < 16; i++)
+	futures.add(executor.submit(() -> cache.configure(new SIMPLS(), X, y).predict(X)));
+      for (Future<Matrix> future : futures)
+	assertEquals(expected, future.get());
+      assertEquals(16, cache.getHits());
+      assertEquals(1, cache.getMisses());
+      assertEquals(1, dir.listFiles().length);
+    }
+    finally {
+      executor.shutdown();
+      for (File file : dir.listFiles())
+	file.delete();
+      dir.delete();
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import com.github.waikatodatamining.matrix.algorithms.Standardize;
+import com.github.waikatodatamining.matrix.algorithms.pls.KernelPLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.OPLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.kernel.PolyKernel;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.core.exceptions.UnconfiguredAlgorithmException;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.test.misc.TestDataset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the FrozenPredictor class.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class FrozenPredictorTest {
+
+  protected Matrix X;
+
+  protected Matrix y;
+
+  @BeforeEach
+  public void setUp() {
+    X = TestDataset.BOLTS.load();
+    y = TestDataset.BOLTS_RESPONSE.load();
+  }
+
+  @Test
+  public void unconfigured() {
+    assertThrows(UnconfiguredAlgorithmException.class, () -> FrozenPredictor.freeze(new KernelPLS()));
+  }
+
+  @Test
+  public void cannotPredict() {
+    Standardize standardize = new Standardize();
+    standardize.configure(X);
+    FrozenPredictor frozen = FrozenPredictor.freeze(standardize);
+    assertFalse(frozen.canPredict());
+    assertThrows(MatrixAlgorithmsException.class, () -> frozen.predict(X));
+  }
+
+  @Test
+  public void independentOfOriginal() {
+    KernelPLS pls = new KernelPLS();
+    pls.configure(X, y);
+    Matrix expected = pls.predict(X);
+    FrozenPredictor frozen = FrozenPredictor.freeze(pls);
+
+    pls.reset();
+    assertArrayEquals(expected.toRawCopy1D(), frozen.predict(X).toRawCopy1D());
+  }
+
+  @Test
+  public void concurrentPredict() throws Exception {
+    PolyKernel kernel = new PolyKernel();
+    KernelPLS pls = new KernelPLS();
+    pls.setKernel(kernel);
+    pls.configure(X, y);
+    OPLS opls = new OPLS();
+    opls.configure(X, y);
+
+    FrozenPredictor frozenPLS = FrozenPredictor.freeze(pls);
+    FrozenPredictor frozenOPLS = FrozenPredictor.freeze(opls);
+    double[] expectedPLS = pls.predict(X).toRawCopy1D();
+    double[] expectedOPLS = opls.predict(X).toRawCopy1D();
+    assertTrue(Double.isNaN(kernel.getGamma()));
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<double[][]>> futures = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+	futures.add(executor.submit(() -> new double[][]{
+	  frozenPLS.predict(X).toRawCopy1D(),
+	  frozenOPLS.predict(X).toRawCopy1D()}));
+      }
+      for (Future<double[][]> future : futures) {
+	double[][] actual = future.get();
+	assertArrayEquals(expectedPLS, actual[0]);
+	assertArrayEquals(expectedOPLS, actual[1]);
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+}
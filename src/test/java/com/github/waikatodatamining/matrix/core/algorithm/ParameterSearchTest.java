@@ -0,0 +1,109 @@
+package com.github.waikatodatamining.matrix.core.algorithm;
+
+import com.github.waikatodatamining.matrix.algorithms.FilteredPredictor;
+import com.github.waikatodatamining.matrix.algorithms.glsw.YGradientGLSW;
+import com.github.waikatodatamining.matrix.algorithms.pls.KernelPLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.SIMPLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.SparsePLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.kernel.RBFKernel;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.test.misc.TestDataset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the ParameterSearch class.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class ParameterSearchTest {
+
+  private static final double PRECISION = 1e-8;
+
+  protected Matrix X;
+
+  protected Matrix y;
+
+  @BeforeEach
+  public void setUp() {
+    X = TestDataset.BOLTS.load();
+    y = TestDataset.BOLTS_RESPONSE.load();
+  }
+
+  @Test
+  public void gridMatchesCrossValidation() {
+    ParameterSearch<SparsePLS> search = new ParameterSearch<>(SparsePLS::new);
+    search.addParameter("lambda", SparsePLS::setLambda, 0.0, 0.001, 0.01);
+    List<ParameterSearch.Candidate> candidates = search.evaluate(X, y);
+    assertEquals(3, candidates.size());
+    assertTrue(search.getLastCache().getHits() > 0);
+
+    for (ParameterSearch.Candidate candidate : candidates) {
+      double lambda = candidate.getSettings().get("lambda");
+      CrossValidation cv = new CrossValidation(() -> {
+	SparsePLS pls = new SparsePLS();
+	pls.setLambda(lambda);
+	return pls;
+      });
+      CrossValidationResult expected = cv.evaluate(X, y, candidate.getResult().getFolds());
+      assertArrayEquals(expected.getRMSECV(), candidate.getResult().getRMSECV(), PRECISION);
+    }
+
+    for (int i = 1; i < candidates.size(); i++)
+      assertTrue(candidates.get(i - 1).getBestRMSECV() <= candidates.get(i).getBestRMSECV());
+  }
+
+  @Test
+  public void randomSharesKernelDistances() {
+    ParameterSearch<KernelPLS> search = new ParameterSearch<>(KernelPLS::new);
+    search.setSearchType(ParameterSearch.SearchType.RANDOM);
+    search.setNumRandomCandidates(4);
+    search.addParameter("gamma", (pls, gamma) -> {
+      RBFKernel kernel = new RBFKernel();
+      kernel.setGamma(gamma);
+      pls.setKernel(kernel);
+    }, 0.01, 1.0, true);
+    search.getCrossValidation().setNumFolds(4);
+    List<ParameterSearch.Candidate> candidates = search.evaluate(X, y);
+    assertEquals(4, candidates.size());
+    for (ParameterSearch.Candidate candidate : candidates) {
+      double gamma = candidate.getSettings().get("gamma");
+      assertTrue((gamma >= 0.01) && (gamma <= 1.0));
+    }
+    // centering and distances of each fold are computed only once
+    assertTrue(search.getLastCache().getHits() >= 3 * 4);
+  }
+
+  /**
+   * Filter parameters get tuned in front of a PLS via a FilteredPredictor,
+   * which predicts like the filter and the PLS applied by hand.
+   */
+  @Test
+  public void tunesFilterOfPipeline() {
+    ParameterSearch<FilteredPredictor<YGradientGLSW, SIMPLS>> search = new ParameterSearch<>(
+      () -> new FilteredPredictor<>(new YGradientGLSW(), new SIMPLS()));
+    search.addParameter("alpha", (p, alpha) -> p.getFilter().setAlpha(alpha), 1e-3, 1e-1, 10.0);
+    search.getCrossValidation().setNumFolds(4);
+    List<ParameterSearch.Candidate> candidates = search.evaluate(X, y);
+    assertEquals(3, candidates.size());
+    assertNotEquals(candidates.get(0).getBestRMSECV(), candidates.get(2).getBestRMSECV());
+
+    double alpha = candidates.get(0).getSettings().get("alpha");
+    FilteredPredictor<YGradientGLSW, SIMPLS> pipeline = new FilteredPredictor<>(new YGradientGLSW(), new SIMPLS());
+    pipeline.getFilter().setAlpha(alpha);
+    pipeline.configure(X, y);
+    YGradientGLSW glsw = new YGradientGLSW();
+    glsw.setAlpha(alpha);
+    glsw.configure(X, y);
+    SIMPLS pls = new SIMPLS();
+    pls.configure(glsw.transform(X), y);
+    assertArrayEquals(pls.predict(glsw.transform(X)).toRawCopy1D(), pipeline.predict(X).toRawCopy1D(), PRECISION);
+  }
+}
@@ -0,0 +1,162 @@
+package com.github.waikatodatamining.matrix.core.matrix;
+
+import com.github.waikatodatamining.matrix.algorithms.pls.KernelPLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.NIPALS;
+import com.github.waikatodatamining.matrix.algorithms.pls.PLS1;
+import com.github.waikatodatamining.matrix.algorithms.pls.PreprocessingType;
+import com.github.waikatodatamining.matrix.algorithms.pls.kernel.RBFKernel;
+import com.github.waikatodatamining.matrix.core.exceptions.MatrixAlgorithmsException;
+import com.github.waikatodatamining.matrix.test.misc.TestDataset;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the AllocationTracker class.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class AllocationTrackerTest {
+
+  protected Matrix X;
+
+  protected Matrix y;
+
+  @BeforeEach
+  public void setUp() {
+    X = TestDataset.BOLTS.load();
+    y = TestDataset.BOLTS_RESPONSE.load();
+    AllocationTracker.reset();
+    AllocationTracker.setEnabled(true);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    AllocationTracker.setEnabled(false);
+    AllocationTracker.reset();
+  }
+
+  @Test
+  public void unattributed() {
+    MatrixFactory.zeros(10, 20);
+    X.transpose();
+
+    AllocationTracker.Allocation allocation = AllocationTracker.snapshot().get(AllocationTracker.UNATTRIBUTED);
+    assertNotNull(allocation);
+    assertEquals(2, allocation.getMatrices());
+    assertEquals(10 * 20 * 8, allocation.getBytes());
+  }
+
+  @Test
+  public void nestedPhases() {
+    NIPALS nipals = new NIPALS();
+    nipals.setPreprocessingType(PreprocessingType.CENTER);
+    nipals.configure(X, y);
+    nipals.transform(X);
+
+    Map<String, AllocationTracker.Allocation> snapshot = AllocationTracker.snapshot();
+    AllocationTracker.Allocation configure = snapshot.get("NIPALS.CONFIGURE");
+    AllocationTracker.Allocation center = snapshot.get("Center.CONFIGURE");
+    AllocationTracker.Allocation transform = snapshot.get("NIPALS.TRANSFORM");
+    assertNotNull(configure);
+    assertNotNull(center);
+    assertNotNull(transform);
+    assertTrue(configure.getMatrices() > 0);
+    assertTrue(configure.getInclusiveBytes() >= configure.getBytes() + center.getInclusiveBytes());
+    assertEquals(center.getMatrices(), center.getInclusiveMatrices());
+    assertTrue(transform.getBytes() > 0);
+  }
+
+  /**
+   * A phase that fails doesn't keep attributing allocations to itself.
+   */
+  @Test
+  public void failedPhase() {
+    Matrix responses = y.concatAlongColumns(y);
+    AllocationTracker.reset();
+    assertThrows(MatrixAlgorithmsException.class, () -> new PLS1().configure(X, responses));
+    MatrixFactory.zeros(10, 20);
+
+    AllocationTracker.Allocation allocation = AllocationTracker.snapshot().get(AllocationTracker.UNATTRIBUTED);
+    assertNotNull(allocation);
+    assertEquals(1, allocation.getMatrices());
+  }
+
+  /**
+   * Contexts that weren't exited while tracking was enabled get discarded
+   * once it is enabled again.
+   */
+  @Test
+  public void staleContexts() {
+    AllocationTracker.enter(this, "TEST");
+    AllocationTracker.setEnabled(false);
+    AllocationTracker.exit(this, "TEST");
+    AllocationTracker.setEnabled(true);
+    MatrixFactory.zeros(10, 20);
+
+    assertEquals(1, AllocationTracker.snapshot().get(AllocationTracker.UNATTRIBUTED).getMatrices());
+  }
+
+  /**
+   * Allocations of propagated tasks get attributed to the context of the
+   * calling thread, whichever thread they run on.
+   */
+  @Test
+  public void propagated() {
+    AllocationTracker.enter(this, "TEST");
+    IntStream.range(0, 64).parallel().forEach(AllocationTracker.propagate(i -> MatrixFactory.zeros(10, 20)));
+    AllocationTracker.exit(this, "TEST");
+    MatrixFactory.zeros(10, 20);
+
+    Map<String, AllocationTracker.Allocation> snapshot = AllocationTracker.snapshot();
+    assertEquals(64, snapshot.get("AllocationTrackerTest.TEST").getMatrices());
+    assertEquals(64 * 10 * 20 * 8, snapshot.get("AllocationTrackerTest.TEST").getBytes());
+    assertEquals(1, snapshot.get(AllocationTracker.UNATTRIBUTED).getMatrices());
+  }
+
+  /**
+   * The tiles of an out-of-core kernel matrix, which get computed in
+   * parallel, are attributed to the phase computing them.
+   */
+  @Test
+  public void parallelKernel() throws Exception {
+    File dir = Files.createTempDirectory("kernel").toFile();
+    try {
+      Matrix data = MatrixFactory.randn(300, 5, 1);
+      Matrix response = MatrixFactory.randn(300, 1, 2);
+      KernelPLS pls = new KernelPLS();
+      pls.setKernel(new RBFKernel());
+      pls.setKernelStorage(dir);
+      pls.setKernelTileSize(50);
+      AllocationTracker.reset();
+      pls.configure(data, response);
+
+      Map<String, AllocationTracker.Allocation> snapshot = AllocationTracker.snapshot();
+      assertNull(snapshot.get(AllocationTracker.UNATTRIBUTED));
+      assertTrue(snapshot.get("KernelPLS.CONFIGURE").getBytes() >= 300 * 300 * 8);
+    }
+    finally {
+      for (File file : dir.listFiles())
+	file.delete();
+      dir.delete();
+    }
+  }
+
+  @Test
+  public void disabled() {
+    AllocationTracker.setEnabled(false);
+    new NIPALS().configure(X, y);
+    assertTrue(AllocationTracker.snapshot().isEmpty());
+  }
+}
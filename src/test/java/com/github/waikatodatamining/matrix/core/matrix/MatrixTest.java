@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 import org.ojalgo.matrix.decomposition.SingularValue;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 
 /**
@@ -407,4 +408,24 @@ public class MatrixTest {
 
     assertMatrixEquals(dominantEigenVectorJama, dominantEigenVector);
   }
+
+  @Test
+  public void serialization() {
+    Matrix mat = MatrixFactory.randn(4, 3, 1);
+    mat.getSingularValues(); // cached decompositions must not get in the way
+    Matrix copy = Utils.deepCopy(mat);
+
+    assertEquals(mat, copy);
+  }
+
+  @Test
+  public void fingerprint() {
+    Matrix mat = MatrixFactory.randn(4, 3, 1);
+    Matrix copy = mat.copy();
+    assertEquals(mat.fingerprint(), copy.fingerprint());
+
+    copy.set(3, 2, Math.nextUp(copy.get(3, 2)));
+    assertNotEquals(mat.fingerprint(), copy.fingerprint());
+    assertNotEquals(mat.fingerprint(), mat.t().fingerprint());
+  }
 }
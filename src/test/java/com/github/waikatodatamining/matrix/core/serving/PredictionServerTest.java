@@ -0,0 +1,317 @@
+package com.github.waikatodatamining.matrix.core.serving;
+
+import com.github.waikatodatamining.matrix.algorithms.pls.KernelPLS;
+import com.github.waikatodatamining.matrix.algorithms.pls.SIMPLS;
+import com.github.waikatodatamining.matrix.core.Utils;
+import com.github.waikatodatamining.matrix.core.algorithm.FrozenPredictor;
+import com.github.waikatodatamining.matrix.core.matrix.Matrix;
+import com.github.waikatodatamining.matrix.test.misc.TestDataset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the micro-batching prediction server.
+ *
+ * @author Corey Sterling (csterlin at waikato dot ac dot nz)
+ */
+public class PredictionServerTest {
+
+  private static final double PRECISION = 1e-8;
+
+  protected Matrix X;
+
+  protected Matrix y;
+
+  @BeforeEach
+  public void setUp() {
+    X = TestDataset.BOLTS.load();
+    y = TestDataset.BOLTS_RESPONSE.load();
+  }
+
+  /**
+   * Predicts every row of X from several threads, one row per call.
+   *
+   * @param predict the prediction for a single row
+   */
+  protected void load(Function<double[], double[]> predict) throws Exception {
+    int numThreads = 8;
+    int numRounds = 20;
+    double[][] rows = X.toRawCopy2D();
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < numThreads; t++) {
+	futures.add(executor.submit(() -> {
+	  for (int r = 0; r < numRounds; r++) {
+	    for (double[] row : rows)
+	      predict.apply(row);
+	  }
+	}));
+      }
+      for (Future<?> future : futures)
+	future.get();
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void batchingMatchesPredict() throws Exception {
+    KernelPLS pls = new KernelPLS();
+    pls.configure(X, y);
+    FrozenPredictor frozen = FrozenPredictor.freeze(pls);
+    Matrix expected = frozen.predict(X);
+
+    MicroBatcher batcher = new MicroBatcher(frozen, 64, 0);
+    try {
+      List<Future<double[]>> futures = new ArrayList<>();
+      for (int i = 0; i < X.numRows(); i++)
+	futures.add(batcher.submit(X.getRow(i).toRawCopy1D()));
+      for (int i = 0; i < X.numRows(); i++)
+	assertArrayEquals(expected.getRow(i).toRawCopy1D(), futures.get(i).get(), PRECISION);
+      assertTrue(batcher.getNumBatches() < X.numRows());
+      assertEquals(0, batcher.getNumFailures());
+    }
+    finally {
+      batcher.shutdown();
+    }
+  }
+
+  /**
+   * Single-row requests from concurrent clients get batched. The throughput
+   * compared to one predict per request is measured by ServingBenchmark.
+   */
+  @Test
+  public void concurrentRequestsGetBatched() throws Exception {
+    KernelPLS pls = new KernelPLS();
+    pls.configure(X, y);
+    FrozenPredictor frozen = FrozenPredictor.freeze(pls);
+
+    MicroBatcher batcher = new MicroBatcher(frozen, 64, 500);
+    try {
+      load(row -> batcher.submit(row).join());
+      assertEquals(8 * 20 * X.numRows(), batcher.getNumRequests());
+      assertTrue(batcher.getMeanBatchSize() > 1, "mean batch size " + batcher.getMeanBatchSize());
+      assertEquals(0, batcher.getNumFailures());
+    }
+    finally {
+      batcher.shutdown();
+    }
+  }
+
+  /**
+   * SIMPLS whose predictions fail with an error for rows starting with NaN,
+   * and take a second for rows starting with infinity.
+   */
+  public static class FailingSIMPLS
+    extends SIMPLS {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected Matrix doPLSPredict(Matrix predictors) {
+      for (int i = 0; i < predictors.numRows(); i++) {
+	if (Double.isNaN(predictors.get(i, 0)))
+	  throw new AssertionError("NaN row");
+	if (Double.isInfinite(predictors.get(i, 0))) {
+	  try {
+	    Thread.sleep(1000);
+	  }
+	  catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	  }
+	}
+      }
+      return super.doPLSPredict(predictors);
+    }
+  }
+
+  /**
+   * An error thrown by the model fails the requests of its batch, but the
+   * batcher keeps serving.
+   */
+  @Test
+  public void errorFailsBatchOnly() throws Exception {
+    FailingSIMPLS pls = new FailingSIMPLS();
+    pls.configure(X, y);
+    FrozenPredictor frozen = FrozenPredictor.freeze(pls);
+    double[] row = X.getRow(0).toRawCopy1D();
+    double[] invalid = row.clone();
+    invalid[0] = Double.NaN;
+
+    MicroBatcher batcher = new MicroBatcher(frozen, 64, 0);
+    try {
+      ExecutionException e = assertThrows(ExecutionException.class,
+	() -> batcher.submit(invalid).get(10, TimeUnit.SECONDS));
+      assertTrue(e.getCause() instanceof AssertionError);
+      assertArrayEquals(frozen.predict(X.getRows(0, 1)).toRawCopy1D(), batcher.submit(row).get(10, TimeUnit.SECONDS), PRECISION);
+      assertEquals(1, batcher.getNumFailures());
+    }
+    finally {
+      batcher.shutdown();
+    }
+  }
+
+  /**
+   * Requests that exceed the timeout get answered with 504.
+   */
+  @Test
+  public void serverTimeout() throws Exception {
+    FailingSIMPLS pls = new FailingSIMPLS();
+    pls.configure(X, y);
+
+    ModelRegistry registry = new ModelRegistry();
+    registry.register("slow", pls);
+    PredictionServer server = new PredictionServer(registry);
+    server.setTimeoutMillis(100);
+    server.start(0);
+    try {
+      String base = "http://localhost:" + server.getPort();
+      String row = rowToString(X.getRow(0));
+      request(base + PredictionServer.PREDICT + "slow", "NaN" + row.substring(row.indexOf(',')) + "\n", 500);
+      request(base + PredictionServer.PREDICT + "slow", row + "\n", 200);
+      request(base + PredictionServer.PREDICT + "slow", "Infinity" + row.substring(row.indexOf(',')) + "\n", 504);
+    }
+    finally {
+      server.stop();
+      registry.clear();
+    }
+  }
+
+  @Test
+  public void server() throws Exception {
+    SIMPLS pls = new SIMPLS();
+    pls.configure(X, y);
+    Matrix expected = pls.predict(X.getRows(0, 2));
+
+    ModelRegistry registry = new ModelRegistry();
+    registry.register("bolts", pls);
+    PredictionServer server = new PredictionServer(registry);
+    server.start(0);
+    try {
+      String base = "http://localhost:" + server.getPort();
+      String body = rowToString(X.getRow(0)) + "\n" + rowToString(X.getRow(1)) + "\n";
+      String[] lines = request(base + PredictionServer.PREDICT + "bolts", body, 200).split("\n");
+      assertEquals(2, lines.length);
+      for (int i = 0; i < lines.length; i++)
+	assertEquals(expected.get(i, 0), Double.parseDouble(lines[i]), PRECISION);
+
+      request(base + PredictionServer.PREDICT + "unknown", body, 404);
+      request(base + PredictionServer.PREDICT + "bolts", "1,a\n", 400);
+      assertTrue(request(base + PredictionServer.STATS, null, 200).contains("bolts.requests=2\n"));
+    }
+    finally {
+      server.stop();
+      registry.clear();
+    }
+  }
+
+  @Test
+  public void registryEviction() {
+    SIMPLS pls = new SIMPLS();
+    pls.configure(X, y);
+
+    ModelRegistry registry = new ModelRegistry();
+    registry.setMaxBytes(1);
+    try {
+      registry.register("a", pls);
+      registry.register("b", pls);
+      assertEquals(Arrays.asList("b"), registry.getLoaded());
+      assertTrue(registry.get("a") == null);
+      assertTrue(registry.get("b") != null);
+    }
+    finally {
+      registry.clear();
+    }
+  }
+
+  /**
+   * Concurrent requests for a model in the model directory load it once.
+   */
+  @Test
+  public void registryLoadsFromModelDir() throws Exception {
+    SIMPLS pls = new SIMPLS();
+    pls.configure(X, y);
+    Matrix expected = pls.predict(X.getRows(0, 1));
+
+    File dir = Files.createTempDirectory("models").toFile();
+    File file = new File(dir, "bolts" + ModelRegistry.MODEL_EXTENSION);
+    Files.write(file.toPath(), Utils.serialize(pls));
+    ModelRegistry registry = new ModelRegistry();
+    registry.setModelDir(dir);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<MicroBatcher>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++)
+	futures.add(executor.submit(() -> registry.get("bolts")));
+      MicroBatcher batcher = registry.get("bolts");
+      for (Future<MicroBatcher> future : futures)
+	assertTrue(future.get() == batcher);
+      assertEquals(Arrays.asList("bolts"), registry.getLoaded());
+      assertEquals(file.length(), registry.getNumBytes());
+      assertArrayEquals(expected.toRawCopy1D(), batcher.submit(X.getRow(0).toRawCopy1D()).get(), PRECISION);
+      assertTrue(registry.get("unknown") == null);
+    }
+    finally {
+      executor.shutdown();
+      registry.clear();
+      file.delete();
+      dir.delete();
+    }
+  }
+
+  protected String rowToString(Matrix row) {
+    StringBuilder result = new StringBuilder();
+    for (double value : row.toRawCopy1D()) {
+      if (result.length() > 0)
+	result.append(',');
+      result.append(value);
+    }
+    return result.toString();
+  }
+
+  protected String request(String url, String body, int expectedCode) throws IOException {
+    HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+    if (body != null) {
+      conn.setRequestMethod("POST");
+      conn.setDoOutput(true);
+      try (OutputStream out = conn.getOutputStream()) {
+	out.write(body.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    assertEquals(expectedCode, conn.getResponseCode());
+    InputStream in = (expectedCode == 200) ? conn.getInputStream() : conn.getErrorStream();
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int read;
+    while ((read = in.read(buffer)) > 0)
+      result.write(buffer, 0, read);
+    in.close();
+    return new String(result.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -1,8 +1,11 @@
 package com.github.waikatodatamining.matrix.test;
 
+import com.github.waikatodatamining.matrix.core.algorithm.MatrixAlgorithm;
 import com.github.waikatodatamining.matrix.core.matrix.Matrix;
 import com.github.waikatodatamining.matrix.test.misc.TestDataset;
 import com.github.waikatodatamining.matrix.test.misc.TestRegression;
+import com.github.waikatodatamining.matrix.test.performance.PerformanceRecorder;
+import com.github.waikatodatamining.matrix.test.performance.PerformanceRegression;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.TestInfo;
@@ -77,9 +80,16 @@ public abstract class AbstractRegressionTest<T> {
   protected abstract T instantiateSubject();
 
   /**
-   * Run the set-up algorithm.
+   * Run the set-up algorithm. The performance of algorithms is recorded and
+   * checked against the baseline (see {@link PerformanceRegression}).
    */
   private void runRegression() {
+    PerformanceRecorder recorder = null;
+    if (m_subject instanceof MatrixAlgorithm && PerformanceRegression.getMode() != PerformanceRegression.Mode.OFF) {
+      recorder = new PerformanceRecorder();
+      ((MatrixAlgorithm) m_subject).addListener(recorder);
+    }
+
     try {
       setupRegressions(m_subject, m_inputData);
     }
@@ -87,9 +97,17 @@ public abstract class AbstractRegressionTest<T> {
       e.printStackTrace();
       fail("Setting up regression group failed.");
     }
+    finally {
+      if (recorder != null)
+        ((MatrixAlgorithm) m_subject).removeListener(recorder);
+    }
 
     // Run all regression assertions
     m_regressionManager.runAssertions();
+
+    // Check the performance
+    if (recorder != null)
+      new PerformanceRegression(Paths.get(getReferenceDir(), m_testName).toString(), recorder.getMeasurements()).runAssertions();
   }
 
   /**
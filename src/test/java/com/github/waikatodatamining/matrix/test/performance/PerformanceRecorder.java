@@ -0,0 +1,137 @@
+package com.github.waikatodatamining.matrix.test.performance;
+
+import com.github.waikatodatamining.matrix.core.algorithm.AlgorithmListener;
+import com.github.waikatodatamining.matrix.core.algorithm.MatrixAlgorithm;
+import com.github.waikatodatamining.matrix.core.algorithm.PhaseEvent;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Listener that records the wall time and the allocated bytes of the
+ * phases of an algorithm (summed over all invocations of a phase). The
+ * allocated bytes are only available on JVMs that support measuring them
+ * per thread, otherwise they are reported as -1.
+ * <p>
+ * Besides the calling thread, the bytes allocated by the workers of the
+ * common fork/join pool get counted, as they run the parallel streams of
+ * the algorithms (e.g., the tiles of larger kernel matrices). Workers that
+ * terminate while a phase is running are missed, but the pool keeps them
+ * alive for a while. Tests must therefore not run concurrently.
+ *
+ * @author Steven Lang
+ */
+public class PerformanceRecorder implements AlgorithmListener {
+
+  /** Per thread allocation counter, null if not supported */
+  protected final com.sun.management.ThreadMXBean m_threadBean;
+
+  /** Allocated bytes per thread at the start of the currently running phases */
+  protected final Deque<Map<Long, Long>> m_startBytes = new ArrayDeque<>();
+
+  /** Accumulated measurements per phase */
+  protected final Map<PhaseEvent.Phase, Measurement> m_measurements = new EnumMap<>(PhaseEvent.Phase.class);
+
+  public PerformanceRecorder() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if ((bean instanceof com.sun.management.ThreadMXBean)
+      && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+      m_threadBean = (com.sun.management.ThreadMXBean) bean;
+      m_threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+    else {
+      m_threadBean = null;
+    }
+  }
+
+  /**
+   * Get the bytes allocated so far by the current thread and the workers of
+   * the common pool, null if not supported.
+   */
+  protected Map<Long, Long> allocatedBytes() {
+    if (m_threadBean == null)
+      return null;
+
+    ThreadGroup group = Thread.currentThread().getThreadGroup();
+    while (group.getParent() != null)
+      group = group.getParent();
+    Thread[] threads = new Thread[group.activeCount() + 16];
+    int count = group.enumerate(threads, true);
+
+    Map<Long, Long> result = new HashMap<>();
+    for (int i = 0; i < count; i++) {
+      Thread thread = threads[i];
+      if (thread == Thread.currentThread()
+	|| (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == ForkJoinPool.commonPool())) {
+	long bytes = m_threadBean.getThreadAllocatedBytes(thread.getId());
+	if (bytes != -1)
+	  result.put(thread.getId(), bytes);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized void phaseStarted(MatrixAlgorithm algorithm, PhaseEvent.Phase phase) {
+    Map<Long, Long> start = allocatedBytes();
+    m_startBytes.push(start == null ? new HashMap<>() : start);
+  }
+
+  @Override
+  public synchronized void phaseCompleted(PhaseEvent event) {
+    Map<Long, Long> start = m_startBytes.isEmpty() ? null : m_startBytes.pop();
+    Map<Long, Long> end = (start == null) ? null : allocatedBytes();
+    long bytes = -1;
+    if (end != null) {
+      // workers started during the phase allocated all of their bytes within it
+      bytes = 0;
+      for (Map.Entry<Long, Long> entry : end.entrySet())
+	bytes += entry.getValue() - start.getOrDefault(entry.getKey(), 0L);
+    }
+
+    Measurement measurement = m_measurements.get(event.getPhase());
+    if (measurement == null) {
+      measurement = new Measurement();
+      m_measurements.put(event.getPhase(), measurement);
+    }
+    measurement.add(event.getDurationNanos(), bytes);
+  }
+
+  /**
+   * Get the recorded measurements.
+   *
+   * @return Measurements per phase
+   */
+  public synchronized Map<PhaseEvent.Phase, Measurement> getMeasurements() {
+    return new EnumMap<>(m_measurements);
+  }
+
+  /**
+   * Wall time and allocated bytes of a phase.
+   */
+  public static class Measurement {
+
+    /** Number of invocations */
+    public int count;
+
+    /** Total wall time in nanoseconds */
+    public long nanos;
+
+    /** Total allocated bytes, -1 if unknown */
+    public long bytes;
+
+    /** Add the measurement of an invocation */
+    protected void add(long nanos, long bytes) {
+      this.count++;
+      this.nanos += nanos;
+      this.bytes = (bytes == -1 || (this.count > 1 && this.bytes == -1)) ? -1 : this.bytes + bytes;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package com.github.waikatodatamining.matrix.test.performance;
+
+import com.github.waikatodatamining.matrix.core.algorithm.PhaseEvent;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Performance regression of a single regression setup: compares the
+ * recorded wall time and allocated bytes of each phase against the baseline
+ * stored next to the reference files. Missing baselines get created, just
+ * like missing references.
+ * <p>
+ * Configured via system properties (e.g. -Dperformance.mode=fail):
+ * <ul>
+ *   <li>performance.mode: off, warn (default) or fail</li>
+ *   <li>performance.tolerance: factor by which a measurement may exceed the
+ *   baseline (default: 5)</li>
+ *   <li>performance.minMillis: wall times below this are not checked, as they
+ *   are dominated by noise and JIT compilation (default: 100)</li>
+ *   <li>performance.minKB: likewise for the allocated bytes, which include
+ *   class loading in the first test of a JVM (default: 4096)</li>
+ * </ul>
+ *
+ * @author Steven Lang
+ */
+public class PerformanceRegression {
+
+  /** Baseline file name (in the directory of the reference files) */
+  public final static String BASELINE_FILE = "performance.properties";
+
+  /** The checking modes */
+  public enum Mode {
+    OFF,
+    WARN,
+    FAIL,
+  }
+
+  /** Path to the baseline file */
+  protected String m_path;
+
+  /** Recorded measurements */
+  protected Map<PhaseEvent.Phase, PerformanceRecorder.Measurement> m_actual;
+
+  /**
+   * Constructor.
+   *
+   * @param dir    Directory of the reference files of the setup
+   * @param actual Recorded measurements
+   */
+  public PerformanceRegression(String dir, Map<PhaseEvent.Phase, PerformanceRecorder.Measurement> actual) {
+    m_path = new File(dir, BASELINE_FILE).getPath();
+    m_actual = actual;
+  }
+
+  /** Get the configured mode */
+  public static Mode getMode() {
+    return Mode.valueOf(System.getProperty("performance.mode", Mode.WARN.name()).toUpperCase());
+  }
+
+  /** Get the configured tolerance factor */
+  public static double getTolerance() {
+    return Double.parseDouble(System.getProperty("performance.tolerance", "5"));
+  }
+
+  /** Get the configured minimum wall time to check */
+  public static long getMinNanos() {
+    return (long) (Double.parseDouble(System.getProperty("performance.minMillis", "100")) * 1000000L);
+  }
+
+  /** Get the configured minimum allocated bytes to check */
+  public static long getMinBytes() {
+    return (long) (Double.parseDouble(System.getProperty("performance.minKB", "4096")) * 1024L);
+  }
+
+  /** Check the measurements against the baseline, creating it if missing */
+  public void runAssertions() {
+    Mode mode = getMode();
+    if (mode == Mode.OFF || m_actual.isEmpty())
+      return;
+
+    File file = new File(m_path);
+    if (!file.exists()) {
+      System.out.println("File <" + m_path + "> does not exist yet. Creating new performance baseline.");
+      writeBaseline(file);
+      return;
+    }
+
+    Properties baseline = readBaseline(file);
+    double tolerance = getTolerance();
+    long minNanos = getMinNanos();
+    long minBytes = getMinBytes();
+    List<String> violations = new ArrayList<>();
+    for (Map.Entry<PhaseEvent.Phase, PerformanceRecorder.Measurement> entry : m_actual.entrySet()) {
+      String prefix = entry.getKey().name().toLowerCase();
+      PerformanceRecorder.Measurement actual = entry.getValue();
+
+      long nanos = Long.parseLong(baseline.getProperty(prefix + ".nanos", "-1"));
+      if (nanos >= 0 && actual.nanos >= minNanos && actual.nanos > tolerance * Math.max(nanos, minNanos))
+	violations.add(prefix + " wall time: " + (actual.nanos / 1000000) + "ms > " + tolerance + " x " + (nanos / 1000000) + "ms");
+
+      long bytes = Long.parseLong(baseline.getProperty(prefix + ".bytes", "-1"));
+      if (bytes >= 0 && actual.bytes >= minBytes && actual.bytes > tolerance * Math.max(bytes, minBytes))
+	violations.add(prefix + " allocated: " + actual.bytes + " bytes > " + tolerance + " x " + bytes + " bytes");
+    }
+
+    if (violations.isEmpty())
+      return;
+
+    String msg = "Performance regression in <" + m_path + ">: " + String.join("; ", violations);
+    if (mode == Mode.FAIL)
+      fail(msg);
+    else
+      System.err.println("WARNING: " + msg);
+  }
+
+  /** Read the baseline */
+  protected Properties readBaseline(File file) {
+    Properties result = new Properties();
+    try (Reader reader = new FileReader(file)) {
+      result.load(reader);
+    }
+    catch (Exception e) {
+      e.printStackTrace();
+      fail("Failed to load performance baseline: " + m_path);
+    }
+    return result;
+  }
+
+  /** Write the measurements as baseline */
+  protected void writeBaseline(File file) {
+    Properties props = new Properties();
+    for (Map.Entry<PhaseEvent.Phase, PerformanceRecorder.Measurement> entry : m_actual.entrySet()) {
+      String prefix = entry.getKey().name().toLowerCase();
+      props.setProperty(prefix + ".count", String.valueOf(entry.getValue().count));
+      props.setProperty(prefix + ".nanos", String.valueOf(entry.getValue().nanos));
+      props.setProperty(prefix + ".bytes", String.valueOf(entry.getValue().bytes));
+    }
+
+    file.getParentFile().mkdirs();
+    try (Writer writer = new FileWriter(file)) {
+      props.store(writer, "Performance baseline, see " + getClass().getName());
+    }
+    catch (Exception e) {
+      e.printStackTrace();
+      fail("Failed to create performance baseline: " + m_path);
+    }
+  }
+}